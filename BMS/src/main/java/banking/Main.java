@@ -1,6 +1,12 @@
 package banking;
 
+import banking.dao.BloomFilter;
 import banking.dao.DBUtil;
+import banking.dao.Metrics;
+import banking.jfr.SceneLoadEvent;
+import banking.scheduler.MonthEndJob;
+import banking.scheduler.MonthEndScheduler;
+import banking.scheduler.StandingOrderScheduler;
 import javafx.application.Application;
 import javafx.application.Platform;
 import javafx.fxml.FXMLLoader;
@@ -10,12 +16,16 @@ import javafx.stage.Stage;
 
 import java.io.IOException;
 import java.net.URL;
+import java.sql.SQLException;
+import java.time.Clock;
 /**
  * Main entry point for the Banking System application.
  * 
  * @author Banking System
  */
 public class Main extends Application {
+    private MonthEndScheduler monthEndScheduler;
+    private StandingOrderScheduler standingOrderScheduler;
     
     /**
      * Starts the JavaFX application by displaying the login view.
@@ -28,13 +38,21 @@ public class Main extends Application {
             // Initialize database
             DBUtil.initDatabase();
 
+            // Process (or resume) the last closed month in the background
+            monthEndScheduler = new MonthEndScheduler(MonthEndJob.getInstance(), Clock.systemDefaultZone());
+            monthEndScheduler.start();
+
+            // Run standing orders as they fall due, catching up on any missed while stopped
+            standingOrderScheduler = new StandingOrderScheduler(Clock.systemDefaultZone());
+            standingOrderScheduler.start();
+
             // Load login FXML
             URL fxmlLocation = getClass().getResource("/banking/view/login.fxml");
             if (fxmlLocation == null) {
                 throw new IOException("Cannot find FXML file /banking/view/login.fxml");
             }
             FXMLLoader fxmlLoader = new FXMLLoader(fxmlLocation);
-            Scene scene = new Scene(fxmlLoader.load(), 600, 400);
+            Scene scene = new Scene(SceneLoadEvent.load(fxmlLoader), 600, 400);
 
             // Load stylesheet
             URL cssLocation = getClass().getResource("/banking/view/styles.css");
@@ -62,6 +80,21 @@ public class Main extends Application {
 
     @Override
     public void stop() {
+        if (monthEndScheduler != null) {
+            monthEndScheduler.stop();
+        }
+        if (standingOrderScheduler != null) {
+            standingOrderScheduler.stop();
+        }
+        // Report how well the uniqueness prefilters did this session, and any lock contention
+        try {
+            for (BloomFilter.Stats stats : DBUtil.uniqueKeyStats()) {
+                System.out.println(stats);
+            }
+            System.out.println("Database metrics: " + Metrics.snapshot());
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
         // Close database connections on application exit
         DBUtil.closeDataSource();
     }
@@ -0,0 +1,583 @@
+package banking.backup;
+
+import banking.bulk.LedgerReconciler;
+import banking.dao.DBUtil;
+import banking.dao.ShardRouter;
+import org.sqlite.SQLiteConnection;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Online backups of the primary database and every shard, taken while tellers keep working.
+ *
+ * A snapshot is one point in time across all shards. Before copying, the backup briefly takes
+ * the write lock of every shard, in shard order, the way a unit of work does; with no writer
+ * mid-commit anywhere, it opens a read transaction on every shard and releases the locks. Each
+ * shard is then copied from its pinned read transaction with SQLite's online backup API, a few
+ * pages at a time with a pause after every step. In WAL mode a read transaction blocks no
+ * writer, and commits made meanwhile are neither copied nor restart the copy, so a transfer
+ * between shards is in the snapshot on both sides or on neither; credits still owed by the
+ * transfer outbox are applied when the restored database is initialized.
+ *
+ * A snapshot is a directory named after its start time holding one gzip file per shard and
+ * a manifest of where each shard lives. Every file is decompressed and checked with
+ * PRAGMA integrity_check before the snapshot is published, so only verified snapshots are
+ * listed, kept or restored. The newest snapshots are kept and older ones deleted.
+ *
+ * <pre>
+ *   java banking.backup.DatabaseBackup backup            take a snapshot
+ *   java banking.backup.DatabaseBackup list              list the snapshots
+ *   java banking.backup.DatabaseBackup restore [name]    restore a snapshot, by default the newest,
+ *                                                       and reconcile the restored ledger
+ * </pre>
+ *
+ * @author Banking System
+ */
+public class DatabaseBackup {
+    public static final Path DEFAULT_DIRECTORY = Paths.get("backups");
+    public static final int DEFAULT_KEEP = 7;
+    public static final int DEFAULT_PAGES_PER_STEP = 256;
+    public static final long DEFAULT_PAUSE_MILLIS = 20;
+
+    private static final String MANIFEST = "manifest.properties";
+    private static final String PARTIAL_SUFFIX = ".partial";
+    private static final DateTimeFormatter NAME_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    /** How often, and how long apart in milliseconds, a step is retried while the source is locked. */
+    private static final int BUSY_RETRIES = 100;
+    private static final int BUSY_SLEEP_MILLIS = 50;
+
+    private final Path directory;
+    private final int keep;
+    private final int pagesPerStep;
+    private final long pauseMillis;
+
+    /**
+     * A verified snapshot.
+     *
+     * @param name The snapshot name, its start time as yyyyMMdd-HHmmss
+     * @param directory The snapshot directory
+     * @param files The database file of each shard, by shard id
+     * @param bytes The compressed size of the snapshot
+     */
+    public record Snapshot(String name, Path directory, Map<Integer, String> files, long bytes) {
+        @Override
+        public String toString() {
+            return String.format("%s  %d shard(s)  %,d bytes", name, files.size(), bytes);
+        }
+    }
+
+    /**
+     * Constructs a DatabaseBackup with the default directory, retention and pacing.
+     */
+    public DatabaseBackup() {
+        this(DEFAULT_DIRECTORY, DEFAULT_KEEP, DEFAULT_PAGES_PER_STEP, DEFAULT_PAUSE_MILLIS);
+    }
+
+    /**
+     * Constructs a DatabaseBackup.
+     *
+     * @param directory The directory holding the snapshots
+     * @param keep How many snapshots are kept
+     * @param pagesPerStep How many pages are copied between pauses
+     * @param pauseMillis How long to pause after each step
+     */
+    public DatabaseBackup(Path directory, int keep, int pagesPerStep, long pauseMillis) {
+        if (keep < 1 || pagesPerStep < 1 || pauseMillis < 0) {
+            throw new IllegalArgumentException("Keep and pages per step must be positive; pause cannot be negative.");
+        }
+        this.directory = directory;
+        this.keep = keep;
+        this.pagesPerStep = pagesPerStep;
+        this.pauseMillis = pauseMillis;
+    }
+
+    /**
+     * Takes a snapshot of every shard, verifies it and deletes the snapshots beyond the retention.
+     *
+     * @return The new snapshot
+     * @throws SQLException if a shard cannot be copied or a copy fails its integrity check
+     * @throws IOException if the snapshot cannot be written
+     */
+    public Snapshot backup() throws SQLException, IOException {
+        String name = LocalDateTime.now().format(NAME_FORMAT);
+        Path partial = directory.resolve(name + PARTIAL_SUFFIX);
+        Path target = directory.resolve(name);
+        if (Files.exists(target)) {
+            throw new IllegalStateException("A snapshot named " + name + " already exists.");
+        }
+        Files.createDirectories(partial);
+        try {
+            List<ShardRouter.Shard> shards = DBUtil.shards().all();
+            List<Connection> pinned = pin(shards);
+            try {
+                for (int i = 0; i < shards.size(); i++) {
+                    copyShard(shards.get(i), pinned.get(i), partial.resolve(shardFileName(shards.get(i).id())));
+                }
+            } catch (SQLException | RuntimeException e) {
+                close(pinned, e);
+                throw e;
+            }
+            close(pinned, null);
+            // Compressed and verified after the read transactions end, so checkpoints are held back no longer
+            Properties manifest = new Properties();
+            for (ShardRouter.Shard shard : shards) {
+                verify(gzip(partial.resolve(shardFileName(shard.id()))));
+                manifest.setProperty("shard." + shard.id(), shard.file());
+            }
+            try (OutputStream out = Files.newOutputStream(partial.resolve(MANIFEST))) {
+                manifest.store(out, "Banking System backup " + name);
+            }
+            Files.move(partial, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (SQLException | IOException | RuntimeException e) {
+            deleteTree(partial);
+            throw e;
+        }
+        rotate();
+        return read(target);
+    }
+
+    /**
+     * Lists the snapshots, oldest first. Unfinished snapshots are not listed.
+     *
+     * @return The snapshots
+     * @throws IOException if the backup directory cannot be read
+     */
+    public List<Snapshot> snapshots() throws IOException {
+        List<Snapshot> snapshots = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return snapshots;
+        }
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+            for (Path entry : entries) {
+                if (Files.isRegularFile(entry.resolve(MANIFEST))) {
+                    snapshots.add(read(entry));
+                }
+            }
+        }
+        snapshots.sort(Comparator.comparing(Snapshot::name));
+        return snapshots;
+    }
+
+    /**
+     * Restores a snapshot over the database files it was taken from. The application must be
+     * stopped: connections left open would keep writing to the replaced files. Every file is
+     * verified again before anything is replaced, and the replaced files are moved aside with a
+     * .pre-restore suffix. If replacing any file fails, the files already replaced are put
+     * back, so the database is either wholly restored or left as it was; once every file is
+     * replaced, the files moved aside are deleted.
+     *
+     * @param name The snapshot name, or null for the newest snapshot
+     * @return The restored snapshot
+     * @throws IllegalArgumentException if there is no such snapshot
+     * @throws SQLException if a file of the snapshot fails its integrity check
+     * @throws IOException if a file cannot be read or replaced
+     */
+    public Snapshot restore(String name) throws SQLException, IOException {
+        if (DBUtil.getConfig().isInMemory()) {
+            throw new IllegalStateException("An in-memory database cannot be restored from a backup.");
+        }
+        List<Snapshot> snapshots = snapshots();
+        Snapshot snapshot = snapshots.stream()
+                .filter(s -> name == null || s.name().equals(name))
+                .reduce((first, second) -> second)
+                .orElseThrow(() -> new IllegalArgumentException(
+                        name == null ? "There are no snapshots in " + directory : "No snapshot named " + name));
+
+        // Decompress and check everything first, so a bad snapshot leaves the database untouched
+        Map<Path, Path> staged = new LinkedHashMap<>();
+        try {
+            for (Map.Entry<Integer, String> entry : snapshot.files().entrySet()) {
+                Path target = Paths.get(entry.getValue());
+                Path restoring = target.resolveSibling(target.getFileName() + ".restoring");
+                gunzip(snapshot.directory().resolve(shardFileName(entry.getKey()) + ".gz"), restoring);
+                checkIntegrity(restoring);
+                staged.put(restoring, target);
+            }
+        } catch (SQLException | IOException | RuntimeException e) {
+            for (Path restoring : staged.keySet()) {
+                deleteDatabase(restoring);
+            }
+            throw e;
+        }
+
+        // Each replaced file and where it was kept, so a failed replace can put everything back
+        Map<Path, Path> kept = new LinkedHashMap<>();
+        List<Path> replaced = new ArrayList<>();
+        try {
+            for (Map.Entry<Path, Path> entry : staged.entrySet()) {
+                Path target = entry.getValue();
+                // The WAL goes with the replaced file: left behind, it would be replayed into the restored one
+                for (String suffix : new String[] {"", "-wal", "-shm"}) {
+                    Path file = target.resolveSibling(target.getFileName() + suffix);
+                    if (Files.exists(file)) {
+                        Path keep = target.resolveSibling(target.getFileName() + ".pre-restore" + suffix);
+                        Files.move(file, keep, StandardCopyOption.REPLACE_EXISTING);
+                        kept.put(file, keep);
+                    }
+                }
+                Files.move(entry.getKey(), target, StandardCopyOption.ATOMIC_MOVE);
+                replaced.add(target);
+                deleteDatabase(entry.getKey());
+            }
+        } catch (IOException | RuntimeException e) {
+            undoRestore(staged.keySet(), replaced, kept, e);
+            throw e;
+        }
+        // The restore is complete; a file that cannot be deleted is reported and left for the operator
+        for (Path keep : kept.values()) {
+            try {
+                Files.deleteIfExists(keep);
+            } catch (IOException e) {
+                System.err.println("Restored " + snapshot.name() + " but could not delete " + keep + ": " + e);
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Puts the database files back as they were before a restore that failed part way, so no
+     * shard is left restored while another is not. Failures while undoing are added to the
+     * original failure as suppressed exceptions.
+     *
+     * @param staged The decompressed files of the snapshot
+     * @param replaced The database files already replaced by a restored file
+     * @param kept Each database file moved aside, and where it was moved to
+     * @param failure The failure that stopped the restore
+     */
+    private static void undoRestore(Iterable<Path> staged, List<Path> replaced, Map<Path, Path> kept,
+                                    Exception failure) {
+        List<Path> restored = new ArrayList<>();
+        staged.forEach(restored::add);
+        restored.addAll(replaced);
+        for (Path file : restored) {
+            try {
+                deleteDatabase(file);
+            } catch (IOException e) {
+                failure.addSuppressed(e);
+            }
+        }
+        for (Map.Entry<Path, Path> entry : kept.entrySet()) {
+            try {
+                Files.move(entry.getValue(), entry.getKey(), StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e) {
+                failure.addSuppressed(e);
+            }
+        }
+    }
+
+    /**
+     * Opens a read transaction on every shard at the same point in time. The write lock of every
+     * shard is held, through a unit of work, while the read transactions begin, so none of them
+     * sees only part of a unit that commits several shards.
+     *
+     * @param shards The shards, in shard order
+     * @return A connection per shard, in the same order, each inside its read transaction
+     * @throws SQLException if a shard cannot be locked or opened
+     */
+    private static List<Connection> pin(List<ShardRouter.Shard> shards) throws SQLException {
+        return DBUtil.inTransaction(() -> {
+            List<Connection> pinned = new ArrayList<>(shards.size());
+            try {
+                for (ShardRouter.Shard shard : shards) {
+                    // Takes the shard's write lock until the unit ends
+                    DBUtil.getConnection(shard).close();
+                }
+                for (ShardRouter.Shard shard : shards) {
+                    Connection conn = DriverManager.getConnection(shard.url());
+                    pinned.add(conn);
+                    conn.setAutoCommit(false);
+                    try (Statement st = conn.createStatement();
+                         ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM sqlite_master")) {
+                        rs.next();
+                    }
+                }
+            } catch (SQLException | RuntimeException e) {
+                close(pinned, e);
+                throw e;
+            }
+            return pinned;
+        });
+    }
+
+    /**
+     * Ends the read transactions opened by pin and closes their connections, every one of them
+     * even if some fail. Those failures are added to the failure that ended the backup as
+     * suppressed exceptions, or thrown if the backup has not failed.
+     *
+     * @param pinned The connections
+     * @param failure The failure that ended the backup, or null if it is going well
+     * @throws SQLException if a connection cannot be closed and there is no failure to add it to
+     */
+    private static void close(List<Connection> pinned, Exception failure) throws SQLException {
+        SQLException closeFailure = null;
+        for (Connection conn : pinned) {
+            try (conn) {
+                conn.rollback();
+            } catch (SQLException e) {
+                if (failure != null) {
+                    failure.addSuppressed(e);
+                } else if (closeFailure == null) {
+                    closeFailure = e;
+                } else {
+                    closeFailure.addSuppressed(e);
+                }
+            }
+        }
+        if (closeFailure != null) {
+            throw closeFailure;
+        }
+    }
+
+    /**
+     * Copies one shard with the online backup API, pausing between steps.
+     *
+     * @param shard The shard
+     * @param pinned A connection to the shard inside the read transaction to copy
+     * @param raw The file to copy it to
+     * @throws SQLException if the copy fails
+     */
+    private void copyShard(ShardRouter.Shard shard, Connection pinned, Path raw) throws SQLException {
+        SQLiteConnection sqlite = pinned.unwrap(SQLiteConnection.class);
+        int rc = sqlite.getDatabase().backup("main", raw.toString(), (remaining, pageCount) -> {
+            if (remaining > 0 && pauseMillis > 0) {
+                try {
+                    Thread.sleep(pauseMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }, BUSY_SLEEP_MILLIS, BUSY_RETRIES, pagesPerStep);
+        if (rc != 0) {
+            throw new SQLException("Failed to back up shard " + shard.id() + " (SQLite result code " + rc + ")");
+        }
+    }
+
+    /**
+     * Verifies a compressed database file by decompressing it next to itself and checking it.
+     *
+     * @param compressed The gzip file
+     * @throws SQLException if the database fails its integrity check
+     * @throws IOException if the file cannot be decompressed
+     */
+    private static void verify(Path compressed) throws SQLException, IOException {
+        String fileName = compressed.getFileName().toString();
+        Path check = compressed.resolveSibling(fileName.substring(0, fileName.length() - 3) + ".verify");
+        try {
+            gunzip(compressed, check);
+            checkIntegrity(check);
+        } finally {
+            deleteDatabase(check);
+        }
+    }
+
+    /**
+     * Runs PRAGMA integrity_check on a database file.
+     *
+     * @param file The database file
+     * @throws SQLException if the check reports a problem
+     */
+    private static void checkIntegrity(Path file) throws SQLException {
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + file);
+             Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("PRAGMA integrity_check;")) {
+            String result = rs.next() ? rs.getString(1) : null;
+            if (!"ok".equals(result)) {
+                throw new SQLException("Integrity check of " + file.getFileName() + " failed: " + result);
+            }
+        }
+    }
+
+    /**
+     * Compresses a file and deletes the original.
+     *
+     * @param raw The file
+     * @return The gzip file
+     * @throws IOException if the file cannot be compressed
+     */
+    private static Path gzip(Path raw) throws IOException {
+        Path compressed = raw.resolveSibling(raw.getFileName() + ".gz");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(compressed))) {
+            Files.copy(raw, out);
+        }
+        deleteDatabase(raw);
+        return compressed;
+    }
+
+    /**
+     * Decompresses a gzip file.
+     *
+     * @param compressed The gzip file
+     * @param target The file to write, replaced if it exists
+     * @throws IOException if the file cannot be decompressed
+     */
+    private static void gunzip(Path compressed, Path target) throws IOException {
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(compressed))) {
+            Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Deletes the snapshots beyond the retention, oldest first, and unfinished ones.
+     *
+     * @throws IOException if a snapshot cannot be deleted
+     */
+    private void rotate() throws IOException {
+        List<Snapshot> snapshots = snapshots();
+        for (int i = 0; i < snapshots.size() - keep; i++) {
+            deleteTree(snapshots.get(i).directory());
+        }
+        try (DirectoryStream<Path> partials = Files.newDirectoryStream(directory, "*" + PARTIAL_SUFFIX)) {
+            for (Path partial : partials) {
+                deleteTree(partial);
+            }
+        }
+    }
+
+    /**
+     * Reads a snapshot's manifest.
+     *
+     * @param snapshotDirectory The snapshot directory
+     * @return The snapshot
+     * @throws IOException if the manifest cannot be read
+     */
+    private static Snapshot read(Path snapshotDirectory) throws IOException {
+        Properties manifest = new Properties();
+        try (InputStream in = Files.newInputStream(snapshotDirectory.resolve(MANIFEST))) {
+            manifest.load(in);
+        }
+        Map<Integer, String> files = new LinkedHashMap<>();
+        manifest.stringPropertyNames().stream()
+                .filter(key -> key.startsWith("shard."))
+                .sorted(Comparator.comparingInt(key -> Integer.parseInt(key.substring("shard.".length()))))
+                .forEach(key -> files.put(Integer.parseInt(key.substring("shard.".length())),
+                                          manifest.getProperty(key)));
+        long bytes;
+        try (Stream<Path> entries = Files.list(snapshotDirectory)) {
+            bytes = entries.mapToLong(DatabaseBackup::size).sum();
+        }
+        return new Snapshot(snapshotDirectory.getFileName().toString(), snapshotDirectory, files, bytes);
+    }
+
+    /**
+     * Gets the name of a shard's copy inside a snapshot, before compression.
+     *
+     * @param shardId The shard id
+     * @return The file name
+     */
+    private static String shardFileName(int shardId) {
+        return "shard-" + shardId + ".db";
+    }
+
+    /**
+     * Gets the size of a file.
+     *
+     * @param file The file
+     * @return The size in bytes
+     */
+    private static long size(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Deletes a database file together with its WAL and shared-memory files.
+     *
+     * @param file The database file
+     * @throws IOException if a file cannot be deleted
+     */
+    private static void deleteDatabase(Path file) throws IOException {
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(file.resolveSibling(file.getFileName() + "-wal"));
+        Files.deleteIfExists(file.resolveSibling(file.getFileName() + "-shm"));
+    }
+
+    /**
+     * Deletes a directory and everything in it.
+     *
+     * @param root The directory
+     * @throws IOException if a file cannot be deleted
+     */
+    private static void deleteTree(Path root) throws IOException {
+        if (!Files.exists(root)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(root)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    /**
+     * Command-line entry point.
+     *
+     * @param args backup, list or restore [name], optionally preceded by --dir=path and --keep=n
+     */
+    public static void main(String[] args) {
+        Path dir = DEFAULT_DIRECTORY;
+        int keep = DEFAULT_KEEP;
+        List<String> rest = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--dir=")) {
+                dir = Paths.get(arg.substring("--dir=".length()));
+            } else if (arg.startsWith("--keep=")) {
+                keep = Integer.parseInt(arg.substring("--keep=".length()));
+            } else {
+                rest.add(arg);
+            }
+        }
+        if (rest.isEmpty() || !List.of("backup", "list", "restore").contains(rest.get(0))
+            || rest.size() > (rest.get(0).equals("restore") ? 2 : 1)) {
+            System.out.println("Usage: DatabaseBackup [--dir=backups] [--keep=7] backup | list | restore [name]");
+            return;
+        }
+        DatabaseBackup backups = new DatabaseBackup(dir, keep, DEFAULT_PAGES_PER_STEP, DEFAULT_PAUSE_MILLIS);
+        try {
+            switch (rest.get(0)) {
+                case "backup" -> {
+                    DBUtil.initDatabase();
+                    System.out.println("Backed up " + backups.backup());
+                }
+                case "list" -> backups.snapshots().forEach(System.out::println);
+                default -> {
+                    System.out.println("Restored " + backups.restore(rest.size() > 1 ? rest.get(1) : null));
+                    // Initializing applies the credits owed by the outbox; the reconciler then checks every balance
+                    DBUtil.initDatabase();
+                    System.out.println(new LedgerReconciler().reconcile(d -> System.out.println(d.describe())));
+                }
+            }
+        } catch (SQLException | IOException | RuntimeException e) {
+            System.err.println("Error: " + e.getMessage());
+            e.printStackTrace();
+        } finally {
+            DBUtil.closeDataSource();
+        }
+    }
+}
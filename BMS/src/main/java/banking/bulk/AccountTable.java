@@ -0,0 +1,236 @@
+package banking.bulk;
+
+import banking.model.InvestmentAccount;
+import banking.model.SavingsAccount;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Columnar, primitive-array view of the account book for bulk computations.
+ * Each account is one index into parallel arrays of id, balance, type code and
+ * branch code, so a full pass over millions of accounts is a tight loop over
+ * contiguous memory instead of a walk over Account objects and their strings.
+ * Branch names are dictionary-encoded: every distinct branch is stored once.
+ *
+ * The table is not thread-safe while it is being filled; once loaded, disjoint index
+ * ranges may be updated from different threads.
+ * 
+ * @author Banking System
+ */
+public final class AccountTable {
+    public static final byte TYPE_SAVINGS = 0;
+    public static final byte TYPE_INVESTMENT = 1;
+    public static final byte TYPE_CHEQUE = 2;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private long[] ids;
+    private long[] balances;
+    private byte[] types;
+    private short[] branches;
+    private int size;
+
+    private final List<String> branchNames = new ArrayList<>();
+    private final Map<String, Short> branchCodes = new HashMap<>();
+
+    /**
+     * Constructs an empty AccountTable.
+     */
+    public AccountTable() {
+        this(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Constructs an empty AccountTable with room for the given number of accounts.
+     * 
+     * @param capacity The initial capacity
+     */
+    public AccountTable(int capacity) {
+        int initial = Math.max(capacity, 16);
+        ids = new long[initial];
+        balances = new long[initial];
+        types = new byte[initial];
+        branches = new short[initial];
+    }
+
+    /**
+     * Appends an account row.
+     * 
+     * @param id The account ID
+     * @param balance The balance in thebe
+     * @param type The account type (SAVINGS, INVESTMENT or CHEQUE)
+     * @param branch The branch name
+     * @throws IllegalArgumentException if the type is unknown
+     */
+    public void add(long id, long balance, String type, String branch) {
+        add(id, balance, typeCode(type), branchCode(branch));
+    }
+
+    /**
+     * Appends an account row using pre-encoded type and branch codes.
+     * 
+     * @param id The account ID
+     * @param balance The balance in thebe
+     * @param type The type code
+     * @param branch The branch code, as returned by branchCode(String)
+     */
+    public void add(long id, long balance, byte type, short branch) {
+        if (size == ids.length) {
+            int capacity = size * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            balances = Arrays.copyOf(balances, capacity);
+            types = Arrays.copyOf(types, capacity);
+            branches = Arrays.copyOf(branches, capacity);
+        }
+        ids[size] = id;
+        balances[size] = balance;
+        types[size] = type;
+        branches[size] = branch;
+        size++;
+    }
+
+    /**
+     * Gets the number of accounts in the table.
+     * 
+     * @return The row count
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the account ID at an index.
+     * 
+     * @param index The row index
+     * @return The account ID
+     */
+    public long id(int index) {
+        return ids[index];
+    }
+
+    /**
+     * Gets the balance at an index.
+     * 
+     * @param index The row index
+     * @return The balance in thebe
+     */
+    public long balance(int index) {
+        return balances[index];
+    }
+
+    /**
+     * Sets the balance at an index.
+     * 
+     * @param index The row index
+     * @param balance The new balance in thebe
+     */
+    public void setBalance(int index, long balance) {
+        balances[index] = balance;
+    }
+
+    /**
+     * Gets the type code at an index.
+     * 
+     * @param index The row index
+     * @return The type code
+     */
+    public byte type(int index) {
+        return types[index];
+    }
+
+    /**
+     * Gets the branch code at an index.
+     * 
+     * @param index The row index
+     * @return The branch code
+     */
+    public short branch(int index) {
+        return branches[index];
+    }
+
+    /**
+     * Gets the number of distinct branches in the table.
+     * 
+     * @return The branch dictionary size
+     */
+    public int branchCount() {
+        return branchNames.size();
+    }
+
+    /**
+     * Gets the branch name for a branch code.
+     * 
+     * @param code The branch code
+     * @return The branch name (may be null for accounts without a branch)
+     */
+    public String branchName(short code) {
+        return branchNames.get(code);
+    }
+
+    /**
+     * Gets the code for a branch name, adding it to the dictionary if needed.
+     * 
+     * @param branch The branch name
+     * @return The branch code
+     */
+    public short branchCode(String branch) {
+        Short code = branchCodes.get(branch);
+        if (code == null) {
+            if (branchNames.size() > Short.MAX_VALUE) {
+                throw new IllegalStateException("Too many distinct branches for the account table.");
+            }
+            code = (short) branchNames.size();
+            branchNames.add(branch);
+            branchCodes.put(branch, code);
+        }
+        return code;
+    }
+
+    /**
+     * Converts an account type name to its type code.
+     * 
+     * @param type The account type (SAVINGS, INVESTMENT or CHEQUE)
+     * @return The type code
+     * @throws IllegalArgumentException if the type is unknown
+     */
+    public static byte typeCode(String type) {
+        return switch (type) {
+            case "SAVINGS" -> TYPE_SAVINGS;
+            case "INVESTMENT" -> TYPE_INVESTMENT;
+            case "CHEQUE" -> TYPE_CHEQUE;
+            default -> throw new IllegalArgumentException("Unknown account type: " + type);
+        };
+    }
+
+    /**
+     * Converts a type code back to the account type name.
+     * 
+     * @param code The type code
+     * @return The account type
+     */
+    public static String typeName(byte code) {
+        return switch (code) {
+            case TYPE_SAVINGS -> "SAVINGS";
+            case TYPE_INVESTMENT -> "INVESTMENT";
+            case TYPE_CHEQUE -> "CHEQUE";
+            default -> throw new IllegalArgumentException("Unknown account type code: " + code);
+        };
+    }
+
+    /**
+     * Gets the monthly interest rate of each type code in basis points, indexed by code.
+     * 
+     * @return The monthly rates in basis points
+     */
+    public static int[] monthlyRates() {
+        int[] rates = new int[3];
+        rates[TYPE_SAVINGS] = SavingsAccount.getInterestRateBasisPoints();
+        rates[TYPE_INVESTMENT] = InvestmentAccount.getInterestRateBasisPoints();
+        rates[TYPE_CHEQUE] = 0;
+        return rates;
+    }
+}
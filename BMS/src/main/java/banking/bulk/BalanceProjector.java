@@ -0,0 +1,247 @@
+package banking.bulk;
+
+import banking.dao.AccountDAO;
+import banking.dao.DBUtil;
+import banking.model.Account;
+import banking.model.Money;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Projects balances forward under monthly compound interest.
+ * A projection applies and rounds each month's interest in long arithmetic, exactly as
+ * monthly interest posting does, so it is the balance the account will actually reach if
+ * nothing else is deposited or withdrawn. That costs one integer multiplication per month
+ * of the horizon, at most MAX_MONTHS per account; a closed-form growth factor would be
+ * cheaper but rounds once instead of every month, and drifts from the posted balances.
+ *
+ * The whole book is projected from an AccountTable with fork-join parallelism over
+ * index ranges; each range totals its accounts into primitive arrays indexed by
+ * branch and type, and the ranges are merged pairwise.
+ *
+ * @author Banking System
+ */
+public class BalanceProjector {
+    /** Below this many rows a task is computed directly instead of being split. */
+    private static final int SPLIT_THRESHOLD = 16_384;
+    private static final int TYPE_COUNT = 3;
+    /** Longest horizon accepted; 5% a month for ten years is a factor of about 350. */
+    public static final int MAX_MONTHS = 120;
+
+    private final AccountDAO accountDAO;
+    private final ForkJoinPool pool;
+
+    /**
+     * Constructs a BalanceProjector using the common fork-join pool.
+     */
+    public BalanceProjector() {
+        this(new AccountDAO(), ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructs a BalanceProjector.
+     *
+     * @param accountDAO The account DAO used to load the book
+     * @param pool The fork-join pool used for computation
+     */
+    public BalanceProjector(AccountDAO accountDAO, ForkJoinPool pool) {
+        this.accountDAO = accountDAO;
+        this.pool = pool;
+    }
+
+    /**
+     * Projects a balance.
+     *
+     * @param balance The current balance in thebe
+     * @param basisPoints The monthly interest rate in basis points
+     * @param months The horizon in months
+     * @return The projected balance in thebe, with each month's interest rounded half-up
+     * @throws IllegalArgumentException if the horizon is negative or longer than MAX_MONTHS
+     * @throws ArithmeticException if the projected balance overflows
+     */
+    public static long project(long balance, int basisPoints, int months) {
+        checkHorizon(months);
+        return compound(balance, basisPoints, months);
+    }
+
+    /**
+     * Projects the balance of an account at its type's monthly rate.
+     *
+     * @param account The account
+     * @param months The horizon in months
+     * @return The projected balance in thebe
+     * @throws IllegalArgumentException if the horizon is negative or longer than MAX_MONTHS
+     * @throws ArithmeticException if the projected balance overflows
+     */
+    public static long project(Account account, int months) {
+        int rate = AccountTable.monthlyRates()[AccountTable.typeCode(account.getAccountType())];
+        return project(account.getBalance(), rate, months);
+    }
+
+    /**
+     * Checks that a horizon is accepted.
+     *
+     * @param months The horizon in months
+     * @throws IllegalArgumentException if the horizon is negative or longer than MAX_MONTHS
+     */
+    private static void checkHorizon(int months) {
+        if (months < 0 || months > MAX_MONTHS) {
+            throw new IllegalArgumentException("Projection horizon must be between 0 and " + MAX_MONTHS + " months.");
+        }
+    }
+
+    /**
+     * Adds a month's interest, rounded to the thebe, for each month of a horizon.
+     *
+     * @param balance The current balance in thebe
+     * @param basisPoints The monthly interest rate in basis points
+     * @param months The horizon in months
+     * @return The projected balance in thebe
+     * @throws ArithmeticException if the projected balance overflows
+     */
+    private static long compound(long balance, int basisPoints, int months) {
+        if (basisPoints == 0) {
+            return balance;
+        }
+        for (int m = 0; m < months; m++) {
+            balance = Math.addExact(balance, Money.interest(balance, basisPoints));
+        }
+        return balance;
+    }
+
+    /**
+     * Loads the book and projects it.
+     *
+     * @param months The horizon in months
+     * @return The projection by branch and type
+     * @throws IllegalArgumentException if the horizon is negative or longer than MAX_MONTHS
+     */
+    public BookProjection projectBook(int months) {
+        long start = System.nanoTime();
+        AccountTable table = accountDAO.loadAccountTable();
+        return projectBook(table, months, start);
+    }
+
+    /**
+     * Projects every row of a table.
+     *
+     * @param table The account table
+     * @param months The horizon in months
+     * @return The projection by branch and type
+     * @throws IllegalArgumentException if the horizon is negative or longer than MAX_MONTHS
+     */
+    public BookProjection projectBook(AccountTable table, int months) {
+        return projectBook(table, months, System.nanoTime());
+    }
+
+    private BookProjection projectBook(AccountTable table, int months, long start) {
+        checkHorizon(months);
+        Totals totals = pool.invoke(new ProjectTask(table, AccountTable.monthlyRates(), months, 0, table.size()));
+
+        List<BookProjection.Group> groups = new ArrayList<>();
+        for (int branch = 0; branch < table.branchCount(); branch++) {
+            for (int type = 0; type < TYPE_COUNT; type++) {
+                int slot = branch * TYPE_COUNT + type;
+                if (totals.accounts[slot] > 0) {
+                    groups.add(new BookProjection.Group(table.branchName((short) branch),
+                            AccountTable.typeName((byte) type), totals.accounts[slot],
+                            totals.balance[slot], totals.projected[slot]));
+                }
+            }
+        }
+        return new BookProjection(months, groups, (System.nanoTime() - start) / 1e9);
+    }
+
+    /**
+     * Per branch-and-type totals, indexed by branch * TYPE_COUNT + type.
+     */
+    private static final class Totals {
+        final long[] accounts;
+        final long[] balance;
+        final long[] projected;
+
+        Totals(int slots) {
+            accounts = new long[slots];
+            balance = new long[slots];
+            projected = new long[slots];
+        }
+
+        Totals merge(Totals other) {
+            for (int i = 0; i < accounts.length; i++) {
+                accounts[i] += other.accounts[i];
+                balance[i] += other.balance[i];
+                projected[i] += other.projected[i];
+            }
+            return this;
+        }
+    }
+
+    /**
+     * Projects and totals a range of rows, splitting large ranges.
+     */
+    // ForkJoinTask is Serializable, but a projection task never leaves the pool that runs it
+    @SuppressWarnings("serial")
+    private static final class ProjectTask extends RecursiveTask<Totals> {
+        private final AccountTable table;
+        private final int[] rates;
+        private final int months;
+        private final int from;
+        private final int to;
+
+        ProjectTask(AccountTable table, int[] rates, int months, int from, int to) {
+            this.table = table;
+            this.rates = rates;
+            this.months = months;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Totals compute() {
+            if (to - from <= SPLIT_THRESHOLD) {
+                Totals totals = new Totals(table.branchCount() * TYPE_COUNT);
+                for (int i = from; i < to; i++) {
+                    int type = table.type(i);
+                    int slot = table.branch(i) * TYPE_COUNT + type;
+                    long balance = table.balance(i);
+                    totals.accounts[slot]++;
+                    totals.balance[slot] += balance;
+                    totals.projected[slot] += compound(balance, rates[type], months);
+                }
+                return totals;
+            }
+            int mid = (from + to) >>> 1;
+            ProjectTask left = new ProjectTask(table, rates, months, from, mid);
+            left.fork();
+            Totals right = new ProjectTask(table, rates, months, mid, to).compute();
+            return left.join().merge(right);
+        }
+    }
+
+    /**
+     * Command-line entry point: projects the book and prints it by branch and type.
+     *
+     * @param args The horizons in months; 12 and 60 if none are given
+     */
+    public static void main(String[] args) {
+        int[] horizons = args.length == 0 ? new int[] {12, 60} : new int[args.length];
+        for (int i = 0; i < args.length; i++) {
+            horizons[i] = Integer.parseInt(args[i]);
+        }
+        DBUtil.initDatabase();
+        try {
+            BalanceProjector projector = new BalanceProjector();
+            long start = System.nanoTime();
+            AccountTable table = projector.accountDAO.loadAccountTable();
+            System.out.printf("Loaded %d account(s) in %.2f s%n", table.size(), (System.nanoTime() - start) / 1e9);
+            for (int months : horizons) {
+                System.out.println(projector.projectBook(table, months));
+            }
+        } finally {
+            DBUtil.closeDataSource();
+        }
+    }
+}
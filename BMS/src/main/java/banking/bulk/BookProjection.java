@@ -0,0 +1,81 @@
+package banking.bulk;
+
+import banking.model.Money;
+
+import java.util.List;
+
+/**
+ * A projection of the whole account book, aggregated by branch and account type.
+ *
+ * @param months The projection horizon in months
+ * @param groups One entry per branch and account type that holds accounts, ordered by branch then type
+ * @param seconds The time the projection took, including loading the book
+ *
+ * @author Banking System
+ */
+public record BookProjection(int months, List<Group> groups, double seconds) {
+
+    /**
+     * The accounts of one type at one branch.
+     *
+     * @param branch The branch name, or null for accounts without a branch
+     * @param type The account type
+     * @param accounts The number of accounts
+     * @param balance The current total balance in thebe
+     * @param projected The projected total balance in thebe
+     */
+    public record Group(String branch, String type, long accounts, long balance, long projected) {
+    }
+
+    /**
+     * Gets the number of accounts projected.
+     *
+     * @return The account count
+     */
+    public long accounts() {
+        long total = 0;
+        for (Group group : groups) {
+            total += group.accounts();
+        }
+        return total;
+    }
+
+    /**
+     * Gets the current total balance of the book.
+     *
+     * @return The total balance in thebe
+     */
+    public long balance() {
+        long total = 0;
+        for (Group group : groups) {
+            total += group.balance();
+        }
+        return total;
+    }
+
+    /**
+     * Gets the projected total balance of the book.
+     *
+     * @return The projected total balance in thebe
+     */
+    public long projected() {
+        long total = 0;
+        for (Group group : groups) {
+            total += group.projected();
+        }
+        return total;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Projection over %d month(s): %d account(s), BWP %s now, BWP %s projected, %.2f s",
+                                months, accounts(), Money.format(balance()), Money.format(projected()), seconds));
+        for (Group group : groups) {
+            sb.append(System.lineSeparator()).append(String.format("  %-20s %-10s %10d  BWP %18s -> BWP %18s",
+                    group.branch(), group.type(), group.accounts(),
+                    Money.format(group.balance()), Money.format(group.projected())));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,123 @@
+package banking.bulk;
+
+import banking.model.Money;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Bulk computations over the whole account book.
+ * The book is streamed into an AccountTable and processed in memory with fork-join
+ * parallelism over index ranges. Nothing is written back: the table is a snapshot, and
+ * absolute balances computed from it would overwrite changes made since it was loaded.
+ * Interest is posted by MonthEndJob with relative updates.
+ * 
+ * @author Banking System
+ */
+public class BulkAccountProcessor {
+    /** Below this many rows a task is computed directly instead of being split. */
+    private static final int SPLIT_THRESHOLD = 16_384;
+
+    private final ForkJoinPool pool;
+
+    /**
+     * Constructs a BulkAccountProcessor using the common fork-join pool.
+     */
+    public BulkAccountProcessor() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructs a BulkAccountProcessor.
+     * 
+     * @param pool The fork-join pool used for computation
+     */
+    public BulkAccountProcessor(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Applies one month of interest to every row of a table, in memory.
+     * 
+     * @param table The account table
+     */
+    public void applyMonthlyInterest(AccountTable table) {
+        pool.invoke(new InterestTask(table, AccountTable.monthlyRates(), 0, table.size()));
+    }
+
+    /**
+     * Sums the balances of every row of a table.
+     * 
+     * @param table The account table
+     * @return The total balance in thebe
+     */
+    public long totalBalance(AccountTable table) {
+        return pool.invoke(new SumTask(table, 0, table.size()));
+    }
+
+    /**
+     * Applies interest to a range of rows, splitting large ranges.
+     */
+    // ForkJoinTask is Serializable, but these tasks are never written out
+    @SuppressWarnings("serial")
+    private static final class InterestTask extends RecursiveAction {
+        private final AccountTable table;
+        private final int[] rates;
+        private final int from;
+        private final int to;
+
+        InterestTask(AccountTable table, int[] rates, int from, int to) {
+            this.table = table;
+            this.rates = rates;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SPLIT_THRESHOLD) {
+                for (int i = from; i < to; i++) {
+                    long balance = table.balance(i);
+                    table.setBalance(i, balance + Money.interest(balance, rates[table.type(i)]));
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new InterestTask(table, rates, from, mid), new InterestTask(table, rates, mid, to));
+        }
+    }
+
+    /**
+     * Sums the balances of a range of rows, splitting large ranges.
+     */
+    // Never serialized, like InterestTask
+    @SuppressWarnings("serial")
+    private static final class SumTask extends RecursiveTask<Long> {
+        private final AccountTable table;
+        private final int from;
+        private final int to;
+
+        SumTask(AccountTable table, int from, int to) {
+            this.table = table;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Long compute() {
+            if (to - from <= SPLIT_THRESHOLD) {
+                long sum = 0;
+                for (int i = from; i < to; i++) {
+                    sum += table.balance(i);
+                }
+                return sum;
+            }
+            int mid = (from + to) >>> 1;
+            SumTask left = new SumTask(table, from, mid);
+            left.fork();
+            long right = new SumTask(table, mid, to).compute();
+            return left.join() + right;
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package banking.bulk;
+
+import banking.dao.DBUtil;
+import banking.dao.LedgerDAO;
+import banking.dao.ShardRouter;
+import banking.model.Money;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Checks that every stored balance equals the opening amount plus the recorded movements
+ * of its account, e.g. after a bulk job, a crash or a fix made by hand in SQL.
+ * The account ID space of each shard is split into ranges that are reconciled in
+ * parallel on a fork-join pool, each on a read-only connection from the shard's reader
+ * pool. A range streams its accounts and its per-account movement sums side by side,
+ * so memory use does not grow with the size of the book; only discrepancies are
+ * passed on, and only the first few are kept for the report.
+ *
+ * @author Banking System
+ */
+public class LedgerReconciler {
+    public static final int MAX_REPORTED_DISCREPANCIES = 100;
+    /** Ranges spanning more account IDs than this are split. */
+    private static final long SPLIT_IDS = 65_536;
+
+    private final LedgerDAO ledgerDAO;
+    private final ForkJoinPool pool;
+
+    /**
+     * Constructs a LedgerReconciler with one worker per reader connection, up to the number of processors.
+     * Call it after the database has been initialized.
+     */
+    public LedgerReconciler() {
+        this(new LedgerDAO(), new ForkJoinPool(Math.min(Runtime.getRuntime().availableProcessors(),
+                DBUtil.getConfig().getReadPoolSize() * DBUtil.shards().all().size())));
+    }
+
+    /**
+     * Constructs a LedgerReconciler.
+     *
+     * @param ledgerDAO The DAO that reads balances and movements
+     * @param pool The fork-join pool the ranges run on
+     */
+    public LedgerReconciler(LedgerDAO ledgerDAO, ForkJoinPool pool) {
+        this.ledgerDAO = ledgerDAO;
+        this.pool = pool;
+    }
+
+    /**
+     * Reconciles every shard.
+     *
+     * @param sink Receives every discrepancy as it is found; called from several threads at once
+     * @return The report
+     * @throws RuntimeException if a shard cannot be read
+     */
+    public ReconciliationReport reconcile(Consumer<ReconciliationReport.Discrepancy> sink) {
+        long start = System.nanoTime();
+        Totals totals = new Totals(sink);
+        List<RangeTask> tasks = new ArrayList<>();
+        for (ShardRouter.Shard shard : DBUtil.shards().all()) {
+            long[] range;
+            try {
+                range = ledgerDAO.idRange(shard);
+            } catch (SQLException ex) {
+                ex.printStackTrace();
+                throw new RuntimeException("Failed to read the ID range of shard " + shard.id(), ex);
+            }
+            if (range != null) {
+                tasks.add(new RangeTask(ledgerDAO, shard, range[0], range[1] + 1, totals));
+            }
+        }
+        pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+        return new ReconciliationReport(totals.accounts.sum(), totals.movements.sum(), totals.discrepancies.sum(),
+                                        totals.netDifference.sum(), List.copyOf(totals.examples),
+                                        (System.nanoTime() - start) / 1e9);
+    }
+
+    /**
+     * Running totals shared by all ranges.
+     */
+    private static final class Totals {
+        final LongAdder accounts = new LongAdder();
+        final LongAdder movements = new LongAdder();
+        final LongAdder discrepancies = new LongAdder();
+        final LongAdder netDifference = new LongAdder();
+        final List<ReconciliationReport.Discrepancy> examples = new ArrayList<>();
+        final Consumer<ReconciliationReport.Discrepancy> sink;
+
+        Totals(Consumer<ReconciliationReport.Discrepancy> sink) {
+            this.sink = sink;
+        }
+
+        void add(ReconciliationReport.Discrepancy discrepancy) {
+            discrepancies.increment();
+            netDifference.add(discrepancy.balance() - discrepancy.expected());
+            synchronized (examples) {
+                if (examples.size() < MAX_REPORTED_DISCREPANCIES) {
+                    examples.add(discrepancy);
+                }
+            }
+            sink.accept(discrepancy);
+        }
+    }
+
+    /**
+     * Reconciles a range of account IDs on one shard, splitting large ranges.
+     */
+    // Only run inside the reconciler's pool and never serialized, so its DAO and shard need not be
+    @SuppressWarnings("serial")
+    private static final class RangeTask extends RecursiveAction {
+        private final LedgerDAO ledgerDAO;
+        private final ShardRouter.Shard shard;
+        private final long from;
+        private final long to;
+        private final Totals totals;
+
+        RangeTask(LedgerDAO ledgerDAO, ShardRouter.Shard shard, long from, long to, Totals totals) {
+            this.ledgerDAO = ledgerDAO;
+            this.shard = shard;
+            this.from = from;
+            this.to = to;
+            this.totals = totals;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SPLIT_IDS) {
+                LedgerDAO.RangeCounts counts;
+                try {
+                    counts = ledgerDAO.reconcileRange(shard, from, to,
+                            (accountId, accountNumber, balance, expected, movements) ->
+                                    totals.add(new ReconciliationReport.Discrepancy(shard.id(), accountId,
+                                            accountNumber, balance, expected, movements)));
+                } catch (SQLException ex) {
+                    ex.printStackTrace();
+                    throw new RuntimeException("Failed to reconcile accounts " + from + " to " + (to - 1) +
+                                               " on shard " + shard.id(), ex);
+                }
+                totals.accounts.add(counts.accounts());
+                totals.movements.add(counts.movements());
+                return;
+            }
+            long mid = from + (to - from) / 2;
+            invokeAll(new RangeTask(ledgerDAO, shard, from, mid, totals),
+                      new RangeTask(ledgerDAO, shard, mid, to, totals));
+        }
+    }
+
+    /**
+     * Command-line entry point: reconciles the book and prints the report.
+     *
+     * @param args Optionally, a CSV file that receives every discrepancy
+     */
+    public static void main(String[] args) {
+        DBUtil.initDatabase();
+        PrintWriter csv = null;
+        try {
+            if (args.length > 0) {
+                csv = new PrintWriter(Files.newBufferedWriter(Path.of(args[0])));
+                csv.println("shard,account_id,account_number,balance,expected,movements");
+            }
+            PrintWriter out = csv;
+            ReconciliationReport report = new LedgerReconciler().reconcile(discrepancy -> {
+                if (out != null) {
+                    synchronized (out) {
+                        out.printf("%d,%d,%s,%s,%s,%d%n", discrepancy.shardId(), discrepancy.accountId(),
+                                   discrepancy.accountNumber() == null ? "" : discrepancy.accountNumber(),
+                                   Money.format(discrepancy.balance()), Money.format(discrepancy.expected()),
+                                   discrepancy.movements());
+                    }
+                }
+            });
+            System.out.println(report);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error: " + e.getMessage());
+            e.printStackTrace();
+        } finally {
+            if (csv != null) {
+                csv.close();
+            }
+            DBUtil.closeDataSource();
+        }
+    }
+}
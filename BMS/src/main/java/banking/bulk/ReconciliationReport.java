@@ -0,0 +1,89 @@
+package banking.bulk;
+
+import banking.model.Money;
+
+import java.util.List;
+
+/**
+ * The outcome of reconciling stored balances against the movement ledger.
+ *
+ * @param accounts The number of accounts compared
+ * @param movements The number of movements summed
+ * @param discrepancies The number of accounts, or vanished accounts, whose balance did not match
+ * @param netDifference The sum of stored balance minus expected balance over all discrepancies, in thebe
+ * @param examples The first discrepancies found, at most LedgerReconciler.MAX_REPORTED_DISCREPANCIES
+ * @param seconds The time the reconciliation took
+ *
+ * @author Banking System
+ */
+public record ReconciliationReport(long accounts, long movements, long discrepancies, long netDifference,
+                                   List<Discrepancy> examples, double seconds) {
+
+    /**
+     * An account whose stored balance differs from the sum of its movements.
+     *
+     * @param shardId The shard holding the account
+     * @param accountId The account ID
+     * @param accountNumber The account number, or null if the account no longer exists
+     * @param balance The stored balance in thebe, 0 if the account no longer exists
+     * @param expected The opening amount plus all movements, in thebe
+     * @param movements The number of movements, 0 if the account has none
+     */
+    public record Discrepancy(int shardId, long accountId, String accountNumber, long balance,
+                              long expected, long movements) {
+
+        /**
+         * Describes what is wrong, for reports.
+         *
+         * @return A one-line description
+         */
+        public String describe() {
+            if (accountNumber == null) {
+                return String.format("account %d on shard %d no longer exists but has %d movement(s) totalling BWP %s",
+                                     accountId, shardId, movements, Money.format(expected));
+            }
+            if (movements == 0) {
+                return String.format("%s (id %d, shard %d) has no movements; balance BWP %s",
+                                     accountNumber, accountId, shardId, Money.format(balance));
+            }
+            return String.format("%s (id %d, shard %d): balance BWP %s, movements total BWP %s, off by BWP %s",
+                                 accountNumber, accountId, shardId, Money.format(balance),
+                                 Money.format(expected), Money.format(balance - expected));
+        }
+    }
+
+    /**
+     * Checks whether every balance matched its movements.
+     *
+     * @return true if no discrepancy was found
+     */
+    public boolean isClean() {
+        return discrepancies == 0;
+    }
+
+    /**
+     * Gets the reconciliation throughput.
+     *
+     * @return Movements summed per second
+     */
+    public double movementsPerSecond() {
+        return seconds > 0 ? movements / seconds : 0.0;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Reconciled %d account(s) against %d movement(s): %d discrepanc%s, " +
+                                "net difference BWP %s, %.2f s (%.0f movements/s)",
+                                accounts, movements, discrepancies, discrepancies == 1 ? "y" : "ies",
+                                Money.format(netDifference), seconds, movementsPerSecond()));
+        for (Discrepancy discrepancy : examples) {
+            sb.append(System.lineSeparator()).append("  ").append(discrepancy.describe());
+        }
+        if (discrepancies > examples.size()) {
+            sb.append(System.lineSeparator()).append("  ... and ").append(discrepancies - examples.size())
+              .append(" more");
+        }
+        return sb.toString();
+    }
+}
@@ -33,10 +33,10 @@ public class AccountController {
      * Deposits money into an account.
      * 
      * @param account The account to deposit into
-     * @param amount The amount to deposit
+     * @param amount The amount to deposit in thebe
      * @throws IllegalArgumentException if amount is not positive
      */
-    public void deposit(Account account, double amount) {
+    public void deposit(Account account, long amount) {
         accountService.deposit(account, amount);
     }
 
@@ -44,11 +44,11 @@ public class AccountController {
      * Withdraws money from an account.
      * 
      * @param account The account to withdraw from
-     * @param amount The amount to withdraw
+     * @param amount The amount to withdraw in thebe
      * @throws UnsupportedOperationException if withdrawals are not allowed for this account type
      * @throws IllegalArgumentException if amount is invalid or insufficient funds
      */
-    public void withdraw(Account account, double amount) {
+    public void withdraw(Account account, long amount) {
         accountService.withdraw(account, amount);
     }
 
@@ -65,9 +65,9 @@ public class AccountController {
      * Gets the balance of an account.
      * 
      * @param account The account
-     * @return The account balance
+     * @return The account balance in thebe
      */
-    public double getBalance(Account account) {
+    public long getBalance(Account account) {
         return account.getBalance();
     }
 }
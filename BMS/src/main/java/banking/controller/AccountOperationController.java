@@ -1,6 +1,7 @@
 package banking.controller;
 
 import banking.model.Account;
+import banking.model.Money;
 import banking.service.AccountService;
 import javafx.fxml.FXML;
 import javafx.scene.control.Alert;
@@ -56,8 +57,8 @@ public class AccountOperationController {
         this.parentController = parentController;
         
         titleLabel.setText(operation);
-        accountInfoLabel.setText(String.format("Account: %s (%s) - Balance: BWP %.2f", 
-                account.getAccountNumber(), account.getAccountType(), account.getBalance()));
+        accountInfoLabel.setText(String.format("Account: %s (%s) - Balance: BWP %s", 
+                account.getAccountNumber(), account.getAccountType(), Money.format(account.getBalance())));
         submitButton.setText(operation);
     }
 
@@ -67,7 +68,7 @@ public class AccountOperationController {
     @FXML
     private void handleSubmit() {
         try {
-            double amount = Double.parseDouble(amountField.getText().trim());
+            long amount = Money.parse(amountField.getText());
             if (amount <= 0) {
                 showAlert("Amount must be positive.", Alert.AlertType.ERROR);
                 return;
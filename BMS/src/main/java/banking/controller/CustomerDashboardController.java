@@ -1,7 +1,11 @@
 package banking.controller;
 
+import banking.dao.Metrics;
+import banking.jfr.SceneLoadEvent;
 import banking.model.Account;
 import banking.model.Customer;
+import banking.model.Money;
+import banking.repository.Repositories;
 import banking.service.AccountService;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -33,6 +37,8 @@ public class CustomerDashboardController {
     @FXML
     private Text balanceText;
     @FXML
+    private Text projectionText;
+    @FXML
     private javafx.scene.control.Button depositButton;
     @FXML
     private javafx.scene.control.Button withdrawButton;
@@ -85,7 +91,7 @@ public class CustomerDashboardController {
                     setText(null);
                 } else {
                     setText(account.getAccountNumber() + " — " + account.getAccountType() + " — BWP " + 
-                            String.format("%.2f", account.getBalance()));
+                            Money.format(account.getBalance()));
                 }
             }
         });
@@ -115,10 +121,14 @@ public class CustomerDashboardController {
     private void updateBalanceDisplay() {
         Account selected = accountListView.getSelectionModel().getSelectedItem();
         if (selected != null) {
-            balanceText.setText(String.format("Balance: BWP %.2f (%s)", 
-                    selected.getBalance(), selected.getAccountType()));
+            balanceText.setText(String.format("Balance: BWP %s (%s)", 
+                    Money.format(selected.getBalance()), selected.getAccountType()));
+            projectionText.setText(String.format("Projected with interest: BWP %s in 12 months, BWP %s in 60 months",
+                    Money.format(accountService.projectBalance(selected, 12)),
+                    Money.format(accountService.projectBalance(selected, 60))));
         } else {
             balanceText.setText("Select an account to view balance");
+            projectionText.setText("");
         }
     }
 
@@ -159,7 +169,7 @@ public class CustomerDashboardController {
         try {
             FXMLLoader loader = new FXMLLoader(getClass().getResource("/banking/view/account-operation.fxml")); // This path seems correct based on your resources
             Stage stage = new Stage();
-            Scene scene = new Scene(loader.load(), 400, 300);
+            Scene scene = new Scene(SceneLoadEvent.load(loader), 400, 300);
             scene.getStylesheets().add(getClass().getResource("/banking/view/styles.css").toExternalForm());
             
             AccountOperationController controller = loader.getController();
@@ -191,7 +201,7 @@ public class CustomerDashboardController {
         try {
             String accountNumber = newAccountNumber.getText().trim();
             String accountType = newAccountType.getValue();
-            double initialDeposit = Double.parseDouble(newAccountDeposit.getText().trim());
+            long initialDeposit = Money.parse(newAccountDeposit.getText());
             String branch = newAccountBranch.getText().trim();
             
             if (accountNumber.isEmpty() || branch.isEmpty()) {
@@ -257,8 +267,7 @@ public class CustomerDashboardController {
      */
     private void refreshCustomerData() {
         // Reload customer from database to get updated account list
-        banking.dao.CustomerDAO customerDAO = new banking.dao.CustomerDAO();
-        Customer updatedCustomer = customerDAO.getCustomerById(customer.getId());
+        Customer updatedCustomer = Repositories.customers().getCustomerById(customer.getId());
         if (updatedCustomer != null) {
             this.customer = updatedCustomer;
             accounts.clear();
@@ -271,10 +280,11 @@ public class CustomerDashboardController {
      */
     @FXML
     private void handleLogout() {
+        Metrics.add(Metrics.SESSIONS_ACTIVE, -1);
         try {
             FXMLLoader loader = new FXMLLoader(getClass().getResource("/banking/view/login.fxml")); // This path seems correct based on your resources
             Stage stage = (Stage) logoutButton.getScene().getWindow();
-            Scene scene = new Scene(loader.load(), 600, 400);
+            Scene scene = new Scene(SceneLoadEvent.load(loader), 600, 400);
             scene.getStylesheets().add(getClass().getResource("/banking/view/styles.css").toExternalForm());
             
             stage.setTitle("Banking System - Login");
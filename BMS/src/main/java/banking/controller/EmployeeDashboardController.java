@@ -1,10 +1,20 @@
 package banking.controller;
 
-import banking.dao.CustomerDAO;
+import banking.bulk.BalanceProjector;
+import banking.bulk.BookProjection;
+import banking.dao.Metrics;
+import banking.jfr.SceneLoadEvent;
 import banking.model.Account;
 import banking.model.Customer;
 import banking.model.Employee;
+import banking.model.Money;
+import banking.repository.CustomerRepository;
+import banking.repository.DuplicateKeyException;
+import banking.repository.Repositories;
+import banking.scheduler.MonthEndJob;
 import banking.service.AccountService;
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyStringWrapper;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
@@ -13,14 +23,20 @@ import javafx.scene.Scene;
 import javafx.scene.control.Alert;
 import javafx.scene.control.ButtonType;
 import javafx.scene.control.ComboBox;
+import javafx.scene.control.Label;
 import javafx.scene.control.ListView;
 import javafx.scene.control.PasswordField;
+import javafx.scene.control.Tab;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
 import javafx.scene.control.TextField;
+import javafx.scene.layout.TilePane;
 import javafx.scene.text.Text;
 import javafx.stage.Stage;
 
 import java.io.IOException;
 import java.sql.SQLException;
+import java.time.YearMonth;
 import java.util.List;
 
 /**
@@ -56,6 +72,8 @@ public class EmployeeDashboardController {
     @FXML
     private javafx.scene.control.Button applyInterestButton;
     @FXML
+    private Label monthEndStatusLabel;
+    @FXML
     private TextField newCustomerFirstName;
     @FXML
     private TextField newCustomerLastName;
@@ -66,24 +84,51 @@ public class EmployeeDashboardController {
     @FXML
     private TextField newCustomerEmployerAddress;
     @FXML
+    private TextField newCustomerBranch;
+    @FXML
     private TextField newCustomerUsername;
     @FXML
     private PasswordField newCustomerPassword;
     @FXML
     private javafx.scene.control.Button registerCustomerButton;
+    @FXML
+    private Tab portfolioTab;
+    @FXML
+    private ComboBox<Integer> projectionHorizonComboBox;
+    @FXML
+    private javafx.scene.control.Button projectBookButton;
+    @FXML
+    private TableView<BookProjection.Group> portfolioTable;
+    @FXML
+    private TableColumn<BookProjection.Group, String> portfolioBranchColumn;
+    @FXML
+    private TableColumn<BookProjection.Group, String> portfolioTypeColumn;
+    @FXML
+    private TableColumn<BookProjection.Group, String> portfolioAccountsColumn;
+    @FXML
+    private TableColumn<BookProjection.Group, String> portfolioBalanceColumn;
+    @FXML
+    private TableColumn<BookProjection.Group, String> portfolioProjectedColumn;
+    @FXML
+    private Label portfolioSummaryLabel;
+    @FXML
+    private Tab opsMonitorTab;
+    @FXML
+    private TilePane opsTilePane;
     
     private Employee employee;
-    private CustomerDAO customerDAO;
+    private CustomerRepository customerDAO;
     private AccountService accountService;
     private ObservableList<Customer> customers;
     private ObservableList<Account> accounts;
+    private OpsMonitor opsMonitor;
 
     /**
      * Initializes the controller.
      */
     @FXML
     public void initialize() {
-        customerDAO = new CustomerDAO();
+        customerDAO = Repositories.customers();
         accountService = new AccountService();
         customers = FXCollections.observableArrayList();
         accounts = FXCollections.observableArrayList();
@@ -93,6 +138,18 @@ public class EmployeeDashboardController {
         
         accountTypeComboBox.getItems().addAll("SAVINGS", "INVESTMENT", "CHEQUE");
         accountTypeComboBox.setValue("SAVINGS");
+
+        projectionHorizonComboBox.getItems().addAll(12, 24, 60, BalanceProjector.MAX_MONTHS);
+        projectionHorizonComboBox.setValue(12);
+        portfolioBranchColumn.setCellValueFactory(c -> new ReadOnlyStringWrapper(
+                c.getValue().branch() != null ? c.getValue().branch() : "(none)"));
+        portfolioTypeColumn.setCellValueFactory(c -> new ReadOnlyStringWrapper(c.getValue().type()));
+        portfolioAccountsColumn.setCellValueFactory(c -> new ReadOnlyStringWrapper(
+                String.valueOf(c.getValue().accounts())));
+        portfolioBalanceColumn.setCellValueFactory(c -> new ReadOnlyStringWrapper(
+                Money.format(c.getValue().balance())));
+        portfolioProjectedColumn.setCellValueFactory(c -> new ReadOnlyStringWrapper(
+                Money.format(c.getValue().projected())));
         
         customerListView.setCellFactory(param -> new javafx.scene.control.ListCell<Customer>() {
             @Override
@@ -114,7 +171,7 @@ public class EmployeeDashboardController {
                     setText(null);
                 } else {
                     setText(account.getAccountNumber() + " - " + account.getAccountType() + 
-                            " - BWP " + String.format("%.2f", account.getBalance()));
+                            " - BWP " + Money.format(account.getBalance()));
                 }
             }
         });
@@ -124,6 +181,16 @@ public class EmployeeDashboardController {
                 loadCustomerAccounts(newVal);
             }
         });
+
+        // The monitor only samples while its tab is showing
+        opsMonitor = new OpsMonitor(opsTilePane);
+        opsMonitorTab.selectedProperty().addListener((obs, wasSelected, selected) -> {
+            if (selected) {
+                opsMonitor.start();
+            } else {
+                opsMonitor.stop();
+            }
+        });
     }
 
     /**
@@ -135,6 +202,10 @@ public class EmployeeDashboardController {
         this.employee = employee;
         if (employee != null) {
             welcomeText.setText("Welcome, " + employee.getFullName() + " (" + employee.getRole() + ")");
+            if (!"MANAGER".equals(employee.getRole())) {
+                // The book-wide projection is for managers only
+                portfolioTab.getTabPane().getTabs().remove(portfolioTab);
+            }
             loadAllCustomers();
         }
     }
@@ -167,7 +238,7 @@ public class EmployeeDashboardController {
         try {
             int customerId = Integer.parseInt(customerIdField.getText().trim());
             String accountNumber = accountNumberField.getText().trim();
-            double initialDeposit = Double.parseDouble(initialDepositField.getText().trim());
+            long initialDeposit = Money.parse(initialDepositField.getText());
             String branch = branchField.getText().trim();
             String accountType = accountTypeComboBox.getValue();
             
@@ -228,6 +299,7 @@ public class EmployeeDashboardController {
             String address = newCustomerAddress.getText().trim();
             String employerName = newCustomerEmployerName.getText().trim();
             String employerAddress = newCustomerEmployerAddress.getText().trim();
+            String branch = newCustomerBranch.getText().trim();
             String username = newCustomerUsername.getText().trim();
             String password = newCustomerPassword.getText().trim();
             
@@ -241,9 +313,11 @@ public class EmployeeDashboardController {
             // Convert empty strings to null for optional fields
             String empName = employerName.isEmpty() ? null : employerName;
             String empAddr = employerAddress.isEmpty() ? null : employerAddress;
+            // The home branch places the customer on that branch's shard
+            String homeBranch = branch.isEmpty() ? null : branch;
             
             Customer newCustomer = customerDAO.createCustomer(firstName, lastName, address, 
-                                                              empName, empAddr, username, password);
+                                                              empName, empAddr, homeBranch, username, password);
             
             if (newCustomer != null) {
                 showAlert("Customer registered successfully! Customer ID: " + newCustomer.getId(), 
@@ -251,13 +325,11 @@ public class EmployeeDashboardController {
                 clearCustomerForm();
                 loadAllCustomers();
             }
+        } catch (DuplicateKeyException e) {
+            showAlert("Username already exists. Please choose a different username.", 
+                     Alert.AlertType.ERROR);
         } catch (SQLException e) {
-            if (e.getMessage().contains("UNIQUE constraint")) {
-                showAlert("Username already exists. Please choose a different username.", 
-                         Alert.AlertType.ERROR);
-            } else {
-                showAlert("Error registering customer: " + e.getMessage(), Alert.AlertType.ERROR);
-            }
+            showAlert("Error registering customer: " + e.getMessage(), Alert.AlertType.ERROR);
             e.printStackTrace();
         } catch (Exception e) {
             showAlert("Error registering customer: " + e.getMessage(), Alert.AlertType.ERROR);
@@ -274,33 +346,102 @@ public class EmployeeDashboardController {
         newCustomerAddress.clear();
         newCustomerEmployerName.clear();
         newCustomerEmployerAddress.clear();
+        newCustomerBranch.clear();
         newCustomerUsername.clear();
         newCustomerPassword.clear();
     }
 
     /**
-     * Handles the apply interest button action.
+     * Handles the month-end interest button action.
+     * Runs, or resumes, the month-end job for the last closed month in the background.
+     * A month that has already been processed is refused, so interest cannot be applied twice.
      */
     @FXML
     private void handleApplyInterest() {
-        Account selected = accountListView.getSelectionModel().getSelectedItem();
-        if (selected == null) {
-            showAlert("Please select an account from the list.", Alert.AlertType.WARNING);
-            return;
-        }
+        MonthEndJob job = MonthEndJob.getInstance();
+        YearMonth period = YearMonth.now().minusMonths(1);
         try {
-            accountService.applyMonthlyInterest(selected);
-            showAlert("Interest applied successfully to account " + selected.getAccountNumber() + "!", 
-                     Alert.AlertType.INFORMATION);
-            // Refresh the account list to show updated balance
-            Customer selectedCustomer = customerListView.getSelectionModel().getSelectedItem();
-            if (selectedCustomer != null) {
-                loadCustomerAccounts(selectedCustomer);
+            if (job.isCompleted(period)) {
+                showAlert("Month-end interest for " + period + " has already been applied.",
+                         Alert.AlertType.INFORMATION);
+                return;
             }
-        } catch (Exception e) {
-            showAlert("Error applying interest: " + e.getMessage(), Alert.AlertType.ERROR);
+        } catch (SQLException e) {
+            showAlert("Error checking month-end status: " + e.getMessage(), Alert.AlertType.ERROR);
             e.printStackTrace();
+            return;
         }
+
+        applyInterestButton.setDisable(true);
+        long[] lastUpdate = {0};
+        Thread worker = new Thread(() -> {
+            try {
+                job.run(period, progress -> {
+                    // Throttle UI updates to a few per second
+                    long now = System.currentTimeMillis();
+                    if (now - lastUpdate[0] >= 250 || progress.state() != MonthEndJob.State.RUNNING) {
+                        lastUpdate[0] = now;
+                        Platform.runLater(() -> showMonthEndProgress(progress));
+                    }
+                });
+                Platform.runLater(() -> {
+                    showAlert("Month-end interest applied for " + period + ".", Alert.AlertType.INFORMATION);
+                    handleRefresh();
+                });
+            } catch (Exception e) {
+                Platform.runLater(() -> showAlert("Error applying interest: " + e.getMessage(),
+                                                  Alert.AlertType.ERROR));
+                e.printStackTrace();
+            } finally {
+                Platform.runLater(() -> applyInterestButton.setDisable(false));
+            }
+        }, "month-end-manual");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Projects the whole book over the chosen horizon in the background and shows it by
+     * branch and account type.
+     */
+    @FXML
+    private void handleProjectBook() {
+        int months = projectionHorizonComboBox.getValue();
+        projectBookButton.setDisable(true);
+        portfolioSummaryLabel.setText("Projecting the book over " + months + " month(s)...");
+        Thread worker = new Thread(() -> {
+            try {
+                BookProjection projection = new BalanceProjector().projectBook(months);
+                Platform.runLater(() -> {
+                    portfolioTable.getItems().setAll(projection.groups());
+                    portfolioSummaryLabel.setText(String.format(
+                            "%d account(s): BWP %s now, BWP %s in %d month(s). Projected in %.2f s.",
+                            projection.accounts(), Money.format(projection.balance()),
+                            Money.format(projection.projected()), months, projection.seconds()));
+                });
+            } catch (Exception e) {
+                Platform.runLater(() -> {
+                    portfolioSummaryLabel.setText("");
+                    showAlert("Error projecting the book: " + e.getMessage(), Alert.AlertType.ERROR);
+                });
+                e.printStackTrace();
+            } finally {
+                Platform.runLater(() -> projectBookButton.setDisable(false));
+            }
+        }, "portfolio-projection");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Shows the progress of a month-end run.
+     * 
+     * @param progress The run progress
+     */
+    private void showMonthEndProgress(MonthEndJob.Progress progress) {
+        monthEndStatusLabel.setText(String.format("%s %s: %d/%d accounts (%.0f%%), %.0f accounts/s",
+                progress.period(), progress.state(), progress.processed(), progress.total(),
+                progress.fraction() * 100, progress.accountsPerSecond()));
     }
 
     /**
@@ -317,10 +458,12 @@ public class EmployeeDashboardController {
      */
     @FXML
     private void handleLogout() {
+        opsMonitor.stop();
+        Metrics.add(Metrics.SESSIONS_ACTIVE, -1);
         try {
             FXMLLoader loader = new FXMLLoader(getClass().getResource("/banking/view/login.fxml")); // This path seems correct based on your resources
             Stage stage = (Stage) logoutButton.getScene().getWindow();
-            Scene scene = new Scene(loader.load(), 600, 400);
+            Scene scene = new Scene(SceneLoadEvent.load(loader), 600, 400);
             scene.getStylesheets().add(getClass().getResource("/banking/view/styles.css").toExternalForm());
             
             stage.setTitle("Banking System - Login");
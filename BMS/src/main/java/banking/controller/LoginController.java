@@ -1,9 +1,13 @@
 package banking.controller;
 
-import banking.dao.CustomerDAO;
-import banking.dao.EmployeeDAO;
+import banking.dao.Metrics;
+import banking.jfr.LoginEvent;
+import banking.jfr.SceneLoadEvent;
 import banking.model.Customer;
 import banking.model.Employee;
+import banking.repository.CustomerRepository;
+import banking.repository.EmployeeRepository;
+import banking.repository.Repositories;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
@@ -33,16 +37,16 @@ public class LoginController {
     @FXML
     private Label errorLabel;
     
-    private CustomerDAO customerDAO;
-    private EmployeeDAO employeeDAO;
+    private CustomerRepository customerDAO;
+    private EmployeeRepository employeeDAO;
 
     /**
      * Initializes the controller.
      */
     @FXML
     public void initialize() {
-        customerDAO = new CustomerDAO();
-        employeeDAO = new EmployeeDAO();
+        customerDAO = Repositories.customers();
+        employeeDAO = Repositories.employees();
         // Create and set up ToggleGroup
         userTypeGroup = new ToggleGroup();
         customerRadio.setToggleGroup(userTypeGroup);
@@ -63,10 +67,13 @@ public class LoginController {
             return;
         }
         
+        LoginEvent event = LoginEvent.start();
+        boolean succeeded = false;
         try {
             if (customerRadio.isSelected()) {
                 Customer customer = customerDAO.getCustomerByCredentials(username, password);
                 if (customer != null) {
+                    succeeded = true;
                     loadCustomerDashboard(customer);
                 } else {
                     showError("Invalid username or password.");
@@ -74,6 +81,7 @@ public class LoginController {
             } else {
                 Employee employee = employeeDAO.getEmployeeByCredentials(username, password);
                 if (employee != null) {
+                    succeeded = true;
                     loadEmployeeDashboard(employee);
                 } else {
                     showError("Invalid username or password.");
@@ -82,6 +90,8 @@ public class LoginController {
         } catch (Exception e) {
             showError("An error occurred: " + e.getMessage());
             e.printStackTrace();
+        } finally {
+            event.finish(username, customerRadio.isSelected() ? "CUSTOMER" : "EMPLOYEE", succeeded);
         }
     }
 
@@ -104,7 +114,7 @@ public class LoginController {
         try {
             FXMLLoader loader = new FXMLLoader(getClass().getResource("/banking/view/customer-dashboard.fxml"));
             Stage stage = (Stage) loginButton.getScene().getWindow();
-            Scene scene = new Scene(loader.load(), 900, 600);
+            Scene scene = new Scene(SceneLoadEvent.load(loader), 900, 600);
             scene.getStylesheets().add(getClass().getResource("/banking/view/styles.css").toExternalForm());
             
             CustomerDashboardController controller = loader.getController();
@@ -113,6 +123,7 @@ public class LoginController {
             stage.setTitle("Banking System - Customer Dashboard");
             stage.setScene(scene);
             stage.setResizable(true);
+            Metrics.increment(Metrics.SESSIONS_ACTIVE);
         } catch (IOException e) {
             showError("Failed to load customer dashboard.");
             e.printStackTrace();
@@ -128,7 +139,7 @@ public class LoginController {
         try {
             FXMLLoader loader = new FXMLLoader(getClass().getResource("/banking/view/employee-dashboard.fxml"));
             Stage stage = (Stage) loginButton.getScene().getWindow();
-            Scene scene = new Scene(loader.load(), 1000, 700);
+            Scene scene = new Scene(SceneLoadEvent.load(loader), 1000, 700);
             scene.getStylesheets().add(getClass().getResource("/banking/view/styles.css").toExternalForm());
             
             EmployeeDashboardController controller = loader.getController();
@@ -137,6 +148,7 @@ public class LoginController {
             stage.setTitle("Banking System - Employee Dashboard");
             stage.setScene(scene);
             stage.setResizable(true);
+            Metrics.increment(Metrics.SESSIONS_ACTIVE);
         } catch (IOException e) {
             showError("Failed to load employee dashboard.");
             e.printStackTrace();
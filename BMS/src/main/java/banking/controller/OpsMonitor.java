@@ -0,0 +1,131 @@
+package banking.controller;
+
+import banking.dao.LatencyHistogram;
+import eu.hansolo.tilesfx.Tile;
+import eu.hansolo.tilesfx.TileBuilder;
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.scene.layout.Pane;
+import javafx.util.Duration;
+
+/**
+ * Live operations tiles for the employee dashboard: transactions per second, p99 deposit
+ * and withdrawal latency, reader pool usage, dictionary cache hit rate and active sessions.
+ * Everything comes from the in-process Metrics, through an OpsSampler. The monitor samples
+ * once a second, on the JavaFX thread, and only while it is started; rates and percentiles
+ * cover the last sample interval. A sample reads a few counters and copies two histograms, and the tiles are not
+ * animated, so the monitor adds next to nothing to the load it is watching.
+ *
+ * @author Banking System
+ */
+public class OpsMonitor {
+    private static final Duration SAMPLE_PERIOD = Duration.seconds(1);
+    private static final double TILE_SIZE = 220;
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    private final Tile transactionsTile;
+    private final Tile depositTile;
+    private final Tile withdrawTile;
+    private final Tile poolTile;
+    private final Tile cacheTile;
+    private final Tile sessionsTile;
+    private final OpsSampler sampler = new OpsSampler(System::nanoTime);
+    private final Timeline timeline;
+
+    /**
+     * Constructs an OpsMonitor and adds its tiles to a pane. Sampling starts with start().
+     *
+     * @param pane The pane that shows the tiles
+     */
+    public OpsMonitor(Pane pane) {
+        transactionsTile = tile(Tile.SkinType.SPARK_LINE, "Transactions / s", "tps", 1);
+        depositTile = tile(Tile.SkinType.SPARK_LINE, "Deposit p99", "ms", 1);
+        withdrawTile = tile(Tile.SkinType.SPARK_LINE, "Withdrawal p99", "ms", 1);
+        poolTile = tile(Tile.SkinType.GAUGE, "Reader Pool", "in use", 0);
+        cacheTile = tile(Tile.SkinType.PERCENTAGE, "Dictionary Cache Hits", "%", 1);
+        cacheTile.setMaxValue(100);
+        sessionsTile = tile(Tile.SkinType.NUMBER, "Active Sessions", "", 0);
+        pane.getChildren().addAll(transactionsTile, depositTile, withdrawTile, poolTile, cacheTile, sessionsTile);
+
+        timeline = new Timeline(new KeyFrame(SAMPLE_PERIOD, e -> sample()));
+        timeline.setCycleCount(Animation.INDEFINITE);
+    }
+
+    /**
+     * Starts sampling. Call it on the JavaFX thread.
+     */
+    public void start() {
+        if (timeline.getStatus() == Animation.Status.RUNNING) {
+            return;
+        }
+        sampler.reset();
+        timeline.play();
+    }
+
+    /**
+     * Stops sampling. Call it on the JavaFX thread.
+     */
+    public void stop() {
+        timeline.stop();
+    }
+
+    /**
+     * Builds one tile.
+     *
+     * @param skin The tile skin
+     * @param title The title
+     * @param unit The unit
+     * @param decimals The decimals shown
+     * @return The tile
+     */
+    private static Tile tile(Tile.SkinType skin, String title, String unit, int decimals) {
+        return TileBuilder.create()
+                .skinType(skin)
+                .prefSize(TILE_SIZE, TILE_SIZE)
+                .title(title)
+                .unit(unit)
+                .decimals(decimals)
+                .animated(false)
+                .build();
+    }
+
+    /**
+     * Takes a sample and updates the tiles with the changes since the previous one.
+     */
+    private void sample() {
+        OpsSampler.Figures figures = sampler.sample();
+        if (figures == null) {
+            return;
+        }
+        transactionsTile.setValue(figures.transactionsPerSecond());
+        showLatency(depositTile, figures.deposits(), "deposit");
+        showLatency(withdrawTile, figures.withdrawals(), "withdrawal");
+
+        if (poolTile.getMaxValue() != Math.max(1, figures.poolSize())) {
+            poolTile.setMaxValue(Math.max(1, figures.poolSize()));
+        }
+        poolTile.setValue(figures.poolInUse());
+
+        if (figures.cacheLookups() > 0) {
+            cacheTile.setValue(figures.cacheHitPercent());
+        }
+        cacheTile.setText(figures.cacheLookups() + " lookup(s) in the last " + Math.round(figures.seconds()) + " s");
+
+        sessionsTile.setValue(figures.sessions());
+    }
+
+    /**
+     * Shows the p99 of an interval's latencies on a tile.
+     *
+     * @param tile The tile
+     * @param interval The latencies recorded in the interval
+     * @param operation The operation, for the tile text
+     */
+    private static void showLatency(Tile tile, LatencyHistogram.Snapshot interval, String operation) {
+        tile.setValue(interval.percentile(99) / NANOS_PER_MILLI);
+        tile.setText(interval.count() + " " + operation + "(s), max "
+                     + String.format("%.1f", interval.max() / NANOS_PER_MILLI) + " ms");
+    }
+
+}
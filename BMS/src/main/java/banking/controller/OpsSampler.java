@@ -0,0 +1,102 @@
+package banking.controller;
+
+import banking.dao.LatencyHistogram;
+import banking.dao.Metrics;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Turns successive readings of the in-process Metrics into the figures OpsMonitor shows:
+ * counters and histograms become rates and percentiles over the interval since the previous
+ * sample, while gauges are shown as read. Kept apart from the tiles so it runs without JavaFX.
+ *
+ * @author Banking System
+ */
+final class OpsSampler {
+    /**
+     * The figures of one sample interval.
+     *
+     * @param seconds The length of the interval
+     * @param transactionsPerSecond Deposits, withdrawals and transfers per second
+     * @param deposits The deposit latencies recorded in the interval
+     * @param withdrawals The withdrawal latencies recorded in the interval
+     * @param poolInUse Reader connections in use
+     * @param poolSize Reader connections in the pool
+     * @param cacheLookups Dictionary lookups in the interval
+     * @param cacheHitPercent The percentage of those lookups that hit the cache, or NaN if there were none
+     * @param sessions Active sessions
+     */
+    record Figures(double seconds, double transactionsPerSecond, LatencyHistogram.Snapshot deposits,
+                   LatencyHistogram.Snapshot withdrawals, long poolInUse, long poolSize,
+                   long cacheLookups, double cacheHitPercent, long sessions) {
+    }
+
+    private final LongSupplier nanoClock;
+    private Reading previous;
+
+    /**
+     * Constructs an OpsSampler and takes its first reading.
+     *
+     * @param nanoClock The clock, in nanoseconds, such as System::nanoTime
+     */
+    OpsSampler(LongSupplier nanoClock) {
+        this.nanoClock = nanoClock;
+        reset();
+    }
+
+    /**
+     * Takes a new first reading, so the next interval starts now.
+     */
+    void reset() {
+        previous = new Reading(nanoClock.getAsLong());
+    }
+
+    /**
+     * Takes a reading and works out the figures since the previous one.
+     *
+     * @return The figures, or null if no time has passed since the previous reading
+     */
+    Figures sample() {
+        Reading current = new Reading(nanoClock.getAsLong());
+        double seconds = (current.nanos - previous.nanos) / 1e9;
+        if (seconds <= 0) {
+            return null;
+        }
+        long hits = current.cacheHits - previous.cacheHits;
+        long lookups = hits + current.cacheMisses - previous.cacheMisses;
+        Figures figures = new Figures(seconds, (current.transactions - previous.transactions) / seconds,
+                                      current.deposits.minus(previous.deposits),
+                                      current.withdrawals.minus(previous.withdrawals),
+                                      current.poolInUse, current.poolSize, lookups,
+                                      lookups > 0 ? 100.0 * hits / lookups : Double.NaN, current.sessions);
+        previous = current;
+        return figures;
+    }
+
+    /**
+     * The metrics read at one point in time.
+     */
+    private static final class Reading {
+        final long nanos;
+        final long transactions;
+        final LatencyHistogram.Snapshot deposits;
+        final LatencyHistogram.Snapshot withdrawals;
+        final long poolInUse;
+        final long poolSize;
+        final long cacheHits;
+        final long cacheMisses;
+        final long sessions;
+
+        Reading(long nanos) {
+            this.nanos = nanos;
+            transactions = Metrics.get(Metrics.TRANSACTIONS);
+            deposits = Metrics.latency(Metrics.DEPOSIT_LATENCY);
+            withdrawals = Metrics.latency(Metrics.WITHDRAW_LATENCY);
+            poolInUse = Metrics.get(Metrics.DB_READ_POOL_IN_USE);
+            poolSize = Metrics.get(Metrics.DB_READ_POOL_SIZE);
+            cacheHits = Metrics.get(Metrics.DICTIONARY_HITS);
+            cacheMisses = Metrics.get(Metrics.DICTIONARY_MISSES);
+            sessions = Metrics.get(Metrics.SESSIONS_ACTIVE);
+        }
+    }
+}
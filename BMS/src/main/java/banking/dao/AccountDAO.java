@@ -1,32 +1,357 @@
 package banking.dao;
 
+import banking.bulk.AccountTable;
+import banking.jfr.QueryEvent;
 import banking.model.*;
+import banking.repository.AccountRepository;
+import banking.repository.DuplicateKeyException;
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Data Access Object for Account entities.
  * Handles database operations for accounts, including CRUD operations
  * and mapping between database records and Account subclasses.
+ * Writes are routed to the shard of the account's branch; lookups by account
+ * number fan out across all shards. Account numbers are unique across shards:
+ * new numbers are prefiltered by a Bloom filter and backed by a unique index per shard.
  * 
  * @author Banking System
  */
-public class AccountDAO {
+public class AccountDAO implements AccountRepository {
+    /** Rows per multi-row INSERT; six parameters each keeps a statement well under SQLite's variable limit. */
+    private static final int INSERT_CHUNK_ROWS = 500;
 
     /**
-     * Updates an account's balance in the database.
+     * Applies a signed change to an account's stored balance and records the movement, in one
+     * transaction. The change is relative to the stored balance, so it never overwrites a change
+     * made by another writer; a debit only applies while the stored balance covers it and a credit
+     * only while the result fits in a long. Once committed, the account object is set to the stored
+     * balance. A guarded change that is not applied leaves nothing to undo, so it is retried while
+     * the database is busy.
      * 
      * @param account The account to update
+     * @param movement The signed change in thebe
+     * @param kind The reason for the change
+     * @return OK, INSUFFICIENT_FUNDS if the stored balance does not cover a debit, or
+     *         BALANCE_LIMIT_EXCEEDED if a credit would take it past the maximum balance
+     * @throws IllegalArgumentException if the account does not exist
      */
-    public void updateAccount(Account account) {
-        String sql = "UPDATE accounts SET balance = ? WHERE accountNumber = ?";
-        try (Connection conn = DBUtil.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setDouble(1, account.getBalance());
-            ps.setString(2, account.getAccountNumber());
-            ps.executeUpdate();
+    public OperationStatus updateAccount(Account account, long movement, MovementKind kind) {
+        String accountNumber = account.getAccountNumber();
+        ShardRouter.Shard shard = DBUtil.shards().shardFor(account.getBranch());
+        QueryEvent event = QueryEvent.start();
+        Long stored = null;
+        try {
+            stored = DBUtil.withRetry("update the account balance", () -> DBUtil.inTransaction(() -> {
+                try (Connection conn = DBUtil.getConnection(shard)) {
+                    return movement < 0
+                            ? tryDebit(conn, accountNumber, -movement, kind)
+                            : tryCredit(conn, accountNumber, movement, kind);
+                }
+            }));
         } catch (SQLException ex) {
             ex.printStackTrace();
-            throw new RuntimeException("Failed to update account balance", ex);
+            // A busy database gets its own message, telling the teller to try again
+            throw new RuntimeException(ex instanceof DatabaseBusyException
+                    ? ex.getMessage() : "Failed to update account balance", ex);
+        } finally {
+            event.finish("account.update", stored != null ? 1 : 0);
+        }
+        if (stored == null) {
+            return movement < 0 ? OperationStatus.INSUFFICIENT_FUNDS : OperationStatus.BALANCE_LIMIT_EXCEEDED;
+        }
+        sync(account, stored);
+        return OperationStatus.OK;
+    }
+
+    /**
+     * Moves money between two accounts if the source's stored balance covers the amount and the
+     * target's can take it.
+     * Both updates are relative to the stored balance, and the debit only applies while the
+     * stored balance covers the amount, so the check cannot race another writer. Accounts on the
+     * same shard are updated in one unit of work. Between shards the debit commits together with
+     * a TransferOutbox entry for the credit, and the credit is then applied idempotently on the
+     * target shard, so a crash in between leaves a pending credit that completes on recovery
+     * rather than money that has left one account and reached no other. Once committed, both
+     * account objects are set to their stored balances; a rejected transfer writes nothing.
+     * 
+     * @param from The account to debit
+     * @param to The account to credit
+     * @param amount The amount in thebe
+     * @return OK, INSUFFICIENT_FUNDS if the source balance is too low, or BALANCE_LIMIT_EXCEEDED
+     *         if the target balance would pass the maximum
+     * @throws IllegalArgumentException if an account does not exist
+     * @throws IllegalStateException if the accounts are on different shards and a unit of work is
+     *                               active, since the debit must commit before the credit
+     */
+    public OperationStatus tryTransfer(Account from, Account to, long amount) {
+        ShardRouter.Shard fromShard = DBUtil.shards().shardFor(from.getBranch());
+        ShardRouter.Shard toShard = DBUtil.shards().shardFor(to.getBranch());
+        QueryEvent event = QueryEvent.start();
+        OperationStatus status = null;
+        try {
+            if (fromShard.id() == toShard.id()) {
+                status = transferOnShard(from, to, fromShard, amount);
+            } else {
+                status = transferAcrossShards(from, fromShard, to, toShard, amount);
+            }
+            return status;
+        } catch (SQLException ex) {
+            ex.printStackTrace();
+            throw new RuntimeException(ex instanceof DatabaseBusyException
+                    ? ex.getMessage() : "Failed to transfer funds", ex);
+        } finally {
+            event.finish("account.transfer", status == OperationStatus.OK ? 2 : 0);
+        }
+    }
+
+    /**
+     * Checks whether a transfer between two accounts commits as one transaction, which it does
+     * when both accounts are on the same shard.
+     * 
+     * @param from The account to debit
+     * @param to The account to credit
+     * @return true if the accounts are on the same shard
+     */
+    public boolean isLocalTransfer(Account from, Account to) {
+        return DBUtil.shards().shardFor(from.getBranch()).id() == DBUtil.shards().shardFor(to.getBranch()).id();
+    }
+
+    /**
+     * Moves money between two accounts on the same shard in one unit of work.
+     * 
+     * @param from The account to debit
+     * @param to The account to credit
+     * @param shard The shard of both accounts
+     * @param amount The amount in thebe
+     * @return The outcome of the transfer
+     * @throws IllegalArgumentException if an account does not exist
+     * @throws SQLException if a database error occurs
+     */
+    private OperationStatus transferOnShard(Account from, Account to, ShardRouter.Shard shard, long amount)
+            throws SQLException {
+        OperationStatus[] status = {OperationStatus.OK};
+        long[] balances = DBUtil.inTransaction(() -> {
+            try (Connection conn = DBUtil.getConnection(shard)) {
+                // The unit holds the shard's write lock, so the target cannot change before
+                // the credit: a rejection is found before anything is written
+                if (!canCredit(conn, to.getAccountNumber(), amount)) {
+                    status[0] = OperationStatus.BALANCE_LIMIT_EXCEEDED;
+                    return null;
+                }
+                Long debited = tryDebit(conn, from.getAccountNumber(), amount, MovementKind.TRANSFER);
+                if (debited == null) {
+                    status[0] = OperationStatus.INSUFFICIENT_FUNDS;
+                    return null;
+                }
+                return new long[] {debited, credit(conn, to.getAccountNumber(), amount, MovementKind.TRANSFER)};
+            }
+        });
+        if (balances != null) {
+            sync(from, balances[0]);
+            sync(to, balances[1]);
+        }
+        return status[0];
+    }
+
+    /**
+     * Moves money between accounts on different shards through the transfer outbox.
+     * 
+     * @param from The account to debit
+     * @param fromShard The shard of the source account
+     * @param to The account to credit
+     * @param toShard The shard of the target account
+     * @param amount The amount in thebe
+     * @return The outcome of the transfer; OK once the debit has committed
+     * @throws IllegalArgumentException if an account does not exist
+     * @throws IllegalStateException if a unit of work is active
+     * @throws SQLException if the debit fails
+     */
+    private OperationStatus transferAcrossShards(Account from, ShardRouter.Shard fromShard, Account to,
+                                                 ShardRouter.Shard toShard, long amount) throws SQLException {
+        if (DBUtil.isInTransaction()) {
+            throw new IllegalStateException(
+                    "A transfer between shards commits on its own and cannot join a unit of work");
+        }
+        // Refuse up front what the credit would refuse, so a debit is not committed for a credit left pending
+        try (Connection conn = DBUtil.getReadConnection(toShard)) {
+            if (!canCredit(conn, to.getAccountNumber(), amount)) {
+                return OperationStatus.BALANCE_LIMIT_EXCEEDED;
+            }
+        }
+        long[] debited = new long[1];
+        TransferOutbox.Pending pending = DBUtil.inTransaction(() -> {
+            try (Connection conn = DBUtil.getConnection(fromShard)) {
+                Long balance = tryDebit(conn, from.getAccountNumber(), amount, MovementKind.TRANSFER);
+                if (balance == null) {
+                    return null;
+                }
+                debited[0] = balance;
+                return TransferOutbox.add(conn, fromShard, to.getAccountNumber(), to.getBranch(), amount);
+            }
+        });
+        if (pending == null) {
+            return OperationStatus.INSUFFICIENT_FUNDS;
+        }
+        from.syncBalance(debited[0]);
+        try {
+            Long credited = TransferOutbox.apply(pending);
+            if (credited != null) {
+                to.syncBalance(credited);
+            }
+        } catch (SQLException | RuntimeException ex) {
+            ex.printStackTrace();
+            throw new RuntimeException("Transfer debited but not yet credited; the credit will be completed "
+                                       + "when the database is next initialized", ex);
+        }
+        return OperationStatus.OK;
+    }
+
+    /**
+     * Checks that an account exists and whether its stored balance can take a credit.
+     * 
+     * @param conn A connection to the account's shard
+     * @param accountNumber The account number
+     * @param amount The amount in thebe
+     * @return true if the credit fits, false if it would take the balance past the maximum
+     * @throws IllegalArgumentException if the account does not exist
+     * @throws SQLException if a database error occurs
+     */
+    private static boolean canCredit(Connection conn, String accountNumber, long amount) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT balance FROM accounts WHERE accountNumber = ?")) {
+            ps.setString(1, accountNumber);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) {
+                    throw new IllegalArgumentException("Account not found: " + accountNumber);
+                }
+                return rs.getLong(1) <= Long.MAX_VALUE - amount;
+            }
+        }
+    }
+
+    /**
+     * Sets an account object to its stored balance after a change. Inside an enclosing unit of work
+     * the change only commits with the unit, so the previous balance is put back if the unit rolls back.
+     * 
+     * @param account The account object
+     * @param storedBalance The stored balance in thebe
+     */
+    private static void sync(Account account, long storedBalance) {
+        long previous = account.getBalance();
+        account.syncBalance(storedBalance);
+        DBUtil.onRollback(() -> account.syncBalance(previous));
+    }
+
+    /**
+     * Adds an amount to a stored balance and records the movement.
+     * 
+     * @param conn The shard connection
+     * @param accountNumber The account number
+     * @param amount The amount in thebe (must not be negative)
+     * @param kind The reason for the change
+     * @return The stored balance after the credit
+     * @throws IllegalArgumentException if the balance would overflow or the account does not exist
+     * @throws SQLException if a database error occurs
+     */
+    static long credit(Connection conn, String accountNumber, long amount, MovementKind kind) throws SQLException {
+        Long balance = tryCredit(conn, accountNumber, amount, kind);
+        if (balance == null) {
+            throw new IllegalArgumentException("Credit would exceed the maximum balance.");
+        }
+        return balance;
+    }
+
+    /**
+     * Subtracts an amount from a stored balance if it covers the amount, and records the movement.
+     * 
+     * @param conn The shard connection
+     * @param accountNumber The account number
+     * @param amount The amount in thebe (must be positive)
+     * @param kind The reason for the change
+     * @return The stored balance after the debit, or null if it does not cover the amount
+     * @throws IllegalArgumentException if the account does not exist
+     * @throws SQLException if a database error occurs
+     */
+    static Long tryDebit(Connection conn, String accountNumber, long amount, MovementKind kind)
+            throws SQLException {
+        return change(conn, "UPDATE accounts SET balance = balance - ? " +
+                            "WHERE accountNumber = ? AND balance >= ? RETURNING id, balance",
+                      accountNumber, amount, amount, -amount, kind);
+    }
+
+    /**
+     * Adds an amount to a stored balance if the result fits in a long, and records the movement.
+     * SQLite would silently turn an overflowing integer into a real, so the guard is in the statement.
+     * 
+     * @param conn The shard connection
+     * @param accountNumber The account number
+     * @param amount The amount in thebe (must not be negative)
+     * @param kind The reason for the change
+     * @return The stored balance after the credit, or null if it would overflow
+     * @throws IllegalArgumentException if the account does not exist
+     * @throws SQLException if a database error occurs
+     */
+    private static Long tryCredit(Connection conn, String accountNumber, long amount, MovementKind kind)
+            throws SQLException {
+        return change(conn, "UPDATE accounts SET balance = balance + ? " +
+                            "WHERE accountNumber = ? AND balance <= ? RETURNING id, balance",
+                      accountNumber, amount, Long.MAX_VALUE - amount, amount, kind);
+    }
+
+    /**
+     * Runs a guarded balance update and records its movement if a row was changed.
+     * 
+     * @param conn The shard connection
+     * @param sql The update, taking the amount, the account number and the guard value
+     * @param accountNumber The account number
+     * @param amount The amount in thebe
+     * @param guard The value the guard compares the stored balance with
+     * @param movement The signed change recorded in the ledger
+     * @param kind The reason for the change
+     * @return The stored balance after the update, or null if the guard did not hold
+     * @throws IllegalArgumentException if the account does not exist
+     * @throws SQLException if a database error occurs
+     */
+    private static Long change(Connection conn, String sql, String accountNumber, long amount, long guard,
+                               long movement, MovementKind kind) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setLong(1, amount);
+            ps.setString(2, accountNumber);
+            ps.setLong(3, guard);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    LedgerDAO.record(conn, rs.getLong(1), movement, kind);
+                    return rs.getLong(2);
+                }
+            }
+        }
+        if (!exists(conn, accountNumber)) {
+            throw new IllegalArgumentException("Account not found: " + accountNumber);
+        }
+        return null;
+    }
+
+    /**
+     * Checks whether an account exists on a shard.
+     * 
+     * @param conn A connection to the shard
+     * @param accountNumber The account number
+     * @return true if the account exists
+     * @throws SQLException if a database error occurs
+     */
+    private static boolean exists(Connection conn, String accountNumber) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT 1 FROM accounts WHERE accountNumber = ?")) {
+            ps.setString(1, accountNumber);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next();
+            }
         }
     }
 
@@ -35,28 +360,16 @@ public class AccountDAO {
      * 
      * @param customerId The customer ID
      * @param accountNumber The account number
-     * @param balance The initial balance
+     * @param balance The initial balance in thebe
      * @param branch The branch name
      * @return The created SavingsAccount
+     * @throws DuplicateKeyException if the account number is already in use
      */
     public SavingsAccount createSavingsAccount(int customerId, String accountNumber, 
-                                               double balance, String branch) {
-        String sql = "INSERT INTO accounts(accountNumber, balance, branch, type, customer_id) " +
-                     "VALUES (?, ?, ?, 'SAVINGS', ?)";
-        try (Connection conn = DBUtil.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-            ps.setString(1, accountNumber);
-            ps.setDouble(2, balance);
-            ps.setString(3, branch);
-            ps.setInt(4, customerId);
-            ps.executeUpdate();
-            
-            int accountId = getGeneratedId(ps);
-            return new SavingsAccount(accountId, accountNumber, balance, branch, customerId);
-        } catch (SQLException ex) {
-            ex.printStackTrace();
-            throw new RuntimeException("Failed to create savings account", ex);
-        }
+                                               long balance, String branch) {
+        int accountId = insertAccount("savings", customerId, accountNumber, balance, branch,
+                                      AccountTable.TYPE_SAVINGS, null, null);
+        return new SavingsAccount(accountId, accountNumber, balance, branch, customerId);
     }
 
     /**
@@ -64,28 +377,16 @@ public class AccountDAO {
      * 
      * @param customerId The customer ID
      * @param accountNumber The account number
-     * @param balance The initial balance
+     * @param balance The initial balance in thebe
      * @param branch The branch name
      * @return The created InvestmentAccount
+     * @throws DuplicateKeyException if the account number is already in use
      */
     public InvestmentAccount createInvestmentAccount(int customerId, String accountNumber, 
-                                                     double balance, String branch) {
-        String sql = "INSERT INTO accounts(accountNumber, balance, branch, type, customer_id) " +
-                     "VALUES (?, ?, ?, 'INVESTMENT', ?)";
-        try (Connection conn = DBUtil.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-            ps.setString(1, accountNumber);
-            ps.setDouble(2, balance);
-            ps.setString(3, branch);
-            ps.setInt(4, customerId);
-            ps.executeUpdate();
-            
-            int accountId = getGeneratedId(ps);
-            return new InvestmentAccount(accountId, accountNumber, balance, branch, customerId);
-        } catch (SQLException ex) {
-            ex.printStackTrace();
-            throw new RuntimeException("Failed to create investment account", ex);
-        }
+                                                     long balance, String branch) {
+        int accountId = insertAccount("investment", customerId, accountNumber, balance, branch,
+                                      AccountTable.TYPE_INVESTMENT, null, null);
+        return new InvestmentAccount(accountId, accountNumber, balance, branch, customerId);
     }
 
     /**
@@ -93,34 +394,254 @@ public class AccountDAO {
      * 
      * @param customerId The customer ID
      * @param accountNumber The account number
-     * @param balance The initial balance
+     * @param balance The initial balance in thebe
      * @param branch The branch name
      * @param employerName The employer's name
      * @param employerAddress The employer's address
      * @return The created ChequeAccount
+     * @throws DuplicateKeyException if the account number is already in use
      */
     public ChequeAccount createChequeAccount(int customerId, String accountNumber, 
-                                             double balance, String branch,
+                                             long balance, String branch,
                                              String employerName, String employerAddress) {
-        String sql = "INSERT INTO accounts(accountNumber, balance, branch, type, " +
-                     "employerName, employerAddress, customer_id) VALUES (?, ?, ?, 'CHEQUE', ?, ?, ?)";
-        try (Connection conn = DBUtil.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-            ps.setString(1, accountNumber);
-            ps.setDouble(2, balance);
-            ps.setString(3, branch);
-            ps.setString(4, employerName);
-            ps.setString(5, employerAddress);
-            ps.setInt(6, customerId);
-            ps.executeUpdate();
-            
-            int accountId = getGeneratedId(ps);
-            return new ChequeAccount(accountId, accountNumber, balance, branch, customerId,
-                                    employerName, employerAddress);
+        int accountId = insertAccount("cheque", customerId, accountNumber, balance, branch,
+                                      AccountTable.TYPE_CHEQUE, employerName, employerAddress);
+        return new ChequeAccount(accountId, accountNumber, balance, branch, customerId,
+                                employerName, employerAddress);
+    }
+
+    /**
+     * Inserts an account row on the shard of its branch, together with its opening movement.
+     * A busy error leaves the transaction undone, so it is retried while the database is busy.
+     * 
+     * @param kind The account kind, used in error messages
+     * @param customerId The customer ID
+     * @param accountNumber The account number
+     * @param balance The initial balance in thebe
+     * @param branch The branch name
+     * @param typeCode The AccountTable type code
+     * @param employerName The employer's name, or null
+     * @param employerAddress The employer's address, or null
+     * @return The generated account ID
+     * @throws DuplicateKeyException if the account number is already in use
+     */
+    private int insertAccount(String kind, int customerId, String accountNumber, long balance, String branch,
+                              byte typeCode, String employerName, String employerAddress) {
+        String sql = "INSERT INTO accounts(accountNumber, balance, branch_id, type_code, " +
+                     "employer_id, customer_id) VALUES (?, ?, ?, ?, ?, ?)";
+        checkAccountNumber(accountNumber);
+        QueryEvent event = QueryEvent.start();
+        int inserted = 0;
+        try {
+            int accountId = DBUtil.withRetry("create the " + kind + " account", () -> DBUtil.inTransaction(() -> {
+                UniqueKeys.register(List.of(accountNumber));
+                try (Connection conn = DBUtil.getConnection(DBUtil.shards().shardFor(branch));
+                     PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                    ps.setString(1, accountNumber);
+                    ps.setLong(2, balance);
+                    ps.setObject(3, branchId(branch));
+                    ps.setInt(4, typeCode);
+                    ps.setObject(5, DBUtil.dictionary().employerId(employerName, employerAddress));
+                    ps.setInt(6, customerId);
+                    ps.executeUpdate();
+                    int id = getGeneratedId(ps);
+                    LedgerDAO.record(conn, id, balance, MovementKind.OPENING);
+                    return id;
+                }
+            }));
+            inserted = 1;
+            DBUtil.uniqueKeys().addAccountNumber(accountNumber);
+            return accountId;
+        } catch (SQLException ex) {
+            if (UniqueKeys.isUniqueViolation(ex)) {
+                throw UniqueKeys.duplicateAccountNumber(accountNumber, ex);
+            }
+            ex.printStackTrace();
+            throw new RuntimeException(ex instanceof DatabaseBusyException
+                    ? ex.getMessage() : "Failed to create " + kind + " account", ex);
+        } finally {
+            event.finish("account.insert", inserted);
+        }
+    }
+
+    /**
+     * Creates several accounts in one transaction.
+     * Requests are grouped by the shard of their branch and inserted with multi-row
+     * INSERT ... RETURNING statements of up to INSERT_CHUNK_ROWS rows, so each chunk is one
+     * round trip that also hands back the generated IDs. Either every account is created or,
+     * on a single shard, none is; see UnitOfWork for the guarantees across shards.
+     * 
+     * @param requests The accounts to create; cheque requests must carry employment information
+     * @return The created accounts, in request order
+     * @throws DuplicateKeyException if an account number is already in use or repeated in the batch
+     * @throws IllegalArgumentException if a request has an unknown account type
+     */
+    public List<Account> createAccounts(List<AccountRequest> requests) {
+        Set<String> numbers = new HashSet<>();
+        for (AccountRequest request : requests) {
+            AccountTable.typeCode(request.type());
+            if (!numbers.add(request.accountNumber())) {
+                throw UniqueKeys.duplicateAccountNumber(request.accountNumber(), null);
+            }
+            checkAccountNumber(request.accountNumber());
+        }
+        if (requests.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Map<ShardRouter.Shard, List<AccountRequest>> byShard = new LinkedHashMap<>();
+        for (AccountRequest request : requests) {
+            byShard.computeIfAbsent(DBUtil.shards().shardFor(request.branch()), k -> new ArrayList<>())
+                   .add(request);
+        }
+        Map<String, Integer> ids = null;
+        QueryEvent event = QueryEvent.start();
+        try {
+            ids = DBUtil.inTransaction(() -> {
+                UniqueKeys.register(numbers);
+                Map<String, Integer> generated = new HashMap<>();
+                for (Map.Entry<ShardRouter.Shard, List<AccountRequest>> entry : byShard.entrySet()) {
+                    try (Connection conn = DBUtil.getConnection(entry.getKey())) {
+                        insertChunks(conn, entry.getValue(), generated);
+                    }
+                }
+                return generated;
+            });
         } catch (SQLException ex) {
+            if (UniqueKeys.isUniqueViolation(ex)) {
+                // The statement does not say which row collided, so look for a number taken meanwhile
+                for (AccountRequest request : requests) {
+                    try {
+                        if (UniqueKeys.isRegistered(request.accountNumber())) {
+                            throw UniqueKeys.duplicateAccountNumber(request.accountNumber(), ex);
+                        }
+                    } catch (SQLException lookup) {
+                        ex.addSuppressed(lookup);
+                        break;
+                    }
+                }
+            }
             ex.printStackTrace();
-            throw new RuntimeException("Failed to create cheque account", ex);
+            throw new RuntimeException(ex instanceof DatabaseBusyException
+                    ? ex.getMessage() : "Failed to create accounts", ex);
+        } finally {
+            event.finish("account.insertBatch", ids == null ? 0 : ids.size());
+        }
+
+        List<Account> accounts = new ArrayList<>(requests.size());
+        for (AccountRequest request : requests) {
+            DBUtil.uniqueKeys().addAccountNumber(request.accountNumber());
+            accounts.add(toAccount(ids.get(request.accountNumber()), request));
         }
+        return accounts;
+    }
+
+    /**
+     * Inserts account rows on one shard in multi-row chunks, with a batch of opening movements per chunk.
+     * The full-size statement is prepared once and reused; only the last, shorter chunk
+     * needs a statement of its own.
+     * 
+     * @param conn The shard connection, inside a transaction
+     * @param requests The requests routed to this shard
+     * @param ids Receives the generated ID of each account number
+     * @throws SQLException if a database error occurs
+     */
+    private void insertChunks(Connection conn, List<AccountRequest> requests,
+                              Map<String, Integer> ids) throws SQLException {
+        PreparedStatement full = null;
+        try (PreparedStatement openings = LedgerDAO.prepareRecord(conn)) {
+            for (int from = 0; from < requests.size(); from += INSERT_CHUNK_ROWS) {
+                List<AccountRequest> chunk = requests.subList(from, Math.min(requests.size(), from + INSERT_CHUNK_ROWS));
+                if (chunk.size() == INSERT_CHUNK_ROWS) {
+                    if (full == null) {
+                        full = conn.prepareStatement(multiRowInsert(INSERT_CHUNK_ROWS));
+                    }
+                    insertChunk(full, chunk, ids);
+                } else {
+                    try (PreparedStatement ps = conn.prepareStatement(multiRowInsert(chunk.size()))) {
+                        insertChunk(ps, chunk, ids);
+                    }
+                }
+                for (AccountRequest request : chunk) {
+                    LedgerDAO.addRecord(openings, ids.get(request.accountNumber()), request.initialDeposit(),
+                                        MovementKind.OPENING);
+                    openings.addBatch();
+                }
+                openings.executeBatch();
+            }
+        } finally {
+            if (full != null) {
+                full.close();
+            }
+        }
+    }
+
+    /**
+     * Binds and runs one multi-row INSERT ... RETURNING statement.
+     * SQLite does not promise to return rows in insertion order, so each generated ID is
+     * matched to its request by account number.
+     * 
+     * @param ps The prepared statement with room for exactly the chunk's rows
+     * @param chunk The requests to insert
+     * @param ids Receives the generated ID of each account number
+     * @throws SQLException if a database error occurs
+     */
+    private void insertChunk(PreparedStatement ps, List<AccountRequest> chunk,
+                             Map<String, Integer> ids) throws SQLException {
+        Dictionary dictionary = DBUtil.dictionary();
+        int p = 1;
+        for (AccountRequest request : chunk) {
+            ps.setString(p++, request.accountNumber());
+            ps.setLong(p++, request.initialDeposit());
+            ps.setObject(p++, branchId(request.branch()));
+            ps.setInt(p++, AccountTable.typeCode(request.type()));
+            ps.setObject(p++, dictionary.employerId(request.employerName(), request.employerAddress()));
+            ps.setInt(p++, request.customerId());
+        }
+        int returned = 0;
+        try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                ids.put(rs.getString(2), rs.getInt(1));
+                returned++;
+            }
+        }
+        if (returned < chunk.size()) {
+            throw new SQLException("No ID obtained from insert");
+        }
+    }
+
+    /**
+     * Builds a multi-row account INSERT that returns the generated IDs.
+     * 
+     * @param rows The number of rows
+     * @return The SQL
+     */
+    private static String multiRowInsert(int rows) {
+        StringBuilder sql = new StringBuilder(
+                "INSERT INTO accounts(accountNumber, balance, branch_id, type_code, employer_id, customer_id) VALUES ");
+        for (int i = 0; i < rows; i++) {
+            sql.append(i == 0 ? "(?, ?, ?, ?, ?, ?)" : ", (?, ?, ?, ?, ?, ?)");
+        }
+        return sql.append(" RETURNING id, accountNumber").toString();
+    }
+
+    /**
+     * Builds the model object for a newly inserted account.
+     * 
+     * @param id The generated account ID
+     * @param request The request the account was created from
+     * @return The matching Account subclass
+     */
+    private static Account toAccount(int id, AccountRequest request) {
+        return switch (request.type()) {
+            case "SAVINGS" -> new SavingsAccount(id, request.accountNumber(), request.initialDeposit(),
+                                                 request.branch(), request.customerId());
+            case "INVESTMENT" -> new InvestmentAccount(id, request.accountNumber(), request.initialDeposit(),
+                                                       request.branch(), request.customerId());
+            default -> new ChequeAccount(id, request.accountNumber(), request.initialDeposit(),
+                                         request.branch(), request.customerId(),
+                                         request.employerName(), request.employerAddress());
+        };
     }
 
     /**
@@ -130,46 +651,77 @@ public class AccountDAO {
      * @return The account, or null if not found
      */
     public Account getAccountByNumber(String accountNumber) {
-        String sql = "SELECT id, accountNumber, balance, branch, type, employerName, " +
-                     "employerAddress, customer_id FROM accounts WHERE accountNumber = ?";
-        try (Connection conn = DBUtil.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, accountNumber);
-            try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
-                    return mapToAccount(rs);
+        String sql = "SELECT " + AccountRowMapper.COLUMNS + " FROM accounts WHERE accountNumber = ?";
+        QueryEvent event = QueryEvent.start();
+        int rows = 0;
+        try {
+            List<Account> matches = DBUtil.shards().fanOut(conn -> {
+                List<Account> found = new ArrayList<>(1);
+                try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                    ps.setString(1, accountNumber);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        if (rs.next()) {
+                            found.add(new AccountRowMapper(rs).map());
+                        }
+                    }
                 }
+                return found;
+            });
+            rows = matches.size();
+            if (!matches.isEmpty()) {
+                return matches.get(0);
             }
         } catch (SQLException ex) {
             ex.printStackTrace();
+        } finally {
+            event.finish("account.byNumber", rows);
         }
         return null;
     }
 
     /**
-     * Maps a database ResultSet row to the appropriate Account subclass.
+     * Streams every account on every shard into a columnar AccountTable.
+     * Rows are read with a large fetch size and never materialized as Account objects;
+     * type codes are copied as-is and each branch id is translated to a table code once.
      * 
-     * @param rs The ResultSet positioned at the row to map
-     * @return The Account object (SavingsAccount, InvestmentAccount, or ChequeAccount)
-     * @throws SQLException if a database error occurs
+     * @return The loaded table
      */
-    private Account mapToAccount(ResultSet rs) throws SQLException {
-        int id = rs.getInt("id");
-        String accountNumber = rs.getString("accountNumber");
-        double balance = rs.getDouble("balance");
-        String branch = rs.getString("branch");
-        String type = rs.getString("type");
-        int customerId = rs.getInt("customer_id");
-        String employerName = rs.getString("employerName");
-        String employerAddress = rs.getString("employerAddress");
-
-        return switch (type) {
-            case "SAVINGS" -> new SavingsAccount(id, accountNumber, balance, branch, customerId);
-            case "INVESTMENT" -> new InvestmentAccount(id, accountNumber, balance, branch, customerId);
-            case "CHEQUE" -> new ChequeAccount(id, accountNumber, balance, branch, customerId,
-                                               employerName, employerAddress);
-            default -> null;
-        };
+    public AccountTable loadAccountTable() {
+        String sql = "SELECT id, balance, type_code, branch_id FROM accounts ORDER BY id";
+        AccountTable table = new AccountTable();
+        Dictionary dictionary = DBUtil.dictionary();
+        Map<Integer, Short> branchCodes = new HashMap<>();
+        for (ShardRouter.Shard shard : DBUtil.shards().all()) {
+            QueryEvent event = QueryEvent.start();
+            int before = table.size();
+            try (Connection conn = DBUtil.getReadConnection(shard);
+                 PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setFetchSize(10_000);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        int branchId = rs.getInt(4);
+                        short branch;
+                        if (rs.wasNull()) {
+                            branch = table.branchCode(null);
+                        } else {
+                            Short code = branchCodes.get(branchId);
+                            if (code == null) {
+                                code = table.branchCode(dictionary.branchName(branchId));
+                                branchCodes.put(branchId, code);
+                            }
+                            branch = code;
+                        }
+                        table.add(rs.getLong(1), rs.getLong(2), (byte) rs.getInt(3), branch);
+                    }
+                }
+            } catch (SQLException ex) {
+                ex.printStackTrace();
+                throw new RuntimeException("Failed to load account table", ex);
+            } finally {
+                event.finish("account.loadTable", table.size() - before);
+            }
+        }
+        return table;
     }
 
     /**
@@ -188,4 +740,35 @@ public class AccountDAO {
             }
         }
     }
+
+    /**
+     * Rejects an account number that is already in use on any shard.
+     * The Bloom filter answers most new numbers without a query; the account number registry
+     * on the primary database still catches a concurrent insert of the same number, from this
+     * process or another.
+     * 
+     * @param accountNumber The account number
+     * @throws DuplicateKeyException if the account number is already in use
+     */
+    private void checkAccountNumber(String accountNumber) {
+        try {
+            if (DBUtil.uniqueKeys().accountNumberExists(accountNumber)) {
+                throw UniqueKeys.duplicateAccountNumber(accountNumber, null);
+            }
+        } catch (SQLException ex) {
+            ex.printStackTrace();
+            throw new RuntimeException("Failed to check account number", ex);
+        }
+    }
+
+    /**
+     * Gets the dictionary id of a branch, adding the branch if it is new.
+     * 
+     * @param branch The branch name, or null
+     * @return The branch id, or null for accounts without a branch
+     * @throws SQLException if a database error occurs
+     */
+    private Integer branchId(String branch) throws SQLException {
+        return branch == null ? null : DBUtil.dictionary().branchId(branch);
+    }
 }
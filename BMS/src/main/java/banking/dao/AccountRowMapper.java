@@ -0,0 +1,79 @@
+package banking.dao;
+
+import banking.bulk.AccountTable;
+import banking.model.Account;
+import banking.model.ChequeAccount;
+import banking.model.InvestmentAccount;
+import banking.model.SavingsAccount;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Maps rows of an accounts query to Account subclasses.
+ * Column indexes are resolved once when the mapper is created for a ResultSet, so
+ * each row is read by position; the row's type code selects the subclass, and branch
+ * and employer ids are decoded to the dictionary's canonical String instances.
+ * The query must select the columns in {@link #COLUMNS}, in any order.
+ * 
+ * @author Banking System
+ */
+final class AccountRowMapper {
+    /** The columns every accounts query mapped by this class must select. */
+    static final String COLUMNS =
+            "id, accountNumber, balance, branch_id, type_code, employer_id, customer_id";
+
+    private final ResultSet rs;
+    private final Dictionary dictionary;
+    private final int id;
+    private final int accountNumber;
+    private final int balance;
+    private final int branchId;
+    private final int typeCode;
+    private final int employerId;
+    private final int customerId;
+
+    /**
+     * Constructs an AccountRowMapper for a ResultSet.
+     * 
+     * @param rs The ResultSet to map
+     * @throws SQLException if a required column is missing
+     */
+    AccountRowMapper(ResultSet rs) throws SQLException {
+        this.rs = rs;
+        this.dictionary = DBUtil.dictionary();
+        this.id = rs.findColumn("id");
+        this.accountNumber = rs.findColumn("accountNumber");
+        this.balance = rs.findColumn("balance");
+        this.branchId = rs.findColumn("branch_id");
+        this.typeCode = rs.findColumn("type_code");
+        this.employerId = rs.findColumn("employer_id");
+        this.customerId = rs.findColumn("customer_id");
+    }
+
+    /**
+     * Maps the current row.
+     * 
+     * @return The Account (SavingsAccount, InvestmentAccount or ChequeAccount)
+     * @throws SQLException if a database error occurs or a dictionary id is unknown
+     */
+    Account map() throws SQLException {
+        int accountId = rs.getInt(id);
+        String number = rs.getString(accountNumber);
+        long amount = rs.getLong(balance);
+        int branch = rs.getInt(branchId);
+        String branchName = rs.wasNull() ? null : dictionary.branchName(branch);
+        int customer = rs.getInt(customerId);
+        return switch (rs.getInt(typeCode)) {
+            case AccountTable.TYPE_SAVINGS -> new SavingsAccount(accountId, number, amount, branchName, customer);
+            case AccountTable.TYPE_INVESTMENT -> new InvestmentAccount(accountId, number, amount, branchName, customer);
+            default -> {
+                int employer = rs.getInt(employerId);
+                Dictionary.Employer canonical = rs.wasNull() ? null : dictionary.employer(employer);
+                yield new ChequeAccount(accountId, number, amount, branchName, customer,
+                                        canonical == null ? null : canonical.name(),
+                                        canonical == null ? null : canonical.address());
+            }
+        };
+    }
+}
@@ -0,0 +1,201 @@
+package banking.dao;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A concurrent Bloom filter over string keys.
+ * A negative answer is exact: the key was never added. A positive answer only means
+ * "maybe", and the caller has to confirm it against the database. The filter is sized
+ * for an expected number of keys and a target false-positive rate; once it holds more
+ * keys than that it keeps working, but its false-positive rate climbs.
+ *
+ * Bits are set with compare-and-set, so adds and lookups never block each other.
+ * Each key is hashed once to 64 bits and the probe positions are derived from it by
+ * double hashing.
+ *
+ * @author Banking System
+ */
+public final class BloomFilter {
+    /**
+     * A point-in-time report of a filter.
+     *
+     * @param name The filter name
+     * @param keys The number of keys added
+     * @param capacity The number of keys the filter was sized for
+     * @param bits The size of the filter in bits
+     * @param hashes The number of probes per key
+     * @param expectedFalsePositiveRate The false-positive rate implied by the current fill
+     * @param lookups The number of lookups answered
+     * @param definitelyNew The lookups answered as "definitely new" without a query
+     * @param falsePositives The "maybe" answers that the database showed to be new keys
+     */
+    public record Stats(String name, long keys, long capacity, long bits, int hashes,
+                        double expectedFalsePositiveRate, long lookups, long definitelyNew,
+                        long falsePositives) {
+        /**
+         * Gets the measured false-positive rate: the share of new keys that still needed a query.
+         *
+         * @return The observed false-positive rate, or 0 if no new key was looked up yet
+         */
+        public double observedFalsePositiveRate() {
+            long newKeys = definitelyNew + falsePositives;
+            return newKeys == 0 ? 0 : (double) falsePositives / newKeys;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s filter: %d/%d keys, %d bits, %d hashes, " +
+                    "expected FPR %.3f%%, observed FPR %.3f%% (%d lookups, %d answered without a query)",
+                    name, keys, capacity, bits, hashes, expectedFalsePositiveRate * 100,
+                    observedFalsePositiveRate() * 100, lookups, definitelyNew);
+        }
+    }
+
+    private final String name;
+    private final long capacity;
+    private final AtomicLongArray words;
+    private final long bitCount;
+    private final int hashes;
+    private final AtomicLong keys = new AtomicLong();
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder definitelyNew = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+
+    /**
+     * Constructs an empty BloomFilter.
+     *
+     * @param name The filter name, used in reports
+     * @param capacity The number of keys the filter should hold at the target rate
+     * @param falsePositiveRate The target false-positive rate, between 0 and 1
+     */
+    public BloomFilter(String name, long capacity, double falsePositiveRate) {
+        if (capacity <= 0 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("Invalid Bloom filter sizing");
+        }
+        // Optimal sizing: m = -n ln p / (ln 2)^2 bits and k = (m / n) ln 2 probes
+        double ln2 = Math.log(2);
+        long bitsNeeded = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (ln2 * ln2));
+        int wordCount = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(1, (bitsNeeded + 63) / 64));
+        this.name = name;
+        this.capacity = capacity;
+        this.words = new AtomicLongArray(wordCount);
+        this.bitCount = wordCount * 64L;
+        this.hashes = Math.max(1, (int) Math.round((double) bitCount / capacity * ln2));
+    }
+
+    /**
+     * Adds a key.
+     *
+     * @param key The key
+     */
+    public void put(String key) {
+        long h1 = hash(key);
+        long h2 = mix(h1 + 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < hashes; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current = words.get(word);
+            while ((current & mask) == 0 && !words.compareAndSet(word, current, current | mask)) {
+                current = words.get(word);
+            }
+        }
+        keys.incrementAndGet();
+    }
+
+    /**
+     * Checks whether a key may have been added.
+     *
+     * @param key The key
+     * @return false if the key was definitely never added, true if it may have been
+     */
+    public boolean mightContain(String key) {
+        lookups.increment();
+        long h1 = hash(key);
+        long h2 = mix(h1 + 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < hashes; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                definitelyNew.increment();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Records that a "maybe" answer turned out to be a new key.
+     */
+    public void recordFalsePositive() {
+        falsePositives.increment();
+    }
+
+    /**
+     * Checks whether the filter holds more keys than it was sized for.
+     *
+     * @return true if the filter should be rebuilt with a larger capacity
+     */
+    public boolean isSaturated() {
+        return keys.get() > capacity;
+    }
+
+    /**
+     * Gets the number of keys added.
+     *
+     * @return The key count
+     */
+    public long size() {
+        return keys.get();
+    }
+
+    /**
+     * Gets the false-positive rate implied by the current fill, (1 - e^(-kn/m))^k.
+     *
+     * @return The expected false-positive rate
+     */
+    public double expectedFalsePositiveRate() {
+        return Math.pow(1 - Math.exp(-hashes * (double) keys.get() / bitCount), hashes);
+    }
+
+    /**
+     * Reports the filter's size and hit counters.
+     *
+     * @return The current statistics
+     */
+    public Stats stats() {
+        return new Stats(name, keys.get(), capacity, bitCount, hashes, expectedFalsePositiveRate(),
+                         lookups.sum(), definitelyNew.sum(), falsePositives.sum());
+    }
+
+    /**
+     * Hashes a key to 64 bits: FNV-1a over the chars, then a murmur3 finalizer.
+     *
+     * @param key The key
+     * @return The hash
+     */
+    private static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return mix(h);
+    }
+
+    /**
+     * Spreads the bits of a 64-bit value (murmur3 fmix64).
+     *
+     * @param h The value
+     * @return The mixed value
+     */
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
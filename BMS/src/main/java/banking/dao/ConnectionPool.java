@@ -0,0 +1,191 @@
+package banking.dao;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+
+/**
+ * A small fixed-size pool of JDBC connections.
+ * Connections are opened lazily by the supplied factory and handed out as proxies
+ * whose close() returns the underlying connection to the pool instead of closing it.
+ *
+ * @author Banking System
+ */
+class ConnectionPool {
+
+    /**
+     * Opens a new physical connection for the pool.
+     */
+    @FunctionalInterface
+    interface ConnectionFactory {
+        Connection open() throws SQLException;
+    }
+
+    private final String name;
+    private final int size;
+    private final ConnectionFactory factory;
+    private final Semaphore permits;
+    private final ConcurrentLinkedQueue<Connection> idle = new ConcurrentLinkedQueue<>();
+    private final List<Connection> all = new ArrayList<>();
+    private volatile boolean closed;
+
+    /**
+     * Constructs a ConnectionPool.
+     *
+     * @param name A descriptive name used in error messages
+     * @param size The maximum number of connections handed out at once
+     * @param factory The factory used to open physical connections
+     */
+    ConnectionPool(String name, int size, ConnectionFactory factory) {
+        this.name = name;
+        this.size = size;
+        this.factory = factory;
+        this.permits = new Semaphore(size, true);
+    }
+
+    /**
+     * Borrows a connection, waiting if all connections are in use.
+     * The returned connection must be closed to give it back to the pool.
+     *
+     * @return A pooled connection
+     * @throws SQLException if the pool is closed, the wait is interrupted or a connection cannot be opened
+     */
+    Connection borrow() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool '" + name + "' is closed");
+        }
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection from pool '" + name + "'", e);
+        }
+        try {
+            Connection conn = idle.poll();
+            if (conn == null || conn.isClosed()) {
+                conn = factory.open();
+                synchronized (all) {
+                    all.add(conn);
+                }
+            }
+            return wrap(conn);
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Gets the number of connections currently borrowed.
+     *
+     * @return The number of connections in use
+     */
+    int inUse() {
+        return size - permits.availablePermits();
+    }
+
+    /**
+     * Gets the maximum number of connections this pool hands out.
+     *
+     * @return The pool size
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Closes every physical connection owned by the pool.
+     */
+    void close() {
+        closed = true;
+        synchronized (all) {
+            for (Connection conn : all) {
+                try {
+                    conn.close();
+                } catch (SQLException ex) {
+                    ex.printStackTrace();
+                }
+            }
+            all.clear();
+        }
+        idle.clear();
+    }
+
+    /**
+     * Returns a physical connection to the idle queue.
+     *
+     * @param conn The physical connection
+     */
+    private void release(Connection conn) {
+        try {
+            if (!conn.getAutoCommit()) {
+                conn.rollback();
+                conn.setAutoCommit(true);
+            }
+            if (!closed) {
+                idle.offer(conn);
+            } else {
+                conn.close();
+            }
+        } catch (SQLException ex) {
+            // A broken connection is dropped; the next borrow opens a fresh one
+            try {
+                conn.close();
+            } catch (SQLException ignored) {
+                // Already unusable
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Wraps a physical connection so that close() releases it back to the pool.
+     *
+     * @param conn The physical connection
+     * @return The proxy handed out to callers
+     */
+    private Connection wrap(Connection conn) {
+        InvocationHandler handler = new InvocationHandler() {
+            private volatile boolean released;
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                switch (method.getName()) {
+                    case "close":
+                        if (!released) {
+                            released = true;
+                            release(conn);
+                        }
+                        return null;
+                    case "isClosed":
+                        return released || conn.isClosed();
+                    case "unwrap":
+                        if (((Class<?>) args[0]).isInstance(conn)) {
+                            return conn;
+                        }
+                        break;
+                    default:
+                        break;
+                }
+                if (released) {
+                    throw new SQLException("Connection has already been returned to pool '" + name + "'");
+                }
+                try {
+                    return method.invoke(conn, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            }
+        };
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[] {Connection.class}, handler);
+    }
+}
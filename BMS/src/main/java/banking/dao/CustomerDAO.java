@@ -1,22 +1,28 @@
 package banking.dao;
 
+import banking.jfr.QueryEvent;
 import banking.model.Account;
 import banking.model.Customer;
-import banking.model.SavingsAccount;
-import banking.model.InvestmentAccount;
-import banking.model.ChequeAccount;
+import banking.repository.CustomerRepository;
+import banking.repository.DuplicateKeyException;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Data Access Object for Customer entities.
  * Handles database operations for customers, including authentication
  * and loading customer accounts.
+ * With branch shards, a customer registered with a home branch is stored on that branch's
+ * shard and found through the customer_branches directory in the primary database; logins
+ * stay in the primary database.
  * 
  * @author Banking System
  */
-public class CustomerDAO {
+public class CustomerDAO implements CustomerRepository {
 
     /**
      * Authenticates a user and returns the associated customer with their accounts.
@@ -26,29 +32,34 @@ public class CustomerDAO {
      * @return The Customer object with loaded accounts, or null if authentication fails
      */
     public Customer getCustomerByCredentials(String username, String password) {
-        String sql = "SELECT c.id, c.firstName, c.lastName, c.address, " +
-                     "c.employerName, c.employerAddress " +
-                     "FROM users u JOIN customers c ON u.customer_id = c.id " +
+        String sql = "SELECT u.customer_id, b.branch_id " +
+                     "FROM users u LEFT JOIN customer_branches b ON b.customer_id = u.customer_id " +
                      "WHERE u.username = ? AND u.password = ? AND u.customer_id IS NOT NULL LIMIT 1;";
-        try (Connection conn = DBUtil.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, username);
-            ps.setString(2, password);
-            try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
-                    int customerId = rs.getInt("id");
-                    Customer customer = createCustomerFromResultSet(rs);
-                    
-                    // Load accounts for this customer
-                    List<Account> accounts = loadAccountsForCustomer(customerId);
-                    for (Account account : accounts) {
-                        customer.addAccount(account);
+        QueryEvent event = QueryEvent.start();
+        int found = 0;
+        try {
+            int customerId;
+            Integer branchId;
+            // The login is released before the customer's shard is read
+            try (Connection conn = DBUtil.getReadConnection();
+                 PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setString(1, username);
+                ps.setString(2, password);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (!rs.next()) {
+                        return null;
                     }
-                    return customer;
+                    customerId = rs.getInt(1);
+                    branchId = (Integer) rs.getObject(2);
                 }
             }
+            Customer customer = loadCustomer(customerId, branchId);
+            found = customer != null ? 1 : 0;
+            return customer;
         } catch (SQLException ex) {
             ex.printStackTrace();
+        } finally {
+            event.finish("customer.byCredentials", found);
         }
         return null;
     }
@@ -60,94 +71,246 @@ public class CustomerDAO {
      * @return The Customer object, or null if not found
      */
     public Customer getCustomerById(int customerId) {
-        String sql = "SELECT id, firstName, lastName, address, employerName, employerAddress " +
+        QueryEvent event = QueryEvent.start();
+        int found = 0;
+        try {
+            Customer customer = loadCustomer(customerId, homeBranchId(customerId));
+            found = customer != null ? 1 : 0;
+            return customer;
+        } catch (SQLException ex) {
+            ex.printStackTrace();
+        } finally {
+            event.finish("customer.byId", found);
+        }
+        return null;
+    }
+
+    /**
+     * Loads a customer with their accounts from the shard of their home branch.
+     * 
+     * @param customerId The customer ID
+     * @param branchId The dictionary ID of the customer's home branch, or null if they have none
+     * @return The Customer object, or null if not found
+     * @throws SQLException if a database error occurs
+     */
+    private Customer loadCustomer(int customerId, Integer branchId) throws SQLException {
+        String sql = "SELECT id, firstName, lastName, address, employer_id " +
                      "FROM customers WHERE id = ?";
-        try (Connection conn = DBUtil.getConnection();
+        try (Connection conn = DBUtil.getReadConnection(shardOf(branchId));
              PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setInt(1, customerId);
             try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
-                    Customer customer = createCustomerFromResultSet(rs);
-                    // Load accounts for this customer
-                    List<Account> accounts = loadAccountsForCustomer(customerId);
-                    for (Account account : accounts) {
-                        customer.addAccount(account);
-                    }
-                    return customer;
+                if (!rs.next()) {
+                    return null;
                 }
+                Customer customer = new CustomerRowMapper(rs).map();
+                // Load accounts for this customer
+                List<Account> accounts = loadAccountsForCustomer(conn, customerId);
+                for (Account account : accounts) {
+                    customer.addAccount(account);
+                }
+                return customer;
+            }
+        }
+    }
+
+    /**
+     * Looks up a customer's home branch in the customer directory.
+     * A database without branch shards keeps every customer on the primary, so it is not asked.
+     * 
+     * @param customerId The customer ID
+     * @return The dictionary ID of the home branch, or null if the customer has none
+     * @throws SQLException if a database error occurs
+     */
+    private Integer homeBranchId(int customerId) throws SQLException {
+        if (!DBUtil.shards().isSharded()) {
+            return null;
+        }
+        try (Connection conn = DBUtil.getReadConnection();
+             PreparedStatement ps = conn.prepareStatement(
+                     "SELECT branch_id FROM customer_branches WHERE customer_id = ?")) {
+            ps.setInt(1, customerId);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : null;
             }
-        } catch (SQLException ex) {
-            ex.printStackTrace();
         }
-        return null;
+    }
+
+    /**
+     * Gets the shard holding the customers of a home branch.
+     * 
+     * @param branchId The dictionary ID of the home branch, or null for customers without one
+     * @return The shard (the primary shard for customers without a home branch)
+     * @throws SQLException if the branch ID is unknown or a database error occurs
+     */
+    private static ShardRouter.Shard shardOf(Integer branchId) throws SQLException {
+        ShardRouter shards = DBUtil.shards();
+        if (branchId == null || !shards.isSharded()) {
+            return shards.primary();
+        }
+        return shards.shardFor(DBUtil.dictionary().branchName(branchId));
     }
 
     /**
      * Creates a new customer and their user account.
+     * A customer with a home branch is stored on that branch's shard and entered in the
+     * customer directory; the user account always goes to the primary database.
      * 
      * @param firstName The customer's first name
      * @param lastName The customer's last name
      * @param address The customer's address
      * @param employerName The employer's name (can be null)
      * @param employerAddress The employer's address (can be null)
+     * @param branch The customer's home branch (can be null)
      * @param username The username for the user account
      * @param password The password for the user account
      * @return The created Customer object
+     * @throws DuplicateKeyException if the username is already taken
      * @throws SQLException if a database error occurs
      */
     public Customer createCustomer(String firstName, String lastName, String address,
-                                   String employerName, String employerAddress,
+                                   String employerName, String employerAddress, String branch,
                                    String username, String password) throws SQLException {
-        Connection conn = DBUtil.getConnection();
+        // Most new usernames are cleared by the Bloom filter without a query
+        if (DBUtil.uniqueKeys().usernameExists(username)) {
+            throw UniqueKeys.duplicateUsername(username, null);
+        }
+        // Resolve the employer and branch before the transaction; the dictionary writes on its own connection
+        Integer employerId = hasText(employerName) && hasText(employerAddress)
+                ? DBUtil.dictionary().employerId(employerName, employerAddress) : null;
+        Integer branchId = hasText(branch) ? DBUtil.dictionary().branchId(branch) : null;
+        int customerId;
+        QueryEvent event = QueryEvent.start();
+        int inserted = 0;
         try {
-            conn.setAutoCommit(false);
-            
-            // Insert customer
-            String customerSql = "INSERT INTO customers(firstName, lastName, address, employerName, employerAddress) " +
-                                "VALUES (?, ?, ?, ?, ?)";
-            int customerId;
-            try (PreparedStatement ps = conn.prepareStatement(customerSql, Statement.RETURN_GENERATED_KEYS)) {
-                ps.setString(1, firstName);
-                ps.setString(2, lastName);
-                ps.setString(3, address);
-                ps.setString(4, employerName);
-                ps.setString(5, employerAddress);
-                ps.executeUpdate();
-                
-                try (ResultSet rs = ps.getGeneratedKeys()) {
-                    if (rs.next()) {
-                        customerId = rs.getInt(1);
-                    } else {
-                        throw new SQLException("Failed to get customer ID");
-                    }
+            // All inserts roll back together, so a busy database can safely be retried
+            customerId = DBUtil.withRetry("register the customer", () -> DBUtil.inTransaction(
+                    () -> insertCustomer(firstName, lastName, address, employerId, branchId, username, password)));
+            inserted = 2;
+        } catch (SQLException e) {
+            // A concurrent registration got past the filter; the unique index is the authority
+            if (UniqueKeys.isUniqueViolation(e)) {
+                throw UniqueKeys.duplicateUsername(username, e);
+            }
+            throw e;
+        } finally {
+            event.finish("customer.create", inserted);
+        }
+        DBUtil.uniqueKeys().addUsername(username);
+        
+        // Return the created customer
+        if (employerId != null) {
+            return new Customer(customerId, firstName, lastName, address, employerName, employerAddress);
+        } else {
+            return new Customer(customerId, firstName, lastName, address);
+        }
+    }
+
+    /**
+     * Inserts a customer, their directory entry and their user account in the current unit of work.
+     * The primary database commits first, so a failed commit on the customer's shard can leave
+     * a login whose customer is missing; the login then fails as if the password were wrong.
+     * 
+     * @param firstName The customer's first name
+     * @param lastName The customer's last name
+     * @param address The customer's address
+     * @param employerId The employer's dictionary id, or null
+     * @param branchId The home branch's dictionary id, or null
+     * @param username The username for the user account
+     * @param password The password for the user account
+     * @return The new customer ID
+     * @throws SQLException if a database error occurs
+     */
+    private int insertCustomer(String firstName, String lastName, String address, Integer employerId,
+                               Integer branchId, String username, String password) throws SQLException {
+        ShardRouter.Shard home = shardOf(branchId);
+        boolean onPrimary = home.id() == DBUtil.shards().primary().id();
+        int customerId;
+        try (Connection conn = DBUtil.getConnection()) {
+            customerId = onPrimary
+                    ? insertCustomerRow(conn, null, firstName, lastName, address, employerId, branchId)
+                    : nextCustomerId(conn);
+            if (branchId != null) {
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "INSERT INTO customer_branches(customer_id, branch_id) VALUES (?, ?)")) {
+                    ps.setInt(1, customerId);
+                    ps.setInt(2, branchId);
+                    ps.executeUpdate();
                 }
             }
-            
+
             // Insert user account
             String userSql = "INSERT INTO users(username, password, customer_id, employee_id) " +
-                            "VALUES (?, ?, ?, NULL)";
+                             "VALUES (?, ?, ?, NULL)";
             try (PreparedStatement ps = conn.prepareStatement(userSql)) {
                 ps.setString(1, username);
                 ps.setString(2, password);
                 ps.setInt(3, customerId);
                 ps.executeUpdate();
             }
-            
-            conn.commit();
-            
-            // Return the created customer
-            if (employerName != null && !employerName.trim().isEmpty() &&
-                employerAddress != null && !employerAddress.trim().isEmpty()) {
-                return new Customer(customerId, firstName, lastName, address, employerName, employerAddress);
-            } else {
-                return new Customer(customerId, firstName, lastName, address);
+        }
+        if (!onPrimary) {
+            try (Connection conn = DBUtil.getConnection(home)) {
+                insertCustomerRow(conn, customerId, firstName, lastName, address, employerId, branchId);
+            }
+        }
+        return customerId;
+    }
+
+    /**
+     * Inserts a customers row.
+     * 
+     * @param conn The connection to the database holding the customer
+     * @param customerId The customer ID, or null to let the database assign one
+     * @param firstName The customer's first name
+     * @param lastName The customer's last name
+     * @param address The customer's address
+     * @param employerId The employer's dictionary id, or null
+     * @param branchId The home branch's dictionary id, or null
+     * @return The customer ID
+     * @throws SQLException if a database error occurs
+     */
+    private static int insertCustomerRow(Connection conn, Integer customerId, String firstName, String lastName,
+                                         String address, Integer employerId, Integer branchId) throws SQLException {
+        String sql = "INSERT INTO customers(id, firstName, lastName, address, employer_id, branch_id) " +
+                     "VALUES (?, ?, ?, ?, ?, ?)";
+        try (PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            ps.setObject(1, customerId);
+            ps.setString(2, firstName);
+            ps.setString(3, lastName);
+            ps.setString(4, address);
+            ps.setObject(5, employerId);
+            ps.setObject(6, branchId);
+            ps.executeUpdate();
+
+            try (ResultSet rs = ps.getGeneratedKeys()) {
+                if (rs.next()) {
+                    return rs.getInt(1);
+                }
+                throw new SQLException("Failed to get customer ID");
+            }
+        }
+    }
+
+    /**
+     * Allocates a customer ID from the primary database's customers sequence, for a customer
+     * stored on another shard. Every customer ID comes from this one sequence, so IDs stay
+     * unique however often a branch and its customers move between shards.
+     * 
+     * @param conn A connection to the primary database, inside the unit of work
+     * @return The new customer ID
+     * @throws SQLException if a database error occurs
+     */
+    private static int nextCustomerId(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            // The sequence row only exists once a customer has been inserted on the primary
+            st.executeUpdate("INSERT INTO sqlite_sequence(name, seq) " +
+                             "SELECT 'customers', COALESCE(MAX(id), 0) FROM customers " +
+                             "WHERE NOT EXISTS (SELECT 1 FROM sqlite_sequence WHERE name = 'customers')");
+            st.executeUpdate("UPDATE sqlite_sequence SET seq = seq + 1 WHERE name = 'customers'");
+            try (ResultSet rs = st.executeQuery("SELECT seq FROM sqlite_sequence WHERE name = 'customers'")) {
+                return rs.getInt(1);
             }
-        } catch (SQLException e) {
-            conn.rollback();
-            throw e;
-        } finally {
-            conn.setAutoCommit(true);
-            conn.close();
         }
     }
 
@@ -160,13 +323,22 @@ public class CustomerDAO {
      * @throws SQLException if a database error occurs
      */
     public void updateEmploymentInfo(int customerId, String employerName, String employerAddress) throws SQLException {
-        String sql = "UPDATE customers SET employerName = ?, employerAddress = ? WHERE id = ?";
-        try (Connection conn = DBUtil.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, employerName);
-            ps.setString(2, employerAddress);
-            ps.setInt(3, customerId);
-            ps.executeUpdate();
+        String sql = "UPDATE customers SET employer_id = ? WHERE id = ?";
+        Integer employerId = DBUtil.dictionary().employerId(employerName, employerAddress);
+        QueryEvent event = QueryEvent.start();
+        int updated = 0;
+        try {
+            ShardRouter.Shard shard = shardOf(homeBranchId(customerId));
+            updated = DBUtil.withRetry("update employment information", () -> {
+                try (Connection conn = DBUtil.getConnection(shard);
+                     PreparedStatement ps = conn.prepareStatement(sql)) {
+                    ps.setObject(1, employerId);
+                    ps.setInt(2, customerId);
+                    return ps.executeUpdate();
+                }
+            });
+        } finally {
+            event.finish("customer.updateEmployment", updated);
         }
     }
 
@@ -177,70 +349,117 @@ public class CustomerDAO {
      */
     public List<Customer> getAllCustomers() {
         List<Customer> customers = new ArrayList<>();
-        String sql = "SELECT id, firstName, lastName, address, employerName, employerAddress " +
+        String sql = "SELECT id, firstName, lastName, address, employer_id " +
                      "FROM customers ORDER BY id";
-        try (Connection conn = DBUtil.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql);
-             ResultSet rs = ps.executeQuery()) {
-            while (rs.next()) {
-                Customer customer = createCustomerFromResultSet(rs);
-                // Load accounts for this customer
-                List<Account> accounts = loadAccountsForCustomer(customer.getId());
-                for (Account account : accounts) {
-                    customer.addAccount(account);
+        QueryEvent event = QueryEvent.start();
+        try (Connection conn = DBUtil.getReadConnection()) {
+            // Load every account in one pass per shard instead of one query per customer
+            Map<Integer, List<Account>> accountsByCustomer = loadAllAccounts(conn);
+            ShardRouter shards = DBUtil.shards();
+            if (shards.isSharded()) {
+                customers.addAll(shards.fanOut(shardConn -> queryCustomers(shardConn, sql)));
+                // Every shard's customers take their IDs from one sequence, so the shards' rows interleave
+                customers.sort(Comparator.comparingInt(Customer::getId));
+            } else {
+                customers.addAll(queryCustomers(conn, sql));
+            }
+            for (Customer customer : customers) {
+                List<Account> accounts = accountsByCustomer.get(customer.getId());
+                if (accounts != null) {
+                    for (Account account : accounts) {
+                        customer.addAccount(account);
+                    }
                 }
-                customers.add(customer);
             }
         } catch (SQLException ex) {
             ex.printStackTrace();
+        } finally {
+            event.finish("customer.all", customers.size());
         }
         return customers;
     }
 
     /**
-     * Creates a Customer object from a ResultSet.
+     * Runs a customers query and maps each row, without accounts.
      * 
-     * @param rs The ResultSet positioned at the customer row
-     * @return The Customer object
+     * @param conn The connection to query on
+     * @param sql The query
+     * @return The mapped customers
      * @throws SQLException if a database error occurs
      */
-    private Customer createCustomerFromResultSet(ResultSet rs) throws SQLException {
-        int id = rs.getInt("id");
-        String firstName = rs.getString("firstName");
-        String lastName = rs.getString("lastName");
-        String address = rs.getString("address");
-        String employerName = rs.getString("employerName");
-        String employerAddress = rs.getString("employerAddress");
-
-        // If employment info exists, use the constructor with employment info
-        if (employerName != null && employerAddress != null) {
-            return new Customer(id, firstName, lastName, address, employerName, employerAddress);
-        } else {
-            return new Customer(id, firstName, lastName, address);
+    private List<Customer> queryCustomers(Connection conn, String sql) throws SQLException {
+        List<Customer> customers = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(sql);
+             ResultSet rs = ps.executeQuery()) {
+            CustomerRowMapper mapper = new CustomerRowMapper(rs);
+            while (rs.next()) {
+                customers.add(mapper.map());
+            }
         }
+        return customers;
     }
 
     /**
      * Loads all accounts for a given customer.
+     * On a single database this reuses the caller's connection so that a lookup never
+     * holds more than one pooled connection at a time; with branch shards the query
+     * fans out to every shard.
      * 
+     * @param conn The connection to query on
      * @param customerId The customer ID
      * @return A list of accounts for the customer
      * @throws SQLException if a database error occurs
      */
-    private List<Account> loadAccountsForCustomer(int customerId) throws SQLException {
+    private List<Account> loadAccountsForCustomer(Connection conn, int customerId) throws SQLException {
+        String sql = "SELECT " + AccountRowMapper.COLUMNS + " " +
+                     "FROM accounts WHERE customer_id = ? ORDER BY id";
+        ShardRouter shards = DBUtil.shards();
+        if (shards.isSharded()) {
+            return shards.fanOut(shardConn -> queryAccounts(shardConn, sql, customerId));
+        }
+        return queryAccounts(conn, sql, customerId);
+    }
+
+    /**
+     * Loads every account, grouped by the owning customer's ID.
+     * 
+     * @param conn The connection to query on when the database is not sharded
+     * @return The accounts keyed by customer ID
+     * @throws SQLException if a database error occurs
+     */
+    private Map<Integer, List<Account>> loadAllAccounts(Connection conn) throws SQLException {
+        String sql = "SELECT " + AccountRowMapper.COLUMNS + " " +
+                     "FROM accounts ORDER BY customer_id, id";
+        ShardRouter shards = DBUtil.shards();
+        List<Account> all = shards.isSharded()
+                ? shards.fanOut(shardConn -> queryAccounts(shardConn, sql, null))
+                : queryAccounts(conn, sql, null);
+        Map<Integer, List<Account>> byCustomer = new HashMap<>();
+        for (Account account : all) {
+            byCustomer.computeIfAbsent(account.getCustomerId(), id -> new ArrayList<>()).add(account);
+        }
+        return byCustomer;
+    }
+
+    /**
+     * Runs an accounts query and maps each row.
+     * 
+     * @param conn The connection to query on
+     * @param sql The query, with at most one customer ID parameter
+     * @param customerId The customer ID parameter, or null if the query has none
+     * @return The mapped accounts
+     * @throws SQLException if a database error occurs
+     */
+    private List<Account> queryAccounts(Connection conn, String sql, Integer customerId) throws SQLException {
         List<Account> accounts = new ArrayList<>();
-        String sql = "SELECT id, accountNumber, balance, branch, type, " +
-                     "employerName, employerAddress, customer_id " +
-                     "FROM accounts WHERE customer_id = ?";
-        try (Connection conn = DBUtil.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setInt(1, customerId);
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            if (customerId != null) {
+                ps.setInt(1, customerId);
+            }
             try (ResultSet rs = ps.executeQuery()) {
+                AccountRowMapper mapper = new AccountRowMapper(rs);
                 while (rs.next()) {
-                    Account account = mapToAccount(rs);
-                    if (account != null) {
-                        accounts.add(account);
-                    }
+                    accounts.add(mapper.map());
                 }
             }
         }
@@ -248,28 +467,12 @@ public class CustomerDAO {
     }
 
     /**
-     * Maps a database ResultSet row to the appropriate Account subclass.
+     * Checks whether a string has non-blank content.
      * 
-     * @param rs The ResultSet positioned at the account row
-     * @return The Account object (SavingsAccount, InvestmentAccount, or ChequeAccount)
-     * @throws SQLException if a database error occurs
+     * @param value The string
+     * @return true if the string is not null and not blank
      */
-    private Account mapToAccount(ResultSet rs) throws SQLException {
-        int id = rs.getInt("id");
-        String accountNumber = rs.getString("accountNumber");
-        double balance = rs.getDouble("balance");
-        String branch = rs.getString("branch");
-        String type = rs.getString("type");
-        int customerId = rs.getInt("customer_id");
-        String employerName = rs.getString("employerName");
-        String employerAddress = rs.getString("employerAddress");
-
-        return switch (type) {
-            case "SAVINGS" -> new SavingsAccount(id, accountNumber, balance, branch, customerId);
-            case "INVESTMENT" -> new InvestmentAccount(id, accountNumber, balance, branch, customerId);
-            case "CHEQUE" -> new ChequeAccount(id, accountNumber, balance, branch, customerId,
-                                               employerName, employerAddress);
-            default -> null;
-        };
+    private static boolean hasText(String value) {
+        return value != null && !value.trim().isEmpty();
     }
 }
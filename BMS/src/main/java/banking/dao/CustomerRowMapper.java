@@ -0,0 +1,59 @@
+package banking.dao;
+
+import banking.model.Customer;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Maps rows of a customers query to Customer objects, without their accounts.
+ * Column indexes are resolved once when the mapper is created for a ResultSet, and the
+ * employer id is decoded to the dictionary's canonical name and address.
+ * The query must select id, firstName, lastName, address and employer_id.
+ * 
+ * @author Banking System
+ */
+final class CustomerRowMapper {
+    private final ResultSet rs;
+    private final int id;
+    private final int firstName;
+    private final int lastName;
+    private final int address;
+    private final int employerId;
+
+    /**
+     * Constructs a CustomerRowMapper for a ResultSet.
+     * 
+     * @param rs The ResultSet to map
+     * @throws SQLException if a required column is missing
+     */
+    CustomerRowMapper(ResultSet rs) throws SQLException {
+        this.rs = rs;
+        this.id = rs.findColumn("id");
+        this.firstName = rs.findColumn("firstName");
+        this.lastName = rs.findColumn("lastName");
+        this.address = rs.findColumn("address");
+        this.employerId = rs.findColumn("employer_id");
+    }
+
+    /**
+     * Maps the current row.
+     * 
+     * @return The Customer object
+     * @throws SQLException if a database error occurs or the employer id is unknown
+     */
+    Customer map() throws SQLException {
+        int customerId = rs.getInt(id);
+        String first = rs.getString(firstName);
+        String last = rs.getString(lastName);
+        String addr = rs.getString(address);
+        int employer = rs.getInt(employerId);
+
+        // If employment info exists, use the constructor with employment info
+        if (!rs.wasNull()) {
+            Dictionary.Employer canonical = DBUtil.dictionary().employer(employer);
+            return new Customer(customerId, first, last, addr, canonical.name(), canonical.address());
+        }
+        return new Customer(customerId, first, last, addr);
+    }
+}
@@ -0,0 +1,306 @@
+package banking.dao;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.UUID;
+
+/**
+ * Database configuration: JDBC URL, reader pool size, lock waiting, performance profile
+ * and per-connection pragmas.
+ *
+ * Values are resolved from, in increasing priority: built-in defaults, the
+ * {@code banking.properties} file (the path in the {@code banking.config} system property,
+ * else the working directory, else the classpath root) and system properties.
+ * Recognised keys:
+ * <ul>
+ *   <li>{@code banking.db.url} - JDBC URL of the primary database (default {@code jdbc:sqlite:banking.db})</li>
+ *   <li>{@code banking.db.readPoolSize} - reader connections per shard (default 4)</li>
+ *   <li>{@code banking.db.profile} - the PerformanceProfile: durable, balanced or bulk-load (default durable)</li>
+ *   <li>{@code banking.db.busyTimeoutMs} - how long a statement waits for a lock (default 5000)</li>
+ *   <li>{@code banking.db.retryDeadlineMs} - how long busy operations are retried (default 10000)</li>
+ *   <li>{@code banking.db.pragma.<name>} - a pragma applied to every new connection, after and
+ *       overriding those of the profile</li>
+ * </ul>
+ *
+ * @author Banking System
+ */
+public final class DBConfig {
+    public static final String URL_KEY = "banking.db.url";
+    public static final String READ_POOL_SIZE_KEY = "banking.db.readPoolSize";
+    public static final String BUSY_TIMEOUT_KEY = "banking.db.busyTimeoutMs";
+    public static final String RETRY_DEADLINE_KEY = "banking.db.retryDeadlineMs";
+    public static final String PROFILE_KEY = "banking.db.profile";
+    public static final String PRAGMA_PREFIX = "banking.db.pragma.";
+
+    private static final String CONFIG_FILE = "banking.properties";
+    private static final String DEFAULT_URL = "jdbc:sqlite:banking.db";
+    private static final int DEFAULT_READ_POOL_SIZE = 4;
+    private static final int DEFAULT_BUSY_TIMEOUT_MILLIS = 5_000;
+    private static final long DEFAULT_RETRY_DEADLINE_MILLIS = 10_000;
+    private static final PerformanceProfile DEFAULT_PROFILE = PerformanceProfile.DURABLE;
+
+    private final String url;
+    private final int readPoolSize;
+    private final int busyTimeoutMillis;
+    private final long retryDeadlineMillis;
+    private final PerformanceProfile profile;
+    private final Map<String, String> pragmas;
+
+    /**
+     * Constructs a DBConfig with the default busy timeout and retry deadline.
+     *
+     * @param url The JDBC URL of the primary database
+     * @param readPoolSize The number of reader connections per shard
+     * @param pragmas Pragmas applied to every new connection, in order
+     */
+    public DBConfig(String url, int readPoolSize, Map<String, String> pragmas) {
+        this(url, readPoolSize, DEFAULT_BUSY_TIMEOUT_MILLIS, DEFAULT_RETRY_DEADLINE_MILLIS, pragmas);
+    }
+
+    /**
+     * Constructs a DBConfig with the default performance profile.
+     *
+     * @param url The JDBC URL of the primary database
+     * @param readPoolSize The number of reader connections per shard
+     * @param busyTimeoutMillis How long a statement waits for a database lock
+     * @param retryDeadlineMillis How long operations that failed on a busy database are retried
+     * @param pragmas Pragmas applied to every new connection, in order
+     */
+    public DBConfig(String url, int readPoolSize, int busyTimeoutMillis, long retryDeadlineMillis,
+                    Map<String, String> pragmas) {
+        this(url, readPoolSize, busyTimeoutMillis, retryDeadlineMillis, DEFAULT_PROFILE, pragmas);
+    }
+
+    /**
+     * Constructs a DBConfig.
+     *
+     * @param url The JDBC URL of the primary database
+     * @param readPoolSize The number of reader connections per shard
+     * @param busyTimeoutMillis How long a statement waits for a database lock
+     * @param retryDeadlineMillis How long operations that failed on a busy database are retried
+     * @param profile The performance profile applied to every new connection
+     * @param pragmas Pragmas applied to every new connection after the profile's, in order
+     */
+    public DBConfig(String url, int readPoolSize, int busyTimeoutMillis, long retryDeadlineMillis,
+                    PerformanceProfile profile, Map<String, String> pragmas) {
+        if (readPoolSize < 1) {
+            throw new IllegalArgumentException("Reader pool size must be at least 1.");
+        }
+        if (busyTimeoutMillis < 0 || retryDeadlineMillis < 0) {
+            throw new IllegalArgumentException("Busy timeout and retry deadline cannot be negative.");
+        }
+        this.url = url;
+        this.readPoolSize = readPoolSize;
+        this.busyTimeoutMillis = busyTimeoutMillis;
+        this.retryDeadlineMillis = retryDeadlineMillis;
+        this.profile = Objects.requireNonNull(profile, "profile");
+        this.pragmas = Collections.unmodifiableMap(new LinkedHashMap<>(pragmas));
+    }
+
+    /**
+     * Loads the configuration from the properties file and system properties.
+     *
+     * @return The resolved configuration
+     */
+    public static DBConfig load() {
+        Properties props = new Properties();
+        readConfigFile(props);
+        props.putAll(System.getProperties());
+
+        String url = props.getProperty(URL_KEY, DEFAULT_URL);
+        int readPoolSize = Integer.parseInt(
+                props.getProperty(READ_POOL_SIZE_KEY, String.valueOf(DEFAULT_READ_POOL_SIZE)).trim());
+        int busyTimeoutMillis = Integer.parseInt(
+                props.getProperty(BUSY_TIMEOUT_KEY, String.valueOf(DEFAULT_BUSY_TIMEOUT_MILLIS)).trim());
+        long retryDeadlineMillis = Long.parseLong(
+                props.getProperty(RETRY_DEADLINE_KEY, String.valueOf(DEFAULT_RETRY_DEADLINE_MILLIS)).trim());
+        PerformanceProfile profile = PerformanceProfile.parse(
+                props.getProperty(PROFILE_KEY, DEFAULT_PROFILE.configName()));
+        Map<String, String> pragmas = new LinkedHashMap<>();
+        for (String key : props.stringPropertyNames()) {
+            if (key.startsWith(PRAGMA_PREFIX)) {
+                pragmas.put(key.substring(PRAGMA_PREFIX.length()), props.getProperty(key).trim());
+            }
+        }
+        return new DBConfig(url, readPoolSize, busyTimeoutMillis, retryDeadlineMillis, profile, pragmas);
+    }
+
+    /**
+     * Creates a configuration for a named shared-cache in-memory database.
+     * All connections opened with the same name see the same data; the database
+     * lives as long as DBUtil keeps it configured.
+     *
+     * @param name The database name
+     * @return The in-memory configuration
+     */
+    public static DBConfig inMemory(String name) {
+        return new DBConfig("jdbc:sqlite:file:" + name + "?mode=memory&cache=shared",
+                DEFAULT_READ_POOL_SIZE, Map.of());
+    }
+
+    /**
+     * Creates a configuration for a uniquely named in-memory database.
+     *
+     * @return The in-memory configuration
+     */
+    public static DBConfig uniqueInMemory() {
+        return inMemory("bms-" + UUID.randomUUID());
+    }
+
+    /**
+     * Creates a configuration for a database file.
+     *
+     * @param file The database file
+     * @return The file configuration
+     */
+    public static DBConfig file(Path file) {
+        return new DBConfig("jdbc:sqlite:" + file, DEFAULT_READ_POOL_SIZE, Map.of());
+    }
+
+    /**
+     * Gets the JDBC URL of the primary database.
+     *
+     * @return The JDBC URL
+     */
+    public String getUrl() {
+        return url;
+    }
+
+    /**
+     * Gets the number of reader connections per shard.
+     *
+     * @return The reader pool size
+     */
+    public int getReadPoolSize() {
+        return readPoolSize;
+    }
+
+    /**
+     * Gets how long a statement waits for a database lock before failing as busy.
+     *
+     * @return The busy timeout in milliseconds
+     */
+    public int getBusyTimeoutMillis() {
+        return busyTimeoutMillis;
+    }
+
+    /**
+     * Gets how long operations that failed on a busy database are retried.
+     *
+     * @return The retry deadline in milliseconds
+     */
+    public long getRetryDeadlineMillis() {
+        return retryDeadlineMillis;
+    }
+
+    /**
+     * Gets the performance profile applied to every new connection.
+     *
+     * @return The profile
+     */
+    public PerformanceProfile getProfile() {
+        return profile;
+    }
+
+    /**
+     * Gets the pragmas applied to every new connection after those of the profile.
+     *
+     * @return The pragma names and values, in application order
+     */
+    public Map<String, String> getPragmas() {
+        return pragmas;
+    }
+
+    /**
+     * Checks whether this configuration points at an in-memory database.
+     *
+     * @return true for in-memory databases
+     */
+    public boolean isInMemory() {
+        return url.contains(":memory:") || url.contains("mode=memory");
+    }
+
+    /**
+     * Gets a copy of this configuration with a different reader pool size.
+     *
+     * @param size The reader pool size
+     * @return The new configuration
+     */
+    public DBConfig withReadPoolSize(int size) {
+        return new DBConfig(url, size, busyTimeoutMillis, retryDeadlineMillis, profile, pragmas);
+    }
+
+    /**
+     * Gets a copy of this configuration with a different busy timeout and retry deadline.
+     *
+     * @param busyTimeout How long a statement waits for a lock, in milliseconds
+     * @param retryDeadline How long busy operations are retried, in milliseconds
+     * @return The new configuration
+     */
+    public DBConfig withBusyHandling(int busyTimeout, long retryDeadline) {
+        return new DBConfig(url, readPoolSize, busyTimeout, retryDeadline, profile, pragmas);
+    }
+
+    /**
+     * Gets a copy of this configuration with an additional pragma.
+     *
+     * @param name The pragma name
+     * @param value The pragma value
+     * @return The new configuration
+     */
+    public DBConfig withPragma(String name, String value) {
+        Map<String, String> updated = new LinkedHashMap<>(pragmas);
+        updated.put(name, value);
+        return new DBConfig(url, readPoolSize, busyTimeoutMillis, retryDeadlineMillis, profile, updated);
+    }
+
+    /**
+     * Gets a copy of this configuration with a different performance profile.
+     *
+     * @param newProfile The profile
+     * @return The new configuration
+     */
+    public DBConfig withProfile(PerformanceProfile newProfile) {
+        return new DBConfig(url, readPoolSize, busyTimeoutMillis, retryDeadlineMillis, newProfile, pragmas);
+    }
+
+    /**
+     * Reads banking.properties into the given properties, if present.
+     *
+     * @param props The properties to fill
+     */
+    private static void readConfigFile(Properties props) {
+        String explicit = System.getProperty("banking.config");
+        try {
+            if (explicit != null) {
+                try (InputStream in = Files.newInputStream(Paths.get(explicit))) {
+                    props.load(in);
+                }
+                return;
+            }
+            Path local = Paths.get(CONFIG_FILE);
+            if (Files.isRegularFile(local)) {
+                try (InputStream in = Files.newInputStream(local)) {
+                    props.load(in);
+                }
+                return;
+            }
+            try (InputStream in = DBConfig.class.getResourceAsStream("/" + CONFIG_FILE)) {
+                if (in != null) {
+                    props.load(in);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read database configuration", e);
+        }
+    }
+}
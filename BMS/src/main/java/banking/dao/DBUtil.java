@@ -1,30 +1,564 @@
 package banking.dao;
 
+import banking.bulk.AccountTable;
+import banking.model.Money;
+import org.sqlite.SQLiteConfig;
+
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Utility class for database operations.
  * Handles database initialization, schema creation, and migrations.
+ * The database location, reader pool size and connection pragmas come from {@link DBConfig}.
  * 
  * @author Banking System
  */
 public class DBUtil {
-    private static final String DB_FILE = "banking.db";
-    private static final String URL = "jdbc:sqlite:" + DB_FILE;
+
+    /**
+     * Database work run inside a transaction.
+     *
+     * @param <T> The result type
+     */
+    @FunctionalInterface
+    public interface TransactionWork<T> {
+        T run() throws SQLException;
+    }
+
+    private static final Map<Integer, ConnectionPool> readPools = new HashMap<>();
+    private static volatile DBConfig config;
+    private static volatile ShardRouter shardRouter;
+    private static volatile Dictionary dictionary;
+    private static volatile UniqueKeys uniqueKeys;
+    private static Connection memoryAnchor;
+    /** The profile that replaces the configured one for connections opened on this thread, if any. */
+    private static final ThreadLocal<PerformanceProfile> profileOverride = new ThreadLocal<>();
+
+    static {
+        Metrics.gauge(Metrics.DB_READ_POOL_IN_USE, () -> readPoolConnections(true));
+        Metrics.gauge(Metrics.DB_READ_POOL_SIZE, () -> readPoolConnections(false));
+    }
+
+    /**
+     * Gets the active database configuration, loading it on first use.
+     * 
+     * @return The database configuration
+     */
+    public static DBConfig getConfig() {
+        DBConfig current = config;
+        if (current == null) {
+            synchronized (DBUtil.class) {
+                current = config;
+                if (current == null) {
+                    current = DBConfig.load();
+                    activate(current);
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Switches the data layer to another database configuration.
+     * Pooled connections for the previous database are closed; callers should
+     * run initDatabase() afterwards if the new database may be empty.
+     * 
+     * @param newConfig The configuration to use from now on
+     */
+    public static synchronized void configure(DBConfig newConfig) {
+        closeDataSource();
+        shardRouter = null;
+        dictionary = null;
+        uniqueKeys = null;
+        activate(newConfig);
+    }
+
+    /**
+     * Makes a configuration active. In-memory databases get an anchor connection
+     * that keeps the shared cache alive between other connections.
+     * 
+     * @param newConfig The configuration to activate
+     */
+    private static void activate(DBConfig newConfig) {
+        config = newConfig;
+        if (newConfig.isInMemory()) {
+            try {
+                memoryAnchor = DriverManager.getConnection(newConfig.getUrl());
+            } catch (SQLException ex) {
+                throw new IllegalStateException("Cannot open in-memory database " + newConfig.getUrl(), ex);
+            }
+        }
+    }
 
     /**
      * Gets a database connection.
+     * Inside a unit of work this is the unit's connection to the primary database.
      * 
      * @return A Connection to the SQLite database
      * @throws SQLException if a database error occurs
      */
     public static Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(URL);
+        UnitOfWork unit = UnitOfWork.current();
+        if (unit != null) {
+            // Keyed by the primary shard's id without consulting the router, which may still be loading
+            return unit.connection(0, getConfig().getUrl());
+        }
+        return openConnection(getConfig().getUrl());
+    }
+
+    /**
+     * Gets a connection to a specific shard.
+     * Inside a unit of work this is the unit's connection to that shard.
+     * 
+     * @param shard The shard to connect to
+     * @return A Connection to the shard database
+     * @throws SQLException if a database error occurs
+     */
+    public static Connection getConnection(ShardRouter.Shard shard) throws SQLException {
+        UnitOfWork unit = UnitOfWork.current();
+        if (unit != null) {
+            return unit.connection(shard.id(), shard.url());
+        }
+        return openConnection(shard.url());
+    }
+
+    /**
+     * Runs work as one unit of work: every connection the DAOs ask for on this thread, read or
+     * write, is the unit's single connection to that shard, and all of it commits together at
+     * the end. If the work throws, everything is rolled back. Calls made while a unit is already
+     * active join it, so services can compose without knowing who started the transaction.
+     * 
+     * @param work The work to run
+     * @param <T> The result type
+     * @return The work's result
+     * @throws SQLException if the work or the commit fails
+     */
+    public static <T> T inTransaction(TransactionWork<T> work) throws SQLException {
+        return UnitOfWork.run(work);
+    }
+
+    /**
+     * Runs work that is safe to repeat, retrying it with jittered exponential backoff while
+     * the database is busy or locked, up to the configured retry deadline. Retries are counted
+     * in {@link Metrics}. Inside a unit of work the work runs once.
+     * 
+     * @param operation A short description of the operation, such as "update account"
+     * @param work The work to run
+     * @param <T> The result type
+     * @return The work's result
+     * @throws DatabaseBusyException if the database is still busy when the deadline passes
+     * @throws SQLException if the work fails for any other reason
+     */
+    public static <T> T withRetry(String operation, TransactionWork<T> work) throws SQLException {
+        return Retry.run(operation, work);
+    }
+
+    /**
+     * Runs work with a different performance profile for the write connections it opens on
+     * this thread, such as BULK_LOAD for a batch job that can be resumed from its checkpoints.
+     * Other threads, and the shared reader pools, keep the configured profile, so tellers
+     * working alongside the job still get durable commits. A unit of work that is already
+     * active keeps the connections, and so the pragmas, it opened with.
+     * 
+     * @param profile The profile to use
+     * @param work The work to run
+     * @param <T> The result type
+     * @return The work's result
+     * @throws SQLException if the work fails
+     */
+    public static <T> T withProfile(PerformanceProfile profile, TransactionWork<T> work) throws SQLException {
+        PerformanceProfile previous = profileOverride.get();
+        profileOverride.set(profile);
+        try {
+            return work.run();
+        } finally {
+            if (previous == null) {
+                profileOverride.remove();
+            } else {
+                profileOverride.set(previous);
+            }
+        }
+    }
+
+    /**
+     * Checks whether an error was caused by the database being busy or locked.
+     * 
+     * @param ex The error
+     * @return true for SQLITE_BUSY and SQLITE_LOCKED errors, including wrapped ones
+     */
+    public static boolean isBusy(Throwable ex) {
+        return Retry.isBusy(ex);
+    }
+
+    /**
+     * Checks whether the current thread is inside a unit of work.
+     * 
+     * @return true if a unit of work is active
+     */
+    public static boolean isInTransaction() {
+        return UnitOfWork.current() != null;
+    }
+
+    /**
+     * Registers an action to run if the current unit of work rolls back.
+     * Outside a unit of work every statement commits on its own, so the action is dropped.
+     * 
+     * @param hook The action
+     */
+    static void onRollback(Runnable hook) {
+        UnitOfWork unit = UnitOfWork.current();
+        if (unit != null) {
+            unit.onRollback(hook);
+        }
+    }
+
+    /**
+     * Runs an action once the current unit of work commits, or straight away outside a unit of
+     * work, where every statement has already committed on its own.
+     * 
+     * @param action The action
+     */
+    static void afterCommit(Runnable action) {
+        UnitOfWork unit = UnitOfWork.current();
+        if (unit != null) {
+            unit.onCommit(action);
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * Opens a physical connection and applies the pragmas of this thread's profile.
+     * 
+     * @param url The JDBC URL to open
+     * @return The Connection
+     * @throws SQLException if a database error occurs
+     */
+    static Connection openConnection(String url) throws SQLException {
+        Connection conn = DriverManager.getConnection(url);
+        try {
+            PerformanceProfile profile = profileOverride.get();
+            applyPragmas(conn, profile != null ? profile : getConfig().getProfile());
+        } catch (SQLException ex) {
+            conn.close();
+            throw ex;
+        }
+        return conn;
+    }
+
+    /**
+     * Applies the busy timeout, the profile's pragmas and the configured per-connection pragmas,
+     * which can override the profile's. The busy timeout makes a statement wait for a competing
+     * writer's lock instead of failing at once with "database is locked".
+     * 
+     * @param conn The connection
+     * @param profile The performance profile
+     * @throws SQLException if a pragma is rejected
+     */
+    private static void applyPragmas(Connection conn, PerformanceProfile profile) throws SQLException {
+        DBConfig current = getConfig();
+        Map<String, String> pragmas = new LinkedHashMap<>(profile.getPragmas());
+        pragmas.putAll(current.getPragmas());
+        try (Statement st = conn.createStatement()) {
+            st.execute("PRAGMA busy_timeout = " + current.getBusyTimeoutMillis() + ";");
+            for (Map.Entry<String, String> pragma : pragmas.entrySet()) {
+                st.execute("PRAGMA " + pragma.getKey() + " = " + pragma.getValue() + ";");
+            }
+        }
+    }
+
+    /**
+     * Gets a read-only connection from the reader pool.
+     * Reader connections are opened read-only with query_only enabled, and because the
+     * database runs in WAL mode they never block, or get blocked by, the writer.
+     * Closing the returned connection hands it back to the pool.
+     * Inside a unit of work the unit's own connection is returned instead, so reads see its writes.
+     * 
+     * @return A read-only Connection to the SQLite database
+     * @throws SQLException if a database error occurs
+     */
+    public static Connection getReadConnection() throws SQLException {
+        return getReadConnection(shards().primary());
+    }
+
+    /**
+     * Gets a read-only connection to a specific shard from that shard's reader pool.
+     * 
+     * @param shard The shard to read from
+     * @return A read-only Connection to the shard database
+     * @throws SQLException if a database error occurs
+     */
+    public static Connection getReadConnection(ShardRouter.Shard shard) throws SQLException {
+        UnitOfWork unit = UnitOfWork.current();
+        if (unit != null) {
+            return unit.connection(shard.id(), shard.url());
+        }
+        return readPool(shard).borrow();
+    }
+
+    /**
+     * Gets the shard router, loading the shard topology on first use.
+     * 
+     * @return The shard router
+     */
+    public static ShardRouter shards() {
+        ShardRouter router = shardRouter;
+        if (router == null) {
+            synchronized (DBUtil.class) {
+                router = shardRouter;
+                if (router == null) {
+                    router = loadShards();
+                    shardRouter = router;
+                }
+            }
+        }
+        return router;
+    }
+
+    /**
+     * Gets the branch and employer dictionary of the active database.
+     * 
+     * @return The dictionary
+     */
+    static Dictionary dictionary() {
+        Dictionary dict = dictionary;
+        if (dict == null) {
+            synchronized (DBUtil.class) {
+                dict = dictionary;
+                if (dict == null) {
+                    dict = new Dictionary();
+                    dictionary = dict;
+                }
+            }
+        }
+        return dict;
+    }
+
+    /**
+     * Gets the account number and username prefilter of the active database.
+     * 
+     * @return The unique key prefilter
+     */
+    static UniqueKeys uniqueKeys() {
+        UniqueKeys keys = uniqueKeys;
+        if (keys == null) {
+            synchronized (DBUtil.class) {
+                keys = uniqueKeys;
+                if (keys == null) {
+                    keys = new UniqueKeys();
+                    uniqueKeys = keys;
+                }
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Reports the Bloom filters that prefilter account number and username uniqueness checks,
+     * including their expected and observed false-positive rates.
+     * 
+     * @return The statistics of the account number and username filters
+     * @throws SQLException if the filters had to be built and the build failed
+     */
+    public static List<BloomFilter.Stats> uniqueKeyStats() throws SQLException {
+        return uniqueKeys().stats();
+    }
+
+    /**
+     * Reloads the shard topology after shards or branch mappings have changed.
+     * Queries still fanning out on the previous router finish on its executor.
+     */
+    public static synchronized void reloadShards() {
+        ShardRouter previous = shardRouter;
+        shardRouter = loadShards();
+        if (previous != null) {
+            previous.close();
+        }
+    }
+
+    /**
+     * Reads the shard topology from the primary database.
+     * Falls back to a single primary shard if the topology cannot be read.
+     * 
+     * @return The shard router
+     */
+    private static ShardRouter loadShards() {
+        try (Connection conn = getConnection()) {
+            createShardTables(conn);
+            return ShardRouter.load(conn, getConfig().getUrl());
+        } catch (SQLException ex) {
+            ex.printStackTrace();
+            ShardRouter.Shard primary = new ShardRouter.Shard(0, getConfig().getUrl());
+            return new ShardRouter(primary, List.of(primary), Map.of());
+        }
+    }
+
+    /**
+     * Gets the reader pool of a shard, creating it on first use.
+     * 
+     * @param shard The shard
+     * @return The reader connection pool
+     */
+    private static synchronized ConnectionPool readPool(ShardRouter.Shard shard) {
+        return readPools.computeIfAbsent(shard.id(), id -> new ConnectionPool("read-" + id,
+                getConfig().getReadPoolSize(), () -> openReadConnection(shard.url())));
+    }
+
+    /**
+     * Counts reader connections over all shards, for the pool gauges.
+     * 
+     * @param inUse true to count the borrowed connections, false for the pool sizes
+     * @return The number of connections
+     */
+    private static synchronized long readPoolConnections(boolean inUse) {
+        long connections = 0;
+        for (ConnectionPool pool : readPools.values()) {
+            connections += inUse ? pool.inUse() : pool.size();
+        }
+        return connections;
+    }
+
+    /**
+     * Opens a physical read-only connection for a reader pool.
+     * 
+     * @param url The JDBC URL to open
+     * @return A read-only Connection
+     * @throws SQLException if a database error occurs
+     */
+    private static Connection openReadConnection(String url) throws SQLException {
+        SQLiteConfig readOnly = new SQLiteConfig();
+        readOnly.setReadOnly(true);
+        Connection conn = DriverManager.getConnection(url, readOnly.toProperties());
+        try (Statement st = conn.createStatement()) {
+            applyPragmas(conn, getConfig().getProfile());
+            // The read-only open flag is ignored for shared-cache memory databases; query_only is not
+            st.execute("PRAGMA query_only = ON;");
+        } catch (SQLException ex) {
+            conn.close();
+            throw ex;
+        }
+        return conn;
+    }
+
+    /**
+     * Registers a new shard file and creates its accounts schema.
+     * The new shard receives no branches until they are mapped to it.
+     * 
+     * @param file The SQLite file for the new shard
+     * @return The new shard
+     * @throws IllegalStateException if the shard would get an id above ShardRouter.MAX_SHARD_ID,
+     *                               whose id range no longer fits in an int
+     * @throws SQLException if a database error occurs
+     */
+    public static synchronized ShardRouter.Shard createShard(String file) throws SQLException {
+        int id;
+        try (Connection conn = getConnection()) {
+            createShardTables(conn);
+            try (Statement st = conn.createStatement();
+                 ResultSet rs = st.executeQuery("SELECT COALESCE(MAX(id), 0) + 1 FROM shards")) {
+                id = rs.getInt(1);
+            }
+            if (id > ShardRouter.MAX_SHARD_ID) {
+                throw new IllegalStateException("Cannot create shard " + id + ": at most " +
+                        ShardRouter.MAX_SHARD_ID + " shards besides the primary fit in the account id range");
+            }
+            try (PreparedStatement ps = conn.prepareStatement("INSERT INTO shards(id, file) VALUES (?, ?)")) {
+                ps.setInt(1, id);
+                ps.setString(2, file);
+                ps.executeUpdate();
+            }
+        }
+        ShardRouter.Shard shard = ShardRouter.Shard.ofFile(id, file);
+        initShard(shard);
+        reloadShards();
+        return shard;
+    }
+
+    /**
+     * Maps a branch to a shard in the primary database.
+     * Moving the branch's existing rows is the caller's responsibility.
+     * 
+     * @param branch The branch name
+     * @param shard The shard that will hold the branch
+     * @throws SQLException if a database error occurs
+     */
+    public static synchronized void assignBranch(String branch, ShardRouter.Shard shard) throws SQLException {
+        try (Connection conn = getConnection()) {
+            if (shard.id() == 0) {
+                try (PreparedStatement ps = conn.prepareStatement("DELETE FROM shard_branches WHERE branch = ?")) {
+                    ps.setString(1, branch);
+                    ps.executeUpdate();
+                }
+            } else {
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "INSERT OR REPLACE INTO shard_branches(branch, shard_id) VALUES (?, ?)")) {
+                    ps.setString(1, branch);
+                    ps.setInt(2, shard.id());
+                    ps.executeUpdate();
+                }
+            }
+        }
+        reloadShards();
+    }
+
+    /**
+     * Creates the shard topology tables in the primary database if they don't exist.
+     * 
+     * @param conn A connection to the primary database
+     * @throws SQLException if a database error occurs
+     */
+    private static void createShardTables(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            st.execute("CREATE TABLE IF NOT EXISTS shards (" +
+                    "id INTEGER PRIMARY KEY, " +
+                    "file TEXT NOT NULL UNIQUE" +
+                    ");");
+            st.execute("CREATE TABLE IF NOT EXISTS shard_branches (" +
+                    "branch TEXT PRIMARY KEY, " +
+                    "shard_id INTEGER NOT NULL REFERENCES shards(id)" +
+                    ");");
+        }
+    }
+
+    /**
+     * Creates the accounts and customers schema in a secondary shard file if needed.
+     * Shard files have no dictionaries, users or customer directory, so none of their references
+     * are foreign keys. The accounts id sequence is seeded so the shard allocates account ids from
+     * its own range; customer ids are always allocated by the primary database.
+     * 
+     * @param shard The shard to initialize
+     * @throws SQLException if a database error occurs
+     */
+    private static void initShard(ShardRouter.Shard shard) throws SQLException {
+        try (Connection conn = getConnection(shard); Statement st = conn.createStatement()) {
+            // Only takes effect on a new file, before the journal mode makes it permanent
+            st.execute("PRAGMA page_size = " + getConfig().getProfile().getPageSize() + ";");
+            st.execute("PRAGMA journal_mode = WAL;");
+            st.execute(customersTableSql(false));
+            st.execute(accountsTableSql("accounts", false));
+            st.execute("CREATE INDEX IF NOT EXISTS idx_accounts_customer ON accounts(customer_id);");
+            migrateAccounts(conn, false);
+            createAccountNumberIndex(conn);
+            st.execute("CREATE INDEX IF NOT EXISTS idx_accounts_employer ON accounts(employer_id, type_code);");
+            LedgerDAO.createTable(conn);
+            TransferOutbox.createTables(conn);
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "INSERT INTO sqlite_sequence(name, seq) SELECT 'accounts', ? " +
+                    "WHERE NOT EXISTS (SELECT 1 FROM sqlite_sequence WHERE name = 'accounts')")) {
+                ps.setLong(1, shard.id() * ShardRouter.ID_SPAN);
+                ps.executeUpdate();
+            }
+        }
     }
 
     /**
@@ -36,16 +570,17 @@ public class DBUtil {
         try (Connection conn = getConnection(); Statement st = conn.createStatement()) {
             // Enable foreign keys
             st.execute("PRAGMA foreign_keys = ON;");
+            // WAL lets the reader pool run alongside the writer without lock contention;
+            // the journal mode is persistent, so setting it once here covers every connection.
+            // The page size must come first: it only takes effect on a new file
+            st.execute("PRAGMA page_size = " + getConfig().getProfile().getPageSize() + ";");
+            st.execute("PRAGMA journal_mode = WAL;");
 
             // Create tables
-            st.execute("CREATE TABLE IF NOT EXISTS customers (" +
-                    "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
-                    "firstName TEXT NOT NULL, " +
-                    "lastName TEXT NOT NULL, " +
-                    "address TEXT, " +
-                    "employerName TEXT, " +
-                    "employerAddress TEXT" +
-                    ");");
+            st.execute(customersTableSql(true));
+
+            // Branch and employer dictionaries referenced by customers and accounts
+            Dictionary.createTables(conn);
 
             st.execute("CREATE TABLE IF NOT EXISTS employees (" +
                     "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
@@ -65,29 +600,58 @@ public class DBUtil {
                     "FOREIGN KEY(employee_id) REFERENCES employees(id) ON DELETE CASCADE" +
                     ");");
 
-            st.execute("CREATE TABLE IF NOT EXISTS accounts (" +
-                    "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
-                    "accountNumber TEXT NOT NULL, " +
-                    "balance REAL NOT NULL, " +
-                    "branch TEXT, " +
-                    "type TEXT NOT NULL, " +
-                    "employerName TEXT, " +
-                    "employerAddress TEXT, " +
-                    "customer_id INTEGER, " +
-                    "FOREIGN KEY(customer_id) REFERENCES customers(id) ON DELETE CASCADE" +
+            // Customers registered with a home branch live on that branch's shard; this directory finds them
+            st.execute("CREATE TABLE IF NOT EXISTS customer_branches (" +
+                    "customer_id INTEGER PRIMARY KEY, " +
+                    "branch_id INTEGER NOT NULL, " +
+                    "FOREIGN KEY(branch_id) REFERENCES branches(id)" +
                     ");");
 
+            st.execute(accountsTableSql("accounts", true));
+
+            st.execute("CREATE INDEX IF NOT EXISTS idx_accounts_customer ON accounts(customer_id);");
+
             // Migrate existing databases: add employer columns if they don't exist
             migrateDatabase(conn);
+            // Move text branches, types and employers into the dictionaries
+            normalizeCustomers(conn);
+            migrateAccounts(conn, true);
+            createAccountNumberIndex(conn);
+            // Account numbers are unique across shards through one registry on the primary
+            UniqueKeys.createTable(conn);
+            // Payroll resolves an employer's cheque accounts in one indexed range scan
+            st.execute("CREATE INDEX IF NOT EXISTS idx_accounts_employer ON accounts(employer_id, type_code);");
+            // Every balance change is also recorded as a movement, for reconciliation
+            LedgerDAO.createTable(conn);
+            // Credits of transfers between shards are handed over through an outbox
+            TransferOutbox.createTables(conn);
+
+            // Load the shard topology and make sure every secondary shard has its schema
+            reloadShards();
+            for (ShardRouter.Shard shard : shards().all()) {
+                if (shard.id() != 0) {
+                    initShard(shard);
+                }
+            }
 
             // Check whether data exists
             ResultSet rs = st.executeQuery("SELECT COUNT(*) AS cnt FROM customers;");
             int cnt = rs.next() ? rs.getInt("cnt") : 0;
             ResultSet rsEmp = st.executeQuery("SELECT COUNT(*) AS cnt FROM employees;");
             int cntEmp = rsEmp.next() ? rsEmp.getInt("cnt") : 0;
+            // End the read transaction: sample data registers dictionary entries on another connection
+            rsEmp.close();
             if (cnt == 0 && cntEmp == 0) {
                 insertSampleData(conn);
             }
+
+            // Register the numbers of accounts created before the registry, or as sample data
+            UniqueKeys.backfill();
+            // Build the account number and username filters now rather than on the first insert
+            uniqueKeys().load();
+
+            // Finish any transfer between shards that a crash left debited but not credited
+            TransferOutbox.completePending();
         } catch (SQLException ex) {
             ex.printStackTrace();
         }
@@ -105,15 +669,22 @@ public class DBUtil {
             try {
                 st.executeQuery("SELECT employerName FROM customers LIMIT 1");
             } catch (SQLException e) {
-                // Column doesn't exist, add it
-                try {
-                    st.execute("ALTER TABLE customers ADD COLUMN employerName TEXT;");
-                    st.execute("ALTER TABLE customers ADD COLUMN employerAddress TEXT;");
-                } catch (SQLException ex) {
-                    // Columns might already exist, ignore
+                // Column doesn't exist, add it (unless it has already been normalized into employer_id)
+                if (!columnsOf(conn, "customers").containsKey("employer_id")) {
+                    try {
+                        st.execute("ALTER TABLE customers ADD COLUMN employerName TEXT;");
+                        st.execute("ALTER TABLE customers ADD COLUMN employerAddress TEXT;");
+                    } catch (SQLException ex) {
+                        // Columns might already exist, ignore
+                    }
                 }
             }
             
+            // Check if branch_id column exists in customers table
+            if (!columnsOf(conn, "customers").containsKey("branch_id")) {
+                st.execute("ALTER TABLE customers ADD COLUMN branch_id INTEGER REFERENCES branches(id);");
+            }
+
             // Check if employee_id column exists in users table
             try {
                 st.executeQuery("SELECT employee_id FROM users LIMIT 1");
@@ -131,6 +702,237 @@ public class DBUtil {
         }
     }
 
+    /**
+     * Creates the unique index on account numbers within one database.
+     * Databases created before account numbers were checked may already hold duplicates;
+     * those get a plain index instead, so lookups stay indexed and the duplicates can be
+     * cleaned up by hand. New numbers are checked against the account_numbers registry either way.
+     * 
+     * @param conn A connection to the database holding the accounts table
+     * @throws SQLException if a database error occurs
+     */
+    private static void createAccountNumberIndex(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            boolean duplicates;
+            try (ResultSet rs = st.executeQuery("SELECT accountNumber FROM accounts " +
+                    "GROUP BY accountNumber HAVING COUNT(*) > 1 LIMIT 1")) {
+                duplicates = rs.next();
+            }
+            if (!duplicates) {
+                st.execute("DROP INDEX IF EXISTS idx_accounts_number_dup;");
+                st.execute("CREATE UNIQUE INDEX IF NOT EXISTS idx_accounts_number ON accounts(accountNumber);");
+            } else {
+                st.execute("CREATE INDEX IF NOT EXISTS idx_accounts_number_dup ON accounts(accountNumber);");
+            }
+        }
+    }
+
+    /**
+     * Builds the CREATE TABLE statement of the customers table.
+     * The branch is the customer's home branch, whose shard holds the row; customers
+     * registered without one stay on the primary database. Only the primary database
+     * can enforce the dictionary references.
+     * 
+     * @param primary Whether the table lives in the primary database
+     * @return The CREATE TABLE statement
+     */
+    private static String customersTableSql(boolean primary) {
+        return "CREATE TABLE IF NOT EXISTS customers (" +
+                "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                "firstName TEXT NOT NULL, " +
+                "lastName TEXT NOT NULL, " +
+                "address TEXT, " +
+                "employer_id INTEGER, " +
+                "branch_id INTEGER" +
+                (primary ? ", FOREIGN KEY(employer_id) REFERENCES employers(id), " +
+                           "FOREIGN KEY(branch_id) REFERENCES branches(id)" : "") +
+                ");";
+    }
+
+    /**
+     * Builds the CREATE TABLE statement of the accounts table.
+     * Branch and employer are ids into the dictionary tables of the primary database and
+     * the type is an AccountTable type code. Only the primary database can enforce the
+     * references; shard files hold the ids without foreign keys.
+     * 
+     * @param name The table name
+     * @param primary Whether the table lives in the primary database
+     * @return The CREATE TABLE statement
+     */
+    private static String accountsTableSql(String name, boolean primary) {
+        return "CREATE TABLE IF NOT EXISTS " + name + " (" +
+                "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                "accountNumber TEXT NOT NULL, " +
+                "balance INTEGER NOT NULL, " +
+                "branch_id INTEGER, " +
+                "type_code INTEGER NOT NULL, " +
+                "employer_id INTEGER, " +
+                "customer_id INTEGER" +
+                (primary ? ", FOREIGN KEY(branch_id) REFERENCES branches(id), " +
+                           "FOREIGN KEY(employer_id) REFERENCES employers(id), " +
+                           "FOREIGN KEY(customer_id) REFERENCES customers(id) ON DELETE CASCADE" : "") +
+                ");";
+    }
+
+    /**
+     * Gets the column names and declared types of a table.
+     * 
+     * @param conn The database connection
+     * @param table The table name
+     * @return The declared type of each column, keyed by column name
+     * @throws SQLException if a database error occurs
+     */
+    private static Map<String, String> columnsOf(Connection conn, String table) throws SQLException {
+        Map<String, String> columns = new HashMap<>();
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("PRAGMA table_info(" + table + ")")) {
+            while (rs.next()) {
+                columns.put(rs.getString("name"), rs.getString("type"));
+            }
+        }
+        return columns;
+    }
+
+    /**
+     * Moves customer employment details into the employers dictionary.
+     * Older databases store employerName/employerAddress text on every customer; they get
+     * an employer_id reference instead and the text columns are dropped, in one transaction.
+     * 
+     * @param conn A connection to the primary database
+     * @throws SQLException if a database error occurs
+     */
+    private static void normalizeCustomers(Connection conn) throws SQLException {
+        if (!columnsOf(conn, "customers").containsKey("employerName")) {
+            return;
+        }
+        // Register every employer first; the dictionary writes on its own connection
+        Dictionary dict = dictionary();
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT DISTINCT employerName, employerAddress FROM customers " +
+                     "WHERE employerName IS NOT NULL AND employerAddress IS NOT NULL")) {
+            while (rs.next()) {
+                dict.employerId(rs.getString(1), rs.getString(2));
+            }
+        }
+        try (Statement st = conn.createStatement()) {
+            conn.setAutoCommit(false);
+            try {
+                st.execute("ALTER TABLE customers ADD COLUMN employer_id INTEGER REFERENCES employers(id);");
+                st.execute("UPDATE customers SET employer_id = (SELECT e.id FROM employers e " +
+                        "WHERE e.name = customers.employerName AND e.address = customers.employerAddress)");
+                st.execute("ALTER TABLE customers DROP COLUMN employerName;");
+                st.execute("ALTER TABLE customers DROP COLUMN employerAddress;");
+                conn.commit();
+            } catch (SQLException ex) {
+                conn.rollback();
+                throw ex;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * Rebuilds an accounts table still in an older layout: text branch, type and employer
+     * columns, and balances stored as REAL pula in the oldest databases.
+     * SQLite cannot change columns in place, so the rows are copied into a new table with
+     * dictionary ids, type codes and INTEGER thebe (ROUND(balance * 100)), and the new table
+     * is swapped in within one transaction. Readers keep using the old table until the commit,
+     * and ids and the id sequence (including a shard's seeded range) are preserved.
+     * Tables already in the current layout are left untouched.
+     * 
+     * @param conn A connection to the database holding the accounts table
+     * @param primary Whether this is the primary database
+     * @throws SQLException if a database error occurs
+     */
+    private static void migrateAccounts(Connection conn, boolean primary) throws SQLException {
+        Map<String, String> columns = columnsOf(conn, "accounts");
+        if (!columns.containsKey("branch")) {
+            return;
+        }
+        String balance = "REAL".equalsIgnoreCase(columns.get("balance"))
+                ? "CAST(ROUND(a.balance * 100) AS INTEGER)" : "a.balance";
+
+        try (Statement st = conn.createStatement()) {
+            // Map the old text values to dictionary ids through temporary tables on this connection
+            st.execute("CREATE TEMP TABLE IF NOT EXISTS branch_map (name TEXT PRIMARY KEY, id INTEGER NOT NULL);");
+            st.execute("CREATE TEMP TABLE IF NOT EXISTS employer_map (name TEXT, address TEXT, " +
+                    "id INTEGER NOT NULL, PRIMARY KEY(name, address));");
+            Dictionary dict = dictionary();
+            try (PreparedStatement branchMap = conn.prepareStatement("INSERT OR IGNORE INTO temp.branch_map VALUES (?, ?)");
+                 PreparedStatement employerMap = conn.prepareStatement("INSERT OR IGNORE INTO temp.employer_map VALUES (?, ?, ?)")) {
+                List<String> branches = new ArrayList<>();
+                try (ResultSet rs = st.executeQuery("SELECT DISTINCT branch FROM accounts WHERE branch IS NOT NULL")) {
+                    while (rs.next()) {
+                        branches.add(rs.getString(1));
+                    }
+                }
+                for (String branch : branches) {
+                    branchMap.setString(1, branch);
+                    branchMap.setInt(2, dict.branchId(branch));
+                    branchMap.executeUpdate();
+                }
+                List<String[]> employers = new ArrayList<>();
+                try (ResultSet rs = st.executeQuery("SELECT DISTINCT employerName, employerAddress FROM accounts " +
+                        "WHERE employerName IS NOT NULL AND employerAddress IS NOT NULL")) {
+                    while (rs.next()) {
+                        employers.add(new String[] {rs.getString(1), rs.getString(2)});
+                    }
+                }
+                for (String[] employer : employers) {
+                    employerMap.setString(1, employer[0]);
+                    employerMap.setString(2, employer[1]);
+                    employerMap.setInt(3, dict.employerId(employer[0], employer[1]));
+                    employerMap.executeUpdate();
+                }
+            }
+
+            // Foreign keys must be off while the referenced table is dropped and renamed
+            st.execute("PRAGMA foreign_keys = OFF;");
+            conn.setAutoCommit(false);
+            try {
+                long sequence = 0;
+                try (ResultSet rs = st.executeQuery("SELECT seq FROM sqlite_sequence WHERE name = 'accounts'")) {
+                    if (rs.next()) {
+                        sequence = rs.getLong(1);
+                    }
+                }
+                st.execute(accountsTableSql("accounts_migrated", primary));
+                st.execute("INSERT INTO accounts_migrated(" + AccountRowMapper.COLUMNS + ") " +
+                        "SELECT a.id, a.accountNumber, " + balance + ", b.id, " +
+                        "CASE a.type WHEN 'SAVINGS' THEN " + AccountTable.TYPE_SAVINGS +
+                        " WHEN 'INVESTMENT' THEN " + AccountTable.TYPE_INVESTMENT +
+                        " ELSE " + AccountTable.TYPE_CHEQUE + " END, e.id, a.customer_id " +
+                        "FROM accounts a " +
+                        "LEFT JOIN temp.branch_map b ON b.name = a.branch " +
+                        "LEFT JOIN temp.employer_map e ON e.name = a.employerName AND e.address = a.employerAddress");
+                st.execute("DROP TABLE accounts");
+                st.execute("ALTER TABLE accounts_migrated RENAME TO accounts");
+                st.execute("CREATE INDEX IF NOT EXISTS idx_accounts_customer ON accounts(customer_id);");
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "UPDATE sqlite_sequence SET seq = MAX(seq, ?) WHERE name = 'accounts'")) {
+                    ps.setLong(1, sequence);
+                    if (ps.executeUpdate() == 0 && sequence > 0) {
+                        try (PreparedStatement insert = conn.prepareStatement(
+                                "INSERT INTO sqlite_sequence(name, seq) VALUES ('accounts', ?)")) {
+                            insert.setLong(1, sequence);
+                            insert.executeUpdate();
+                        }
+                    }
+                }
+                conn.commit();
+            } catch (SQLException ex) {
+                conn.rollback();
+                throw ex;
+            } finally {
+                conn.setAutoCommit(true);
+                st.execute("PRAGMA foreign_keys = ON;");
+                st.execute("DROP TABLE IF EXISTS temp.branch_map;");
+                st.execute("DROP TABLE IF EXISTS temp.employer_map;");
+            }
+        }
+    }
+
     /**
      * Inserts sample data into the database for testing purposes.
      * Creates 4 customers with 10 accounts total, 2 employees, and users for both.
@@ -141,10 +943,17 @@ public class DBUtil {
     private static void insertSampleData(Connection conn) throws SQLException {
         // Insert 4 customers and 10 accounts across them. Insert users for customers and employees.
         // Customers with Cheque accounts must have employment info
-        String insertCustomer = "INSERT INTO customers(firstName, lastName, address, employerName, employerAddress) VALUES (?, ?, ?, ?, ?);";
+        String insertCustomer = "INSERT INTO customers(firstName, lastName, address, employer_id) VALUES (?, ?, ?, ?);";
         String insertEmployee = "INSERT INTO employees(firstName, lastName, email, role) VALUES (?, ?, ?, ?);";
         String insertUser = "INSERT INTO users(username, password, customer_id, employee_id) VALUES (?, ?, ?, ?);";
-        String insertAccount = "INSERT INTO accounts(accountNumber, balance, branch, type, employerName, employerAddress, customer_id) VALUES (?, ?, ?, ?, ?, ?, ?);";
+        String insertAccount = "INSERT INTO accounts(accountNumber, balance, branch_id, type_code, employer_id, customer_id) VALUES (?, ?, ?, ?, ?, ?);";
+        Dictionary dict = dictionary();
+        int main = dict.branchId("Main");
+        int north = dict.branchId("North");
+        int west = dict.branchId("West");
+        int acme = dict.employerId("Acme Corp", "Gaborone");
+        int botswanaLtd = dict.employerId("Botswana Ltd", "Maun");
+        int smallBiz = dict.employerId("SmallBiz Pty", "Gaborone");
         try (PreparedStatement pc = conn.prepareStatement(insertCustomer, Statement.RETURN_GENERATED_KEYS);
              PreparedStatement pe = conn.prepareStatement(insertEmployee, Statement.RETURN_GENERATED_KEYS);
              PreparedStatement pu = conn.prepareStatement(insertUser);
@@ -152,51 +961,51 @@ public class DBUtil {
 
             // Customer 1 - Has Cheque account, so needs employment info
             pc.setString(1, "Katlego"); pc.setString(2, "Sekgoma"); pc.setString(3, "Gaborone");
-            pc.setString(4, "Acme Corp"); pc.setString(5, "Gaborone");
+            pc.setInt(4, acme);
             pc.executeUpdate();
             int cust1 = getGeneratedId(pc);
             pu.setString(1, "customer1"); pu.setString(2, "1234"); pu.setInt(3, cust1); pu.setObject(4, null); pu.executeUpdate();
 
             // Add 3 accounts
-            pa.setString(1, "CHK-001"); pa.setDouble(2, 1200.0); pa.setString(3, "Main"); pa.setString(4, "CHEQUE");
-            pa.setString(5, "Acme Corp"); pa.setString(6, "Gaborone"); pa.setInt(7, cust1); pa.executeUpdate();
-            pa.setString(1, "INV-001"); pa.setDouble(2, 1500.0); pa.setString(3, "Main"); pa.setString(4, "INVESTMENT");
-            pa.setString(5, null); pa.setString(6, null); pa.setInt(7, cust1); pa.executeUpdate();
-            pa.setString(1, "SAV-001"); pa.setDouble(2, 300.0); pa.setString(3, "Main"); pa.setString(4, "SAVINGS");
-            pa.setString(5, null); pa.setString(6, null); pa.setInt(7, cust1); pa.executeUpdate();
+            pa.setString(1, "CHK-001"); pa.setLong(2, Money.ofPula(1200)); pa.setInt(3, main); pa.setInt(4, AccountTable.TYPE_CHEQUE);
+            pa.setInt(5, acme); pa.setInt(6, cust1); pa.executeUpdate();
+            pa.setString(1, "INV-001"); pa.setLong(2, Money.ofPula(1500)); pa.setInt(3, main); pa.setInt(4, AccountTable.TYPE_INVESTMENT);
+            pa.setObject(5, null); pa.setInt(6, cust1); pa.executeUpdate();
+            pa.setString(1, "SAV-001"); pa.setLong(2, Money.ofPula(300)); pa.setInt(3, main); pa.setInt(4, AccountTable.TYPE_SAVINGS);
+            pa.setObject(5, null); pa.setInt(6, cust1); pa.executeUpdate();
 
             // Customer 2 - No Cheque account, no employment info needed
             pc.setString(1, "Alice"); pc.setString(2, "Moloi"); pc.setString(3, "Francistown");
-            pc.setString(4, null); pc.setString(5, null);
+            pc.setObject(4, null);
             pc.executeUpdate();
             int cust2 = getGeneratedId(pc);
             pu.setString(1, "customer2"); pu.setString(2, "1234"); pu.setInt(3, cust2); pu.setObject(4, null); pu.executeUpdate();
-            pa.setString(1, "INV-002"); pa.setDouble(2, 800.0); pa.setString(3, "North"); pa.setString(4, "INVESTMENT");
-            pa.setString(5, null); pa.setString(6, null); pa.setInt(7, cust2); pa.executeUpdate();
-            pa.setString(1, "SAV-002"); pa.setDouble(2, 250.0); pa.setString(3, "North"); pa.setString(4, "SAVINGS");
-            pa.setString(5, null); pa.setString(6, null); pa.setInt(7, cust2); pa.executeUpdate();
+            pa.setString(1, "INV-002"); pa.setLong(2, Money.ofPula(800)); pa.setInt(3, north); pa.setInt(4, AccountTable.TYPE_INVESTMENT);
+            pa.setObject(5, null); pa.setInt(6, cust2); pa.executeUpdate();
+            pa.setString(1, "SAV-002"); pa.setLong(2, Money.ofPula(250)); pa.setInt(3, north); pa.setInt(4, AccountTable.TYPE_SAVINGS);
+            pa.setObject(5, null); pa.setInt(6, cust2); pa.executeUpdate();
 
             // Customer 3 - Has Cheque account, so needs employment info
             pc.setString(1, "Brian"); pc.setString(2, "Kgosietsile"); pc.setString(3, "Maun");
-            pc.setString(4, "Botswana Ltd"); pc.setString(5, "Maun");
+            pc.setInt(4, botswanaLtd);
             pc.executeUpdate();
             int cust3 = getGeneratedId(pc);
             pu.setString(1, "customer3"); pu.setString(2, "1234"); pu.setInt(3, cust3); pu.setObject(4, null); pu.executeUpdate();
-            pa.setString(1, "CHK-002"); pa.setDouble(2, 500.0); pa.setString(3, "West"); pa.setString(4, "CHEQUE");
-            pa.setString(5, "Botswana Ltd"); pa.setString(6, "Maun"); pa.setInt(7, cust3); pa.executeUpdate();
-            pa.setString(1, "INV-003"); pa.setDouble(2, 700.0); pa.setString(3, "West"); pa.setString(4, "INVESTMENT");
-            pa.setString(5, null); pa.setString(6, null); pa.setInt(7, cust3); pa.executeUpdate();
+            pa.setString(1, "CHK-002"); pa.setLong(2, Money.ofPula(500)); pa.setInt(3, west); pa.setInt(4, AccountTable.TYPE_CHEQUE);
+            pa.setInt(5, botswanaLtd); pa.setInt(6, cust3); pa.executeUpdate();
+            pa.setString(1, "INV-003"); pa.setLong(2, Money.ofPula(700)); pa.setInt(3, west); pa.setInt(4, AccountTable.TYPE_INVESTMENT);
+            pa.setObject(5, null); pa.setInt(6, cust3); pa.executeUpdate();
 
             // Customer 4 - Has Cheque account, so needs employment info
             pc.setString(1, "Dineo"); pc.setString(2, "Modise"); pc.setString(3, "Gaborone");
-            pc.setString(4, "SmallBiz Pty"); pc.setString(5, "Gaborone");
+            pc.setInt(4, smallBiz);
             pc.executeUpdate();
             int cust4 = getGeneratedId(pc);
             pu.setString(1, "customer4"); pu.setString(2, "1234"); pu.setInt(3, cust4); pu.setObject(4, null); pu.executeUpdate();
-            pa.setString(1, "SAV-003"); pa.setDouble(2, 150.0); pa.setString(3, "Main"); pa.setString(4, "SAVINGS");
-            pa.setString(5, null); pa.setString(6, null); pa.setInt(7, cust4); pa.executeUpdate();
-            pa.setString(1, "CHK-003"); pa.setDouble(2, 400.0); pa.setString(3, "Main"); pa.setString(4, "CHEQUE");
-            pa.setString(5, "SmallBiz Pty"); pa.setString(6, "Gaborone"); pa.setInt(7, cust4); pa.executeUpdate();
+            pa.setString(1, "SAV-003"); pa.setLong(2, Money.ofPula(150)); pa.setInt(3, main); pa.setInt(4, AccountTable.TYPE_SAVINGS);
+            pa.setObject(5, null); pa.setInt(6, cust4); pa.executeUpdate();
+            pa.setString(1, "CHK-003"); pa.setLong(2, Money.ofPula(400)); pa.setInt(3, main); pa.setInt(4, AccountTable.TYPE_CHEQUE);
+            pa.setInt(5, smallBiz); pa.setInt(6, cust4); pa.executeUpdate();
 
             // Total accounts inserted: 10
 
@@ -211,6 +1020,7 @@ public class DBUtil {
             int emp2 = getGeneratedId(pe);
             pu.setString(1, "admin"); pu.setString(2, "admin123"); pu.setObject(3, null); pu.setInt(4, emp2); pu.executeUpdate();
         }
+        LedgerDAO.recordOpenings(conn);
     }
 
     /**
@@ -229,11 +1039,29 @@ public class DBUtil {
 
     /**
      * Closes database resources on application shutdown.
-     * Currently SQLite doesn't require explicit connection pool cleanup,
-     * but this method is provided for future extensibility.
+     * Closes every connection held by the reader pools, stops shard fan-out threads and,
+     * for in-memory databases, releases the database itself.
      */
-    public static void closeDataSource() {
-        // SQLite JDBC doesn't require explicit connection pool cleanup
-        // This method is provided for future extensibility if a connection pool is added
+    public static synchronized void closeDataSource() {
+        for (ConnectionPool pool : readPools.values()) {
+            pool.close();
+        }
+        readPools.clear();
+        if (shardRouter != null) {
+            shardRouter.close();
+        }
+        if (memoryAnchor != null) {
+            try {
+                memoryAnchor.close();
+            } catch (SQLException ex) {
+                ex.printStackTrace();
+            }
+            memoryAnchor = null;
+            // The in-memory database is gone; the next use opens it afresh
+            config = null;
+            dictionary = null;
+        }
+        // Rebuilt from the database on next use
+        uniqueKeys = null;
     }
 }
@@ -0,0 +1,25 @@
+package banking.dao;
+
+import java.sql.SQLTransientException;
+
+/**
+ * Thrown when an operation keeps failing because another connection holds the database lock,
+ * and the retry deadline has passed. The operation had no effect and may be tried again later.
+ *
+ * @author Banking System
+ */
+public class DatabaseBusyException extends SQLTransientException {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Constructs a DatabaseBusyException.
+     *
+     * @param operation A short description of the operation
+     * @param attempts The number of attempts made
+     * @param cause The last busy or locked error
+     */
+    public DatabaseBusyException(String operation, int attempts, Throwable cause) {
+        super("The database is busy; could not " + operation + " after " + attempts + " attempt(s). " +
+              "Please try again.", cause);
+    }
+}
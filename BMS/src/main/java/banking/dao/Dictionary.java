@@ -0,0 +1,314 @@
+package banking.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory copy of the branch and employer dictionaries held in the primary database.
+ * Accounts and customers store small integer references into the {@code branches} and
+ * {@code employers} tables; mapping those ids through this class hands every row the same
+ * canonical String instances instead of a fresh copy per row.
+ *
+ * Ids are global across shards, so a shard row can be decoded without touching its
+ * own file. Unknown ids and names are looked up in the database, in case another process
+ * added an entry.
+ *
+ * Entries are added without holding any lock of this class: INSERT OR IGNORE followed by a
+ * lookup returns the same id to every caller, and the database assigns it. Inside a unit of
+ * work the insert is part of the caller's unit, so a rollback removes the entry together with
+ * the rows that refer to it. An entry is only cached once it is committed, so the cache never
+ * refers to an entry that does not exist; until then lookups in the unit read it from the
+ * database.
+ *
+ * @author Banking System
+ */
+final class Dictionary {
+    /**
+     * A canonical employer entry.
+     *
+     * @param name The employer's name
+     * @param address The employer's address
+     */
+    record Employer(String name, String address) {
+    }
+
+    private final Map<Integer, String> branchNames = new ConcurrentHashMap<>();
+    private final Map<String, Integer> branchIds = new ConcurrentHashMap<>();
+    private final Map<Integer, Employer> employers = new ConcurrentHashMap<>();
+    private final Map<Employer, Integer> employerIds = new ConcurrentHashMap<>();
+
+    /**
+     * Creates the dictionary tables in the primary database if they don't exist.
+     *
+     * @param conn A connection to the primary database
+     * @throws SQLException if a database error occurs
+     */
+    static void createTables(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            st.execute("CREATE TABLE IF NOT EXISTS branches (" +
+                    "id INTEGER PRIMARY KEY, " +
+                    "name TEXT NOT NULL UNIQUE" +
+                    ");");
+            st.execute("CREATE TABLE IF NOT EXISTS employers (" +
+                    "id INTEGER PRIMARY KEY, " +
+                    "name TEXT NOT NULL, " +
+                    "address TEXT NOT NULL, " +
+                    "UNIQUE(name, address)" +
+                    ");");
+        }
+    }
+
+    /**
+     * Gets the canonical name of a branch id.
+     *
+     * @param id The branch id
+     * @return The branch name
+     * @throws SQLException if the id is unknown or a database error occurs
+     */
+    String branchName(int id) throws SQLException {
+        String name = branchNames.get(id);
+        if (name != null) {
+            Metrics.increment(Metrics.DICTIONARY_HITS);
+            return name;
+        }
+        Metrics.increment(Metrics.DICTIONARY_MISSES);
+        String[] row = selectById("SELECT name FROM branches WHERE id = ?", id);
+        if (row == null) {
+            throw new SQLException("Unknown branch id " + id);
+        }
+        DBUtil.afterCommit(() -> register(id, row[0]));
+        return branchNames.getOrDefault(id, row[0]);
+    }
+
+    /**
+     * Gets the id of a branch, adding the branch to the dictionary if needed.
+     * Outside a unit of work, never call this while holding an open write transaction
+     * on the primary database.
+     *
+     * @param name The branch name
+     * @return The branch id
+     * @throws SQLException if a database error occurs
+     */
+    int branchId(String name) throws SQLException {
+        Integer id = branchIds.get(name);
+        if (id != null) {
+            Metrics.increment(Metrics.DICTIONARY_HITS);
+            return id;
+        }
+        Metrics.increment(Metrics.DICTIONARY_MISSES);
+        int created = insert("INSERT OR IGNORE INTO branches(name) VALUES (?)",
+                             "SELECT id FROM branches WHERE name = ?", name, null);
+        DBUtil.afterCommit(() -> register(created, name));
+        return created;
+    }
+
+    /**
+     * Looks up the id of a branch without adding it.
+     *
+     * @param name The branch name
+     * @return The branch id, or null if the branch is unknown
+     * @throws SQLException if a database error occurs
+     */
+    Integer findBranchId(String name) throws SQLException {
+        Integer id = branchIds.get(name);
+        if (id == null) {
+            try (Connection conn = DBUtil.getReadConnection()) {
+                id = selectId(conn, "SELECT id FROM branches WHERE name = ?", name, null);
+            }
+            if (id != null) {
+                int found = id;
+                DBUtil.afterCommit(() -> register(found, name));
+            }
+        }
+        return id;
+    }
+
+    /**
+     * Gets the canonical employer of an employer id.
+     *
+     * @param id The employer id
+     * @return The employer
+     * @throws SQLException if the id is unknown or a database error occurs
+     */
+    Employer employer(int id) throws SQLException {
+        Employer employer = employers.get(id);
+        if (employer != null) {
+            Metrics.increment(Metrics.DICTIONARY_HITS);
+            return employer;
+        }
+        Metrics.increment(Metrics.DICTIONARY_MISSES);
+        String[] row = selectById("SELECT name, address FROM employers WHERE id = ?", id);
+        if (row == null) {
+            throw new SQLException("Unknown employer id " + id);
+        }
+        Employer found = new Employer(row[0], row[1]);
+        DBUtil.afterCommit(() -> register(id, found));
+        return employers.getOrDefault(id, found);
+    }
+
+    /**
+     * Looks up the id of an employer without adding it.
+     *
+     * @param name The employer's name
+     * @param address The employer's address
+     * @return The employer id, or null if the employer is unknown
+     * @throws SQLException if a database error occurs
+     */
+    Integer findEmployerId(String name, String address) throws SQLException {
+        Employer key = new Employer(name, address);
+        Integer id = employerIds.get(key);
+        if (id == null) {
+            try (Connection conn = DBUtil.getReadConnection()) {
+                id = selectId(conn, "SELECT id FROM employers WHERE name = ? AND address = ?", name, address);
+            }
+            if (id != null) {
+                int found = id;
+                DBUtil.afterCommit(() -> register(found, key));
+            }
+        }
+        return id;
+    }
+
+    /**
+     * Gets the id of an employer, adding the employer to the dictionary if needed.
+     * Outside a unit of work, never call this while holding an open write transaction
+     * on the primary database.
+     *
+     * @param name The employer's name
+     * @param address The employer's address
+     * @return The employer id, or null if either part is missing
+     * @throws SQLException if a database error occurs
+     */
+    Integer employerId(String name, String address) throws SQLException {
+        if (name == null || address == null) {
+            return null;
+        }
+        Employer key = new Employer(name, address);
+        Integer id = employerIds.get(key);
+        if (id != null) {
+            Metrics.increment(Metrics.DICTIONARY_HITS);
+            return id;
+        }
+        Metrics.increment(Metrics.DICTIONARY_MISSES);
+        int created = insert("INSERT OR IGNORE INTO employers(name, address) VALUES (?, ?)",
+                             "SELECT id FROM employers WHERE name = ? AND address = ?", name, address);
+        DBUtil.afterCommit(() -> register(created, key));
+        return created;
+    }
+
+    /**
+     * Inserts a dictionary entry if it is missing and returns its id.
+     *
+     * @param insertSql The INSERT OR IGNORE statement
+     * @param selectSql The statement selecting the entry's id
+     * @param first The first parameter of both statements
+     * @param second The second parameter of both statements, or null if they take one
+     * @return The entry id
+     * @throws SQLException if a database error occurs
+     */
+    private int insert(String insertSql, String selectSql, String first, String second) throws SQLException {
+        // INSERT OR IGNORE followed by a lookup is safe to repeat
+        return DBUtil.withRetry("add a dictionary entry", () -> insertOnce(insertSql, selectSql, first, second));
+    }
+
+    /**
+     * Makes one attempt at inserting a dictionary entry and reading back its id.
+     *
+     * @param insertSql The INSERT OR IGNORE statement
+     * @param selectSql The statement selecting the entry's id
+     * @param first The first parameter of both statements
+     * @param second The second parameter of both statements, or null if they take one
+     * @return The entry id
+     * @throws SQLException if a database error occurs
+     */
+    private int insertOnce(String insertSql, String selectSql, String first, String second) throws SQLException {
+        try (Connection conn = DBUtil.getConnection()) {
+            try (PreparedStatement ps = conn.prepareStatement(insertSql)) {
+                ps.setString(1, first);
+                if (second != null) {
+                    ps.setString(2, second);
+                }
+                ps.executeUpdate();
+            }
+            Integer id = selectId(conn, selectSql, first, second);
+            if (id == null) {
+                throw new SQLException("Dictionary entry was not created: " + first);
+            }
+            return id;
+        }
+    }
+
+    /**
+     * Selects the id of a dictionary entry by its name and optional address.
+     *
+     * @param conn A connection to the primary database
+     * @param selectSql The statement selecting the entry's id
+     * @param first The first parameter of the statement
+     * @param second The second parameter of the statement, or null if it takes one
+     * @return The entry id, or null if there is no such entry
+     * @throws SQLException if a database error occurs
+     */
+    private static Integer selectId(Connection conn, String selectSql, String first, String second)
+            throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(selectSql)) {
+            ps.setString(1, first);
+            if (second != null) {
+                ps.setString(2, second);
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : null;
+            }
+        }
+    }
+
+    /**
+     * Selects the text columns of a dictionary entry by its id.
+     *
+     * @param selectSql The statement selecting the entry
+     * @param id The entry id
+     * @return The entry's columns, or null if there is no such entry
+     * @throws SQLException if a database error occurs
+     */
+    private static String[] selectById(String selectSql, int id) throws SQLException {
+        try (Connection conn = DBUtil.getReadConnection(); PreparedStatement ps = conn.prepareStatement(selectSql)) {
+            ps.setInt(1, id);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+                String[] row = new String[rs.getMetaData().getColumnCount()];
+                for (int i = 0; i < row.length; i++) {
+                    row[i] = rs.getString(i + 1);
+                }
+                return row;
+            }
+        }
+    }
+
+    /**
+     * Records a branch in both directions.
+     *
+     * @param id The branch id
+     * @param name The branch name
+     */
+    private void register(int id, String name) {
+        branchNames.putIfAbsent(id, name);
+        branchIds.putIfAbsent(name, id);
+    }
+
+    /**
+     * Records an employer in both directions.
+     *
+     * @param id The employer id
+     * @param employer The employer
+     */
+    private void register(int id, Employer employer) {
+        employers.putIfAbsent(id, employer);
+        employerIds.putIfAbsent(employer, id);
+    }
+}
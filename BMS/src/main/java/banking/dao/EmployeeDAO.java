@@ -1,6 +1,8 @@
 package banking.dao;
 
+import banking.jfr.QueryEvent;
 import banking.model.Employee;
+import banking.repository.EmployeeRepository;
 import java.sql.*;
 
 /**
@@ -9,7 +11,7 @@ import java.sql.*;
  * 
  * @author Banking System
  */
-public class EmployeeDAO {
+public class EmployeeDAO implements EmployeeRepository {
 
     /**
      * Authenticates an employee and returns the associated employee.
@@ -22,37 +24,26 @@ public class EmployeeDAO {
         String sql = "SELECT e.id, e.firstName, e.lastName, e.email, e.role " +
                      "FROM users u JOIN employees e ON u.employee_id = e.id " +
                      "WHERE u.username = ? AND u.password = ? AND u.employee_id IS NOT NULL LIMIT 1;";
-        try (Connection conn = DBUtil.getConnection();
+        QueryEvent event = QueryEvent.start();
+        int found = 0;
+        try (Connection conn = DBUtil.getReadConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setString(1, username);
             ps.setString(2, password);
             try (ResultSet rs = ps.executeQuery()) {
                 if (rs.next()) {
-                    return createEmployeeFromResultSet(rs);
+                    found = 1;
+                    return new EmployeeRowMapper(rs).map();
                 }
             }
         } catch (SQLException ex) {
             ex.printStackTrace();
+        } finally {
+            event.finish("employee.byCredentials", found);
         }
         return null;
     }
 
-    /**
-     * Creates an Employee object from a ResultSet.
-     * 
-     * @param rs The ResultSet positioned at the employee row
-     * @return The Employee object
-     * @throws SQLException if a database error occurs
-     */
-    private Employee createEmployeeFromResultSet(ResultSet rs) throws SQLException {
-        int id = rs.getInt("id");
-        String firstName = rs.getString("firstName");
-        String lastName = rs.getString("lastName");
-        String email = rs.getString("email");
-        String role = rs.getString("role");
-        return new Employee(id, firstName, lastName, email, role);
-    }
-
     /**
      * Gets an employee by their ID.
      * 
@@ -62,16 +53,21 @@ public class EmployeeDAO {
     public Employee getEmployeeById(int employeeId) {
         String sql = "SELECT id, firstName, lastName, email, role " +
                      "FROM employees WHERE id = ?";
-        try (Connection conn = DBUtil.getConnection();
+        QueryEvent event = QueryEvent.start();
+        int found = 0;
+        try (Connection conn = DBUtil.getReadConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setInt(1, employeeId);
             try (ResultSet rs = ps.executeQuery()) {
                 if (rs.next()) {
-                    return createEmployeeFromResultSet(rs);
+                    found = 1;
+                    return new EmployeeRowMapper(rs).map();
                 }
             }
         } catch (SQLException ex) {
             ex.printStackTrace();
+        } finally {
+            event.finish("employee.byId", found);
         }
         return null;
     }
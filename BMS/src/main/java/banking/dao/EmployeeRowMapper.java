@@ -0,0 +1,48 @@
+package banking.dao;
+
+import banking.model.Employee;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Maps rows of an employees query to Employee objects.
+ * Column indexes are resolved once when the mapper is created for a ResultSet.
+ * The query must select id, firstName, lastName, email and role.
+ * 
+ * @author Banking System
+ */
+final class EmployeeRowMapper {
+    private final ResultSet rs;
+    private final int id;
+    private final int firstName;
+    private final int lastName;
+    private final int email;
+    private final int role;
+
+    /**
+     * Constructs an EmployeeRowMapper for a ResultSet.
+     * 
+     * @param rs The ResultSet to map
+     * @throws SQLException if a required column is missing
+     */
+    EmployeeRowMapper(ResultSet rs) throws SQLException {
+        this.rs = rs;
+        this.id = rs.findColumn("id");
+        this.firstName = rs.findColumn("firstName");
+        this.lastName = rs.findColumn("lastName");
+        this.email = rs.findColumn("email");
+        this.role = rs.findColumn("role");
+    }
+
+    /**
+     * Maps the current row.
+     * 
+     * @return The Employee object
+     * @throws SQLException if a database error occurs
+     */
+    Employee map() throws SQLException {
+        return new Employee(rs.getInt(id), rs.getString(firstName), rs.getString(lastName),
+                            rs.getString(email), rs.getString(role));
+    }
+}
@@ -0,0 +1,164 @@
+package banking.dao;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free latency histogram with log-linear buckets, in the style of HdrHistogram.
+ * Values below 64 ns get a bucket each; above that every power of two is split into
+ * 32 equal buckets, so any recorded value is reported to within about 3%, from
+ * nanoseconds to hours, in a fixed 15 KB of counters. Recording is one atomic increment.
+ * Percentiles are read from snapshots, and the difference of two snapshots gives the
+ * distribution of an interval, which is how the monitor reports a recent p99.
+ *
+ * @author Banking System
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int LINEAR_LIMIT = SUB_BUCKETS * 2;
+    private static final int BUCKETS = LINEAR_LIMIT + (63 - SUB_BUCKET_BITS - 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    /**
+     * Records one latency.
+     *
+     * @param nanos The latency in nanoseconds; negative values are counted as 0
+     */
+    public void record(long nanos) {
+        counts.incrementAndGet(bucket(Math.max(0, nanos)));
+    }
+
+    /**
+     * Takes a snapshot of the counts. Concurrent recordings may or may not be included.
+     *
+     * @return The snapshot
+     */
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.get(i);
+        }
+        return new Snapshot(copy);
+    }
+
+    /**
+     * Gets the bucket of a value.
+     *
+     * @param value The value, not negative
+     * @return The bucket index
+     */
+    static int bucket(long value) {
+        if (value < LINEAR_LIMIT) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        int top = (int) (value >>> shift);
+        return LINEAR_LIMIT + (shift - 1) * SUB_BUCKETS + (top - SUB_BUCKETS);
+    }
+
+    /**
+     * Gets the highest value that falls into a bucket.
+     *
+     * @param bucket The bucket index
+     * @return The highest value of the bucket
+     */
+    static long highestValue(int bucket) {
+        if (bucket < LINEAR_LIMIT) {
+            return bucket;
+        }
+        int shift = (bucket - LINEAR_LIMIT) / SUB_BUCKETS + 1;
+        long top = (bucket - LINEAR_LIMIT) % SUB_BUCKETS + SUB_BUCKETS;
+        return ((top + 1) << shift) - 1;
+    }
+
+    /**
+     * An immutable copy of a histogram's counts.
+     */
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long total;
+
+        private Snapshot(long[] counts) {
+            this.counts = counts;
+            long sum = 0;
+            for (long count : counts) {
+                sum += count;
+            }
+            this.total = sum;
+        }
+
+        /**
+         * Gets the number of recorded values.
+         *
+         * @return The count
+         */
+        public long count() {
+            return total;
+        }
+
+        /**
+         * Gets a percentile.
+         *
+         * @param percentile The percentile, from 0 to 100
+         * @return The value at or below which that share of the recorded values falls, in
+         *         nanoseconds, rounded up to its bucket; 0 if nothing was recorded
+         */
+        public long percentile(double percentile) {
+            if (total == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * total));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return highestValue(i);
+                }
+            }
+            return max();
+        }
+
+        /**
+         * Gets the largest recorded value.
+         *
+         * @return The largest value in nanoseconds, rounded up to its bucket; 0 if nothing was recorded
+         */
+        public long max() {
+            for (int i = counts.length - 1; i >= 0; i--) {
+                if (counts[i] > 0) {
+                    return highestValue(i);
+                }
+            }
+            return 0;
+        }
+
+        /**
+         * Gets the values recorded since an earlier snapshot of the same histogram.
+         *
+         * @param earlier The earlier snapshot
+         * @return The difference
+         */
+        public Snapshot minus(Snapshot earlier) {
+            long[] diff = new long[counts.length];
+            for (int i = 0; i < counts.length; i++) {
+                diff[i] = counts[i] - earlier.counts[i];
+            }
+            return new Snapshot(diff);
+        }
+
+        /**
+         * Combines this snapshot with one of another histogram.
+         *
+         * @param other The other snapshot
+         * @return The sum
+         */
+        public Snapshot plus(Snapshot other) {
+            long[] sum = new long[counts.length];
+            for (int i = 0; i < counts.length; i++) {
+                sum[i] = counts[i] + other.counts[i];
+            }
+            return new Snapshot(sum);
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package banking.dao;
+
+import banking.model.MovementKind;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Data Access Object for the account movement ledger.
+ * Every shard holds an account_movements table next to its accounts: one row for the
+ * amount each account was opened with and one for every later change of its balance,
+ * written in the same transaction as the change. An account's balance should therefore
+ * always equal the sum of its movements; reconciliation checks that, range by range.
+ *
+ * @author Banking System
+ */
+public class LedgerDAO {
+    private static final String INSERT_SQL =
+            "INSERT INTO account_movements(account_id, amount, kind, created_at) VALUES (?, ?, ?, ?)";
+
+    /**
+     * Receives an account, or a set of movements without an account, whose balance
+     * does not match its movements.
+     */
+    @FunctionalInterface
+    public interface DiscrepancyConsumer {
+        /**
+         * @param accountId The account ID
+         * @param accountNumber The account number, or null if the account no longer exists
+         * @param balance The stored balance in thebe, or 0 if the account no longer exists
+         * @param expected The sum of the account's movements in thebe
+         * @param movements The number of movements
+         */
+        void accept(long accountId, String accountNumber, long balance, long expected, long movements);
+    }
+
+    /**
+     * Row counts of a reconciled ID range.
+     *
+     * @param accounts The number of accounts compared
+     * @param movements The number of movements summed
+     */
+    public record RangeCounts(long accounts, long movements) {
+    }
+
+    /**
+     * Creates the ledger table in a database holding an accounts table, if it doesn't exist.
+     * A new ledger starts from the current balances: each existing account gets an opening
+     * movement of its balance, so only changes made from now on are reconciled.
+     *
+     * @param conn A connection to the database
+     * @throws SQLException if a database error occurs
+     */
+    static void createTable(Connection conn) throws SQLException {
+        boolean exists;
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery(
+                     "SELECT 1 FROM sqlite_master WHERE type = 'table' AND name = 'account_movements'")) {
+            exists = rs.next();
+        }
+        if (exists) {
+            return;
+        }
+        try (Statement st = conn.createStatement()) {
+            st.execute("CREATE TABLE account_movements (" +
+                    "id INTEGER PRIMARY KEY, " +
+                    "account_id INTEGER NOT NULL, " +
+                    "amount INTEGER NOT NULL, " +
+                    "kind INTEGER NOT NULL, " +
+                    "created_at INTEGER NOT NULL" +
+                    ");");
+            // Covers the per-account sums, so reconciliation never reads the table itself
+            st.execute("CREATE INDEX idx_movements_account ON account_movements(account_id, amount);");
+        }
+        recordOpenings(conn);
+    }
+
+    /**
+     * Records an opening movement of its current balance for every account without movements.
+     * Only for accounts inserted outside the DAOs, such as the sample data of a new database.
+     *
+     * @param conn A connection to the database
+     * @throws SQLException if a database error occurs
+     */
+    static void recordOpenings(Connection conn) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(
+                "INSERT INTO account_movements(account_id, amount, kind, created_at) " +
+                "SELECT id, balance, ?, ? FROM accounts a " +
+                "WHERE NOT EXISTS (SELECT 1 FROM account_movements m WHERE m.account_id = a.id)")) {
+            ps.setInt(1, MovementKind.OPENING.ordinal());
+            ps.setLong(2, System.currentTimeMillis());
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * Records one movement. Call it on the connection, and in the transaction, that changes the balance.
+     *
+     * @param conn The shard connection
+     * @param accountId The account ID
+     * @param amount The signed change in thebe
+     * @param kind The reason for the change
+     * @throws SQLException if a database error occurs
+     */
+    static void record(Connection conn, long accountId, long amount, MovementKind kind) throws SQLException {
+        try (PreparedStatement ps = prepareRecord(conn)) {
+            addRecord(ps, accountId, amount, kind);
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * Prepares the movement insert for batched use with addRecord.
+     *
+     * @param conn The shard connection
+     * @return The statement
+     * @throws SQLException if a database error occurs
+     */
+    static PreparedStatement prepareRecord(Connection conn) throws SQLException {
+        return conn.prepareStatement(INSERT_SQL);
+    }
+
+    /**
+     * Binds one movement to a statement from prepareRecord. The caller adds it to a batch or executes it.
+     *
+     * @param ps The statement
+     * @param accountId The account ID
+     * @param amount The signed change in thebe
+     * @param kind The reason for the change
+     * @throws SQLException if a database error occurs
+     */
+    static void addRecord(PreparedStatement ps, long accountId, long amount, MovementKind kind) throws SQLException {
+        ps.setLong(1, accountId);
+        ps.setLong(2, amount);
+        ps.setInt(3, kind.ordinal());
+        ps.setLong(4, System.currentTimeMillis());
+    }
+
+    /**
+     * Gets the span of IDs that reconciliation has to cover on a shard: every account ID and
+     * every account ID that movements refer to.
+     *
+     * @param shard The shard
+     * @return The lowest and highest ID, or null if the shard has neither accounts nor movements
+     * @throws SQLException if a database error occurs
+     */
+    public long[] idRange(ShardRouter.Shard shard) throws SQLException {
+        try (Connection conn = DBUtil.getReadConnection(shard);
+             Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery(
+                     "SELECT MIN(lo), MAX(hi) FROM (" +
+                     "SELECT MIN(id) AS lo, MAX(id) AS hi FROM accounts " +
+                     "UNION ALL SELECT MIN(account_id), MAX(account_id) FROM account_movements)")) {
+            rs.next();
+            long lo = rs.getLong(1);
+            if (rs.wasNull()) {
+                return null;
+            }
+            return new long[] {lo, rs.getLong(2)};
+        }
+    }
+
+    /**
+     * Compares the balances of a range of account IDs with the sums of their movements.
+     * Accounts and per-account movement sums are streamed side by side in ID order and
+     * merged, so each table is read once, from its primary key and covering index, and
+     * only mismatches are handed on. Both reads share one snapshot of the shard, so
+     * changes committed meanwhile cannot show up as false discrepancies.
+     *
+     * @param shard The shard
+     * @param fromId The first account ID of the range
+     * @param toId The account ID after the range
+     * @param consumer Receives every mismatch
+     * @return The number of accounts and movements compared
+     * @throws SQLException if a database error occurs
+     */
+    public RangeCounts reconcileRange(ShardRouter.Shard shard, long fromId, long toId,
+                                      DiscrepancyConsumer consumer) throws SQLException {
+        long accounts = 0;
+        long movements = 0;
+        try (Connection conn = DBUtil.getReadConnection(shard)) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement balances = conn.prepareStatement(
+                         "SELECT id, accountNumber, balance FROM accounts WHERE id >= ? AND id < ? ORDER BY id");
+                 PreparedStatement sums = conn.prepareStatement(
+                         "SELECT account_id, SUM(amount), COUNT(*) FROM account_movements " +
+                         "WHERE account_id >= ? AND account_id < ? GROUP BY account_id ORDER BY account_id")) {
+                balances.setLong(1, fromId);
+                balances.setLong(2, toId);
+                sums.setLong(1, fromId);
+                sums.setLong(2, toId);
+                try (ResultSet a = balances.executeQuery(); ResultSet m = sums.executeQuery()) {
+                    boolean hasAccount = a.next();
+                    boolean hasSum = m.next();
+                    while (hasAccount || hasSum) {
+                        long accountId = hasAccount ? a.getLong(1) : Long.MAX_VALUE;
+                        long sumId = hasSum ? m.getLong(1) : Long.MAX_VALUE;
+                        if (accountId <= sumId) {
+                            long expected = accountId == sumId ? m.getLong(2) : 0;
+                            long count = accountId == sumId ? m.getLong(3) : 0;
+                            long balance = a.getLong(3);
+                            accounts++;
+                            movements += count;
+                            if (balance != expected || count == 0) {
+                                consumer.accept(accountId, a.getString(2), balance, expected, count);
+                            }
+                            hasAccount = a.next();
+                            if (accountId == sumId) {
+                                hasSum = m.next();
+                            }
+                        } else {
+                            // Movements of an account that no longer exists
+                            long expected = m.getLong(2);
+                            long count = m.getLong(3);
+                            movements += count;
+                            if (expected != 0) {
+                                consumer.accept(sumId, null, 0, expected, count);
+                            }
+                            hasSum = m.next();
+                        }
+                    }
+                }
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+        return new RangeCounts(accounts, movements);
+    }
+}
@@ -0,0 +1,142 @@
+package banking.dao;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Process-wide operational counters.
+ * Counters are LongAdders keyed by name, so hot paths can bump them from many threads
+ * without contention; readers take a sorted snapshot. Gauges are values computed when
+ * read, such as the connections in use, and latencies are kept in LatencyHistograms.
+ *
+ * @author Banking System
+ */
+public final class Metrics {
+    /** Statements that failed because the database was busy or locked. */
+    public static final String DB_BUSY = "db.busy";
+    /** Retries of operations that failed because the database was busy. */
+    public static final String DB_RETRIES = "db.retries";
+    /** Operations that succeeded after at least one retry. */
+    public static final String DB_RETRY_RECOVERED = "db.retry.recovered";
+    /** Operations abandoned because the database stayed busy until the retry deadline. */
+    public static final String DB_RETRY_EXHAUSTED = "db.retry.exhausted";
+    /** Total time spent backing off before retries, in milliseconds. */
+    public static final String DB_RETRY_WAIT_MILLIS = "db.retry.waitMillis";
+    /** Gauge: reader connections currently borrowed, over all shards. */
+    public static final String DB_READ_POOL_IN_USE = "db.readPool.inUse";
+    /** Gauge: reader connections that can be borrowed at once, over all shards. */
+    public static final String DB_READ_POOL_SIZE = "db.readPool.size";
+    /** Branch and employer lookups answered from the dictionary cache. */
+    public static final String DICTIONARY_HITS = "dictionary.hits";
+    /** Branch and employer lookups that had to go to the database. */
+    public static final String DICTIONARY_MISSES = "dictionary.misses";
+    /** Deposits, withdrawals and transfers that completed. */
+    public static final String TRANSACTIONS = "service.transactions";
+    /** Latency of deposits, including rejected ones. */
+    public static final String DEPOSIT_LATENCY = "service.deposit.latency";
+    /** Latency of withdrawals, including rejected ones. */
+    public static final String WITHDRAW_LATENCY = "service.withdraw.latency";
+    /** Users currently logged in to this process. */
+    public static final String SESSIONS_ACTIVE = "sessions.active";
+
+    private static final Map<String, LongAdder> COUNTERS = new ConcurrentHashMap<>();
+    private static final Map<String, LongSupplier> GAUGES = new ConcurrentHashMap<>();
+    private static final Map<String, LatencyHistogram> LATENCIES = new ConcurrentHashMap<>();
+
+    private Metrics() {
+    }
+
+    /**
+     * Adds one to a counter.
+     *
+     * @param name The counter name
+     */
+    public static void increment(String name) {
+        counter(name).increment();
+    }
+
+    /**
+     * Adds an amount to a counter.
+     *
+     * @param name The counter name
+     * @param amount The amount to add
+     */
+    public static void add(String name, long amount) {
+        counter(name).add(amount);
+    }
+
+    /**
+     * Registers a gauge, replacing any gauge of the same name.
+     *
+     * @param name The gauge name
+     * @param value Computes the current value; called on every read, from any thread
+     */
+    public static void gauge(String name, LongSupplier value) {
+        GAUGES.put(name, value);
+    }
+
+    /**
+     * Records a latency.
+     *
+     * @param name The histogram name
+     * @param nanos The latency in nanoseconds
+     */
+    public static void recordLatency(String name, long nanos) {
+        LatencyHistogram histogram = LATENCIES.get(name);
+        if (histogram == null) {
+            histogram = LATENCIES.computeIfAbsent(name, k -> new LatencyHistogram());
+        }
+        histogram.record(nanos);
+    }
+
+    /**
+     * Takes a snapshot of a latency histogram.
+     *
+     * @param name The histogram name
+     * @return The snapshot, empty for a histogram that was never recorded to
+     */
+    public static LatencyHistogram.Snapshot latency(String name) {
+        return LATENCIES.computeIfAbsent(name, k -> new LatencyHistogram()).snapshot();
+    }
+
+    /**
+     * Gets the current value of a counter or gauge.
+     *
+     * @param name The counter or gauge name
+     * @return The value, or 0 for a counter that was never touched
+     */
+    public static long get(String name) {
+        LongAdder adder = COUNTERS.get(name);
+        if (adder != null) {
+            return adder.sum();
+        }
+        LongSupplier gauge = GAUGES.get(name);
+        return gauge == null ? 0 : gauge.getAsLong();
+    }
+
+    /**
+     * Takes a snapshot of every counter and gauge.
+     *
+     * @return The values, sorted by name
+     */
+    public static Map<String, Long> snapshot() {
+        Map<String, Long> values = new TreeMap<>();
+        COUNTERS.forEach((name, adder) -> values.put(name, adder.sum()));
+        GAUGES.forEach((name, gauge) -> values.put(name, gauge.getAsLong()));
+        return values;
+    }
+
+    /**
+     * Gets a counter, creating it on first use.
+     *
+     * @param name The counter name
+     * @return The counter
+     */
+    private static LongAdder counter(String name) {
+        LongAdder adder = COUNTERS.get(name);
+        return adder != null ? adder : COUNTERS.computeIfAbsent(name, k -> new LongAdder());
+    }
+}
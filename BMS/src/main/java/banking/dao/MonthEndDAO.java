@@ -0,0 +1,279 @@
+package banking.dao;
+
+import banking.bulk.AccountTable;
+import banking.model.Money;
+import banking.model.MovementKind;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Data Access Object for month-end processing runs.
+ * The run status of each period is kept in the primary database. Each shard keeps its
+ * own checkpoint row per period, written in the same transaction as the balances of the
+ * chunk it covers, so a restarted run resumes exactly after the last committed chunk.
+ *
+ * @author Banking System
+ */
+public class MonthEndDAO {
+    public static final String STATUS_RUNNING = "RUNNING";
+    public static final String STATUS_COMPLETED = "COMPLETED";
+
+    /**
+     * Creates the run and checkpoint tables if they don't exist.
+     *
+     * @throws SQLException if a database error occurs
+     */
+    public void createTables() throws SQLException {
+        try (Connection conn = DBUtil.getConnection(); Statement st = conn.createStatement()) {
+            st.execute("CREATE TABLE IF NOT EXISTS month_end_runs (" +
+                    "period TEXT PRIMARY KEY, " +
+                    "status TEXT NOT NULL, " +
+                    "started_at TEXT NOT NULL, " +
+                    "finished_at TEXT" +
+                    ");");
+        }
+        for (ShardRouter.Shard shard : DBUtil.shards().all()) {
+            try (Connection conn = DBUtil.getConnection(shard); Statement st = conn.createStatement()) {
+                st.execute("CREATE TABLE IF NOT EXISTS month_end_checkpoints (" +
+                        "period TEXT PRIMARY KEY, " +
+                        "high_water_id INTEGER NOT NULL, " +
+                        "last_account_id INTEGER NOT NULL, " +
+                        "processed INTEGER NOT NULL" +
+                        ");");
+            }
+        }
+    }
+
+    /**
+     * Gets the status of a period's run.
+     *
+     * @param period The period, e.g. "2026-09"
+     * @return RUNNING or COMPLETED, or null if the period has never been started
+     * @throws SQLException if a database error occurs
+     */
+    public String getStatus(String period) throws SQLException {
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement ps = conn.prepareStatement("SELECT status FROM month_end_runs WHERE period = ?")) {
+            ps.setString(1, period);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getString(1) : null;
+            }
+        }
+    }
+
+    /**
+     * Marks a period as running, or confirms it is already running after a restart.
+     *
+     * @param period The period
+     * @throws IllegalStateException if the period has already completed
+     * @throws SQLException if a database error occurs
+     */
+    public void startRun(String period) throws SQLException {
+        DBUtil.withRetry("start the month-end run", () -> {
+            try (Connection conn = DBUtil.getConnection();
+                 PreparedStatement ps = conn.prepareStatement(
+                         "INSERT INTO month_end_runs(period, status, started_at) " +
+                         "VALUES (?, 'RUNNING', datetime('now')) ON CONFLICT(period) DO NOTHING")) {
+                ps.setString(1, period);
+                return ps.executeUpdate();
+            }
+        });
+        if (STATUS_COMPLETED.equals(getStatus(period))) {
+            throw new IllegalStateException("Month-end processing for " + period + " has already completed.");
+        }
+    }
+
+    /**
+     * Marks a period as completed.
+     *
+     * @param period The period
+     * @throws SQLException if a database error occurs
+     */
+    public void completeRun(String period) throws SQLException {
+        DBUtil.withRetry("complete the month-end run", () -> {
+            try (Connection conn = DBUtil.getConnection();
+                 PreparedStatement ps = conn.prepareStatement(
+                         "UPDATE month_end_runs SET status = 'COMPLETED', finished_at = datetime('now') " +
+                         "WHERE period = ?")) {
+                ps.setString(1, period);
+                return ps.executeUpdate();
+            }
+        });
+    }
+
+    /**
+     * Gets the checkpoint of a period on a shard, creating it on first use.
+     * A new checkpoint records the shard's current highest account ID, so accounts
+     * opened while the run is in progress are left for the next period.
+     *
+     * @param shard The shard
+     * @param period The period
+     * @return The checkpoint
+     * @throws SQLException if a database error occurs
+     */
+    public Checkpoint getCheckpoint(ShardRouter.Shard shard, String period) throws SQLException {
+        try (Connection conn = DBUtil.getConnection(shard)) {
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "INSERT INTO month_end_checkpoints(period, high_water_id, last_account_id, processed) " +
+                    "SELECT ?, COALESCE(MAX(id), 0), 0, 0 FROM accounts " +
+                    "WHERE NOT EXISTS (SELECT 1 FROM month_end_checkpoints WHERE period = ?)")) {
+                ps.setString(1, period);
+                ps.setString(2, period);
+                ps.executeUpdate();
+            }
+            return readCheckpoint(conn, period);
+        }
+    }
+
+    /**
+     * Counts the accounts a shard still has to process for a period.
+     *
+     * @param shard The shard
+     * @param checkpoint The shard's checkpoint
+     * @return The number of remaining accounts
+     * @throws SQLException if a database error occurs
+     */
+    public long countRemaining(ShardRouter.Shard shard, Checkpoint checkpoint) throws SQLException {
+        try (Connection conn = DBUtil.getReadConnection(shard);
+             PreparedStatement ps = conn.prepareStatement(
+                     "SELECT COUNT(*) FROM accounts WHERE id > ? AND id <= ?")) {
+            ps.setLong(1, checkpoint.lastAccountId());
+            ps.setLong(2, checkpoint.highWaterId());
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0;
+            }
+        }
+    }
+
+    /**
+     * Applies monthly interest to the next chunk of accounts after the checkpoint and
+     * advances the checkpoint, all in one transaction.
+     *
+     * @param shard The shard
+     * @param period The period
+     * @param chunkSize The maximum number of accounts in the chunk
+     * @return The checkpoint after the chunk; marked done once nothing is left to process
+     * @throws SQLException if a database error occurs
+     */
+    public Checkpoint processChunk(ShardRouter.Shard shard, String period, int chunkSize) throws SQLException {
+        // The chunk and its checkpoint commit together, so a chunk that hit a busy database is redone whole
+        return DBUtil.withRetry("apply month-end interest on shard " + shard.id(),
+                () -> applyChunk(shard, period, chunkSize));
+    }
+
+    /**
+     * Applies interest to one chunk of a shard and advances the checkpoint in the same transaction.
+     *
+     * @param shard The shard
+     * @param period The period
+     * @param chunkSize The maximum number of accounts in the chunk
+     * @return The checkpoint after the chunk
+     * @throws SQLException if a database error occurs; the chunk is rolled back
+     */
+    private Checkpoint applyChunk(ShardRouter.Shard shard, String period, int chunkSize) throws SQLException {
+        int[] rates = AccountTable.monthlyRates();
+        try (Connection conn = DBUtil.getConnection(shard)) {
+            conn.setAutoCommit(false);
+            try {
+                Checkpoint checkpoint = readCheckpoint(conn, period);
+                long[] ids = new long[chunkSize];
+                long[] balances = new long[chunkSize];
+                long[] interest = new long[chunkSize];
+                int count = 0;
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "SELECT id, balance, type_code FROM accounts WHERE id > ? AND id <= ? ORDER BY id LIMIT ?")) {
+                    ps.setLong(1, checkpoint.lastAccountId());
+                    ps.setLong(2, checkpoint.highWaterId());
+                    ps.setInt(3, chunkSize);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            long balance = rs.getLong(2);
+                            ids[count] = rs.getLong(1);
+                            interest[count] = Money.interest(balance, rates[rs.getInt(3)]);
+                            balances[count] = balance + interest[count];
+                            count++;
+                        }
+                    }
+                }
+                if (count == 0) {
+                    conn.rollback();
+                    return new Checkpoint(checkpoint.highWaterId(), checkpoint.highWaterId(), checkpoint.processed());
+                }
+                try (PreparedStatement ps = conn.prepareStatement("UPDATE accounts SET balance = ? WHERE id = ?")) {
+                    for (int i = 0; i < count; i++) {
+                        ps.setLong(1, balances[i]);
+                        ps.setLong(2, ids[i]);
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                }
+                try (PreparedStatement ps = LedgerDAO.prepareRecord(conn)) {
+                    for (int i = 0; i < count; i++) {
+                        if (interest[i] != 0) {
+                            LedgerDAO.addRecord(ps, ids[i], interest[i], MovementKind.INTEREST);
+                            ps.addBatch();
+                        }
+                    }
+                    ps.executeBatch();
+                }
+                long lastId = ids[count - 1];
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "UPDATE month_end_checkpoints SET last_account_id = ?, processed = processed + ? " +
+                        "WHERE period = ?")) {
+                    ps.setLong(1, lastId);
+                    ps.setInt(2, count);
+                    ps.setString(3, period);
+                    ps.executeUpdate();
+                }
+                conn.commit();
+                return new Checkpoint(checkpoint.highWaterId(), lastId, checkpoint.processed() + count);
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Reads a period's checkpoint on an open shard connection.
+     *
+     * @param conn The shard connection
+     * @param period The period
+     * @return The checkpoint
+     * @throws SQLException if the checkpoint does not exist or a database error occurs
+     */
+    private Checkpoint readCheckpoint(Connection conn, String period) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT high_water_id, last_account_id, processed FROM month_end_checkpoints WHERE period = ?")) {
+            ps.setString(1, period);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) {
+                    throw new SQLException("No month-end checkpoint for period " + period);
+                }
+                return new Checkpoint(rs.getLong(1), rs.getLong(2), rs.getLong(3));
+            }
+        }
+    }
+
+    /**
+     * Progress of a period's run on one shard.
+     *
+     * @param highWaterId The highest account ID included in the run
+     * @param lastAccountId The highest account ID already processed
+     * @param processed The number of accounts processed so far
+     */
+    public record Checkpoint(long highWaterId, long lastAccountId, long processed) {
+        /**
+         * Checks whether the shard has nothing left to process.
+         *
+         * @return true if every account up to the high-water mark is done
+         */
+        public boolean isDone() {
+            return lastAccountId >= highWaterId;
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package banking.dao;
+
+import banking.bulk.AccountTable;
+import banking.model.MovementKind;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Data Access Object for payroll postings.
+ * A posting is identified by the employer and the reference of its salary file. Its status
+ * is kept in the primary database; each shard keeps a checkpoint with the last salary file line
+ * it has posted, written in the same transaction as the credits. Every shard posts its lines in
+ * file order, so a posting interrupted by a crash resumes after the last committed group, and
+ * neither a completed posting nor a committed line can ever be applied twice.
+ *
+ * @author Banking System
+ */
+public class PayrollDAO {
+    public static final String STATUS_RUNNING = "RUNNING";
+    public static final String STATUS_COMPLETED = "COMPLETED";
+
+    /**
+     * A cheque account that can receive salary credits.
+     *
+     * @param shardId The shard holding the account
+     * @param accountId The account ID
+     */
+    public record Target(int shardId, long accountId) {
+    }
+
+    /**
+     * Creates the posting and checkpoint tables if they don't exist.
+     *
+     * @throws SQLException if a database error occurs
+     */
+    public void createTables() throws SQLException {
+        try (Connection conn = DBUtil.getConnection(); Statement st = conn.createStatement()) {
+            st.execute("CREATE TABLE IF NOT EXISTS payroll_runs (" +
+                    "employer_id INTEGER NOT NULL, " +
+                    "reference TEXT NOT NULL, " +
+                    "status TEXT NOT NULL, " +
+                    "started_at TEXT NOT NULL, " +
+                    "finished_at TEXT, " +
+                    "PRIMARY KEY(employer_id, reference)" +
+                    ");");
+        }
+        for (ShardRouter.Shard shard : DBUtil.shards().all()) {
+            try (Connection conn = DBUtil.getConnection(shard); Statement st = conn.createStatement()) {
+                st.execute("CREATE TABLE IF NOT EXISTS payroll_checkpoints (" +
+                        "employer_id INTEGER NOT NULL, " +
+                        "reference TEXT NOT NULL, " +
+                        "last_line INTEGER NOT NULL, " +
+                        "PRIMARY KEY(employer_id, reference)" +
+                        ");");
+            }
+        }
+    }
+
+    /**
+     * Looks up an employer in the dictionary.
+     *
+     * @param name The employer's name
+     * @param address The employer's address
+     * @return The employer id, or null if no account or customer has ever used this employer
+     * @throws SQLException if a database error occurs
+     */
+    public Integer findEmployer(String name, String address) throws SQLException {
+        return DBUtil.dictionary().findEmployerId(name, address);
+    }
+
+    /**
+     * Marks a posting as running, or confirms it is already running after a restart.
+     *
+     * @param employerId The employer id
+     * @param reference The salary file reference
+     * @throws IllegalStateException if the posting has already completed
+     * @throws SQLException if a database error occurs
+     */
+    public void startRun(int employerId, String reference) throws SQLException {
+        DBUtil.withRetry("start the payroll posting", () -> {
+            try (Connection conn = DBUtil.getConnection();
+                 PreparedStatement ps = conn.prepareStatement(
+                         "INSERT INTO payroll_runs(employer_id, reference, status, started_at) " +
+                         "VALUES (?, ?, 'RUNNING', datetime('now')) ON CONFLICT(employer_id, reference) DO NOTHING")) {
+                ps.setInt(1, employerId);
+                ps.setString(2, reference);
+                return ps.executeUpdate();
+            }
+        });
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement ps = conn.prepareStatement(
+                     "SELECT status FROM payroll_runs WHERE employer_id = ? AND reference = ?")) {
+            ps.setInt(1, employerId);
+            ps.setString(2, reference);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next() && STATUS_COMPLETED.equals(rs.getString(1))) {
+                    throw new IllegalStateException("Payroll " + reference + " has already been posted.");
+                }
+            }
+        }
+    }
+
+    /**
+     * Marks a posting as completed.
+     *
+     * @param employerId The employer id
+     * @param reference The salary file reference
+     * @throws SQLException if a database error occurs
+     */
+    public void completeRun(int employerId, String reference) throws SQLException {
+        DBUtil.withRetry("complete the payroll posting", () -> {
+            try (Connection conn = DBUtil.getConnection();
+                 PreparedStatement ps = conn.prepareStatement(
+                         "UPDATE payroll_runs SET status = 'COMPLETED', finished_at = datetime('now') " +
+                         "WHERE employer_id = ? AND reference = ?")) {
+                ps.setInt(1, employerId);
+                ps.setString(2, reference);
+                return ps.executeUpdate();
+            }
+        });
+    }
+
+    /**
+     * Finds every cheque account of an employer on every shard.
+     * Each shard answers with one scan of the employer index, instead of one lookup per salary line.
+     *
+     * @param employerId The employer id
+     * @return The accounts by account number
+     * @throws SQLException if a database error occurs
+     */
+    public Map<String, Target> findChequeAccounts(int employerId) throws SQLException {
+        Map<String, Target> targets = new HashMap<>();
+        for (ShardRouter.Shard shard : DBUtil.shards().all()) {
+            try (Connection conn = DBUtil.getReadConnection(shard);
+                 PreparedStatement ps = conn.prepareStatement(
+                         "SELECT id, accountNumber FROM accounts WHERE employer_id = ? AND type_code = ?")) {
+                ps.setInt(1, employerId);
+                ps.setInt(2, AccountTable.TYPE_CHEQUE);
+                ps.setFetchSize(10_000);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        targets.put(rs.getString(2), new Target(shard.id(), rs.getLong(1)));
+                    }
+                }
+            }
+        }
+        return targets;
+    }
+
+    /**
+     * Gets the last salary file line a shard has posted, creating its checkpoint on first use.
+     *
+     * @param shard The shard
+     * @param employerId The employer id
+     * @param reference The salary file reference
+     * @return The line number, or 0 if nothing has been posted
+     * @throws SQLException if a database error occurs
+     */
+    public int getLastLine(ShardRouter.Shard shard, int employerId, String reference) throws SQLException {
+        try (Connection conn = DBUtil.getConnection(shard)) {
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "INSERT INTO payroll_checkpoints(employer_id, reference, last_line) VALUES (?, ?, 0) " +
+                    "ON CONFLICT(employer_id, reference) DO NOTHING")) {
+                ps.setInt(1, employerId);
+                ps.setString(2, reference);
+                ps.executeUpdate();
+            }
+            return readLastLine(conn, employerId, reference);
+        }
+    }
+
+    /**
+     * Posts one group of credits on a shard and advances its checkpoint, all in one transaction.
+     * The credits are relative, but a group either commits together with its checkpoint or not at all,
+     * so a group that hit a busy database is simply posted again.
+     *
+     * @param shard The shard
+     * @param employerId The employer id
+     * @param reference The salary file reference
+     * @param lines The salary file line of each of the shard's credits, ascending
+     * @param ids The account IDs, parallel to lines
+     * @param amounts The amounts in thebe, parallel to lines
+     * @param from The index of the first credit in the group
+     * @param to The index after the last credit in the group
+     * @throws SQLException if a database error occurs; the group is rolled back
+     */
+    public void postGroup(ShardRouter.Shard shard, int employerId, String reference,
+                          int[] lines, long[] ids, long[] amounts, int from, int to) throws SQLException {
+        DBUtil.withRetry("post salaries on shard " + shard.id(), () -> {
+            try (Connection conn = DBUtil.getConnection(shard)) {
+                conn.setAutoCommit(false);
+                try {
+                    if (readLastLine(conn, employerId, reference) >= lines[from]) {
+                        throw new SQLException("Payroll " + reference + " line " + lines[from] +
+                                               " is already posted on shard " + shard.id() +
+                                               "; another process may be posting it");
+                    }
+                    try (PreparedStatement ps = conn.prepareStatement(
+                            "UPDATE accounts SET balance = balance + ? WHERE id = ?")) {
+                        for (int i = from; i < to; i++) {
+                            ps.setLong(1, amounts[i]);
+                            ps.setLong(2, ids[i]);
+                            ps.addBatch();
+                        }
+                        ps.executeBatch();
+                    }
+                    try (PreparedStatement ps = LedgerDAO.prepareRecord(conn)) {
+                        for (int i = from; i < to; i++) {
+                            LedgerDAO.addRecord(ps, ids[i], amounts[i], MovementKind.PAYROLL);
+                            ps.addBatch();
+                        }
+                        ps.executeBatch();
+                    }
+                    try (PreparedStatement ps = conn.prepareStatement(
+                            "UPDATE payroll_checkpoints SET last_line = ? WHERE employer_id = ? AND reference = ?")) {
+                        ps.setInt(1, lines[to - 1]);
+                        ps.setInt(2, employerId);
+                        ps.setString(3, reference);
+                        ps.executeUpdate();
+                    }
+                    conn.commit();
+                } catch (SQLException | RuntimeException e) {
+                    conn.rollback();
+                    throw e;
+                }
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Reads a shard's checkpoint on an open connection.
+     *
+     * @param conn The shard connection
+     * @param employerId The employer id
+     * @param reference The salary file reference
+     * @return The last posted line number, or 0
+     * @throws SQLException if the checkpoint does not exist or a database error occurs
+     */
+    private int readLastLine(Connection conn, int employerId, String reference) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT last_line FROM payroll_checkpoints WHERE employer_id = ? AND reference = ?")) {
+            ps.setInt(1, employerId);
+            ps.setString(2, reference);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) {
+                    throw new SQLException("No payroll checkpoint for " + reference);
+                }
+                return rs.getInt(1);
+            }
+        }
+    }
+}
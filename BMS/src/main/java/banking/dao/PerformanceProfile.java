@@ -0,0 +1,104 @@
+package banking.dao;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Named sets of SQLite tuning pragmas, applied to every connection DBUtil opens.
+ *
+ * Every profile keeps the database in WAL mode, which the reader pool depends on and
+ * which is a property of the database file rather than of a connection. What changes is
+ * how hard commits are pushed to disk and how much memory a connection may use:
+ * <ul>
+ *   <li>DURABLE - every commit is synced to disk (synchronous=FULL) and the page cache
+ *       stays modest; the default, because a posted transaction must survive a power cut</li>
+ *   <li>BALANCED - commits are synced at checkpoints only (synchronous=NORMAL), which in WAL
+ *       mode cannot corrupt the database but can lose the last commits on a power cut; adds
+ *       a larger cache, in-memory temporary tables and memory-mapped reads</li>
+ *   <li>BULK_LOAD - BALANCED syncing with a much larger cache and a tenth as many checkpoints,
+ *       for batch jobs that commit their own checkpoints and can be resumed after a failure</li>
+ * </ul>
+ * No profile turns syncing off: in WAL mode NORMAL already skips the sync on every commit,
+ * and OFF would also skip it on checkpoints, where a power cut can corrupt the file that
+ * tellers share with the batch job.
+ * The page size only takes effect when a database file is created: SQLite cannot change
+ * it once a WAL database has content.
+ *
+ * @author Banking System
+ */
+public enum PerformanceProfile {
+    DURABLE(4_096, "FULL", -16_000, "DEFAULT", 0, 1_000),
+    BALANCED(4_096, "NORMAL", -64_000, "MEMORY", 268_435_456L, 1_000),
+    BULK_LOAD(4_096, "NORMAL", -256_000, "MEMORY", 1_073_741_824L, 10_000);
+
+    private final int pageSize;
+    private final Map<String, String> pragmas;
+
+    /**
+     * Constructs a PerformanceProfile.
+     *
+     * @param pageSize The page size of new database files, in bytes
+     * @param synchronous When commits are synced to disk
+     * @param cacheSize The page cache per connection; negative values are in KiB
+     * @param tempStore Where temporary tables and indexes are kept
+     * @param mmapSize How many bytes of the database file are read through memory mapping
+     * @param walAutocheckpoint The WAL size, in pages, that triggers a checkpoint
+     */
+    PerformanceProfile(int pageSize, String synchronous, int cacheSize, String tempStore, long mmapSize,
+                       int walAutocheckpoint) {
+        this.pageSize = pageSize;
+        Map<String, String> map = new LinkedHashMap<>();
+        map.put("synchronous", synchronous);
+        map.put("cache_size", String.valueOf(cacheSize));
+        map.put("temp_store", tempStore);
+        map.put("mmap_size", String.valueOf(mmapSize));
+        map.put("wal_autocheckpoint", String.valueOf(walAutocheckpoint));
+        this.pragmas = Collections.unmodifiableMap(map);
+    }
+
+    /**
+     * Gets the page size used when a database file is created.
+     *
+     * @return The page size in bytes
+     */
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * Gets the pragmas applied to every connection under this profile.
+     *
+     * @return The pragma names and values, in application order
+     */
+    public Map<String, String> getPragmas() {
+        return pragmas;
+    }
+
+    /**
+     * Gets the name used in configuration files, such as "bulk-load".
+     *
+     * @return The configuration name
+     */
+    public String configName() {
+        return name().toLowerCase(Locale.ROOT).replace('_', '-');
+    }
+
+    /**
+     * Parses a profile name, as written in configuration or on the command line.
+     *
+     * @param name The name, such as "balanced" or "bulk-load"; case and - or _ do not matter
+     * @return The profile
+     * @throws IllegalArgumentException if no profile has that name
+     */
+    public static PerformanceProfile parse(String name) {
+        String normalized = name.trim().toUpperCase(Locale.ROOT).replace('-', '_');
+        for (PerformanceProfile profile : values()) {
+            if (profile.name().equals(normalized)) {
+                return profile;
+            }
+        }
+        throw new IllegalArgumentException("Unknown performance profile: " + name);
+    }
+}
@@ -0,0 +1,135 @@
+package banking.dao;
+
+import org.sqlite.SQLiteErrorCode;
+
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Retries database work that failed because the database was busy or locked.
+ * The busy timeout already makes SQLite wait for a lock inside a single statement, but some
+ * conflicts are reported at once, such as a deferred transaction that read a snapshot another
+ * writer has since replaced. Those are retried from the start with exponential backoff and full
+ * jitter, so competing writers spread out instead of colliding again, until the configured
+ * deadline. Any other error is thrown straight away.
+ *
+ * Only work that is safe to repeat may be retried: work that sets absolute values, a single
+ * auto-commit statement (a busy error means it did not run), or one transaction that rolls back
+ * as a whole. Inside a unit of work nothing is retried here; the unit's owner decides.
+ * A DatabaseBusyException means an inner retry already waited out its own deadline, so it is
+ * passed on rather than retried again: nested retries then give up after one deadline instead
+ * of multiplying them.
+ *
+ * @author Banking System
+ */
+final class Retry {
+    private static final long INITIAL_BACKOFF_MILLIS = 5;
+    private static final long MAX_BACKOFF_MILLIS = 500;
+
+    private Retry() {
+    }
+
+    /**
+     * Runs work, retrying it while the database is busy.
+     *
+     * @param operation A short description of the operation, used in the final error
+     * @param work The work to run
+     * @param <T> The result type
+     * @return The work's result
+     * @throws DatabaseBusyException if the database is still busy when the deadline passes
+     * @throws SQLException if the work fails for any other reason
+     */
+    static <T> T run(String operation, DBUtil.TransactionWork<T> work) throws SQLException {
+        if (UnitOfWork.current() != null) {
+            return work.run();
+        }
+        return always(operation, work);
+    }
+
+    /**
+     * Runs work, retrying it while the database is busy, even inside a unit of work.
+     * Used for steps that have not touched the unit's data yet, such as beginning its transaction.
+     *
+     * @param operation A short description of the operation, used in the final error
+     * @param work The work to run
+     * @param <T> The result type
+     * @return The work's result
+     * @throws DatabaseBusyException if the database is still busy when the deadline passes
+     * @throws SQLException if the work fails for any other reason
+     */
+    static <T> T always(String operation, DBUtil.TransactionWork<T> work) throws SQLException {
+        long deadline = System.nanoTime()
+                + TimeUnit.MILLISECONDS.toNanos(DBUtil.getConfig().getRetryDeadlineMillis());
+        long backoff = INITIAL_BACKOFF_MILLIS;
+        int attempts = 0;
+        while (true) {
+            attempts++;
+            try {
+                T result = work.run();
+                if (attempts > 1) {
+                    Metrics.increment(Metrics.DB_RETRY_RECOVERED);
+                }
+                return result;
+            } catch (SQLException ex) {
+                if (!isBusy(ex) || gaveUp(ex)) {
+                    throw ex;
+                }
+                Metrics.increment(Metrics.DB_BUSY);
+                long pause = ThreadLocalRandom.current().nextLong(backoff + 1);
+                if (System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(pause) >= deadline) {
+                    Metrics.increment(Metrics.DB_RETRY_EXHAUSTED);
+                    throw new DatabaseBusyException(operation, attempts, ex);
+                }
+                try {
+                    Thread.sleep(pause);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new SQLException("Interrupted while waiting to " + operation, ex);
+                }
+                Metrics.increment(Metrics.DB_RETRIES);
+                Metrics.add(Metrics.DB_RETRY_WAIT_MILLIS, pause);
+                backoff = Math.min(MAX_BACKOFF_MILLIS, backoff * 2);
+            }
+        }
+    }
+
+    /**
+     * Checks whether an error, or any of its causes, is SQLITE_BUSY or SQLITE_LOCKED,
+     * including their extended codes such as SQLITE_BUSY_SNAPSHOT.
+     *
+     * @param ex The error
+     * @return true if the error means the database lock was unavailable
+     */
+    static boolean isBusy(Throwable ex) {
+        for (Throwable t = ex; t != null; t = t.getCause()) {
+            if (t instanceof DatabaseBusyException) {
+                return true;
+            }
+            if (t instanceof SQLException sqlException) {
+                // The primary result code is the low byte of an extended code
+                int primary = sqlException.getErrorCode() & 0xff;
+                if (primary == SQLiteErrorCode.SQLITE_BUSY.code || primary == SQLiteErrorCode.SQLITE_LOCKED.code) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether an error, or any of its causes, is a DatabaseBusyException from a retry
+     * that has already reached its deadline.
+     *
+     * @param ex The error
+     * @return true if an inner retry gave up
+     */
+    private static boolean gaveUp(Throwable ex) {
+        for (Throwable t = ex; t != null; t = t.getCause()) {
+            if (t instanceof DatabaseBusyException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
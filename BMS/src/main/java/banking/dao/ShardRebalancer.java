@@ -0,0 +1,318 @@
+package banking.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rebalancing tool for branch shards.
+ * Moves the accounts and customers of whole branches between shard files and can split
+ * a hot shard by moving about half of its accounts into a new shard file.
+ * Run it while tellers are idle: writes to a branch that is being moved may be routed
+ * to the old shard until the move completes. A move that fails part-way leaves every account
+ * and customer on at least one shard and is completed by running it again.
+ *
+ * Usage:
+ * <pre>
+ *   ShardRebalancer move &lt;branch&gt; &lt;shardId&gt;
+ *   ShardRebalancer split &lt;shardId&gt; &lt;newShardFile&gt;
+ *   ShardRebalancer list
+ * </pre>
+ *
+ * @author Banking System
+ */
+public class ShardRebalancer {
+    /** The accounts columns copied by a move; the ID is assigned by the target shard. */
+    private static final String COPIED_COLUMNS =
+            "accountNumber, balance, branch_id, type_code, employer_id, customer_id";
+    /** The customers columns copied by a move; customers keep their IDs, which the primary allocates. */
+    private static final String CUSTOMER_COLUMNS = "id, firstName, lastName, address, employer_id, branch_id";
+
+    /**
+     * Moves all accounts of a branch, with their ledger movements, and the customers whose home
+     * branch it is to another shard and updates the branch mapping.
+     * The accounts get new IDs in the target shard's range, and their movements are rewritten
+     * to refer to them; customers keep their IDs, so logins and accounts still refer to them.
+     * The copy commits on the target first; only then are the copied rows deleted from the
+     * source, and only then does the branch mapping change. Each step can be repeated safely,
+     * so a move that fails part-way is completed by running it again: rows already on the target
+     * are not copied twice, and only rows the target holds are deleted.
+     *
+     * @param branch The branch to move
+     * @param target The shard that will hold the branch
+     * @return The number of accounts copied by this call
+     * @throws IllegalStateException if accounts were opened or customers registered in the branch
+     *                               during the move; they are moved by running it again
+     * @throws SQLException if a database error occurs
+     */
+    public int moveBranch(String branch, ShardRouter.Shard target) throws SQLException {
+        ShardRouter.Shard source = DBUtil.shards().shardFor(branch);
+        if (source.id() == target.id()) {
+            return 0;
+        }
+        Integer branchId = DBUtil.dictionary().findBranchId(branch);
+        if (branchId == null) {
+            // No account or customer has ever used the branch; only the mapping changes
+            DBUtil.assignBranch(branch, target);
+            return 0;
+        }
+        // A credit still pending for the branch would otherwise be applied on the target without
+        // the source's record that it was applied before
+        TransferOutbox.completePending();
+        int moved = copyBranch(source, target, branchId);
+        int left = deleteCopied(source, target, branchId);
+        if (left > 0) {
+            throw new IllegalStateException(left + " account(s) or customer(s) of branch '" + branch +
+                    "' were added during the move; run it again to move them");
+        }
+        DBUtil.assignBranch(branch, target);
+        return moved;
+    }
+
+    /**
+     * Copies the accounts of a branch that the target does not hold yet, with their movements,
+     * and the branch's customers, in one transaction on the target.
+     *
+     * @param source The shard holding the branch
+     * @param target The shard receiving it
+     * @param branchId The branch's dictionary ID
+     * @return The number of accounts copied
+     * @throws SQLException if a database error occurs; nothing is copied
+     */
+    private int copyBranch(ShardRouter.Shard source, ShardRouter.Shard target, int branchId) throws SQLException {
+        try (Connection conn = DBUtil.getConnection(target)) {
+            attach(conn, source, "src");
+            try {
+                conn.setAutoCommit(false);
+                try {
+                    long lastId;
+                    try (Statement st = conn.createStatement();
+                         ResultSet rs = st.executeQuery("SELECT COALESCE(MAX(id), 0) FROM main.accounts")) {
+                        lastId = rs.getLong(1);
+                    }
+                    int copied;
+                    // New rows get IDs above lastId, from the target's own range; movements follow
+                    // their account by account number
+                    try (PreparedStatement copy = conn.prepareStatement(
+                            "INSERT INTO main.accounts(" + COPIED_COLUMNS + ") SELECT " + COPIED_COLUMNS +
+                            " FROM src.accounts o WHERE o.branch_id = ? AND NOT EXISTS " +
+                            "(SELECT 1 FROM main.accounts n WHERE n.accountNumber = o.accountNumber) ORDER BY o.id");
+                         PreparedStatement copyMovements = conn.prepareStatement(
+                            "INSERT INTO main.account_movements(account_id, amount, kind, created_at) " +
+                            "SELECT n.id, m.amount, m.kind, m.created_at FROM src.account_movements m " +
+                            "JOIN src.accounts o ON o.id = m.account_id " +
+                            "JOIN main.accounts n ON n.accountNumber = o.accountNumber " +
+                            "WHERE o.branch_id = ? AND n.id > ? ORDER BY m.id");
+                         PreparedStatement copyCustomers = conn.prepareStatement(
+                            "INSERT INTO main.customers(" + CUSTOMER_COLUMNS + ") SELECT " + CUSTOMER_COLUMNS +
+                            " FROM src.customers o WHERE o.branch_id = ? AND NOT EXISTS " +
+                            "(SELECT 1 FROM main.customers n WHERE n.id = o.id) ORDER BY o.id")) {
+                        copy.setInt(1, branchId);
+                        copied = copy.executeUpdate();
+                        copyMovements.setInt(1, branchId);
+                        copyMovements.setLong(2, lastId);
+                        copyMovements.executeUpdate();
+                        copyCustomers.setInt(1, branchId);
+                        copyCustomers.executeUpdate();
+                    }
+                    conn.commit();
+                    return copied;
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                } finally {
+                    conn.setAutoCommit(true);
+                }
+            } finally {
+                detach(conn, "src");
+            }
+        }
+    }
+
+    /**
+     * Deletes from the source the accounts of a branch that the target holds, with their movements,
+     * and the branch's customers that the target holds.
+     *
+     * @param source The shard holding the branch
+     * @param target The shard the branch was copied to
+     * @param branchId The branch's dictionary ID
+     * @return The number of accounts and customers of the branch left on the source
+     * @throws SQLException if a database error occurs; nothing is deleted
+     */
+    private int deleteCopied(ShardRouter.Shard source, ShardRouter.Shard target, int branchId) throws SQLException {
+        try (Connection conn = DBUtil.getConnection(source)) {
+            attach(conn, target, "dst");
+            try {
+                conn.setAutoCommit(false);
+                try {
+                    String copied = "branch_id = ? AND accountNumber IN (SELECT accountNumber FROM dst.accounts)";
+                    try (PreparedStatement deleteMovements = conn.prepareStatement(
+                            "DELETE FROM main.account_movements WHERE account_id IN " +
+                            "(SELECT id FROM main.accounts WHERE " + copied + ")");
+                         PreparedStatement delete = conn.prepareStatement(
+                            "DELETE FROM main.accounts WHERE " + copied);
+                         PreparedStatement deleteCustomers = conn.prepareStatement(
+                            "DELETE FROM main.customers WHERE branch_id = ? AND id IN (SELECT id FROM dst.customers)");
+                         PreparedStatement left = conn.prepareStatement(
+                            "SELECT (SELECT COUNT(*) FROM main.accounts WHERE branch_id = ?) + " +
+                            "(SELECT COUNT(*) FROM main.customers WHERE branch_id = ?)")) {
+                        deleteMovements.setInt(1, branchId);
+                        deleteMovements.executeUpdate();
+                        delete.setInt(1, branchId);
+                        delete.executeUpdate();
+                        deleteCustomers.setInt(1, branchId);
+                        deleteCustomers.executeUpdate();
+                        left.setInt(1, branchId);
+                        left.setInt(2, branchId);
+                        int remaining;
+                        try (ResultSet rs = left.executeQuery()) {
+                            remaining = rs.getInt(1);
+                        }
+                        conn.commit();
+                        return remaining;
+                    }
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                } finally {
+                    conn.setAutoCommit(true);
+                }
+            } finally {
+                detach(conn, "dst");
+            }
+        }
+    }
+
+    /**
+     * Attaches another shard's file to a connection.
+     *
+     * @param conn The connection
+     * @param shard The shard to attach
+     * @param schema The schema name to attach it as
+     * @throws SQLException if a database error occurs
+     */
+    private static void attach(Connection conn, ShardRouter.Shard shard, String schema) throws SQLException {
+        try (PreparedStatement attach = conn.prepareStatement("ATTACH DATABASE ? AS " + schema)) {
+            attach.setString(1, shard.file());
+            attach.execute();
+        }
+    }
+
+    /**
+     * Detaches a file attached with attach.
+     *
+     * @param conn The connection
+     * @param schema The schema name it was attached as
+     * @throws SQLException if a database error occurs
+     */
+    private static void detach(Connection conn, String schema) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            st.execute("DETACH DATABASE " + schema);
+        }
+    }
+
+    /**
+     * Splits a shard by moving its largest branches into a new shard file until
+     * roughly half of the shard's accounts have moved.
+     *
+     * @param shard The hot shard to split
+     * @param newFile The SQLite file for the new shard
+     * @return The new shard
+     * @throws SQLException if a database error occurs
+     */
+    public ShardRouter.Shard split(ShardRouter.Shard shard, String newFile) throws SQLException {
+        List<String> branches = new ArrayList<>();
+        List<Integer> counts = new ArrayList<>();
+        int total = 0;
+        Dictionary dictionary = DBUtil.dictionary();
+        try (Connection conn = DBUtil.getReadConnection(shard);
+             Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery(
+                     "SELECT branch_id, COUNT(*) FROM accounts WHERE branch_id IS NOT NULL " +
+                     "GROUP BY branch_id ORDER BY COUNT(*) DESC")) {
+            while (rs.next()) {
+                branches.add(dictionary.branchName(rs.getInt(1)));
+                counts.add(rs.getInt(2));
+                total += rs.getInt(2);
+            }
+        }
+        if (branches.size() < 2) {
+            throw new IllegalStateException("Shard " + shard.id() + " has fewer than two branches to split.");
+        }
+
+        ShardRouter.Shard target = DBUtil.createShard(newFile);
+        int half = total / 2;
+        int moved = 0;
+        // Greedy, largest branch first; always leave at least one branch on the source shard
+        for (int i = 0; i < branches.size() - 1 && moved < half; i++) {
+            if (moved > 0 && moved + counts.get(i) > half) {
+                continue;
+            }
+            moved += moveBranch(branches.get(i), target);
+        }
+        return target;
+    }
+
+    /**
+     * Prints every shard with its branches and account count.
+     *
+     * @throws SQLException if a database error occurs
+     */
+    public void list() throws SQLException {
+        ShardRouter router = DBUtil.shards();
+        for (ShardRouter.Shard shard : router.all()) {
+            int count;
+            try (Connection conn = DBUtil.getReadConnection(shard);
+                 Statement st = conn.createStatement();
+                 ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM accounts")) {
+                count = rs.next() ? rs.getInt(1) : 0;
+            }
+            List<String> branches = shard.id() == 0 ? List.of("(unmapped branches)") : router.branchesOf(shard);
+            System.out.println("Shard " + shard.id() + " [" + shard.file() + "] " + count +
+                    " account(s): " + String.join(", ", branches));
+        }
+    }
+
+    /**
+     * Command-line entry point.
+     *
+     * @param args The command and its arguments
+     */
+    public static void main(String[] args) {
+        DBUtil.initDatabase();
+        ShardRebalancer rebalancer = new ShardRebalancer();
+        try {
+            if (args.length == 3 && args[0].equals("move")) {
+                ShardRouter.Shard target = DBUtil.shards().byId(Integer.parseInt(args[2]));
+                if (target == null) {
+                    System.err.println("Unknown shard: " + args[2]);
+                    return;
+                }
+                int moved = rebalancer.moveBranch(args[1], target);
+                System.out.println("Moved " + moved + " account(s) of branch '" + args[1] + "' to shard " + target.id());
+            } else if (args.length == 3 && args[0].equals("split")) {
+                ShardRouter.Shard source = DBUtil.shards().byId(Integer.parseInt(args[1]));
+                if (source == null) {
+                    System.err.println("Unknown shard: " + args[1]);
+                    return;
+                }
+                ShardRouter.Shard created = rebalancer.split(source, args[2]);
+                System.out.println("Created shard " + created.id() + " [" + created.file() + "]");
+                rebalancer.list();
+            } else if (args.length == 1 && args[0].equals("list")) {
+                rebalancer.list();
+            } else {
+                System.out.println("Usage: ShardRebalancer move <branch> <shardId> | split <shardId> <newShardFile> | list");
+            }
+        } catch (SQLException | RuntimeException e) {
+            System.err.println("Error: " + e.getMessage());
+            e.printStackTrace();
+        } finally {
+            DBUtil.closeDataSource();
+        }
+    }
+}
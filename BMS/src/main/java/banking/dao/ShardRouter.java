@@ -0,0 +1,286 @@
+package banking.dao;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Routes account and customer data to branch shards.
+ * Each shard is its own SQLite file with its own write lock. The primary shard (id 0)
+ * is the main database and also holds employees, users, the dictionaries and the
+ * customers registered without a home branch; additional shards hold the accounts of
+ * the branches mapped to them and the customers whose home branch they are.
+ * Branches without an explicit mapping live on the primary shard, so a database
+ * without any shard configuration behaves exactly like a single file.
+ *
+ * Account ids stay globally unique: shard n allocates ids starting at n * ID_SPAN. Ids are ints,
+ * so at most MAX_SHARD_ID + 1 shards fit, primary included. Customer ids all come from the
+ * primary database, so a customer keeps their id when their branch moves to another shard.
+ *
+ * @author Banking System
+ */
+public final class ShardRouter {
+    /** Size of the account id range reserved for each shard. */
+    public static final long ID_SPAN = 100_000_000L;
+    /** The highest shard id whose whole id range fits in an int. */
+    public static final int MAX_SHARD_ID = (int) ((Integer.MAX_VALUE + 1L) / ID_SPAN) - 1;
+
+    /**
+     * A single shard database.
+     *
+     * @param id The shard id (0 is the primary database)
+     * @param url The JDBC URL of the shard
+     */
+    public record Shard(int id, String url) {
+        private static final String PREFIX = "jdbc:sqlite:";
+
+        /**
+         * Creates a shard for a SQLite file.
+         *
+         * @param id The shard id
+         * @param file The SQLite file holding the shard
+         * @return The shard
+         */
+        public static Shard ofFile(int id, String file) {
+            return new Shard(id, PREFIX + file);
+        }
+
+        /**
+         * Gets the SQLite file name of this shard.
+         *
+         * @return The file name (or URI for in-memory databases)
+         */
+        public String file() {
+            return url.startsWith(PREFIX) ? url.substring(PREFIX.length()) : url;
+        }
+    }
+
+    private final Shard primary;
+    private final List<Shard> shards;
+    private final Map<String, Shard> byBranch;
+    private ExecutorService fanOutPool;
+    private boolean closed;
+
+    /**
+     * Constructs a ShardRouter.
+     *
+     * @param primary The primary shard
+     * @param shards All shards, including the primary
+     * @param byBranch The explicit branch to shard mapping
+     */
+    ShardRouter(Shard primary, List<Shard> shards, Map<String, Shard> byBranch) {
+        this.primary = primary;
+        this.shards = Collections.unmodifiableList(new ArrayList<>(shards));
+        this.byBranch = Collections.unmodifiableMap(new HashMap<>(byBranch));
+    }
+
+    /**
+     * Loads the shard topology from the primary database.
+     *
+     * @param conn A connection to the primary database
+     * @param primaryUrl The JDBC URL of the primary database
+     * @return The router for the stored topology
+     * @throws SQLException if a database error occurs
+     */
+    static ShardRouter load(Connection conn, String primaryUrl) throws SQLException {
+        Shard primary = new Shard(0, primaryUrl);
+        List<Shard> shards = new ArrayList<>();
+        shards.add(primary);
+        Map<Integer, Shard> byId = new HashMap<>();
+        byId.put(0, primary);
+        Map<String, Shard> byBranch = new HashMap<>();
+        try (Statement st = conn.createStatement()) {
+            try (ResultSet rs = st.executeQuery("SELECT id, file FROM shards WHERE id > 0 ORDER BY id")) {
+                while (rs.next()) {
+                    Shard shard = Shard.ofFile(rs.getInt(1), rs.getString(2));
+                    shards.add(shard);
+                    byId.put(shard.id(), shard);
+                }
+            }
+            try (ResultSet rs = st.executeQuery("SELECT branch, shard_id FROM shard_branches")) {
+                while (rs.next()) {
+                    Shard shard = byId.get(rs.getInt(2));
+                    if (shard != null) {
+                        byBranch.put(rs.getString(1), shard);
+                    }
+                }
+            }
+        }
+        return new ShardRouter(primary, shards, byBranch);
+    }
+
+    /**
+     * Gets the primary shard.
+     *
+     * @return The primary shard
+     */
+    public Shard primary() {
+        return primary;
+    }
+
+    /**
+     * Gets all shards, primary first.
+     *
+     * @return The shards
+     */
+    public List<Shard> all() {
+        return shards;
+    }
+
+    /**
+     * Gets a shard by id.
+     *
+     * @param id The shard id
+     * @return The shard, or null if there is no such shard
+     */
+    public Shard byId(int id) {
+        for (Shard shard : shards) {
+            if (shard.id() == id) {
+                return shard;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks whether more than one shard is configured.
+     *
+     * @return true if accounts are spread over several files
+     */
+    public boolean isSharded() {
+        return shards.size() > 1;
+    }
+
+    /**
+     * Gets the shard holding the accounts of a branch.
+     *
+     * @param branch The branch name
+     * @return The shard for the branch (the primary shard if the branch is unmapped)
+     */
+    public Shard shardFor(String branch) {
+        if (branch == null) {
+            return primary;
+        }
+        Shard shard = byBranch.get(branch);
+        return shard != null ? shard : primary;
+    }
+
+    /**
+     * Gets the branches explicitly mapped to a shard.
+     *
+     * @param shard The shard
+     * @return The mapped branch names
+     */
+    public List<String> branchesOf(Shard shard) {
+        List<String> branches = new ArrayList<>();
+        for (Map.Entry<String, Shard> entry : byBranch.entrySet()) {
+            if (entry.getValue().id() == shard.id()) {
+                branches.add(entry.getKey());
+            }
+        }
+        return branches;
+    }
+
+    /**
+     * A read-only query executed against one shard.
+     *
+     * @param <T> The row type produced
+     */
+    @FunctionalInterface
+    public interface ShardQuery<T> {
+        List<T> query(Connection conn) throws SQLException;
+    }
+
+    /**
+     * Runs a read-only query on every shard in parallel and merges the results.
+     * With a single shard, inside a unit of work whose connections belong to the
+     * calling thread, or once the router has been replaced by a reload, the query runs
+     * inline on the calling thread, shard by shard.
+     *
+     * @param query The query to run on each shard
+     * @param <T> The row type produced
+     * @return The merged rows, in shard order
+     * @throws SQLException if the query fails on any shard
+     */
+    public <T> List<T> fanOut(ShardQuery<T> query) throws SQLException {
+        List<Future<List<T>>> futures = isSharded() && !DBUtil.isInTransaction() ? submit(query) : null;
+        if (futures == null) {
+            List<T> merged = new ArrayList<>();
+            for (Shard shard : shards) {
+                try (Connection conn = DBUtil.getReadConnection(shard)) {
+                    merged.addAll(query.query(conn));
+                }
+            }
+            return merged;
+        }
+        List<T> merged = new ArrayList<>();
+        for (Future<List<T>> future : futures) {
+            try {
+                merged.addAll(future.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted during shard fan-out", e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof SQLException sqlException) {
+                    throw sqlException;
+                }
+                throw new SQLException("Shard query failed", cause);
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Submits a query for every shard to the fan-out executor, creating it on first use.
+     * Submitting holds the router's monitor, so close() cannot shut the executor down
+     * between two shards of one fan-out.
+     *
+     * @param query The query to run on each shard
+     * @param <T> The row type produced
+     * @return The futures, in shard order, or null if the router has been closed
+     */
+    private synchronized <T> List<Future<List<T>>> submit(ShardQuery<T> query) {
+        if (closed) {
+            return null;
+        }
+        if (fanOutPool == null) {
+            fanOutPool = Executors.newFixedThreadPool(shards.size(), r -> {
+                Thread thread = new Thread(r, "shard-fan-out");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        List<Future<List<T>>> futures = new ArrayList<>(shards.size());
+        for (Shard shard : shards) {
+            futures.add(fanOutPool.submit(() -> {
+                try (Connection conn = DBUtil.getReadConnection(shard)) {
+                    return query.query(conn);
+                }
+            }));
+        }
+        return futures;
+    }
+
+    /**
+     * Stops the fan-out executor once the queries already submitted to it have finished.
+     * Fan-outs started on this router afterwards run inline.
+     */
+    synchronized void close() {
+        closed = true;
+        if (fanOutPool != null) {
+            fanOutPool.shutdown();
+            fanOutPool = null;
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package banking.dao;
+
+import banking.model.StandingOrder;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Data Access Object for standing orders.
+ * Orders live in the primary database. Every execution advances the order's run count and
+ * next run time with a conditional update on the run count it was read with, so an execution
+ * recorded in the same transaction as its payment happens exactly once, even if two schedulers
+ * pick up the same order.
+ *
+ * @author Banking System
+ */
+public class StandingOrderDAO {
+    private static final String COLUMNS = "id, customer_id, from_account, to_account, amount, frequency, " +
+            "first_run_at, runs, next_run_at, end_at, active, last_status";
+    /** Order IDs per IN list when reading a batch of due orders. */
+    private static final int MAX_IDS_PER_QUERY = 500;
+
+    /**
+     * Receives the schedule of each active order while it is streamed.
+     */
+    @FunctionalInterface
+    public interface ScheduleConsumer {
+        void accept(long id, long nextRunAt);
+    }
+
+    /**
+     * Creates the standing_orders table if it doesn't exist.
+     *
+     * @throws SQLException if a database error occurs
+     */
+    public void createTable() throws SQLException {
+        try (Connection conn = DBUtil.getConnection(); Statement st = conn.createStatement()) {
+            st.execute("CREATE TABLE IF NOT EXISTS standing_orders (" +
+                    "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                    "customer_id INTEGER NOT NULL, " +
+                    "from_account TEXT, " +
+                    "to_account TEXT NOT NULL, " +
+                    "amount INTEGER NOT NULL, " +
+                    "frequency TEXT NOT NULL, " +
+                    "first_run_at INTEGER NOT NULL, " +
+                    "runs INTEGER NOT NULL DEFAULT 0, " +
+                    "next_run_at INTEGER NOT NULL, " +
+                    "end_at INTEGER, " +
+                    "active INTEGER NOT NULL DEFAULT 1, " +
+                    "last_status TEXT" +
+                    ");");
+            st.execute("CREATE INDEX IF NOT EXISTS idx_standing_orders_customer ON standing_orders(customer_id);");
+        }
+    }
+
+    /**
+     * Creates a standing order.
+     *
+     * @param customerId The customer ID
+     * @param fromAccount The account to debit, or null for a recurring deposit
+     * @param toAccount The account to credit
+     * @param amount The amount in thebe
+     * @param frequency How often the order runs
+     * @param firstRunAt The first execution time in epoch milliseconds
+     * @param endAt The time after which the order stops, or null
+     * @return The created order
+     * @throws SQLException if a database error occurs
+     */
+    public StandingOrder create(int customerId, String fromAccount, String toAccount, long amount,
+                                StandingOrder.Frequency frequency, long firstRunAt, Long endAt) throws SQLException {
+        String sql = "INSERT INTO standing_orders(customer_id, from_account, to_account, amount, frequency, " +
+                     "first_run_at, next_run_at, end_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+        long id = DBUtil.withRetry("create the standing order", () -> {
+            try (Connection conn = DBUtil.getConnection();
+                 PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                ps.setInt(1, customerId);
+                ps.setString(2, fromAccount);
+                ps.setString(3, toAccount);
+                ps.setLong(4, amount);
+                ps.setString(5, frequency.name());
+                ps.setLong(6, firstRunAt);
+                ps.setLong(7, firstRunAt);
+                if (endAt == null) {
+                    ps.setNull(8, Types.INTEGER);
+                } else {
+                    ps.setLong(8, endAt);
+                }
+                ps.executeUpdate();
+                try (ResultSet rs = ps.getGeneratedKeys()) {
+                    if (!rs.next()) {
+                        throw new SQLException("No ID obtained from insert");
+                    }
+                    return rs.getLong(1);
+                }
+            }
+        });
+        return new StandingOrder(id, customerId, fromAccount, toAccount, amount, frequency,
+                                 firstRunAt, 0, firstRunAt, endAt, true, null);
+    }
+
+    /**
+     * Cancels a standing order; it will not run again.
+     *
+     * @param id The order ID
+     * @return true if an active order was cancelled
+     * @throws SQLException if a database error occurs
+     */
+    public boolean cancel(long id) throws SQLException {
+        return DBUtil.withRetry("cancel the standing order", () -> {
+            try (Connection conn = DBUtil.getConnection();
+                 PreparedStatement ps = conn.prepareStatement(
+                         "UPDATE standing_orders SET active = 0, last_status = 'CANCELLED' WHERE id = ? AND active = 1")) {
+                ps.setLong(1, id);
+                return ps.executeUpdate() > 0;
+            }
+        });
+    }
+
+    /**
+     * Gets the standing orders of a customer.
+     *
+     * @param customerId The customer ID
+     * @return The orders, ordered by ID
+     * @throws SQLException if a database error occurs
+     */
+    public List<StandingOrder> getByCustomer(int customerId) throws SQLException {
+        List<StandingOrder> orders = new ArrayList<>();
+        try (Connection conn = DBUtil.getReadConnection();
+             PreparedStatement ps = conn.prepareStatement(
+                     "SELECT " + COLUMNS + " FROM standing_orders WHERE customer_id = ? ORDER BY id")) {
+            ps.setInt(1, customerId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    orders.add(map(rs));
+                }
+            }
+        }
+        return orders;
+    }
+
+    /**
+     * Gets several standing orders by ID.
+     *
+     * @param ids The order IDs
+     * @return The orders found, in no particular order
+     * @throws SQLException if a database error occurs
+     */
+    public List<StandingOrder> getByIds(List<Long> ids) throws SQLException {
+        List<StandingOrder> orders = new ArrayList<>(ids.size());
+        try (Connection conn = DBUtil.getReadConnection()) {
+            for (int from = 0; from < ids.size(); from += MAX_IDS_PER_QUERY) {
+                List<Long> chunk = ids.subList(from, Math.min(ids.size(), from + MAX_IDS_PER_QUERY));
+                StringBuilder sql = new StringBuilder("SELECT " + COLUMNS + " FROM standing_orders WHERE id IN (");
+                for (int i = 0; i < chunk.size(); i++) {
+                    sql.append(i == 0 ? "?" : ", ?");
+                }
+                try (PreparedStatement ps = conn.prepareStatement(sql.append(")").toString())) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        ps.setLong(i + 1, chunk.get(i));
+                    }
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            orders.add(map(rs));
+                        }
+                    }
+                }
+            }
+        }
+        return orders;
+    }
+
+    /**
+     * Streams the ID and next run time of every active order created after a given ID.
+     * Called with 0 this builds the in-memory schedule, and is the only full read of the table;
+     * later calls pick up new orders with a range scan of the primary key.
+     *
+     * @param afterId The highest order ID already seen, or 0
+     * @param consumer Receives each active order
+     * @return The highest order ID seen, or afterId if there are no new orders
+     * @throws SQLException if a database error occurs
+     */
+    public long loadSchedule(long afterId, ScheduleConsumer consumer) throws SQLException {
+        long lastId = afterId;
+        try (Connection conn = DBUtil.getReadConnection();
+             PreparedStatement ps = conn.prepareStatement(
+                     "SELECT id, next_run_at, active FROM standing_orders WHERE id > ? ORDER BY id")) {
+            ps.setLong(1, afterId);
+            ps.setFetchSize(10_000);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    lastId = rs.getLong(1);
+                    if (rs.getInt(3) == 1) {
+                        consumer.accept(lastId, rs.getLong(2));
+                    }
+                }
+            }
+        }
+        return lastId;
+    }
+
+    /**
+     * Records an execution of an order and moves it to its next run.
+     * Call it in the same unit of work as the payment, so both commit or neither does.
+     *
+     * @param order The order as read before the execution
+     * @param nextRunAt The next execution time in epoch milliseconds
+     * @param active Whether the order will run again
+     * @param status The outcome of the execution
+     * @return true if the execution was recorded, false if another execution got there first
+     * @throws SQLException if a database error occurs
+     */
+    public boolean recordExecution(StandingOrder order, long nextRunAt, boolean active, String status)
+            throws SQLException {
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement ps = conn.prepareStatement(
+                     "UPDATE standing_orders SET runs = runs + 1, next_run_at = ?, active = ?, last_status = ? " +
+                     "WHERE id = ? AND runs = ? AND active = 1")) {
+            ps.setLong(1, nextRunAt);
+            ps.setInt(2, active ? 1 : 0);
+            ps.setString(3, status);
+            ps.setLong(4, order.id());
+            ps.setInt(5, order.runs());
+            return ps.executeUpdate() > 0;
+        }
+    }
+
+    /**
+     * Replaces the recorded outcome of an order's last run, e.g. once a payment recorded as
+     * pending has gone through or been refused.
+     *
+     * @param id The order ID
+     * @param status The outcome
+     * @throws SQLException if a database error occurs
+     */
+    public void recordStatus(long id, String status) throws SQLException {
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement ps = conn.prepareStatement("UPDATE standing_orders SET last_status = ? WHERE id = ?")) {
+            ps.setString(1, status);
+            ps.setLong(2, id);
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * Maps the current row.
+     *
+     * @param rs The ResultSet positioned on a row selecting COLUMNS
+     * @return The order
+     * @throws SQLException if a database error occurs
+     */
+    private StandingOrder map(ResultSet rs) throws SQLException {
+        long endAt = rs.getLong(10);
+        Long end = rs.wasNull() ? null : endAt;
+        return new StandingOrder(rs.getLong(1), rs.getInt(2), rs.getString(3), rs.getString(4), rs.getLong(5),
+                                 StandingOrder.Frequency.valueOf(rs.getString(6)), rs.getLong(7), rs.getInt(8),
+                                 rs.getLong(9), end, rs.getInt(11) == 1, rs.getString(12));
+    }
+}
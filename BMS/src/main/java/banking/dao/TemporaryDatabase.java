@@ -0,0 +1,91 @@
+package banking.dao;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * A throwaway database for tests and benchmarks.
+ * Opening one points DBUtil at a fresh, uniquely named database (in memory or in a
+ * temporary directory) and initializes the schema; closing it restores the previous
+ * configuration and deletes any files. Unique names let separate JVMs, such as forked
+ * test runners, work side by side without sharing a file.
+ *
+ * <pre>
+ *   try (TemporaryDatabase db = TemporaryDatabase.inMemory()) {
+ *       // DAOs and services now use the temporary database
+ *   }
+ * </pre>
+ *
+ * @author Banking System
+ */
+public final class TemporaryDatabase implements AutoCloseable {
+    private final DBConfig previous;
+    private final DBConfig config;
+    private final Path directory;
+
+    /**
+     * Constructs a TemporaryDatabase and makes it the active database.
+     *
+     * @param config The configuration of the temporary database
+     * @param directory The directory to delete on close, or null
+     */
+    private TemporaryDatabase(DBConfig config, Path directory) {
+        this.previous = DBUtil.getConfig();
+        this.config = config;
+        this.directory = directory;
+        DBUtil.configure(config);
+        DBUtil.initDatabase();
+    }
+
+    /**
+     * Opens a uniquely named shared-cache in-memory database.
+     *
+     * @return The temporary database
+     */
+    public static TemporaryDatabase inMemory() {
+        return new TemporaryDatabase(DBConfig.uniqueInMemory(), null);
+    }
+
+    /**
+     * Opens a database file in a new temporary directory.
+     * Use this when the test needs real file behaviour such as WAL or multiple shards.
+     *
+     * @return The temporary database
+     */
+    public static TemporaryDatabase onDisk() {
+        try {
+            Path directory = Files.createTempDirectory("bms-db-");
+            return new TemporaryDatabase(DBConfig.file(directory.resolve("banking.db")), directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create temporary database directory", e);
+        }
+    }
+
+    /**
+     * Gets the configuration of this database.
+     *
+     * @return The configuration
+     */
+    public DBConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * Restores the previous database configuration and deletes the temporary files.
+     */
+    @Override
+    public void close() {
+        DBUtil.configure(previous);
+        if (directory != null) {
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to delete temporary database", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package banking.dao;
+
+import banking.repository.TransactionManager;
+
+import java.sql.SQLException;
+import java.util.function.Supplier;
+
+/**
+ * SQLite TransactionManager.
+ * Runs work in a DBUtil unit of work, so every DAO call made by the work on this thread
+ * shares one connection per shard and one commit.
+ * 
+ * @author Banking System
+ */
+public class TransactionDAO implements TransactionManager {
+
+    @Override
+    public <T> T inTransaction(Supplier<T> work) {
+        try {
+            return DBUtil.inTransaction(work::get);
+        } catch (SQLException ex) {
+            ex.printStackTrace();
+            throw new RuntimeException("Failed to commit transaction", ex);
+        }
+    }
+}
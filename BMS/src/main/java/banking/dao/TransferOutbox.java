@@ -0,0 +1,164 @@
+package banking.dao;
+
+import banking.model.MovementKind;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Durable hand-off of transfers between shards.
+ * Each shard is its own SQLite file, so a transfer between accounts on different shards cannot
+ * commit in one transaction. Instead the debit commits together with an outbox row on the
+ * source shard, recording the credit still owed. The credit is then applied on the target shard
+ * together with an inbox row keyed by the source shard and outbox id, and the outbox row is
+ * deleted. The inbox makes applying a credit idempotent: after a crash at any point, pending
+ * outbox rows are applied again by completePending, which runs when the database is
+ * initialized, and every transfer is credited exactly once.
+ *
+ * @author Banking System
+ */
+final class TransferOutbox {
+
+    /**
+     * A credit owed by a committed cross-shard debit.
+     *
+     * @param sourceShard The shard holding the debit and the outbox row
+     * @param id The outbox row id; never reused, since the table is AUTOINCREMENT
+     * @param toAccount The account number to credit
+     * @param toBranch The branch of the account to credit, which locates its shard
+     * @param amount The amount in thebe
+     */
+    record Pending(int sourceShard, long id, String toAccount, String toBranch, long amount) {
+    }
+
+    private TransferOutbox() {
+    }
+
+    /**
+     * Creates the outbox and inbox tables in a shard if they don't exist.
+     *
+     * @param conn A connection to the shard
+     * @throws SQLException if a database error occurs
+     */
+    static void createTables(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            st.execute("CREATE TABLE IF NOT EXISTS transfer_outbox (" +
+                    "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                    "to_account TEXT NOT NULL, " +
+                    "to_branch TEXT NOT NULL, " +
+                    "amount INTEGER NOT NULL, " +
+                    "created_at INTEGER NOT NULL" +
+                    ");");
+            st.execute("CREATE TABLE IF NOT EXISTS transfer_inbox (" +
+                    "source_shard INTEGER NOT NULL, " +
+                    "outbox_id INTEGER NOT NULL, " +
+                    "applied_at INTEGER NOT NULL, " +
+                    "PRIMARY KEY (source_shard, outbox_id)" +
+                    ") WITHOUT ROWID;");
+        }
+    }
+
+    /**
+     * Records a credit owed by a debit. Call it on the connection, and in the transaction, of the debit.
+     *
+     * @param conn The source shard connection
+     * @param sourceShard The source shard
+     * @param toAccount The account number to credit
+     * @param toBranch The branch of the account to credit
+     * @param amount The amount in thebe
+     * @return The pending credit
+     * @throws SQLException if a database error occurs
+     */
+    static Pending add(Connection conn, ShardRouter.Shard sourceShard, String toAccount, String toBranch,
+                       long amount) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(
+                "INSERT INTO transfer_outbox(to_account, to_branch, amount, created_at) VALUES (?, ?, ?, ?) " +
+                "RETURNING id")) {
+            ps.setString(1, toAccount);
+            ps.setString(2, toBranch);
+            ps.setLong(3, amount);
+            ps.setLong(4, System.currentTimeMillis());
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return new Pending(sourceShard.id(), rs.getLong(1), toAccount, toBranch, amount);
+            }
+        }
+    }
+
+    /**
+     * Applies a pending credit on the target shard, unless it has been applied before, and then
+     * removes it from the outbox. Safe to call any number of times for the same credit.
+     *
+     * @param pending The pending credit
+     * @return The target's stored balance after the credit, or null if it had already been applied
+     * @throws IllegalArgumentException if the target account does not exist or cannot take the amount;
+     *                                  the credit stays pending
+     * @throws SQLException if a database error occurs; the credit stays pending
+     */
+    static Long apply(Pending pending) throws SQLException {
+        ShardRouter.Shard target = DBUtil.shards().shardFor(pending.toBranch());
+        Long balance = DBUtil.inTransaction(() -> {
+            try (Connection conn = DBUtil.getConnection(target)) {
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "INSERT INTO transfer_inbox(source_shard, outbox_id, applied_at) VALUES (?, ?, ?) " +
+                        "ON CONFLICT DO NOTHING")) {
+                    ps.setInt(1, pending.sourceShard());
+                    ps.setLong(2, pending.id());
+                    ps.setLong(3, System.currentTimeMillis());
+                    if (ps.executeUpdate() == 0) {
+                        return null;
+                    }
+                }
+                return AccountDAO.credit(conn, pending.toAccount(), pending.amount(), MovementKind.TRANSFER);
+            }
+        });
+        DBUtil.withRetry("complete transfer " + pending.id(), () -> {
+            try (Connection conn = DBUtil.getConnection(DBUtil.shards().byId(pending.sourceShard()));
+                 PreparedStatement ps = conn.prepareStatement("DELETE FROM transfer_outbox WHERE id = ?")) {
+                ps.setLong(1, pending.id());
+                return ps.executeUpdate();
+            }
+        });
+        return balance;
+    }
+
+    /**
+     * Applies every credit still pending on any shard, such as those left by a crash between
+     * the debit and the credit of a transfer. Credits that cannot be applied are reported and
+     * stay pending.
+     *
+     * @return The number of credits completed
+     */
+    static int completePending() {
+        int completed = 0;
+        for (ShardRouter.Shard shard : DBUtil.shards().all()) {
+            List<Pending> pending = new ArrayList<>();
+            try (Connection conn = DBUtil.getConnection(shard);
+                 Statement st = conn.createStatement();
+                 ResultSet rs = st.executeQuery(
+                         "SELECT id, to_account, to_branch, amount FROM transfer_outbox ORDER BY id")) {
+                while (rs.next()) {
+                    pending.add(new Pending(shard.id(), rs.getLong(1), rs.getString(2), rs.getString(3),
+                                            rs.getLong(4)));
+                }
+            } catch (SQLException ex) {
+                ex.printStackTrace();
+                continue;
+            }
+            for (Pending credit : pending) {
+                try {
+                    apply(credit);
+                    completed++;
+                } catch (SQLException | RuntimeException ex) {
+                    ex.printStackTrace();
+                }
+            }
+        }
+        return completed;
+    }
+}
@@ -0,0 +1,374 @@
+package banking.dao;
+
+import banking.repository.DuplicateKeyException;
+import org.sqlite.SQLiteErrorCode;
+import org.sqlite.SQLiteException;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Bloom-filter prefilter for account numbers and usernames.
+ * Both filters are built from the database when it is opened and updated after every insert,
+ * so a new key is normally recognized as "definitely new" without a query. Only a "maybe"
+ * answer costs a lookup; when that lookup finds nothing it is counted as a false positive.
+ *
+ * The filters are per process and never decide that a key is taken on their own. The
+ * authority for account numbers is the account_numbers table on the primary database, which
+ * every account insert writes in the same unit of work, first; the per-shard indexes on
+ * accounts.accountNumber cannot see the other shards. For usernames it is the unique index on
+ * users.username. An insert that races another one past a filter, in this process or another,
+ * is still rejected there.
+ *
+ * @author Banking System
+ */
+final class UniqueKeys {
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+    private static final long MIN_CAPACITY = 1024;
+
+    private volatile BloomFilter accountNumbers;
+    private volatile BloomFilter usernames;
+
+    /**
+     * Creates the account number registry in the primary database if it doesn't exist.
+     *
+     * @param conn A connection to the primary database
+     * @throws SQLException if a database error occurs
+     */
+    static void createTable(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            st.execute("CREATE TABLE IF NOT EXISTS account_numbers (" +
+                    "accountNumber TEXT NOT NULL UNIQUE" +
+                    ");");
+        }
+    }
+
+    /**
+     * Fills an empty account number registry from the accounts on every shard, such as for a
+     * database created before the registry existed. A number held by several accounts is
+     * registered once.
+     *
+     * @throws SQLException if a database error occurs
+     */
+    static void backfill() throws SQLException {
+        try (Connection conn = DBUtil.getReadConnection();
+             Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT 1 FROM account_numbers LIMIT 1")) {
+            if (rs.next()) {
+                return;
+            }
+        }
+        List<String> numbers = DBUtil.shards().fanOut(conn -> readKeys(conn, "SELECT accountNumber FROM accounts"));
+        if (numbers.isEmpty()) {
+            return;
+        }
+        DBUtil.inTransaction(() -> {
+            try (Connection conn = DBUtil.getConnection();
+                 PreparedStatement ps = conn.prepareStatement(
+                         "INSERT INTO account_numbers(accountNumber) VALUES (?) ON CONFLICT DO NOTHING")) {
+                for (String number : numbers) {
+                    ps.setString(1, number);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Claims account numbers in the registry. Call it in the unit of work that inserts the
+     * accounts, before the inserts: the unit commits the primary database first, so a failure
+     * after that can leave a number claimed without an account, but never an account whose
+     * number is not claimed.
+     *
+     * @param accountNumbers The account numbers
+     * @throws SQLException if a number is already claimed (a unique violation) or a database error occurs
+     */
+    static void register(Collection<String> accountNumbers) throws SQLException {
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement ps = conn.prepareStatement("INSERT INTO account_numbers(accountNumber) VALUES (?)")) {
+            for (String number : accountNumbers) {
+                ps.setString(1, number);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    /**
+     * Builds both filters from the database, replacing any previous ones.
+     *
+     * @throws SQLException if a database error occurs
+     */
+    synchronized void load() throws SQLException {
+        accountNumbers = buildAccountNumbers();
+        usernames = buildUsernames();
+    }
+
+    /**
+     * Checks whether an account number is in use on any shard, according to the registry.
+     *
+     * @param accountNumber The account number
+     * @return true if an account with this number exists
+     * @throws SQLException if a database error occurs
+     */
+    boolean accountNumberExists(String accountNumber) throws SQLException {
+        BloomFilter filter = accountNumbers();
+        if (!filter.mightContain(accountNumber)) {
+            return false;
+        }
+        if (isRegistered(accountNumber)) {
+            return true;
+        }
+        filter.recordFalsePositive();
+        return false;
+    }
+
+    /**
+     * Checks the registry for an account number, without the filter. The filter only knows the
+     * numbers this process has seen, so this is the check to use once an insert has been rejected.
+     *
+     * @param accountNumber The account number
+     * @return true if the number is registered
+     * @throws SQLException if a database error occurs
+     */
+    static boolean isRegistered(String accountNumber) throws SQLException {
+        try (Connection conn = DBUtil.getReadConnection()) {
+            return exists(conn, "SELECT 1 FROM account_numbers WHERE accountNumber = ?", accountNumber);
+        }
+    }
+
+    /**
+     * Checks whether a username is taken.
+     *
+     * @param username The username
+     * @return true if a user with this username exists
+     * @throws SQLException if a database error occurs
+     */
+    boolean usernameExists(String username) throws SQLException {
+        BloomFilter filter = usernames();
+        if (!filter.mightContain(username)) {
+            return false;
+        }
+        try (Connection conn = DBUtil.getReadConnection()) {
+            if (exists(conn, "SELECT 1 FROM users WHERE username = ? LIMIT 1", username)) {
+                return true;
+            }
+        }
+        filter.recordFalsePositive();
+        return false;
+    }
+
+    /**
+     * Records a committed account number.
+     * A filter that outgrows its capacity is rebuilt twice as large; the insert is already
+     * committed, so the rebuild scan includes it. If the rebuild fails the old filter stays,
+     * which only raises its false-positive rate.
+     *
+     * @param accountNumber The account number
+     */
+    synchronized void addAccountNumber(String accountNumber) {
+        BloomFilter filter = accountNumbers;
+        if (filter == null) {
+            // Not built yet; the first build reads the number from the database
+            return;
+        }
+        filter.put(accountNumber);
+        if (filter.isSaturated()) {
+            try {
+                accountNumbers = buildAccountNumbers();
+            } catch (SQLException ex) {
+                ex.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Records a committed username, rebuilding the filter like addAccountNumber when it is full.
+     *
+     * @param username The username
+     */
+    synchronized void addUsername(String username) {
+        BloomFilter filter = usernames;
+        if (filter == null) {
+            return;
+        }
+        filter.put(username);
+        if (filter.isSaturated()) {
+            try {
+                usernames = buildUsernames();
+            } catch (SQLException ex) {
+                ex.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Reports both filters.
+     *
+     * @return The statistics of the account number and username filters
+     * @throws SQLException if the filters had to be built and the build failed
+     */
+    List<BloomFilter.Stats> stats() throws SQLException {
+        return List.of(accountNumbers().stats(), usernames().stats());
+    }
+
+    /**
+     * Checks whether a database error is a unique constraint violation.
+     *
+     * @param ex The database error
+     * @return true if the statement violated a UNIQUE index
+     */
+    static boolean isUniqueViolation(SQLException ex) {
+        return ex instanceof SQLiteException sqliteException
+                && sqliteException.getResultCode() == SQLiteErrorCode.SQLITE_CONSTRAINT_UNIQUE;
+    }
+
+    /**
+     * Creates the exception for an account number that is already in use.
+     *
+     * @param accountNumber The account number
+     * @param cause The database error that detected the duplicate, or null
+     * @return The exception
+     */
+    static DuplicateKeyException duplicateAccountNumber(String accountNumber, Throwable cause) {
+        return new DuplicateKeyException("Account number already exists: " + accountNumber, accountNumber, cause);
+    }
+
+    /**
+     * Creates the exception for a username that is already taken.
+     *
+     * @param username The username
+     * @param cause The database error that detected the duplicate, or null
+     * @return The exception
+     */
+    static DuplicateKeyException duplicateUsername(String username, Throwable cause) {
+        return new DuplicateKeyException("Username already exists: " + username, username, cause);
+    }
+
+    /**
+     * Gets the account number filter, building both filters on first use.
+     *
+     * @return The account number filter
+     * @throws SQLException if a database error occurs
+     */
+    private BloomFilter accountNumbers() throws SQLException {
+        BloomFilter filter = accountNumbers;
+        if (filter == null) {
+            synchronized (this) {
+                if (accountNumbers == null) {
+                    load();
+                }
+                filter = accountNumbers;
+            }
+        }
+        return filter;
+    }
+
+    /**
+     * Gets the username filter, building both filters on first use.
+     *
+     * @return The username filter
+     * @throws SQLException if a database error occurs
+     */
+    private BloomFilter usernames() throws SQLException {
+        BloomFilter filter = usernames;
+        if (filter == null) {
+            synchronized (this) {
+                if (usernames == null) {
+                    load();
+                }
+                filter = usernames;
+            }
+        }
+        return filter;
+    }
+
+    /**
+     * Builds the account number filter from the registry.
+     *
+     * @return The filter
+     * @throws SQLException if a database error occurs
+     */
+    private static BloomFilter buildAccountNumbers() throws SQLException {
+        try (Connection conn = DBUtil.getReadConnection()) {
+            return build("Account number", readKeys(conn, "SELECT accountNumber FROM account_numbers"));
+        }
+    }
+
+    /**
+     * Builds the username filter from the primary database.
+     *
+     * @return The filter
+     * @throws SQLException if a database error occurs
+     */
+    private static BloomFilter buildUsernames() throws SQLException {
+        try (Connection conn = DBUtil.getReadConnection()) {
+            return build("Username", readKeys(conn, "SELECT username FROM users"));
+        }
+    }
+
+    /**
+     * Creates a filter with room for twice the current keys and adds them.
+     *
+     * @param name The filter name
+     * @param keys The existing keys
+     * @return The filter
+     */
+    private static BloomFilter build(String name, List<String> keys) {
+        BloomFilter filter = new BloomFilter(name, Math.max(MIN_CAPACITY, 2L * keys.size()), FALSE_POSITIVE_RATE);
+        for (String key : keys) {
+            filter.put(key);
+        }
+        return filter;
+    }
+
+    /**
+     * Reads a single text column.
+     *
+     * @param conn The connection to query on
+     * @param sql The query
+     * @return The non-null values
+     * @throws SQLException if a database error occurs
+     */
+    private static List<String> readKeys(Connection conn, String sql) throws SQLException {
+        List<String> keys = new ArrayList<>();
+        try (Statement st = conn.createStatement()) {
+            st.setFetchSize(10_000);
+            try (ResultSet rs = st.executeQuery(sql)) {
+                while (rs.next()) {
+                    String key = rs.getString(1);
+                    if (key != null) {
+                        keys.add(key);
+                    }
+                }
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Runs an existence query with one text parameter.
+     *
+     * @param conn The connection to query on
+     * @param sql The query
+     * @param key The parameter
+     * @return true if the query returned a row
+     * @throws SQLException if a database error occurs
+     */
+    private static boolean exists(Connection conn, String sql, String key) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, key);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package banking.dao;
+
+import org.sqlite.SQLiteConfig;
+import org.sqlite.SQLiteConnection;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A transaction bound to the current thread that DAO calls join implicitly.
+ * While a unit of work is active, DBUtil hands out the unit's connection for a shard instead of
+ * opening a new one, for reads as well as writes, so every DAO call sees the unit's own changes
+ * and everything is committed once at the end. Connections are opened lazily, one per shard the
+ * unit touches, and handed out as proxies whose close(), commit() and setAutoCommit() are left
+ * to the unit; a participant calling rollback() marks the whole unit for rollback.
+ *
+ * Each unit connection begins IMMEDIATE, so a unit waits for competing writers up front,
+ * retrying with backoff like DBUtil.withRetry if they hold the lock longer than the busy timeout.
+ * Each shard commits atomically. A unit that writes to several shards commits them one after
+ * another in the order they were first used, so it is not atomic across shards.
+ *
+ * @author Banking System
+ */
+final class UnitOfWork {
+    private static final ThreadLocal<UnitOfWork> CURRENT = new ThreadLocal<>();
+
+    private final Map<Integer, Connection> connections = new LinkedHashMap<>();
+    private final List<Runnable> rollbackHooks = new ArrayList<>();
+    private final List<Runnable> commitHooks = new ArrayList<>();
+    private boolean rollbackOnly;
+
+    private UnitOfWork() {
+    }
+
+    /**
+     * Gets the unit of work bound to the current thread.
+     *
+     * @return The active unit, or null if there is none
+     */
+    static UnitOfWork current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Runs work in a unit of work and commits it. If a unit is already active on this
+     * thread the work simply joins it, and the outermost call commits.
+     *
+     * @param work The work to run
+     * @param <T> The result type
+     * @return The work's result
+     * @throws SQLException if the work or the commit fails; the unit is rolled back
+     */
+    static <T> T run(DBUtil.TransactionWork<T> work) throws SQLException {
+        if (CURRENT.get() != null) {
+            return work.run();
+        }
+        UnitOfWork unit = new UnitOfWork();
+        CURRENT.set(unit);
+        T result;
+        boolean committed = false;
+        try {
+            result = work.run();
+            unit.commit();
+            committed = true;
+        } finally {
+            CURRENT.remove();
+            if (!committed) {
+                unit.rollback();
+            }
+            unit.close();
+            if (committed) {
+                unit.commitHooks.forEach(Runnable::run);
+            } else {
+                // Newest first, so hooks restoring the same state unwind to the oldest value
+                for (int i = unit.rollbackHooks.size() - 1; i >= 0; i--) {
+                    unit.rollbackHooks.get(i).run();
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets the unit's connection to a database, opening it on first use.
+     *
+     * @param shardId The shard id the connection is kept under
+     * @param url The JDBC URL of the shard
+     * @return A proxy that must still be closed by the caller, which does not close the connection
+     * @throws SQLException if the connection cannot be opened
+     */
+    Connection connection(int shardId, String url) throws SQLException {
+        Connection conn = connections.get(shardId);
+        if (conn == null) {
+            // Nothing has run on this shard yet, so beginning can be retried while another writer holds the lock
+            conn = Retry.always("start a transaction", () -> begin(url));
+            connections.put(shardId, conn);
+        }
+        return wrap(conn);
+    }
+
+    /**
+     * Opens a connection and begins an IMMEDIATE transaction on it.
+     * The write lock is taken when the unit first uses the shard, waiting out the busy timeout,
+     * rather than by upgrading a read snapshot later, which fails at once if another writer
+     * committed in between.
+     *
+     * @param url The JDBC URL of the shard
+     * @return The connection, inside its transaction
+     * @throws SQLException if the connection cannot be opened or the lock is not available
+     */
+    private static Connection begin(String url) throws SQLException {
+        Connection conn = DBUtil.openConnection(url);
+        try {
+            conn.unwrap(SQLiteConnection.class).getConnectionConfig()
+                    .setTransactionMode(SQLiteConfig.TransactionMode.IMMEDIATE);
+            conn.setAutoCommit(false);
+            return conn;
+        } catch (SQLException ex) {
+            conn.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * Registers an action to run if the unit is rolled back, after its connections are closed.
+     * Actions run in reverse order of registration.
+     *
+     * @param hook The action
+     */
+    void onRollback(Runnable hook) {
+        rollbackHooks.add(hook);
+    }
+
+    /**
+     * Registers an action to run once the unit has committed, after its connections are closed.
+     * Actions run in order of registration.
+     *
+     * @param hook The action
+     */
+    void onCommit(Runnable hook) {
+        commitHooks.add(hook);
+    }
+
+    /**
+     * Commits every connection of the unit, unless a participant asked for a rollback.
+     *
+     * @throws SQLException if the unit is marked for rollback or a commit fails
+     */
+    private void commit() throws SQLException {
+        if (rollbackOnly) {
+            throw new SQLException("Transaction was rolled back by a participant");
+        }
+        for (Connection conn : connections.values()) {
+            deferNextTransaction(conn);
+            // A COMMIT that fails as busy leaves the transaction open, so it can simply be repeated
+            Retry.always("commit the transaction", () -> {
+                conn.commit();
+                return null;
+            });
+        }
+    }
+
+    /**
+     * Rolls back every connection of the unit. Failures are reported but do not hide
+     * the error that caused the rollback.
+     */
+    private void rollback() {
+        for (Connection conn : connections.values()) {
+            try {
+                deferNextTransaction(conn);
+                conn.rollback();
+            } catch (SQLException ex) {
+                ex.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Switches a unit connection back to DEFERRED transactions before it commits or rolls back.
+     * The driver begins the next transaction straight after either, and an IMMEDIATE begin would
+     * wait for the write lock again, failing the finished commit if another writer holds it.
+     * 
+     * @param conn The physical connection
+     * @throws SQLException if the connection is closed
+     */
+    private static void deferNextTransaction(Connection conn) throws SQLException {
+        conn.unwrap(SQLiteConnection.class).getConnectionConfig()
+                .setTransactionMode(SQLiteConfig.TransactionMode.DEFERRED);
+    }
+
+    /**
+     * Closes the unit's connections.
+     */
+    private void close() {
+        for (Connection conn : connections.values()) {
+            try {
+                conn.close();
+            } catch (SQLException ex) {
+                ex.printStackTrace();
+            }
+        }
+        connections.clear();
+    }
+
+    /**
+     * Wraps one of the unit's connections for a participant.
+     *
+     * @param conn The physical connection
+     * @return The proxy handed out to the participant
+     */
+    private Connection wrap(Connection conn) {
+        InvocationHandler handler = new InvocationHandler() {
+            private boolean released;
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                switch (method.getName()) {
+                    case "close":
+                        released = true;
+                        return null;
+                    case "isClosed":
+                        return released || conn.isClosed();
+                    case "setAutoCommit":
+                    case "commit":
+                        // The unit commits once, at the end
+                        return null;
+                    case "getAutoCommit":
+                        return false;
+                    case "rollback":
+                        if (args == null) {
+                            rollbackOnly = true;
+                            return null;
+                        }
+                        break;
+                    case "unwrap":
+                        if (((Class<?>) args[0]).isInstance(conn)) {
+                            return conn;
+                        }
+                        break;
+                    default:
+                        break;
+                }
+                if (released) {
+                    throw new SQLException("Connection has already been closed by this participant");
+                }
+                try {
+                    return method.invoke(conn, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            }
+        };
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[] {Connection.class}, handler);
+    }
+}
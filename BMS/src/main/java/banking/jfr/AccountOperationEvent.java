@@ -0,0 +1,101 @@
+package banking.jfr;
+
+import banking.model.Account;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for one AccountService operation: a deposit, withdrawal, transfer,
+ * interest posting or account opening, with the time it took including its database work.
+ * Like the other banking events it is enabled by the jfr/banking.jfc settings file; when no
+ * recording has it enabled, starting and finishing the event costs next to nothing.
+ *
+ * @author Banking System
+ */
+@Name("banking.AccountOperation")
+@Label("Account Operation")
+@Category({"Banking", "Service"})
+@Description("A deposit, withdrawal, transfer, interest posting or account opening")
+@StackTrace(false)
+public final class AccountOperationEvent extends Event {
+    public static final String OK = "OK";
+    public static final String FAILED = "FAILED";
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Account Number")
+    String accountNumber;
+
+    @Label("Account Type")
+    String accountType;
+
+    @Label("Amount")
+    @Description("The amount in thebe")
+    long amount;
+
+    @Label("Accounts")
+    @Description("The number of accounts the operation covers")
+    int accounts;
+
+    @Label("Outcome")
+    @Description("OK, FAILED if an exception was thrown, or the rejection status")
+    String outcome;
+
+    /**
+     * Starts timing an operation.
+     *
+     * @return The event, to be finished when the operation completes
+     */
+    public static AccountOperationEvent start() {
+        AccountOperationEvent event = new AccountOperationEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Finishes an operation on one account and commits the event if it is recorded.
+     *
+     * @param operation The operation, such as "DEPOSIT"
+     * @param account The account, or null if it was not created
+     * @param amount The amount in thebe
+     * @param outcome The outcome
+     */
+    public void finish(String operation, Account account, long amount, String outcome) {
+        end();
+        if (shouldCommit()) {
+            this.operation = operation;
+            if (account != null) {
+                this.accountNumber = account.getAccountNumber();
+                this.accountType = account.getAccountType();
+            }
+            this.amount = amount;
+            this.accounts = 1;
+            this.outcome = outcome;
+            commit();
+        }
+    }
+
+    /**
+     * Finishes an operation on several accounts and commits the event if it is recorded.
+     *
+     * @param operation The operation, such as "OPEN_BATCH"
+     * @param accounts The number of accounts
+     * @param amount The total amount in thebe
+     * @param outcome The outcome
+     */
+    public void finish(String operation, int accounts, long amount, String outcome) {
+        end();
+        if (shouldCommit()) {
+            this.operation = operation;
+            this.amount = amount;
+            this.accounts = accounts;
+            this.outcome = outcome;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package banking.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for a login attempt, from the credential check until the dashboard is shown.
+ * The password is never recorded.
+ *
+ * @author Banking System
+ */
+@Name("banking.Login")
+@Label("Login")
+@Category({"Banking", "UI"})
+@Description("A customer or employee login attempt")
+@StackTrace(false)
+public final class LoginEvent extends Event {
+    @Label("Username")
+    String username;
+
+    @Label("User Type")
+    @Description("CUSTOMER or EMPLOYEE")
+    String userType;
+
+    @Label("Succeeded")
+    boolean succeeded;
+
+    /**
+     * Starts timing a login attempt.
+     *
+     * @return The event, to be finished when the attempt completes
+     */
+    public static LoginEvent start() {
+        LoginEvent event = new LoginEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Finishes the attempt and commits the event if it is recorded.
+     *
+     * @param username The username entered
+     * @param userType CUSTOMER or EMPLOYEE
+     * @param succeeded Whether the credentials were accepted
+     */
+    public void finish(String username, String userType, boolean succeeded) {
+        end();
+        if (shouldCommit()) {
+            this.username = username;
+            this.userType = userType;
+            this.succeeded = succeeded;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package banking.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for one DAO query or write, identified by a stable SQL id such as
+ * "account.byNumber" rather than by its SQL text, with the number of rows it read or wrote.
+ *
+ * @author Banking System
+ */
+@Name("banking.Query")
+@Label("Query")
+@Category({"Banking", "Database"})
+@Description("A DAO query or write with its SQL id and row count")
+@StackTrace(false)
+public final class QueryEvent extends Event {
+    @Label("SQL ID")
+    String sqlId;
+
+    @Label("Rows")
+    @Description("Rows returned or changed")
+    long rows;
+
+    /**
+     * Starts timing a query.
+     *
+     * @return The event, to be finished when the query completes
+     */
+    public static QueryEvent start() {
+        QueryEvent event = new QueryEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Finishes the query and commits the event if it is recorded.
+     *
+     * @param sqlId The SQL id
+     * @param rows The rows returned or changed
+     */
+    public void finish(String sqlId, long rows) {
+        end();
+        if (shouldCommit()) {
+            this.sqlId = sqlId;
+            this.rows = rows;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package banking.jfr;
+
+import javafx.fxml.FXMLLoader;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.io.IOException;
+import java.net.URL;
+
+/**
+ * Flight Recorder event for loading an FXML view, including its controller's initialize().
+ *
+ * @author Banking System
+ */
+@Name("banking.SceneLoad")
+@Label("Scene Load")
+@Category({"Banking", "UI"})
+@Description("Loading an FXML view and initializing its controller")
+@StackTrace(false)
+public final class SceneLoadEvent extends Event {
+    @Label("FXML")
+    String fxml;
+
+    @Label("Succeeded")
+    boolean succeeded;
+
+    /**
+     * Loads an FXML view, recording how long it took.
+     *
+     * @param loader The loader, with its location set
+     * @param <T> The type of the root node
+     * @return The loaded root node
+     * @throws IOException if the view cannot be loaded
+     */
+    public static <T> T load(FXMLLoader loader) throws IOException {
+        SceneLoadEvent event = new SceneLoadEvent();
+        event.begin();
+        boolean loaded = false;
+        try {
+            T root = loader.load();
+            loaded = true;
+            return root;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                URL location = loader.getLocation();
+                event.fxml = location == null ? null : location.getPath().substring(location.getPath().lastIndexOf('/') + 1);
+                event.succeeded = loaded;
+                event.commit();
+            }
+        }
+    }
+}
@@ -1,32 +1,39 @@
 package banking.model;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
  * Abstract base class representing a bank account.
  * All account types (SavingsAccount, InvestmentAccount, ChequeAccount)
  * extend this class and implement account-specific behaviors.
+ * Balances and amounts are whole thebe (see {@link Money}).
+ * The same instance is shared between views, controllers and services, so the balance
+ * is held in an AtomicLong and every change is a compare-and-set; funds checks happen
+ * inside the CAS loop, so concurrent withdrawals can never overdraw the account.
+ * Readers that need several fields to agree should take a {@link #snapshot()}.
  * 
  * @author Banking System
  */
 public abstract class Account {
-    protected int id;
-    protected String accountNumber;
-    protected double balance;
-    protected String branch;
-    protected int customerId;
+    protected final int id;
+    protected final String accountNumber;
+    private final AtomicLong balance;
+    protected final String branch;
+    protected final int customerId;
 
     /**
      * Constructs an Account with the specified details.
      * 
      * @param id The unique account ID
      * @param accountNumber The account number
-     * @param balance The initial balance
+     * @param balance The initial balance in thebe
      * @param branch The branch name
      * @param customerId The ID of the customer who owns this account
      */
-    public Account(int id, String accountNumber, double balance, String branch, int customerId) {
+    public Account(int id, String accountNumber, long balance, String branch, int customerId) {
         this.id = id;
         this.accountNumber = accountNumber;
-        this.balance = balance;
+        this.balance = new AtomicLong(balance);
         this.branch = branch;
         this.customerId = customerId;
     }
@@ -52,10 +59,10 @@ public abstract class Account {
     /**
      * Gets the current balance.
      * 
-     * @return The balance
+     * @return The balance in thebe
      */
-    public double getBalance() {
-        return balance;
+    public long getBalance() {
+        return balance.get();
     }
 
     /**
@@ -80,34 +87,155 @@ public abstract class Account {
      * Sets the account balance.
      * Used internally by deposit/withdraw/interest operations.
      * 
-     * @param balance The new balance
+     * @param balance The new balance in thebe
+     */
+    protected void setBalance(long balance) {
+        this.balance.set(balance);
+    }
+
+    /**
+     * Sets the balance to the value a repository has just stored.
+     * Repositories change the stored balance first, relative to what is stored, and then
+     * bring the shared instance up to date with the result, so the object never shows a
+     * balance that was not committed.
+     * 
+     * @param storedBalance The stored balance in thebe
+     */
+    public void syncBalance(long storedBalance) {
+        balance.set(storedBalance);
+    }
+
+    /**
+     * Takes an immutable snapshot of the account.
+     * 
+     * @return The account's current state
      */
-    protected void setBalance(double balance) {
-        this.balance = balance;
+    public AccountSnapshot snapshot() {
+        return new AccountSnapshot(id, accountNumber, getAccountType(), balance.get(), branch, customerId);
     }
 
     /**
      * Deposits money into the account.
      * 
-     * @param amount The amount to deposit (must be positive)
-     * @throws IllegalArgumentException if amount is not positive
+     * @param amount The amount to deposit in thebe (must be positive)
+     * @throws IllegalArgumentException if amount is not positive or the balance would overflow
      */
-    public void deposit(double amount) {
+    public void deposit(long amount) {
         if (amount <= 0) {
             throw new IllegalArgumentException("Amount must be positive.");
         }
-        balance += amount;
+        if (!tryCredit(amount)) {
+            throw new IllegalArgumentException("Deposit would exceed the maximum balance.");
+        }
+    }
+
+    /**
+     * Deposits money into the account, reporting rejections as a status instead of throwing.
+     * 
+     * @param amount The amount to deposit in thebe
+     * @return OK, INVALID_AMOUNT if the amount is not positive, or BALANCE_LIMIT_EXCEEDED if the
+     *         balance would overflow
+     */
+    public OperationStatus tryDeposit(long amount) {
+        if (amount <= 0) {
+            return OperationStatus.INVALID_AMOUNT;
+        }
+        return tryCredit(amount) ? OperationStatus.OK : OperationStatus.BALANCE_LIMIT_EXCEEDED;
+    }
+
+    /**
+     * Withdraws money from the account, reporting rejections as a status instead of throwing.
+     * 
+     * @param amount The amount to withdraw in thebe
+     * @return OK, NOT_PERMITTED, INVALID_AMOUNT or INSUFFICIENT_FUNDS
+     */
+    public OperationStatus tryWithdraw(long amount) {
+        if (!allowsWithdrawals()) {
+            return OperationStatus.NOT_PERMITTED;
+        }
+        if (amount <= 0) {
+            return OperationStatus.INVALID_AMOUNT;
+        }
+        return tryDebit(amount) ? OperationStatus.OK : OperationStatus.INSUFFICIENT_FUNDS;
+    }
+
+    /**
+     * Checks whether this account type allows withdrawals.
+     * 
+     * @return true unless the account type forbids withdrawals
+     */
+    public boolean allowsWithdrawals() {
+        return true;
+    }
+
+    /**
+     * Atomically subtracts an amount from the balance, checking funds against the
+     * balance the subtraction is applied to.
+     * 
+     * @param amount The amount to subtract in thebe (must be positive)
+     * @throws IllegalArgumentException if the amount exceeds the balance
+     */
+    protected final void debit(long amount) {
+        if (!tryDebit(amount)) {
+            throw new IllegalArgumentException("Insufficient funds.");
+        }
+    }
+
+    /**
+     * Atomically subtracts an amount from the balance if the funds are available.
+     * 
+     * @param amount The amount to subtract in thebe (must be positive)
+     * @return true if the amount was subtracted, false if it exceeds the balance
+     */
+    protected final boolean tryDebit(long amount) {
+        long current;
+        do {
+            current = balance.get();
+            if (amount > current) {
+                return false;
+            }
+        } while (!balance.compareAndSet(current, current - amount));
+        return true;
+    }
+
+    /**
+     * Atomically adds an amount to the balance if the result fits in a long.
+     * 
+     * @param amount The amount to add in thebe (must be positive)
+     * @return true if the amount was added, false if the balance would overflow
+     */
+    protected final boolean tryCredit(long amount) {
+        long current;
+        do {
+            current = balance.get();
+            if (current > Long.MAX_VALUE - amount) {
+                return false;
+            }
+        } while (!balance.compareAndSet(current, current + amount));
+        return true;
+    }
+
+    /**
+     * Atomically adds interest at a rate in basis points to the balance.
+     * 
+     * @param basisPoints The rate in basis points
+     */
+    protected final void addInterest(int basisPoints) {
+        long current;
+        do {
+            current = balance.get();
+        } while (!balance.compareAndSet(current, current + Money.interest(current, basisPoints)));
     }
 
     /**
      * Withdraws money from the account.
      * Implementation depends on account type.
      * 
-     * @param amount The amount to withdraw
+     * @param amount The amount to withdraw in thebe
      * @throws UnsupportedOperationException if withdrawals are not allowed for this account type
      * @throws IllegalArgumentException if amount is invalid or insufficient funds
      */
-    public abstract void withdraw(double amount);
+    public abstract void withdraw(long amount);
 
     /**
      * Applies monthly interest to the account balance.
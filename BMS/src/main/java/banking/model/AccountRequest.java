@@ -0,0 +1,84 @@
+package banking.model;
+
+/**
+ * A request to open one account, as passed to the batch account opening API.
+ * Cheque requests may leave the employment information empty, in which case the
+ * customer's existing employment information is used.
+ *
+ * @param type The account type (SAVINGS, INVESTMENT or CHEQUE)
+ * @param customerId The ID of the customer who will own the account
+ * @param accountNumber The account number
+ * @param initialDeposit The initial deposit in thebe
+ * @param branch The branch name
+ * @param employerName The employer's name for a cheque account, or null
+ * @param employerAddress The employer's address for a cheque account, or null
+ *
+ * @author Banking System
+ */
+public record AccountRequest(String type, int customerId, String accountNumber, long initialDeposit,
+                             String branch, String employerName, String employerAddress) {
+
+    /**
+     * Creates a request for a SavingsAccount.
+     *
+     * @param customerId The customer ID
+     * @param accountNumber The account number
+     * @param initialDeposit The initial deposit in thebe
+     * @param branch The branch name
+     * @return The request
+     */
+    public static AccountRequest savings(int customerId, String accountNumber, long initialDeposit, String branch) {
+        return new AccountRequest("SAVINGS", customerId, accountNumber, initialDeposit, branch, null, null);
+    }
+
+    /**
+     * Creates a request for an InvestmentAccount.
+     *
+     * @param customerId The customer ID
+     * @param accountNumber The account number
+     * @param initialDeposit The initial deposit in thebe
+     * @param branch The branch name
+     * @return The request
+     */
+    public static AccountRequest investment(int customerId, String accountNumber, long initialDeposit, String branch) {
+        return new AccountRequest("INVESTMENT", customerId, accountNumber, initialDeposit, branch, null, null);
+    }
+
+    /**
+     * Creates a request for a ChequeAccount.
+     *
+     * @param customerId The customer ID
+     * @param accountNumber The account number
+     * @param initialDeposit The initial deposit in thebe
+     * @param branch The branch name
+     * @param employerName The employer's name, or null to use the customer's
+     * @param employerAddress The employer's address, or null to use the customer's
+     * @return The request
+     */
+    public static AccountRequest cheque(int customerId, String accountNumber, long initialDeposit, String branch,
+                                        String employerName, String employerAddress) {
+        return new AccountRequest("CHEQUE", customerId, accountNumber, initialDeposit, branch,
+                                  employerName, employerAddress);
+    }
+
+    /**
+     * Checks whether the request carries complete employment information.
+     *
+     * @return true if both the employer's name and address are given
+     */
+    public boolean hasEmploymentInfo() {
+        return employerName != null && !employerName.trim().isEmpty() &&
+               employerAddress != null && !employerAddress.trim().isEmpty();
+    }
+
+    /**
+     * Returns a copy of this request with the given employment information.
+     *
+     * @param name The employer's name
+     * @param address The employer's address
+     * @return The new request
+     */
+    public AccountRequest withEmployer(String name, String address) {
+        return new AccountRequest(type, customerId, accountNumber, initialDeposit, branch, name, address);
+    }
+}
@@ -0,0 +1,19 @@
+package banking.model;
+
+/**
+ * Immutable, consistent view of an account at one point in time.
+ * Use it where a reader needs the balance together with the other account fields,
+ * e.g. for display or persistence, without racing concurrent updates.
+ * 
+ * @param id The account ID
+ * @param accountNumber The account number
+ * @param type The account type (SAVINGS, INVESTMENT or CHEQUE)
+ * @param balance The balance in thebe
+ * @param branch The branch name
+ * @param customerId The ID of the customer who owns the account
+ * 
+ * @author Banking System
+ */
+public record AccountSnapshot(int id, String accountNumber, String type, long balance,
+                              String branch, int customerId) {
+}
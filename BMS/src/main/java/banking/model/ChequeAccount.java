@@ -19,13 +19,13 @@ public class ChequeAccount extends Account {
      * 
      * @param id The unique account ID
      * @param accountNumber The account number
-     * @param balance The initial balance
+     * @param balance The initial balance in thebe
      * @param branch The branch name
      * @param customerId The ID of the customer who owns this account
      * @param employerName The employer's name (required)
      * @param employerAddress The employer's address (required)
      */
-    public ChequeAccount(int id, String accountNumber, double balance, String branch, 
+    public ChequeAccount(int id, String accountNumber, long balance, String branch, 
                          int customerId, String employerName, String employerAddress) {
         super(id, accountNumber, balance, branch, customerId);
         this.employerName = employerName;
@@ -53,18 +53,15 @@ public class ChequeAccount extends Account {
     /**
      * Withdraws money from the Cheque account.
      * 
-     * @param amount The amount to withdraw (must be positive and not exceed balance)
+     * @param amount The amount to withdraw in thebe (must be positive and not exceed balance)
      * @throws IllegalArgumentException if amount is not positive or exceeds balance
      */
     @Override
-    public void withdraw(double amount) {
+    public void withdraw(long amount) {
         if (amount <= 0) {
             throw new IllegalArgumentException("Amount must be positive.");
         }
-        if (amount > balance) {
-            throw new IllegalArgumentException("Insufficient funds.");
-        }
-        balance -= amount;
+        debit(amount);
     }
 
     /**
@@ -9,8 +9,8 @@ package banking.model;
  * @author Banking System
  */
 public class InvestmentAccount extends Account {
-    private static final double INTEREST_RATE = 0.05; // 5% monthly
-    private static final double MINIMUM_DEPOSIT = 500.0; // Minimum initial deposit in BWP
+    private static final int INTEREST_RATE_BP = 500; // 5% monthly, in basis points
+    private static final long MINIMUM_DEPOSIT = 50_000; // Minimum initial deposit: BWP 500.00 in thebe
 
     /**
      * Constructs an InvestmentAccount.
@@ -23,42 +23,48 @@ public class InvestmentAccount extends Account {
      * @param branch The branch name
      * @param customerId The ID of the customer who owns this account
      */
-    public InvestmentAccount(int id, String accountNumber, double balance, String branch, int customerId) {
+    public InvestmentAccount(int id, String accountNumber, long balance, String branch, int customerId) {
         super(id, accountNumber, balance, branch, customerId);
     }
 
     /**
      * Gets the minimum deposit required for an Investment account.
      * 
-     * @return The minimum deposit amount (500.00 BWP)
+     * @return The minimum deposit amount in thebe (BWP 500.00)
      */
-    public static double getMinimumDeposit() {
+    public static long getMinimumDeposit() {
         return MINIMUM_DEPOSIT;
     }
 
+    /**
+     * Gets the monthly interest rate for Investment accounts.
+     * 
+     * @return The monthly interest rate in basis points (500)
+     */
+    public static int getInterestRateBasisPoints() {
+        return INTEREST_RATE_BP;
+    }
+
     /**
      * Withdraws money from the Investment account.
      * 
-     * @param amount The amount to withdraw (must be positive and not exceed balance)
+     * @param amount The amount to withdraw in thebe (must be positive and not exceed balance)
      * @throws IllegalArgumentException if amount is not positive or exceeds balance
      */
     @Override
-    public void withdraw(double amount) {
+    public void withdraw(long amount) {
         if (amount <= 0) {
             throw new IllegalArgumentException("Amount must be positive.");
         }
-        if (amount > balance) {
-            throw new IllegalArgumentException("Insufficient funds.");
-        }
-        balance -= amount;
+        debit(amount);
     }
 
     /**
-     * Applies monthly interest of 5% to the account balance.
+     * Applies monthly interest of 5% to the account balance, rounded half-up to the thebe.
      */
     @Override
     public void applyMonthlyInterest() {
-        balance += balance * INTEREST_RATE;
+        addInterest(INTEREST_RATE_BP);
     }
 
     /**
@@ -0,0 +1,81 @@
+package banking.model;
+
+import java.math.BigDecimal;
+
+/**
+ * Money helpers for amounts held as whole thebe (1 BWP = 100 thebe).
+ * Balances and amounts are plain longs everywhere in the model, DAOs and schema;
+ * parsing and formatting of decimal text only happen at the UI edge.
+ * Interest is computed in integer basis points with explicit half-up rounding,
+ * so repeated monthly runs never drift and never allocate.
+ *
+ * @author Banking System
+ */
+public final class Money {
+    /** Thebe in one pula. */
+    public static final long MINOR_UNITS = 100;
+    /** Basis points in one whole (100%). */
+    public static final int BASIS_POINTS = 10_000;
+
+    private Money() {
+    }
+
+    /**
+     * Converts a whole number of pula to thebe.
+     *
+     * @param pula The amount in pula
+     * @return The amount in thebe
+     */
+    public static long ofPula(long pula) {
+        return Math.multiplyExact(pula, MINOR_UNITS);
+    }
+
+    /**
+     * Computes interest on an amount at a rate in basis points, rounded half-up to the thebe.
+     *
+     * @param amount The amount in thebe
+     * @param basisPoints The rate in basis points (5 = 0.05%)
+     * @return The interest in thebe
+     * @throws ArithmeticException if the intermediate product overflows
+     */
+    public static long interest(long amount, int basisPoints) {
+        long product = Math.multiplyExact(amount, (long) basisPoints);
+        long half = BASIS_POINTS / 2;
+        return product >= 0 ? (product + half) / BASIS_POINTS : (product - half) / BASIS_POINTS;
+    }
+
+    /**
+     * Parses a decimal amount in pula, such as "12.5" or "1200.00", to thebe.
+     *
+     * @param text The amount text
+     * @return The amount in thebe
+     * @throws NumberFormatException if the text is not a number or has more than two decimals
+     */
+    public static long parse(String text) {
+        try {
+            return new BigDecimal(text.trim()).movePointRight(2).longValueExact();
+        } catch (ArithmeticException e) {
+            throw new NumberFormatException("Amount must have at most two decimal places: " + text);
+        }
+    }
+
+    /**
+     * Formats an amount in thebe as pula with two decimals, such as "1200.00".
+     *
+     * @param amount The amount in thebe
+     * @return The formatted amount
+     */
+    public static String format(long amount) {
+        StringBuilder sb = new StringBuilder(24);
+        if (amount < 0) {
+            sb.append('-');
+        }
+        long abs = Math.abs(amount);
+        long cents = abs % MINOR_UNITS;
+        sb.append(abs / MINOR_UNITS).append('.');
+        if (cents < 10) {
+            sb.append('0');
+        }
+        return sb.append(cents).toString();
+    }
+}
@@ -0,0 +1,17 @@
+package banking.model;
+
+/**
+ * The reason a balance changed, as recorded in the account movement ledger.
+ * Kinds are stored by ordinal, so new kinds must be added at the end.
+ *
+ * @author Banking System
+ */
+public enum MovementKind {
+    /** The balance an account was opened with, or held when the ledger was introduced. */
+    OPENING,
+    DEPOSIT,
+    WITHDRAWAL,
+    INTEREST,
+    TRANSFER,
+    PAYROLL
+}
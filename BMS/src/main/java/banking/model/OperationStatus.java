@@ -0,0 +1,41 @@
+package banking.model;
+
+/**
+ * Outcome of an account operation on the status-returning API
+ * ({@link Account#tryDeposit(long)}, {@link Account#tryWithdraw(long)}, the matching
+ * AccountService methods and the repositories' balance changes). Rejections are reported as values instead of exceptions,
+ * so batch and headless callers that expect many rejections pay no stack-trace cost.
+ * 
+ * @author Banking System
+ */
+public enum OperationStatus {
+    OK("Operation successful."),
+    INSUFFICIENT_FUNDS("Insufficient funds."),
+    NOT_PERMITTED("Operation not permitted for this account type."),
+    INVALID_AMOUNT("Amount must be positive."),
+    BALANCE_LIMIT_EXCEEDED("Amount would exceed the maximum balance.");
+
+    private final String message;
+
+    OperationStatus(String message) {
+        this.message = message;
+    }
+
+    /**
+     * Checks whether the operation succeeded.
+     * 
+     * @return true for OK
+     */
+    public boolean isOk() {
+        return this == OK;
+    }
+
+    /**
+     * Gets a user-facing description of the status.
+     * 
+     * @return The message
+     */
+    public String getMessage() {
+        return message;
+    }
+}
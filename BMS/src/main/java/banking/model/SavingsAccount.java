@@ -8,21 +8,30 @@ package banking.model;
  * @author Banking System
  */
 public class SavingsAccount extends Account {
-    private static final double INTEREST_RATE = 0.0005; // 0.05% monthly
+    private static final int INTEREST_RATE_BP = 5; // 0.05% monthly, in basis points
 
     /**
      * Constructs a SavingsAccount.
      * 
      * @param id The unique account ID
      * @param accountNumber The account number
-     * @param balance The initial balance
+     * @param balance The initial balance in thebe
      * @param branch The branch name
      * @param customerId The ID of the customer who owns this account
      */
-    public SavingsAccount(int id, String accountNumber, double balance, String branch, int customerId) {
+    public SavingsAccount(int id, String accountNumber, long balance, String branch, int customerId) {
         super(id, accountNumber, balance, branch, customerId);
     }
 
+    /**
+     * Gets the monthly interest rate for Savings accounts.
+     * 
+     * @return The monthly interest rate in basis points (5)
+     */
+    public static int getInterestRateBasisPoints() {
+        return INTEREST_RATE_BP;
+    }
+
     /**
      * Withdrawals are not allowed from Savings accounts.
      * 
@@ -30,16 +39,26 @@ public class SavingsAccount extends Account {
      * @throws UnsupportedOperationException always, as withdrawals are not allowed
      */
     @Override
-    public void withdraw(double amount) {
+    public void withdraw(long amount) {
         throw new UnsupportedOperationException("Withdrawals not allowed from a Savings Account.");
     }
 
     /**
-     * Applies monthly interest of 0.05% to the account balance.
+     * Withdrawals are not allowed from Savings accounts.
+     * 
+     * @return false
+     */
+    @Override
+    public boolean allowsWithdrawals() {
+        return false;
+    }
+
+    /**
+     * Applies monthly interest of 0.05% to the account balance, rounded half-up to the thebe.
      */
     @Override
     public void applyMonthlyInterest() {
-        balance += balance * INTEREST_RATE;
+        addInterest(INTEREST_RATE_BP);
     }
 
     /**
@@ -0,0 +1,65 @@
+package banking.model;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+
+/**
+ * A recurring payment: either a transfer between two accounts or a deposit into one.
+ * Execution times are derived from the first run time and the number of runs so far,
+ * rather than by adding a period to the previous run, so a monthly order set up for the
+ * 31st runs on the last day of shorter months and returns to the 31st afterwards.
+ *
+ * @param id The order ID
+ * @param customerId The ID of the customer who set up the order
+ * @param fromAccount The account to debit, or null for a recurring deposit
+ * @param toAccount The account to credit
+ * @param amount The amount in thebe
+ * @param frequency How often the order runs
+ * @param firstRunAt The first execution time in epoch milliseconds
+ * @param runs The number of executions so far, successful or not
+ * @param nextRunAt The next execution time in epoch milliseconds
+ * @param endAt The time after which the order stops, in epoch milliseconds, or null
+ * @param active Whether the order will run again
+ * @param lastStatus The outcome of the last execution, or null
+ *
+ * @author Banking System
+ */
+public record StandingOrder(long id, int customerId, String fromAccount, String toAccount, long amount,
+                            Frequency frequency, long firstRunAt, int runs, long nextRunAt, Long endAt,
+                            boolean active, String lastStatus) {
+
+    /**
+     * How often a standing order runs.
+     */
+    public enum Frequency {
+        DAILY, WEEKLY, MONTHLY;
+
+        /**
+         * Gets the time of an execution.
+         *
+         * @param firstRunAt The first execution time in epoch milliseconds
+         * @param run The execution number, 0 for the first
+         * @param zone The time zone the calendar is evaluated in
+         * @return The execution time in epoch milliseconds
+         */
+        public long runAt(long firstRunAt, int run, ZoneId zone) {
+            ZonedDateTime first = Instant.ofEpochMilli(firstRunAt).atZone(zone);
+            ZonedDateTime next = switch (this) {
+                case DAILY -> first.plusDays(run);
+                case WEEKLY -> first.plusWeeks(run);
+                case MONTHLY -> first.plusMonths(run);
+            };
+            return next.toInstant().toEpochMilli();
+        }
+    }
+
+    /**
+     * Checks whether the order is a transfer rather than a deposit.
+     *
+     * @return true if the order debits an account
+     */
+    public boolean isTransfer() {
+        return fromAccount != null;
+    }
+}
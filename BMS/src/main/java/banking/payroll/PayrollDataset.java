@@ -0,0 +1,152 @@
+package banking.payroll;
+
+import banking.dao.AccountDAO;
+import banking.dao.DBUtil;
+import banking.dao.ShardRouter;
+import banking.model.AccountRequest;
+import banking.model.Money;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Generates a payroll dataset for measuring PayrollPoster: cheque accounts of one employer in
+ * the configured database, and a salary file crediting every one of them.
+ * Accounts alternate between the Main and North branches; given a shard file, North is mapped
+ * to that shard first, so the payroll is posted across two shards. Customers are inserted
+ * directly, ten accounts each, without user logins.
+ * Usage: PayrollDataset &lt;accounts&gt; &lt;salaryFile&gt; [northShardFile]
+ *
+ * @author Banking System
+ */
+public final class PayrollDataset {
+    public static final String EMPLOYER_NAME = "Debswana";
+    public static final String EMPLOYER_ADDRESS = "Jwaneng";
+    private static final String REFERENCE = "BENCH";
+    private static final int ACCOUNTS_PER_CUSTOMER = 10;
+    /** Accounts opened per createAccounts call, each call one transaction. */
+    private static final int CHUNK = 50_000;
+    private static final int CUSTOMERS_PER_INSERT = 500;
+
+    private PayrollDataset() {
+    }
+
+    /**
+     * Opens the cheque accounts PD-0 to PD-(count - 1) and writes their salary file.
+     * Salaries vary between P 3,000.00 and P 12,999.99.
+     *
+     * @param count The number of accounts
+     * @param salaryFile The salary file to write
+     * @throws SQLException if a database error occurs
+     * @throws IOException if the file cannot be written
+     */
+    public static void generate(int count, Path salaryFile) throws SQLException, IOException {
+        List<Integer> customers = insertCustomers((count + ACCOUNTS_PER_CUSTOMER - 1) / ACCOUNTS_PER_CUSTOMER);
+        AccountDAO accounts = new AccountDAO();
+        for (int from = 0; from < count; from += CHUNK) {
+            List<AccountRequest> requests = new ArrayList<>(CHUNK);
+            for (int i = from; i < Math.min(count, from + CHUNK); i++) {
+                requests.add(AccountRequest.cheque(customers.get(i / ACCOUNTS_PER_CUSTOMER), accountNumber(i), 0,
+                                                   i % 2 == 0 ? "Main" : "North", EMPLOYER_NAME, EMPLOYER_ADDRESS));
+            }
+            accounts.createAccounts(requests);
+        }
+        try (BufferedWriter out = Files.newBufferedWriter(salaryFile, StandardCharsets.UTF_8)) {
+            out.write("PAYROLL," + REFERENCE + "," + EMPLOYER_NAME + "," + EMPLOYER_ADDRESS);
+            out.newLine();
+            for (int i = 0; i < count; i++) {
+                out.write(accountNumber(i) + "," + Money.format(salary(i)));
+                out.newLine();
+            }
+        }
+    }
+
+    /**
+     * Gets the number of a generated account.
+     *
+     * @param index The account's position in the dataset
+     * @return The account number
+     */
+    public static String accountNumber(int index) {
+        return "PD-" + index;
+    }
+
+    /**
+     * Gets the salary of a generated account.
+     *
+     * @param index The account's position in the dataset
+     * @return The salary in thebe
+     */
+    static long salary(int index) {
+        return Money.ofPula(3_000) + (index * 7_919L) % Money.ofPula(10_000);
+    }
+
+    /**
+     * Inserts customers without logins in one transaction.
+     *
+     * @param count The number of customers
+     * @return Their IDs
+     * @throws SQLException if a database error occurs
+     */
+    private static List<Integer> insertCustomers(int count) throws SQLException {
+        return DBUtil.inTransaction(() -> {
+            List<Integer> ids = new ArrayList<>(count);
+            try (Connection conn = DBUtil.getConnection()) {
+                for (int from = 0; from < count; from += CUSTOMERS_PER_INSERT) {
+                    int rows = Math.min(CUSTOMERS_PER_INSERT, count - from);
+                    StringBuilder sql = new StringBuilder(
+                            "INSERT INTO customers(firstName, lastName, address) VALUES ");
+                    for (int i = 0; i < rows; i++) {
+                        sql.append(i == 0 ? "(?, ?, ?)" : ", (?, ?, ?)");
+                    }
+                    try (PreparedStatement ps = conn.prepareStatement(sql.append(" RETURNING id").toString())) {
+                        for (int i = 0; i < rows; i++) {
+                            ps.setString(3 * i + 1, "Payroll");
+                            ps.setString(3 * i + 2, "Employee " + (from + i));
+                            ps.setString(3 * i + 3, "Gaborone");
+                        }
+                        try (ResultSet rs = ps.executeQuery()) {
+                            while (rs.next()) {
+                                ids.add(rs.getInt(1));
+                            }
+                        }
+                    }
+                }
+            }
+            return ids;
+        });
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.out.println("Usage: PayrollDataset <accounts> <salaryFile> [northShardFile]");
+            return;
+        }
+        DBUtil.initDatabase();
+        try {
+            if (args.length > 2) {
+                ShardRouter.Shard north = DBUtil.createShard(args[2]);
+                DBUtil.assignBranch("North", north);
+            }
+            int count = Integer.parseInt(args[0]);
+            long started = System.nanoTime();
+            generate(count, Path.of(args[1]));
+            System.out.printf("Opened %,d accounts and wrote %s in %.1f s%n",
+                              count, args[1], (System.nanoTime() - started) / 1e9);
+        } catch (IOException | SQLException | RuntimeException e) {
+            System.err.println("Error generating the payroll dataset: " + e.getMessage());
+            e.printStackTrace();
+        } finally {
+            DBUtil.closeDataSource();
+        }
+    }
+}
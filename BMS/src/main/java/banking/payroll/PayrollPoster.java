@@ -0,0 +1,174 @@
+package banking.payroll;
+
+import banking.dao.DBUtil;
+import banking.dao.PayrollDAO;
+import banking.dao.PerformanceProfile;
+import banking.dao.ShardRouter;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Posts salary files to cheque accounts.
+ * All cheque accounts of the file's employer are resolved up front with one query per shard,
+ * so matching a salary line to its account is a map lookup. Credits are then grouped by shard
+ * and posted in large transactions of relative balance updates, each committed together with
+ * the shard's checkpoint, so an interrupted posting can be run again and resumes where it stopped.
+ *
+ * A salary line is rejected, and reported, if its amount is not a positive amount or its account
+ * is not a cheque account of the file's employer. Rejected lines do not stop the other credits.
+ *
+ * @author Banking System
+ */
+public class PayrollPoster {
+    public static final int MAX_REPORTED_REJECTIONS = 100;
+    private static final int DEFAULT_GROUP_SIZE = 20_000;
+
+    private final PayrollDAO payrollDAO;
+    private final int groupSize;
+
+    /**
+     * Constructs a PayrollPoster with the default group size.
+     */
+    public PayrollPoster() {
+        this(new PayrollDAO(), DEFAULT_GROUP_SIZE);
+    }
+
+    /**
+     * Constructs a PayrollPoster.
+     *
+     * @param payrollDAO The DAO that resolves accounts and posts credits
+     * @param groupSize The number of credits committed per transaction
+     */
+    public PayrollPoster(PayrollDAO payrollDAO, int groupSize) {
+        this.payrollDAO = payrollDAO;
+        this.groupSize = groupSize;
+    }
+
+    /**
+     * Posts, or resumes posting, one employer's salary file.
+     *
+     * @param file The salary file
+     * @return The posting report
+     * @throws IllegalArgumentException if the employer is unknown
+     * @throws IllegalStateException if this payroll has already been posted for the employer
+     * @throws SQLException if a database error occurs; posting the file again resumes it
+     */
+    public PostingReport post(SalaryFile file) throws SQLException {
+        long start = System.nanoTime();
+        payrollDAO.createTables();
+        Integer employerId = payrollDAO.findEmployer(file.getEmployerName(), file.getEmployerAddress());
+        if (employerId == null) {
+            throw new IllegalArgumentException("Unknown employer: " + file.getEmployerName() +
+                                               ", " + file.getEmployerAddress());
+        }
+        payrollDAO.startRun(employerId, file.getReference());
+
+        List<ShardRouter.Shard> shards = DBUtil.shards().all();
+        Map<Integer, Integer> shardIndex = new HashMap<>();
+        for (int s = 0; s < shards.size(); s++) {
+            shardIndex.put(shards.get(s).id(), s);
+        }
+
+        // First pass: match every line, remembering its shard and account
+        Map<String, PayrollDAO.Target> targets = payrollDAO.findChequeAccounts(employerId);
+        int[] shardOfLine = new int[file.size()];
+        long[] accountOfLine = new long[file.size()];
+        int[] perShard = new int[shards.size()];
+        List<PostingReport.Rejection> rejections = new ArrayList<>();
+        int rejected = 0;
+        int credited = 0;
+        long total = 0;
+        for (int i = 0; i < file.size(); i++) {
+            String reason = null;
+            PayrollDAO.Target target = targets.get(file.accountNumber(i));
+            if (file.amount(i) <= 0) {
+                reason = "Amount must be a positive amount in pula.";
+            } else if (target == null) {
+                reason = "Not a cheque account of this employer.";
+            }
+            if (reason != null) {
+                shardOfLine[i] = -1;
+                rejected++;
+                if (rejections.size() < MAX_REPORTED_REJECTIONS) {
+                    rejections.add(new PostingReport.Rejection(file.lineNumber(i), file.accountNumber(i), reason));
+                }
+                continue;
+            }
+            int s = shardIndex.get(target.shardId());
+            shardOfLine[i] = s;
+            accountOfLine[i] = target.accountId();
+            perShard[s]++;
+            credited++;
+            total += file.amount(i);
+        }
+
+        // Second pass: post each shard's credits in file order, skipping groups committed before a restart.
+        // That makes posting resumable, so it can run under the bulk-load profile
+        DBUtil.withProfile(PerformanceProfile.BULK_LOAD, () -> {
+            for (int s = 0; s < shards.size(); s++) {
+                if (perShard[s] == 0) {
+                    continue;
+                }
+                int[] lines = new int[perShard[s]];
+                long[] ids = new long[perShard[s]];
+                long[] amounts = new long[perShard[s]];
+                int n = 0;
+                for (int i = 0; i < file.size(); i++) {
+                    if (shardOfLine[i] == s) {
+                        lines[n] = file.lineNumber(i);
+                        ids[n] = accountOfLine[i];
+                        amounts[n] = file.amount(i);
+                        n++;
+                    }
+                }
+                ShardRouter.Shard shard = shards.get(s);
+                int lastLine = payrollDAO.getLastLine(shard, employerId, file.getReference());
+                int from = 0;
+                while (from < n && lines[from] <= lastLine) {
+                    from++;
+                }
+                for (; from < n; from += groupSize) {
+                    payrollDAO.postGroup(shard, employerId, file.getReference(), lines, ids, amounts,
+                                         from, Math.min(n, from + groupSize));
+                }
+            }
+            return null;
+        });
+
+        payrollDAO.completeRun(employerId, file.getReference());
+        return new PostingReport(file.getReference(), file.getEmployerName(), file.size(), credited, total,
+                                 rejected, rejections, (System.nanoTime() - start) / 1e9);
+    }
+
+    /**
+     * Command-line entry point: posts each salary file given and prints its report.
+     *
+     * @param args The salary files
+     */
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.out.println("Usage: PayrollPoster <salaryFile>...");
+            return;
+        }
+        DBUtil.initDatabase();
+        PayrollPoster poster = new PayrollPoster();
+        try {
+            for (String arg : args) {
+                try {
+                    System.out.println(poster.post(SalaryFile.read(Path.of(arg))));
+                } catch (IOException | SQLException | RuntimeException e) {
+                    System.err.println("Error posting " + arg + ": " + e.getMessage());
+                    e.printStackTrace();
+                }
+            }
+        } finally {
+            DBUtil.closeDataSource();
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package banking.payroll;
+
+import banking.model.Money;
+
+import java.util.List;
+
+/**
+ * The outcome of posting one employer's salary file.
+ *
+ * @param reference The payroll reference
+ * @param employerName The employer's name
+ * @param lines The number of salary lines in the file
+ * @param credited The number of credits posted
+ * @param totalCredited The sum of the posted credits in thebe
+ * @param rejected The number of salary lines that were not posted
+ * @param rejections Details of the first rejected lines, at most PayrollPoster.MAX_REPORTED_REJECTIONS
+ * @param seconds The time the posting took
+ *
+ * @author Banking System
+ */
+public record PostingReport(String reference, String employerName, int lines, int credited,
+                            long totalCredited, int rejected, List<Rejection> rejections, double seconds) {
+
+    /**
+     * A salary line that was not posted.
+     *
+     * @param line The line number in the file
+     * @param accountNumber The account number on the line
+     * @param reason Why the line was rejected
+     */
+    public record Rejection(int line, String accountNumber, String reason) {
+    }
+
+    /**
+     * Gets the posting throughput.
+     *
+     * @return Credits posted per second
+     */
+    public double creditsPerSecond() {
+        return seconds > 0 ? credited / seconds : 0.0;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Payroll %s for %s: %d of %d line(s) credited, BWP %s in total, " +
+                                "%d rejected, %.2f s (%.0f credits/s)",
+                                reference, employerName, credited, lines, Money.format(totalCredited),
+                                rejected, seconds, creditsPerSecond()));
+        for (Rejection rejection : rejections) {
+            sb.append(System.lineSeparator()).append("  line ").append(rejection.line()).append(" (")
+              .append(rejection.accountNumber()).append("): ").append(rejection.reason());
+        }
+        if (rejected > rejections.size()) {
+            sb.append(System.lineSeparator()).append("  ... and ").append(rejected - rejections.size())
+              .append(" more");
+        }
+        return sb.toString();
+    }
+}
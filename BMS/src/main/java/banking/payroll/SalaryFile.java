@@ -0,0 +1,203 @@
+package banking.payroll;
+
+import banking.model.Money;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * One employer's salary file.
+ * The file is plain text. Blank lines and lines starting with # are ignored. The first
+ * remaining line is the header, and every following line is one salary credit:
+ * <pre>
+ * PAYROLL,&lt;reference&gt;,&lt;employer name&gt;,&lt;employer address&gt;
+ * &lt;account number&gt;,&lt;amount in pula&gt;
+ * </pre>
+ * The reference identifies the payroll, e.g. "2026-10", and may be posted only once per
+ * employer. The employer address is the rest of the header line, so it may contain commas.
+ * Salary lines are kept in parallel arrays rather than objects, so a file with a million
+ * lines stays compact.
+ *
+ * @author Banking System
+ */
+public final class SalaryFile {
+    private final String reference;
+    private final String employerName;
+    private final String employerAddress;
+    private final int[] lineNumbers;
+    private final String[] accountNumbers;
+    private final long[] amounts;
+    private final int size;
+
+    /**
+     * Constructs a SalaryFile from parsed lines.
+     *
+     * @param reference The payroll reference
+     * @param employerName The employer's name
+     * @param employerAddress The employer's address
+     * @param lineNumbers The file line of each salary line, ascending
+     * @param accountNumbers The account number of each salary line
+     * @param amounts The amount of each salary line in thebe; lines that did not parse hold -1
+     * @param size The number of salary lines
+     */
+    public SalaryFile(String reference, String employerName, String employerAddress,
+                      int[] lineNumbers, String[] accountNumbers, long[] amounts, int size) {
+        this.reference = reference;
+        this.employerName = employerName;
+        this.employerAddress = employerAddress;
+        this.lineNumbers = lineNumbers;
+        this.accountNumbers = accountNumbers;
+        this.amounts = amounts;
+        this.size = size;
+    }
+
+    /**
+     * Reads a salary file.
+     *
+     * @param path The file
+     * @return The parsed file
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if the header is missing or malformed
+     */
+    public static SalaryFile read(Path path) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            return read(reader);
+        }
+    }
+
+    /**
+     * Reads a salary file.
+     * Salary lines with a missing or malformed amount are kept with an amount of -1,
+     * so they are reported as rejected instead of failing the whole file.
+     *
+     * @param reader The file contents
+     * @return The parsed file
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if the header is missing or malformed
+     */
+    public static SalaryFile read(BufferedReader reader) throws IOException {
+        String[] header = null;
+        int capacity = 1024;
+        int[] lineNumbers = new int[capacity];
+        String[] accountNumbers = new String[capacity];
+        long[] amounts = new long[capacity];
+        int size = 0;
+        int lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            if (header == null) {
+                header = line.split(",", 4);
+                if (header.length < 4 || !header[0].trim().equals("PAYROLL")) {
+                    throw new IllegalArgumentException(
+                        "Salary file must start with PAYROLL,<reference>,<employer name>,<employer address>");
+                }
+                continue;
+            }
+            if (size == capacity) {
+                capacity *= 2;
+                lineNumbers = Arrays.copyOf(lineNumbers, capacity);
+                accountNumbers = Arrays.copyOf(accountNumbers, capacity);
+                amounts = Arrays.copyOf(amounts, capacity);
+            }
+            int comma = line.indexOf(',');
+            lineNumbers[size] = lineNumber;
+            accountNumbers[size] = (comma < 0 ? line : line.substring(0, comma)).trim();
+            amounts[size] = comma < 0 ? -1 : parseAmount(line.substring(comma + 1));
+            size++;
+        }
+        if (header == null) {
+            throw new IllegalArgumentException("Salary file is empty.");
+        }
+        return new SalaryFile(header[1].trim(), header[2].trim(), header[3].trim(),
+                              lineNumbers, accountNumbers, amounts, size);
+    }
+
+    /**
+     * Parses an amount, mapping anything that is not a valid amount to -1.
+     *
+     * @param text The amount text in pula
+     * @return The amount in thebe, or -1
+     */
+    private static long parseAmount(String text) {
+        try {
+            return Money.parse(text);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Gets the payroll reference.
+     *
+     * @return The reference
+     */
+    public String getReference() {
+        return reference;
+    }
+
+    /**
+     * Gets the employer's name.
+     *
+     * @return The name
+     */
+    public String getEmployerName() {
+        return employerName;
+    }
+
+    /**
+     * Gets the employer's address.
+     *
+     * @return The address
+     */
+    public String getEmployerAddress() {
+        return employerAddress;
+    }
+
+    /**
+     * Gets the number of salary lines.
+     *
+     * @return The line count
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the file line of a salary line.
+     *
+     * @param i The salary line index
+     * @return The 1-based line number in the file
+     */
+    public int lineNumber(int i) {
+        return lineNumbers[i];
+    }
+
+    /**
+     * Gets the account number of a salary line.
+     *
+     * @param i The salary line index
+     * @return The account number
+     */
+    public String accountNumber(int i) {
+        return accountNumbers[i];
+    }
+
+    /**
+     * Gets the amount of a salary line.
+     *
+     * @param i The salary line index
+     * @return The amount in thebe, or -1 if it did not parse
+     */
+    public long amount(int i) {
+        return amounts[i];
+    }
+}
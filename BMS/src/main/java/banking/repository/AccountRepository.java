@@ -0,0 +1,138 @@
+package banking.repository;
+
+import banking.model.Account;
+import banking.model.AccountRequest;
+import banking.model.ChequeAccount;
+import banking.model.InvestmentAccount;
+import banking.model.MovementKind;
+import banking.model.OperationStatus;
+import banking.model.SavingsAccount;
+
+import java.util.List;
+
+/**
+ * Repository of accounts.
+ * Implemented by the SQLite-backed AccountDAO and by InMemoryAccountRepository.
+ * 
+ * @author Banking System
+ */
+public interface AccountRepository {
+
+    /**
+     * Applies a signed change to an account's stored balance, together with the movement
+     * where the repository keeps a ledger. The change is relative to the stored balance, so it
+     * never overwrites a change made elsewhere: a debit only applies while the stored balance
+     * covers it, and a credit only while the result fits in a long. When the change is applied
+     * the account object is set to the stored balance; otherwise it is left as it was.
+     * 
+     * @param account The account to update
+     * @param movement The signed change in thebe
+     * @param kind The reason for the change
+     * @return OK, INSUFFICIENT_FUNDS if the stored balance does not cover a debit, or
+     *         BALANCE_LIMIT_EXCEEDED if a credit would take it past the maximum balance
+     * @throws IllegalArgumentException if the account does not exist
+     */
+    OperationStatus updateAccount(Account account, long movement, MovementKind kind);
+
+    /**
+     * Moves money between two accounts: either both balances change or neither does, although
+     * between database shards the credit may complete after the debit.
+     * Balances are adjusted relative to their stored values, and the source is only debited if
+     * its stored balance covers the amount. Once the transfer is stored, both account objects are
+     * set to their stored balances. A rejected transfer writes nothing, so inside a unit of work
+     * the caller may carry on with the unit. Business rules such as which account types allow
+     * withdrawals are left to AccountService.
+     * 
+     * @param from The account to debit
+     * @param to The account to credit
+     * @param amount The amount in thebe
+     * @return OK, INSUFFICIENT_FUNDS if the source balance is too low, or BALANCE_LIMIT_EXCEEDED
+     *         if the target balance would pass the maximum
+     * @throws IllegalArgumentException if an account does not exist
+     */
+    OperationStatus tryTransfer(Account from, Account to, long amount);
+
+    /**
+     * Moves money between two accounts like tryTransfer, throwing on rejection.
+     * 
+     * @param from The account to debit
+     * @param to The account to credit
+     * @param amount The amount in thebe
+     * @throws IllegalArgumentException if the transfer is rejected or an account does not exist;
+     *                                  nothing has been written
+     */
+    default void transfer(Account from, Account to, long amount) {
+        OperationStatus status = tryTransfer(from, to, amount);
+        if (!status.isOk()) {
+            throw new IllegalArgumentException(status.getMessage());
+        }
+    }
+
+    /**
+     * Checks whether a transfer between two accounts commits as one transaction, and so can join
+     * an enclosing unit of work. A transfer between database shards cannot: it commits its debit
+     * on its own and completes the credit afterwards.
+     *
+     * @param from The account to debit
+     * @param to The account to credit
+     * @return true if the transfer can run inside a unit of work
+     */
+    boolean isLocalTransfer(Account from, Account to);
+
+    /**
+     * Creates a new SavingsAccount.
+     * 
+     * @param customerId The customer ID
+     * @param accountNumber The account number
+     * @param balance The initial balance in thebe
+     * @param branch The branch name
+     * @return The created SavingsAccount
+     * @throws DuplicateKeyException if the account number is already in use
+     */
+    SavingsAccount createSavingsAccount(int customerId, String accountNumber, long balance, String branch);
+
+    /**
+     * Creates a new InvestmentAccount.
+     * 
+     * @param customerId The customer ID
+     * @param accountNumber The account number
+     * @param balance The initial balance in thebe
+     * @param branch The branch name
+     * @return The created InvestmentAccount
+     * @throws DuplicateKeyException if the account number is already in use
+     */
+    InvestmentAccount createInvestmentAccount(int customerId, String accountNumber, long balance, String branch);
+
+    /**
+     * Creates a new ChequeAccount.
+     * 
+     * @param customerId The customer ID
+     * @param accountNumber The account number
+     * @param balance The initial balance in thebe
+     * @param branch The branch name
+     * @param employerName The employer's name
+     * @param employerAddress The employer's address
+     * @return The created ChequeAccount
+     * @throws DuplicateKeyException if the account number is already in use
+     */
+    ChequeAccount createChequeAccount(int customerId, String accountNumber, long balance, String branch,
+                                      String employerName, String employerAddress);
+
+    /**
+     * Creates several accounts at once. Either all of them are created or none is.
+     * Requests are not validated against business rules; AccountService does that.
+     * 
+     * @param requests The accounts to create; cheque requests must carry employment information
+     * @return The created accounts, in request order
+     * @throws DuplicateKeyException if an account number is already in use or repeated in the batch
+     */
+    List<Account> createAccounts(List<AccountRequest> requests);
+
+    /**
+     * Gets an account by its account number.
+     * 
+     * @param accountNumber The account number
+     * @return The account, or null if not found
+     */
+    Account getAccountByNumber(String accountNumber);
+}
@@ -0,0 +1,90 @@
+package banking.repository;
+
+import banking.model.Customer;
+
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Repository of customers and their login credentials.
+ * Implemented by the SQLite-backed CustomerDAO and by InMemoryCustomerRepository.
+ * Customers returned by every method have their accounts loaded.
+ * 
+ * @author Banking System
+ */
+public interface CustomerRepository {
+
+    /**
+     * Authenticates a user and returns the associated customer.
+     * 
+     * @param username The username
+     * @param password The password
+     * @return The Customer, or null if authentication fails
+     */
+    Customer getCustomerByCredentials(String username, String password);
+
+    /**
+     * Gets a customer by their ID.
+     * 
+     * @param customerId The customer ID
+     * @return The Customer, or null if not found
+     */
+    Customer getCustomerById(int customerId);
+
+    /**
+     * Creates a new customer without a home branch, and their user account.
+     * 
+     * @param firstName The customer's first name
+     * @param lastName The customer's last name
+     * @param address The customer's address
+     * @param employerName The employer's name (can be null)
+     * @param employerAddress The employer's address (can be null)
+     * @param username The username for the user account
+     * @param password The password for the user account
+     * @return The created Customer
+     * @throws DuplicateKeyException if the username is already taken
+     * @throws SQLException if the customer cannot be stored
+     */
+    default Customer createCustomer(String firstName, String lastName, String address,
+                                    String employerName, String employerAddress,
+                                    String username, String password) throws SQLException {
+        return createCustomer(firstName, lastName, address, employerName, employerAddress, null, username, password);
+    }
+
+    /**
+     * Creates a new customer and their user account.
+     * A sharded store keeps the customer with the accounts of their home branch.
+     * 
+     * @param firstName The customer's first name
+     * @param lastName The customer's last name
+     * @param address The customer's address
+     * @param employerName The employer's name (can be null)
+     * @param employerAddress The employer's address (can be null)
+     * @param branch The customer's home branch (can be null)
+     * @param username The username for the user account
+     * @param password The password for the user account
+     * @return The created Customer
+     * @throws DuplicateKeyException if the username is already taken
+     * @throws SQLException if the customer cannot be stored
+     */
+    Customer createCustomer(String firstName, String lastName, String address,
+                            String employerName, String employerAddress, String branch,
+                            String username, String password) throws SQLException;
+
+    /**
+     * Updates a customer's employment information.
+     * 
+     * @param customerId The customer ID
+     * @param employerName The employer's name
+     * @param employerAddress The employer's address
+     * @throws SQLException if the update fails
+     */
+    void updateEmploymentInfo(int customerId, String employerName, String employerAddress) throws SQLException;
+
+    /**
+     * Gets all customers, ordered by ID.
+     * 
+     * @return A list of all customers
+     */
+    List<Customer> getAllCustomers();
+}
@@ -0,0 +1,34 @@
+package banking.repository;
+
+/**
+ * Thrown when a new record would reuse a key that must be unique,
+ * such as an account number or a login username.
+ *
+ * @author Banking System
+ */
+public class DuplicateKeyException extends IllegalArgumentException {
+    private static final long serialVersionUID = 1L;
+
+    private final String key;
+
+    /**
+     * Constructs a DuplicateKeyException.
+     *
+     * @param message The detail message
+     * @param key The duplicated key
+     * @param cause The database error that detected the duplicate, or null
+     */
+    public DuplicateKeyException(String message, String key, Throwable cause) {
+        super(message, cause);
+        this.key = key;
+    }
+
+    /**
+     * Gets the duplicated key.
+     *
+     * @return The key
+     */
+    public String getKey() {
+        return key;
+    }
+}
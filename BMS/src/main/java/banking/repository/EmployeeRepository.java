@@ -0,0 +1,29 @@
+package banking.repository;
+
+import banking.model.Employee;
+
+/**
+ * Repository of employees.
+ * Implemented by the SQLite-backed EmployeeDAO and by InMemoryEmployeeRepository.
+ * 
+ * @author Banking System
+ */
+public interface EmployeeRepository {
+
+    /**
+     * Authenticates an employee.
+     * 
+     * @param username The username
+     * @param password The password
+     * @return The Employee, or null if authentication fails
+     */
+    Employee getEmployeeByCredentials(String username, String password);
+
+    /**
+     * Gets an employee by their ID.
+     * 
+     * @param employeeId The employee ID
+     * @return The Employee, or null if not found
+     */
+    Employee getEmployeeById(int employeeId);
+}
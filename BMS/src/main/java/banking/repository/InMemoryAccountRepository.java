@@ -0,0 +1,173 @@
+package banking.repository;
+
+import banking.model.Account;
+import banking.model.AccountRequest;
+import banking.model.ChequeAccount;
+import banking.model.InvestmentAccount;
+import banking.model.MovementKind;
+import banking.model.OperationStatus;
+import banking.model.SavingsAccount;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * In-memory AccountRepository backed by an InMemoryStore.
+ * 
+ * @author Banking System
+ */
+public class InMemoryAccountRepository implements AccountRepository {
+    private final InMemoryStore store;
+
+    /**
+     * Constructs an InMemoryAccountRepository over the given store.
+     * 
+     * @param store The shared in-memory store
+     */
+    public InMemoryAccountRepository(InMemoryStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public OperationStatus updateAccount(Account account, long movement, MovementKind kind) {
+        // The in-memory store keeps no ledger
+        long stored;
+        synchronized (store) {
+            InMemoryStore.AccountRow row = row(account.getAccountNumber());
+            if (movement < 0 && row.balance() < -movement) {
+                return OperationStatus.INSUFFICIENT_FUNDS;
+            }
+            if (movement > 0 && row.balance() > Long.MAX_VALUE - movement) {
+                return OperationStatus.BALANCE_LIMIT_EXCEEDED;
+            }
+            stored = row.balance() + movement;
+            store.accounts.put(row.id(), row.withBalance(stored));
+            store.onRollback(() -> store.accounts.put(row.id(), row));
+        }
+        sync(account, stored);
+        return OperationStatus.OK;
+    }
+
+    @Override
+    public OperationStatus tryTransfer(Account from, Account to, long amount) {
+        String fromNumber = from.getAccountNumber();
+        String toNumber = to.getAccountNumber();
+        long fromBalance;
+        long toBalance;
+        // The store lock is what InMemoryTransactionManager holds, so transfers are atomic to it too
+        synchronized (store) {
+            InMemoryStore.AccountRow source = row(fromNumber);
+            InMemoryStore.AccountRow target = row(toNumber);
+            if (source.balance() < amount) {
+                return OperationStatus.INSUFFICIENT_FUNDS;
+            }
+            if (target.balance() > Long.MAX_VALUE - amount) {
+                return OperationStatus.BALANCE_LIMIT_EXCEEDED;
+            }
+            fromBalance = source.balance() - amount;
+            toBalance = target.balance() + amount;
+            store.accounts.put(source.id(), source.withBalance(fromBalance));
+            store.accounts.put(target.id(), target.withBalance(toBalance));
+            store.onRollback(() -> {
+                store.accounts.put(source.id(), source);
+                store.accounts.put(target.id(), target);
+            });
+        }
+        sync(from, fromBalance);
+        sync(to, toBalance);
+        return OperationStatus.OK;
+    }
+
+    @Override
+    public boolean isLocalTransfer(Account from, Account to) {
+        return true;
+    }
+
+    /**
+     * Sets an account object to its stored balance, restoring the previous balance if the
+     * enclosing unit of work rolls back.
+     * 
+     * @param account The account object
+     * @param storedBalance The stored balance in thebe
+     */
+    private void sync(Account account, long storedBalance) {
+        long previous = account.getBalance();
+        account.syncBalance(storedBalance);
+        store.onRollback(() -> account.syncBalance(previous));
+    }
+
+    @Override
+    public SavingsAccount createSavingsAccount(int customerId, String accountNumber,
+                                               long balance, String branch) {
+        InMemoryStore.AccountRow row = store.insertAccount(accountNumber, balance, branch, "SAVINGS",
+                                                           null, null, customerId);
+        return new SavingsAccount(row.id(), accountNumber, balance, branch, customerId);
+    }
+
+    @Override
+    public InvestmentAccount createInvestmentAccount(int customerId, String accountNumber,
+                                                     long balance, String branch) {
+        InMemoryStore.AccountRow row = store.insertAccount(accountNumber, balance, branch, "INVESTMENT",
+                                                           null, null, customerId);
+        return new InvestmentAccount(row.id(), accountNumber, balance, branch, customerId);
+    }
+
+    @Override
+    public ChequeAccount createChequeAccount(int customerId, String accountNumber,
+                                             long balance, String branch,
+                                             String employerName, String employerAddress) {
+        InMemoryStore.AccountRow row = store.insertAccount(accountNumber, balance, branch, "CHEQUE",
+                                                           employerName, employerAddress, customerId);
+        return new ChequeAccount(row.id(), accountNumber, balance, branch, customerId,
+                                 employerName, employerAddress);
+    }
+
+    @Override
+    public List<Account> createAccounts(List<AccountRequest> requests) {
+        // Check every number before storing anything, so a duplicate stores nothing even outside a unit of work
+        Set<String> numbers = new HashSet<>();
+        for (AccountRequest request : requests) {
+            if (!numbers.add(request.accountNumber()) || store.accountIdsByNumber.containsKey(request.accountNumber())) {
+                throw new DuplicateKeyException("Account number already exists: " + request.accountNumber(),
+                                                request.accountNumber(), null);
+            }
+        }
+        List<Account> accounts = new ArrayList<>(requests.size());
+        for (AccountRequest request : requests) {
+            InMemoryStore.AccountRow row = store.insertAccount(request.accountNumber(), request.initialDeposit(),
+                                                               request.branch(), request.type(),
+                                                               request.employerName(), request.employerAddress(),
+                                                               request.customerId());
+            accounts.add(InMemoryStore.toAccount(row));
+        }
+        return accounts;
+    }
+
+    /**
+     * Gets the stored row of an account.
+     * 
+     * @param accountNumber The account number
+     * @return The row
+     * @throws IllegalArgumentException if the account does not exist
+     */
+    private InMemoryStore.AccountRow row(String accountNumber) {
+        Integer id = store.accountIdsByNumber.get(accountNumber);
+        InMemoryStore.AccountRow row = id != null ? store.accounts.get(id) : null;
+        if (row == null) {
+            throw new IllegalArgumentException("Account not found: " + accountNumber);
+        }
+        return row;
+    }
+
+    @Override
+    public Account getAccountByNumber(String accountNumber) {
+        Integer id = store.accountIdsByNumber.get(accountNumber);
+        if (id == null) {
+            return null;
+        }
+        InMemoryStore.AccountRow row = store.accounts.get(id);
+        return row != null ? InMemoryStore.toAccount(row) : null;
+    }
+}
@@ -0,0 +1,84 @@
+package banking.repository;
+
+import banking.model.Customer;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * In-memory CustomerRepository backed by an InMemoryStore.
+ * 
+ * @author Banking System
+ */
+public class InMemoryCustomerRepository implements CustomerRepository {
+    private final InMemoryStore store;
+
+    /**
+     * Constructs an InMemoryCustomerRepository over the given store.
+     * 
+     * @param store The shared in-memory store
+     */
+    public InMemoryCustomerRepository(InMemoryStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public Customer getCustomerByCredentials(String username, String password) {
+        InMemoryStore.UserRow user = store.users.get(username);
+        if (user == null || user.customerId() == 0 || !user.password().equals(password)) {
+            return null;
+        }
+        return getCustomerById(user.customerId());
+    }
+
+    @Override
+    public Customer getCustomerById(int customerId) {
+        InMemoryStore.CustomerRow row = store.customers.get(customerId);
+        return row != null ? store.toCustomer(row) : null;
+    }
+
+    @Override
+    public Customer createCustomer(String firstName, String lastName, String address,
+                                   String employerName, String employerAddress, String branch,
+                                   String username, String password) throws SQLException {
+        // One store holds every branch, so the home branch does not place the customer anywhere
+        // Reserve the username first so a duplicate never leaves an orphaned customer behind
+        InMemoryStore.UserRow reserved = new InMemoryStore.UserRow(username, password, -1, 0);
+        if (store.users.putIfAbsent(username, reserved) != null) {
+            throw new DuplicateKeyException("Username already exists: " + username, username, null);
+        }
+        InMemoryStore.CustomerRow row = store.insertCustomer(firstName, lastName, address,
+                                                             employerName, employerAddress);
+        store.users.put(username, new InMemoryStore.UserRow(username, password, row.id(), 0));
+        store.onRollback(() -> store.users.remove(username));
+
+        if (employerName != null && !employerName.trim().isEmpty() &&
+            employerAddress != null && !employerAddress.trim().isEmpty()) {
+            return new Customer(row.id(), firstName, lastName, address, employerName, employerAddress);
+        } else {
+            return new Customer(row.id(), firstName, lastName, address);
+        }
+    }
+
+    @Override
+    public void updateEmploymentInfo(int customerId, String employerName, String employerAddress) {
+        // Under the store lock, so the journaled row is the one that was replaced
+        synchronized (store) {
+            InMemoryStore.CustomerRow row = store.customers.get(customerId);
+            if (row == null) {
+                return;
+            }
+            store.customers.put(customerId, new InMemoryStore.CustomerRow(
+                    row.id(), row.firstName(), row.lastName(), row.address(), employerName, employerAddress));
+            store.onRollback(() -> store.customers.put(customerId, row));
+        }
+    }
+
+    @Override
+    public List<Customer> getAllCustomers() {
+        List<Customer> result = new ArrayList<>(store.customers.size());
+        store.customers.forEach(row -> result.add(store.toCustomer(row)));
+        return result;
+    }
+}
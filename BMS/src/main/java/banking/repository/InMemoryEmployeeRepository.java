@@ -0,0 +1,36 @@
+package banking.repository;
+
+import banking.model.Employee;
+
+/**
+ * In-memory EmployeeRepository backed by an InMemoryStore.
+ * Employees are added through InMemoryStore.addEmployee.
+ * 
+ * @author Banking System
+ */
+public class InMemoryEmployeeRepository implements EmployeeRepository {
+    private final InMemoryStore store;
+
+    /**
+     * Constructs an InMemoryEmployeeRepository over the given store.
+     * 
+     * @param store The shared in-memory store
+     */
+    public InMemoryEmployeeRepository(InMemoryStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public Employee getEmployeeByCredentials(String username, String password) {
+        InMemoryStore.UserRow user = store.users.get(username);
+        if (user == null || user.employeeId() == 0 || !user.password().equals(password)) {
+            return null;
+        }
+        return store.employees.get(user.employeeId());
+    }
+
+    @Override
+    public Employee getEmployeeById(int employeeId) {
+        return store.employees.get(employeeId);
+    }
+}
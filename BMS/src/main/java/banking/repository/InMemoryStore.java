@@ -0,0 +1,253 @@
+package banking.repository;
+
+import banking.model.Account;
+import banking.model.ChequeAccount;
+import banking.model.Customer;
+import banking.model.Employee;
+import banking.model.InvestmentAccount;
+import banking.model.SavingsAccount;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shared state behind the in-memory repositories.
+ * Rows are stored as immutable records in IntIndex maps keyed by their int id, so id
+ * lookups never box the key, with secondary indexes by account number, customer and
+ * username; every repository call is a map lookup. A customer's account ids are kept as a
+ * sorted int array, replaced on every change.
+ * While InMemoryTransactionManager runs a unit of work on a thread, every change the
+ * store and the repositories make on that thread also pushes its undo onto the thread's
+ * journal, and a failed unit runs the journal backwards. Model objects are materialized on each read, exactly like the DAOs do,
+ * so callers never share mutable state with the store.
+ * 
+ * @author Banking System
+ */
+public final class InMemoryStore {
+
+    record AccountRow(int id, String accountNumber, long balance, String branch, String type,
+                      String employerName, String employerAddress, int customerId) {
+        AccountRow withBalance(long newBalance) {
+            return new AccountRow(id, accountNumber, newBalance, branch, type,
+                                  employerName, employerAddress, customerId);
+        }
+    }
+
+    record CustomerRow(int id, String firstName, String lastName, String address,
+                       String employerName, String employerAddress) {
+    }
+
+    record UserRow(String username, String password, int customerId, int employeeId) {
+    }
+
+    final IntIndex<AccountRow> accounts = new IntIndex<>();
+    final ConcurrentHashMap<String, Integer> accountIdsByNumber = new ConcurrentHashMap<>();
+    final IntIndex<int[]> accountIdsByCustomer = new IntIndex<>();
+    final IntIndex<CustomerRow> customers = new IntIndex<>();
+    final IntIndex<Employee> employees = new IntIndex<>();
+    final ConcurrentHashMap<String, UserRow> users = new ConcurrentHashMap<>();
+
+    private final AtomicInteger accountSequence = new AtomicInteger();
+    private final AtomicInteger customerSequence = new AtomicInteger();
+    private final AtomicInteger employeeSequence = new AtomicInteger();
+    private final ThreadLocal<Deque<Runnable>> journal = new ThreadLocal<>();
+
+    /**
+     * Starts journaling the current thread's changes.
+     */
+    void beginJournal() {
+        journal.set(new ArrayDeque<>());
+    }
+
+    /**
+     * Checks whether the current thread's changes are being journaled.
+     * 
+     * @return true inside a unit of work
+     */
+    boolean isJournaling() {
+        return journal.get() != null;
+    }
+
+    /**
+     * Stops journaling the current thread's changes, undoing them unless the unit committed.
+     * 
+     * @param committed Whether the unit of work completed
+     */
+    void endJournal(boolean committed) {
+        Deque<Runnable> undo = journal.get();
+        journal.remove();
+        if (!committed) {
+            while (!undo.isEmpty()) {
+                undo.pop().run();
+            }
+        }
+    }
+
+    /**
+     * Records how to undo a change just made, if the current thread is in a unit of work.
+     * 
+     * @param undo Restores the state before the change
+     */
+    void onRollback(Runnable undo) {
+        Deque<Runnable> undoLog = journal.get();
+        if (undoLog != null) {
+            undoLog.push(undo);
+        }
+    }
+
+    /**
+     * Adds an employee with a login, for seeding tests and benchmarks.
+     * 
+     * @param firstName The employee's first name
+     * @param lastName The employee's last name
+     * @param email The employee's email
+     * @param role The employee's role
+     * @param username The login username
+     * @param password The login password
+     * @return The created Employee
+     * @throws IllegalArgumentException if the username is already taken
+     */
+    public Employee addEmployee(String firstName, String lastName, String email, String role,
+                                String username, String password) {
+        int id = employeeSequence.incrementAndGet();
+        if (users.putIfAbsent(username, new UserRow(username, password, 0, id)) != null) {
+            throw new IllegalArgumentException("Username already exists: " + username);
+        }
+        Employee employee = new Employee(id, firstName, lastName, email, role);
+        employees.put(id, employee);
+        onRollback(() -> {
+            employees.remove(id);
+            users.remove(username);
+        });
+        return employee;
+    }
+
+    /**
+     * Stores a new account row and indexes it.
+     * 
+     * @return The stored row
+     * @throws DuplicateKeyException if the account number is already in use
+     */
+    AccountRow insertAccount(String accountNumber, long balance, String branch, String type,
+                             String employerName, String employerAddress, int customerId) {
+        int id = accountSequence.incrementAndGet();
+        // Claim the number first, like the unique index does, so a duplicate stores nothing
+        if (accountIdsByNumber.putIfAbsent(accountNumber, id) != null) {
+            throw new DuplicateKeyException("Account number already exists: " + accountNumber,
+                                            accountNumber, null);
+        }
+        AccountRow row = new AccountRow(id, accountNumber, balance, branch, type,
+                                        employerName, employerAddress, customerId);
+        accounts.put(id, row);
+        addAccountId(customerId, id);
+        onRollback(() -> {
+            accounts.remove(id);
+            accountIdsByNumber.remove(accountNumber, id);
+            accountIdsByCustomer.computeIfPresent(customerId, ids -> {
+                int at = Arrays.binarySearch(ids, id);
+                if (at < 0) {
+                    return ids;
+                }
+                int[] removed = new int[ids.length - 1];
+                System.arraycopy(ids, 0, removed, 0, at);
+                System.arraycopy(ids, at + 1, removed, at, ids.length - at - 1);
+                return removed;
+            });
+        });
+        return row;
+    }
+
+    /**
+     * Adds an account id to the sorted ids of a customer.
+     * 
+     * @param customerId The customer ID
+     * @param id The account ID
+     */
+    private void addAccountId(int customerId, int id) {
+        accountIdsByCustomer.putIfAbsent(customerId, new int[0]);
+        accountIdsByCustomer.computeIfPresent(customerId, ids -> {
+            int at = -Arrays.binarySearch(ids, id) - 1;
+            int[] added = new int[ids.length + 1];
+            System.arraycopy(ids, 0, added, 0, at);
+            added[at] = id;
+            System.arraycopy(ids, at, added, at + 1, ids.length - at);
+            return added;
+        });
+    }
+
+    /**
+     * Stores a new customer row.
+     * 
+     * @return The stored row
+     */
+    CustomerRow insertCustomer(String firstName, String lastName, String address,
+                               String employerName, String employerAddress) {
+        int id = customerSequence.incrementAndGet();
+        CustomerRow row = new CustomerRow(id, firstName, lastName, address, employerName, employerAddress);
+        customers.put(id, row);
+        onRollback(() -> customers.remove(id));
+        return row;
+    }
+
+    /**
+     * Materializes a customer with their accounts.
+     * 
+     * @param row The customer row
+     * @return The Customer
+     */
+    Customer toCustomer(CustomerRow row) {
+        Customer customer = row.employerName() != null && row.employerAddress() != null
+                ? new Customer(row.id(), row.firstName(), row.lastName(), row.address(),
+                               row.employerName(), row.employerAddress())
+                : new Customer(row.id(), row.firstName(), row.lastName(), row.address());
+        for (Account account : accountsOf(row.id())) {
+            customer.addAccount(account);
+        }
+        return customer;
+    }
+
+    /**
+     * Materializes the accounts of a customer, ordered by ID.
+     * 
+     * @param customerId The customer ID
+     * @return The accounts
+     */
+    List<Account> accountsOf(int customerId) {
+        int[] ids = accountIdsByCustomer.get(customerId);
+        List<Account> result = new ArrayList<>();
+        if (ids == null) {
+            return result;
+        }
+        for (int id : ids) {
+            AccountRow row = accounts.get(id);
+            if (row != null) {
+                result.add(toAccount(row));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Materializes an account row as the matching Account subclass.
+     * 
+     * @param row The account row
+     * @return The Account, or null for an unknown type
+     */
+    static Account toAccount(AccountRow row) {
+        return switch (row.type()) {
+            case "SAVINGS" -> new SavingsAccount(row.id(), row.accountNumber(), row.balance(),
+                                                 row.branch(), row.customerId());
+            case "INVESTMENT" -> new InvestmentAccount(row.id(), row.accountNumber(), row.balance(),
+                                                       row.branch(), row.customerId());
+            case "CHEQUE" -> new ChequeAccount(row.id(), row.accountNumber(), row.balance(),
+                                               row.branch(), row.customerId(),
+                                               row.employerName(), row.employerAddress());
+            default -> null;
+        };
+    }
+}
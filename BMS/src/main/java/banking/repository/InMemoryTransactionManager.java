@@ -0,0 +1,43 @@
+package banking.repository;
+
+import java.util.function.Supplier;
+
+/**
+ * In-memory TransactionManager for the in-memory repositories.
+ * Units of work over the same store run one at a time, holding the store's lock, so they
+ * never interleave with each other or with transfers and balance updates. Every change made
+ * during a unit is journaled by the store, and if the work throws the journal is undone in
+ * reverse order, account objects included, before the exception is rethrown.
+ * 
+ * @author Banking System
+ */
+public class InMemoryTransactionManager implements TransactionManager {
+    private final InMemoryStore store;
+
+    /**
+     * Constructs an InMemoryTransactionManager over the given store.
+     * 
+     * @param store The shared in-memory store
+     */
+    public InMemoryTransactionManager(InMemoryStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public <T> T inTransaction(Supplier<T> work) {
+        synchronized (store) {
+            if (store.isJournaling()) {
+                return work.get();
+            }
+            store.beginJournal();
+            boolean committed = false;
+            try {
+                T result = work.get();
+                committed = true;
+                return result;
+            } finally {
+                store.endJournal(committed);
+            }
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package banking.repository;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * A concurrent map from int keys to values that never boxes its keys.
+ * The store's keys are dense ids handed out by a sequence, so values live in fixed-size
+ * pages of an array indexed by the key itself: a lookup is two array reads with no hashing
+ * and no Integer allocation. Reads and updates of an existing page never lock; only
+ * creating a page, once per PAGE_SIZE keys, takes the index's monitor. Iteration is in
+ * key order. Negative keys are never present.
+ *
+ * @param <V> The value type
+ * @author Banking System
+ */
+final class IntIndex<V> {
+    private static final int PAGE_BITS = 12;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    // A generic array cannot be created directly; every page stored in it is an AtomicReferenceArray<V>
+    @SuppressWarnings("unchecked")
+    private volatile AtomicReferenceArray<V>[] pages = (AtomicReferenceArray<V>[]) new AtomicReferenceArray<?>[16];
+    private final AtomicInteger size = new AtomicInteger();
+
+    /**
+     * Gets the value of a key.
+     *
+     * @param key The key
+     * @return The value, or null if the key is not present
+     */
+    V get(int key) {
+        if (key < 0) {
+            return null;
+        }
+        AtomicReferenceArray<V>[] directory = pages;
+        int index = key >>> PAGE_BITS;
+        if (index >= directory.length || directory[index] == null) {
+            return null;
+        }
+        return directory[index].get(key & PAGE_MASK);
+    }
+
+    /**
+     * Sets the value of a key.
+     *
+     * @param key The key (must not be negative)
+     * @param value The value (must not be null)
+     * @return The previous value, or null if the key was not present
+     */
+    V put(int key, V value) {
+        V previous = page(key).getAndSet(key & PAGE_MASK, value);
+        if (previous == null) {
+            size.incrementAndGet();
+        }
+        return previous;
+    }
+
+    /**
+     * Sets the value of a key if it is not present.
+     *
+     * @param key The key (must not be negative)
+     * @param value The value (must not be null)
+     * @return The current value if the key was present, otherwise null
+     */
+    V putIfAbsent(int key, V value) {
+        AtomicReferenceArray<V> page = page(key);
+        int slot = key & PAGE_MASK;
+        if (page.compareAndSet(slot, null, value)) {
+            size.incrementAndGet();
+            return null;
+        }
+        return page.get(slot);
+    }
+
+    /**
+     * Removes a key.
+     *
+     * @param key The key
+     * @return The removed value, or null if the key was not present
+     */
+    V remove(int key) {
+        if (get(key) == null) {
+            return null;
+        }
+        V previous = page(key).getAndSet(key & PAGE_MASK, null);
+        if (previous != null) {
+            size.decrementAndGet();
+        }
+        return previous;
+    }
+
+    /**
+     * Replaces the value of a present key with a function of it, retrying if another thread
+     * changes the value meanwhile, so the function may run more than once.
+     *
+     * @param key The key
+     * @param update Computes the new value from the current one; must not return null
+     * @return The new value, or null if the key is not present
+     */
+    V computeIfPresent(int key, UnaryOperator<V> update) {
+        if (get(key) == null) {
+            return null;
+        }
+        AtomicReferenceArray<V> page = page(key);
+        int slot = key & PAGE_MASK;
+        while (true) {
+            V current = page.get(slot);
+            if (current == null) {
+                return null;
+            }
+            V next = update.apply(current);
+            if (page.compareAndSet(slot, current, next)) {
+                return next;
+            }
+        }
+    }
+
+    /**
+     * Gets the number of keys present.
+     *
+     * @return The number of keys
+     */
+    int size() {
+        return size.get();
+    }
+
+    /**
+     * Passes every value to an action, in key order. Values written during the iteration
+     * may or may not be seen.
+     *
+     * @param action The action
+     */
+    void forEach(Consumer<? super V> action) {
+        for (AtomicReferenceArray<V> page : pages) {
+            if (page == null) {
+                continue;
+            }
+            for (int slot = 0; slot < PAGE_SIZE; slot++) {
+                V value = page.get(slot);
+                if (value != null) {
+                    action.accept(value);
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the page that holds a key, creating it if needed.
+     *
+     * @param key The key (must not be negative)
+     * @return The page
+     * @throws IllegalArgumentException if the key is negative
+     */
+    private AtomicReferenceArray<V> page(int key) {
+        if (key < 0) {
+            throw new IllegalArgumentException("Negative key: " + key);
+        }
+        int index = key >>> PAGE_BITS;
+        AtomicReferenceArray<V>[] directory = pages;
+        if (index < directory.length && directory[index] != null) {
+            return directory[index];
+        }
+        synchronized (this) {
+            directory = pages;
+            if (index >= directory.length) {
+                directory = Arrays.copyOf(directory, Math.max(index + 1, directory.length * 2));
+            }
+            if (directory[index] == null) {
+                directory[index] = new AtomicReferenceArray<>(PAGE_SIZE);
+            }
+            // The volatile write publishes the new page to readers that read the directory after it
+            pages = directory;
+            return directory[index];
+        }
+    }
+}
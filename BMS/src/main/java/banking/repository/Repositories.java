@@ -0,0 +1,95 @@
+package banking.repository;
+
+import banking.dao.AccountDAO;
+import banking.dao.CustomerDAO;
+import banking.dao.EmployeeDAO;
+import banking.dao.TransactionDAO;
+
+/**
+ * Holds the repository implementations used by services and controllers.
+ * Defaults to the SQLite DAOs; tests, benchmarks and headless tools can switch to
+ * the in-memory implementations with useInMemory().
+ * 
+ * @author Banking System
+ */
+public final class Repositories {
+    private static volatile AccountRepository accounts = new AccountDAO();
+    private static volatile CustomerRepository customers = new CustomerDAO();
+    private static volatile EmployeeRepository employees = new EmployeeDAO();
+    private static volatile TransactionManager transactions = new TransactionDAO();
+
+    private Repositories() {
+    }
+
+    /**
+     * Gets the active account repository.
+     * 
+     * @return The account repository
+     */
+    public static AccountRepository accounts() {
+        return accounts;
+    }
+
+    /**
+     * Gets the active customer repository.
+     * 
+     * @return The customer repository
+     */
+    public static CustomerRepository customers() {
+        return customers;
+    }
+
+    /**
+     * Gets the active employee repository.
+     * 
+     * @return The employee repository
+     */
+    public static EmployeeRepository employees() {
+        return employees;
+    }
+
+    /**
+     * Gets the transaction manager matching the active repositories.
+     * 
+     * @return The transaction manager
+     */
+    public static TransactionManager transactions() {
+        return transactions;
+    }
+
+    /**
+     * Replaces the active repositories, keeping the current transaction manager.
+     * 
+     * @param accountRepository The account repository
+     * @param customerRepository The customer repository
+     * @param employeeRepository The employee repository
+     */
+    public static synchronized void use(AccountRepository accountRepository,
+                                        CustomerRepository customerRepository,
+                                        EmployeeRepository employeeRepository) {
+        accounts = accountRepository;
+        customers = customerRepository;
+        employees = employeeRepository;
+    }
+
+    /**
+     * Switches to in-memory repositories over a fresh store.
+     * 
+     * @return The store, for seeding data
+     */
+    public static InMemoryStore useInMemory() {
+        InMemoryStore store = new InMemoryStore();
+        use(new InMemoryAccountRepository(store), new InMemoryCustomerRepository(store),
+            new InMemoryEmployeeRepository(store));
+        transactions = new InMemoryTransactionManager(store);
+        return store;
+    }
+
+    /**
+     * Switches back to the SQLite DAOs.
+     */
+    public static void useDatabase() {
+        use(new AccountDAO(), new CustomerDAO(), new EmployeeDAO());
+        transactions = new TransactionDAO();
+    }
+}
@@ -0,0 +1,23 @@
+package banking.repository;
+
+import java.util.function.Supplier;
+
+/**
+ * Runs several repository calls as one unit of work.
+ * Implemented by the SQLite-backed TransactionDAO and by InMemoryTransactionManager.
+ * 
+ * @author Banking System
+ */
+public interface TransactionManager {
+
+    /**
+     * Runs work so that every repository call it makes shares one transaction.
+     * If the work throws, its changes are rolled back and the exception is rethrown.
+     * A call made while a unit of work is already running joins it.
+     * 
+     * @param work The work to run
+     * @param <T> The result type
+     * @return The work's result
+     */
+    <T> T inTransaction(Supplier<T> work);
+}
@@ -0,0 +1,174 @@
+package banking.scheduler;
+
+import banking.dao.DBUtil;
+import banking.dao.MonthEndDAO;
+import banking.dao.PerformanceProfile;
+import banking.dao.ShardRouter;
+
+import java.sql.SQLException;
+import java.time.YearMonth;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Month-end interest run for one period.
+ * Accounts are processed in chunks of ascending account IDs. Every chunk commits its
+ * balances together with a checkpoint, so a run interrupted by a crash resumes exactly
+ * where it stopped, and a period that has completed can never be applied again.
+ * 
+ * @author Banking System
+ */
+public class MonthEndJob {
+    private static final int DEFAULT_CHUNK_SIZE = 1_000;
+    private static MonthEndJob instance;
+
+    private final MonthEndDAO monthEndDAO;
+    private final int chunkSize;
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong total = new AtomicLong();
+    private volatile String period;
+    private volatile State state = State.IDLE;
+    private volatile long startNanos;
+    private volatile long endNanos;
+
+    /**
+     * The lifecycle of a run.
+     */
+    public enum State { IDLE, RUNNING, COMPLETED, FAILED }
+
+    /**
+     * A point-in-time view of a run's progress.
+     *
+     * @param period The period being processed
+     * @param state The run state
+     * @param processed The accounts processed so far, including before a restart
+     * @param total The accounts in the run
+     * @param accountsPerSecond The throughput of this process since the run started
+     */
+    public record Progress(String period, State state, long processed, long total, double accountsPerSecond) {
+        /**
+         * Gets the completed fraction of the run.
+         *
+         * @return A value between 0 and 1
+         */
+        public double fraction() {
+            return total == 0 ? (state == State.COMPLETED ? 1.0 : 0.0) : (double) processed / total;
+        }
+    }
+
+    /**
+     * Constructs a MonthEndJob with the default chunk size.
+     */
+    public MonthEndJob() {
+        this(new MonthEndDAO(), DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Constructs a MonthEndJob.
+     * 
+     * @param monthEndDAO The DAO holding run status and checkpoints
+     * @param chunkSize The number of accounts committed per chunk
+     */
+    public MonthEndJob(MonthEndDAO monthEndDAO, int chunkSize) {
+        this.monthEndDAO = monthEndDAO;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Gets the job shared by the scheduler and the employee dashboard.
+     * 
+     * @return The shared MonthEndJob
+     */
+    public static synchronized MonthEndJob getInstance() {
+        if (instance == null) {
+            instance = new MonthEndJob();
+        }
+        return instance;
+    }
+
+    /**
+     * Checks whether a period has already been processed.
+     * 
+     * @param month The period
+     * @return true if the period's run has completed
+     * @throws SQLException if a database error occurs
+     */
+    public boolean isCompleted(YearMonth month) throws SQLException {
+        monthEndDAO.createTables();
+        return MonthEndDAO.STATUS_COMPLETED.equals(monthEndDAO.getStatus(month.toString()));
+    }
+
+    /**
+     * Runs, or resumes, the month-end run for a period on the calling thread.
+     * 
+     * @param month The period to process
+     * @param onProgress Called after every committed chunk; may be null
+     * @throws IllegalStateException if the period has already completed or a run is in progress
+     * @throws SQLException if a database error occurs; the run can be resumed later
+     */
+    public void run(YearMonth month, Consumer<Progress> onProgress) throws SQLException {
+        synchronized (this) {
+            if (state == State.RUNNING) {
+                throw new IllegalStateException("A month-end run for " + period + " is already in progress.");
+            }
+            state = State.RUNNING;
+        }
+        period = month.toString();
+        processed.set(0);
+        total.set(0);
+        startNanos = System.nanoTime();
+        try {
+            monthEndDAO.createTables();
+            monthEndDAO.startRun(period);
+
+            ShardRouter shards = DBUtil.shards();
+            MonthEndDAO.Checkpoint[] checkpoints = new MonthEndDAO.Checkpoint[shards.all().size()];
+            for (int i = 0; i < checkpoints.length; i++) {
+                ShardRouter.Shard shard = shards.all().get(i);
+                checkpoints[i] = monthEndDAO.getCheckpoint(shard, period);
+                processed.addAndGet(checkpoints[i].processed());
+                total.addAndGet(checkpoints[i].processed() + monthEndDAO.countRemaining(shard, checkpoints[i]));
+            }
+
+            // Every chunk commits with its checkpoint, so the chunks can use the bulk-load profile
+            DBUtil.withProfile(PerformanceProfile.BULK_LOAD, () -> {
+                for (int i = 0; i < checkpoints.length; i++) {
+                    ShardRouter.Shard shard = shards.all().get(i);
+                    MonthEndDAO.Checkpoint checkpoint = checkpoints[i];
+                    while (!checkpoint.isDone()) {
+                        MonthEndDAO.Checkpoint next = monthEndDAO.processChunk(shard, period, chunkSize);
+                        processed.addAndGet(next.processed() - checkpoint.processed());
+                        checkpoint = next;
+                        if (onProgress != null) {
+                            onProgress.accept(getProgress());
+                        }
+                    }
+                }
+                return null;
+            });
+
+            monthEndDAO.completeRun(period);
+            state = State.COMPLETED;
+        } catch (SQLException | RuntimeException e) {
+            state = State.FAILED;
+            throw e;
+        } finally {
+            endNanos = System.nanoTime();
+            if (onProgress != null) {
+                onProgress.accept(getProgress());
+            }
+        }
+    }
+
+    /**
+     * Gets the progress of the current or most recent run.
+     * 
+     * @return The progress
+     */
+    public Progress getProgress() {
+        long end = state == State.RUNNING ? System.nanoTime() : endNanos;
+        double seconds = (end - startNanos) / 1e9;
+        double rate = seconds > 0 ? processed.get() / seconds : 0.0;
+        return new Progress(period, state, processed.get(), total.get(), rate);
+    }
+}
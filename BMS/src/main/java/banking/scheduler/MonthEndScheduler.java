@@ -0,0 +1,86 @@
+package banking.scheduler;
+
+import java.time.Clock;
+import java.time.YearMonth;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the month-end job automatically.
+ * Shortly after startup, and then every hour, the scheduler checks whether the last
+ * closed month has been processed and runs (or resumes) it if not. Because the job
+ * refuses completed periods and resumes from its checkpoints, these checks are safe
+ * to repeat any number of times.
+ * 
+ * @author Banking System
+ */
+public class MonthEndScheduler {
+    private static final long INITIAL_DELAY_SECONDS = 30;
+    private static final long CHECK_INTERVAL_SECONDS = 3600;
+
+    private final MonthEndJob job;
+    private final Clock clock;
+    private ScheduledExecutorService executor;
+
+    /**
+     * Constructs a MonthEndScheduler for the given job.
+     * 
+     * @param job The month-end job
+     * @param clock The clock used to determine the last closed month
+     */
+    public MonthEndScheduler(MonthEndJob job, Clock clock) {
+        this.job = job;
+        this.clock = clock;
+    }
+
+    /**
+     * Starts the periodic checks.
+     */
+    public synchronized void start() {
+        if (executor != null) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "month-end-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::runDuePeriod, INITIAL_DELAY_SECONDS,
+                                        CHECK_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stops the periodic checks. A chunk in progress finishes; the rest resumes next start.
+     */
+    public synchronized void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    /**
+     * Gets the most recently closed month.
+     * 
+     * @return The period due for processing
+     */
+    public YearMonth duePeriod() {
+        return YearMonth.now(clock).minusMonths(1);
+    }
+
+    /**
+     * Processes the due period unless it is already complete or a run is in progress.
+     */
+    private void runDuePeriod() {
+        YearMonth period = duePeriod();
+        try {
+            if (job.getProgress().state() != MonthEndJob.State.RUNNING && !job.isCompleted(period)) {
+                job.run(period, null);
+            }
+        } catch (Exception e) {
+            // Leave the checkpoints in place; the next check resumes the run
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package banking.scheduler;
+
+import banking.dao.StandingOrderDAO;
+import banking.model.StandingOrder;
+import banking.service.StandingOrderService;
+
+import java.sql.SQLException;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs standing orders when they fall due.
+ * On start the ID and next run time of every active order are read once into a priority
+ * queue ordered by run time; from then on each tick only looks at the head of the queue,
+ * so finding the due orders costs nothing for orders that are not due, however many there are.
+ * Orders created since the last tick are picked up with an ID range query.
+ *
+ * Each tick takes the due orders off the queue in batches, reads the batch from the database
+ * in one query and executes it as one batch through StandingOrderService. An executed order
+ * goes back on the queue at its next run time. After a restart, runs missed while the
+ * application was down are still due and are executed on the first ticks, one run per order
+ * at a time, until each order has caught up.
+ *
+ * @author Banking System
+ */
+public class StandingOrderScheduler {
+    private static final long TICK_MILLIS = 1_000;
+    private static final int DEFAULT_BATCH_SIZE = 500;
+
+    /**
+     * A queued run.
+     *
+     * @param runAt The run time in epoch milliseconds
+     * @param id The order ID
+     */
+    private record Due(long runAt, long id) implements Comparable<Due> {
+        @Override
+        public int compareTo(Due other) {
+            int byTime = Long.compare(runAt, other.runAt);
+            return byTime != 0 ? byTime : Long.compare(id, other.id);
+        }
+    }
+
+    private final StandingOrderDAO standingOrderDAO;
+    private final StandingOrderService standingOrderService;
+    private final Clock clock;
+    private final int batchSize;
+    // Only touched on the scheduler thread
+    private final PriorityQueue<Due> queue = new PriorityQueue<>();
+    private long lastSeenId;
+    private boolean loaded;
+    private final AtomicLong executed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private ScheduledExecutorService executor;
+
+    /**
+     * Constructs a StandingOrderScheduler with the default batch size.
+     *
+     * @param clock The clock that decides which orders are due
+     */
+    public StandingOrderScheduler(Clock clock) {
+        this(new StandingOrderDAO(), new StandingOrderService(), clock, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Constructs a StandingOrderScheduler.
+     *
+     * @param standingOrderDAO The DAO holding the orders
+     * @param standingOrderService The service that executes them
+     * @param clock The clock that decides which orders are due
+     * @param batchSize The number of due orders read and executed together
+     */
+    public StandingOrderScheduler(StandingOrderDAO standingOrderDAO, StandingOrderService standingOrderService,
+                                  Clock clock, int batchSize) {
+        this.standingOrderDAO = standingOrderDAO;
+        this.standingOrderService = standingOrderService;
+        this.clock = clock;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Starts the ticks.
+     */
+    public synchronized void start() {
+        if (executor != null) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "standing-order-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::tick, 0, TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the ticks. An execution in progress finishes; the rest runs after the next start.
+     */
+    public synchronized void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    /**
+     * Gets the number of runs executed since start, including refused payments.
+     *
+     * @return The run count
+     */
+    public long getExecuted() {
+        return executed.get();
+    }
+
+    /**
+     * Gets the number of runs whose payment was refused since start.
+     *
+     * @return The refused run count
+     */
+    public long getFailed() {
+        return failed.get();
+    }
+
+    /**
+     * Runs every order that is due. Errors are reported and the orders involved retried next tick.
+     */
+    void tick() {
+        try {
+            if (!loaded) {
+                standingOrderDAO.createTable();
+                loaded = true;
+            }
+            pickUpNewOrders();
+            List<Long> batch = new ArrayList<>(batchSize);
+            while (drainDue(batch)) {
+                runBatch(batch);
+                batch.clear();
+            }
+        } catch (SQLException | RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Adds orders created since the last look to the queue.
+     *
+     * @throws SQLException if a database error occurs
+     */
+    private void pickUpNewOrders() throws SQLException {
+        lastSeenId = standingOrderDAO.loadSchedule(lastSeenId, (id, nextRunAt) -> queue.add(new Due(nextRunAt, id)));
+    }
+
+    /**
+     * Takes up to one batch of due orders off the queue.
+     *
+     * @param batch Receives the order IDs
+     * @return true if any order was due
+     */
+    private boolean drainDue(List<Long> batch) {
+        long now = clock.millis();
+        while (batch.size() < batchSize && !queue.isEmpty() && queue.peek().runAt() <= now) {
+            batch.add(queue.poll().id());
+        }
+        return !batch.isEmpty();
+    }
+
+    /**
+     * Executes a batch of due orders and queues their next runs.
+     * If reading the batch fails, its orders are queued again so the next tick retries them.
+     *
+     * @param ids The order IDs
+     */
+    private void runBatch(List<Long> ids) throws SQLException {
+        List<StandingOrder> orders;
+        long now = clock.millis();
+        try {
+            orders = standingOrderDAO.getByIds(ids);
+        } catch (SQLException e) {
+            for (Long id : ids) {
+                queue.add(new Due(now + TICK_MILLIS, id));
+            }
+            throw e;
+        }
+        List<StandingOrder> due = new ArrayList<>(orders.size());
+        for (StandingOrder order : orders) {
+            if (!order.active()) {
+                // Cancelled or finished since it was queued
+                continue;
+            }
+            if (order.nextRunAt() > now) {
+                // Already run elsewhere, or rescheduled
+                queue.add(new Due(order.nextRunAt(), order.id()));
+                continue;
+            }
+            due.add(order);
+        }
+        if (due.isEmpty()) {
+            return;
+        }
+        List<StandingOrder> results;
+        try {
+            results = standingOrderService.executeBatch(due);
+        } catch (RuntimeException e) {
+            // Nothing was recorded; try again on the next tick
+            e.printStackTrace();
+            for (StandingOrder order : due) {
+                queue.add(new Due(now + TICK_MILLIS, order.id()));
+            }
+            return;
+        }
+        for (int i = 0; i < due.size(); i++) {
+            StandingOrder after = results.get(i);
+            if (after == null) {
+                // Another scheduler recorded this run first, or storing it failed; read the order again next time
+                queue.add(new Due(now + TICK_MILLIS, due.get(i).id()));
+                continue;
+            }
+            executed.incrementAndGet();
+            if (!StandingOrderService.STATUS_OK.equals(after.lastStatus())) {
+                failed.incrementAndGet();
+            }
+            if (after.active()) {
+                queue.add(new Due(after.nextRunAt(), after.id()));
+            }
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package banking.service;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Striped locks over account numbers, serializing balance changes to the same account
+ * within this process. Each account number maps to one of a fixed set of locks, so
+ * memory stays constant however many accounts there are, at the cost of unrelated accounts
+ * occasionally sharing a lock.
+ *
+ * Operations on several accounts take their stripes in ascending stripe order, so two transfers
+ * in opposite directions can never each hold the lock the other one is waiting for.
+ *
+ * @author Banking System
+ */
+final class AccountLocks {
+    private static final int STRIPES = 256;
+
+    private final ReentrantLock[] locks = new ReentrantLock[STRIPES];
+
+    /**
+     * Constructs the lock stripes.
+     */
+    AccountLocks() {
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Locks the stripe of one account.
+     *
+     * @param accountNumber The account number
+     * @return The lock to release when done
+     */
+    Runnable lock(String accountNumber) {
+        ReentrantLock lock = locks[stripe(accountNumber)];
+        lock.lock();
+        return lock::unlock;
+    }
+
+    /**
+     * Locks the stripes of two accounts in ascending stripe order.
+     * Accounts that share a stripe take it once.
+     *
+     * @param first One account number
+     * @param second The other account number
+     * @return The locks to release when done, in reverse order
+     */
+    Runnable lockBoth(String first, String second) {
+        int a = stripe(first);
+        int b = stripe(second);
+        if (a == b) {
+            return lock(first);
+        }
+        ReentrantLock lower = locks[Math.min(a, b)];
+        ReentrantLock upper = locks[Math.max(a, b)];
+        lower.lock();
+        try {
+            upper.lock();
+        } catch (RuntimeException ex) {
+            lower.unlock();
+            throw ex;
+        }
+        return () -> {
+            upper.unlock();
+            lower.unlock();
+        };
+    }
+
+    /**
+     * Locks the stripes of any number of accounts in ascending stripe order, taking each
+     * stripe once however many of the accounts share it.
+     *
+     * @param accountNumbers The account numbers
+     * @return The locks to release when done, in reverse order
+     */
+    Runnable lockAll(Collection<String> accountNumbers) {
+        BitSet stripes = new BitSet(STRIPES);
+        for (String accountNumber : accountNumbers) {
+            stripes.set(stripe(accountNumber));
+        }
+        int[] order = stripes.stream().toArray();
+        int held = 0;
+        try {
+            for (; held < order.length; held++) {
+                locks[order[held]].lock();
+            }
+        } catch (RuntimeException ex) {
+            unlock(order, held);
+            throw ex;
+        }
+        return () -> unlock(order, order.length);
+    }
+
+    /**
+     * Releases the first stripes of an ascending order, last taken first.
+     *
+     * @param order The stripes in the order they were taken
+     * @param held How many of them are held
+     */
+    private void unlock(int[] order, int held) {
+        for (int i = held - 1; i >= 0; i--) {
+            locks[order[i]].unlock();
+        }
+    }
+
+    /**
+     * Maps an account number to its stripe.
+     *
+     * @param accountNumber The account number
+     * @return The stripe index
+     */
+    private static int stripe(String accountNumber) {
+        int h = accountNumber.hashCode();
+        // Spread the high bits down, since similar account numbers differ mostly in their last characters
+        return Math.floorMod(h ^ (h >>> 16), STRIPES);
+    }
+}
@@ -1,41 +1,80 @@
 package banking.service;
 
-import banking.dao.AccountDAO;
-import banking.dao.CustomerDAO;
+import banking.bulk.BalanceProjector;
+import banking.dao.Metrics;
+import banking.jfr.AccountOperationEvent;
 import banking.model.Account;
+import banking.model.AccountRequest;
 import banking.model.Customer;
 import banking.model.InvestmentAccount;
 import banking.model.SavingsAccount;
 import banking.model.ChequeAccount;
+import banking.model.Money;
+import banking.model.MovementKind;
+import banking.model.OperationStatus;
+import banking.repository.AccountRepository;
+import banking.repository.CustomerRepository;
+import banking.repository.Repositories;
+import banking.repository.TransactionManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
 
 /**
  * Service layer for account-related business operations.
  * This class enforces banking rules and validation before performing operations.
+ * Operations that make several repository calls run them as one unit of work.
+ * Balances are changed in the repository first, relative to the stored balance and guarded
+ * against overdrafts there, so changes made elsewhere (payroll, standing orders, month-end,
+ * other processes) are never overwritten; the shared account object is then set to the stored
+ * result. A failed change leaves the account object as it was.
+ * Balance changes also hold a per-account lock, which only orders this service's own changes
+ * to the same account in this process, so they reach the account object in the order they were stored.
  * 
  * @author Banking System
  */
 public class AccountService {
-    private AccountDAO accountDAO;
-    private CustomerDAO customerDAO;
+    /** Shared by every instance, since controllers each create their own service. */
+    private static final AccountLocks LOCKS = new AccountLocks();
+
+    private AccountRepository accountDAO;
+    private CustomerRepository customerDAO;
+    private TransactionManager transactions;
 
     /**
-     * Constructs an AccountService with default DAO instances.
+     * Constructs an AccountService with the active repositories.
      */
     public AccountService() {
-        this.accountDAO = new AccountDAO();
-        this.customerDAO = new CustomerDAO();
+        this(Repositories.accounts(), Repositories.customers(), Repositories.transactions());
+    }
+
+    /**
+     * Constructs an AccountService with specified repositories.
+     * Useful for testing with in-memory or mock repositories.
+     * 
+     * @param accountDAO The account repository
+     * @param customerDAO The customer repository
+     */
+    public AccountService(AccountRepository accountDAO, CustomerRepository customerDAO) {
+        this(accountDAO, customerDAO, Repositories.transactions());
     }
 
     /**
-     * Constructs an AccountService with specified DAO instances.
-     * Useful for testing with mock DAOs.
+     * Constructs an AccountService with specified repositories and transaction manager.
      * 
-     * @param accountDAO The account DAO
-     * @param customerDAO The customer DAO
+     * @param accountDAO The account repository
+     * @param customerDAO The customer repository
+     * @param transactions The transaction manager that groups repository calls
      */
-    public AccountService(AccountDAO accountDAO, CustomerDAO customerDAO) {
+    public AccountService(AccountRepository accountDAO, CustomerRepository customerDAO,
+                          TransactionManager transactions) {
         this.accountDAO = accountDAO;
         this.customerDAO = customerDAO;
+        this.transactions = transactions;
     }
 
     /**
@@ -43,15 +82,31 @@ public class AccountService {
      * Validates the amount before depositing.
      * 
      * @param account The account to deposit into
-     * @param amount The amount to deposit
+     * @param amount The amount to deposit in thebe
      * @throws IllegalArgumentException if amount is not positive
      */
-    public void deposit(Account account, double amount) {
-        if (amount <= 0) {
-            throw new IllegalArgumentException("Amount must be positive.");
+    public void deposit(Account account, long amount) {
+        long started = System.nanoTime();
+        AccountOperationEvent event = AccountOperationEvent.start();
+        String outcome = AccountOperationEvent.FAILED;
+        try {
+            if (amount <= 0) {
+                throw new IllegalArgumentException("Amount must be positive.");
+            }
+            Runnable unlock = LOCKS.lock(account.getAccountNumber());
+            try {
+                OperationStatus status = accountDAO.updateAccount(account, amount, MovementKind.DEPOSIT);
+                if (!status.isOk()) {
+                    throw new IllegalArgumentException(status.getMessage());
+                }
+            } finally {
+                unlock.run();
+            }
+            outcome = AccountOperationEvent.OK;
+        } finally {
+            event.finish("DEPOSIT", account, amount, outcome);
+            recordTransaction(Metrics.DEPOSIT_LATENCY, started, AccountOperationEvent.OK.equals(outcome));
         }
-        account.deposit(amount);
-        accountDAO.updateAccount(account);
     }
 
     /**
@@ -59,26 +114,256 @@ public class AccountService {
      * Validates the amount and account type before withdrawing.
      * 
      * @param account The account to withdraw from
-     * @param amount The amount to withdraw
+     * @param amount The amount to withdraw in thebe
      * @throws UnsupportedOperationException if withdrawals are not allowed for this account type
      * @throws IllegalArgumentException if amount is invalid or insufficient funds
      */
-    public void withdraw(Account account, double amount) {
-        if (amount <= 0) {
-            throw new IllegalArgumentException("Amount must be positive.");
+    public void withdraw(Account account, long amount) {
+        long started = System.nanoTime();
+        AccountOperationEvent event = AccountOperationEvent.start();
+        String outcome = AccountOperationEvent.FAILED;
+        try {
+            if (amount <= 0) {
+                throw new IllegalArgumentException("Amount must be positive.");
+            }
+            if (!account.allowsWithdrawals()) {
+                throw new UnsupportedOperationException(OperationStatus.NOT_PERMITTED.getMessage());
+            }
+            Runnable unlock = LOCKS.lock(account.getAccountNumber());
+            try {
+                OperationStatus status = accountDAO.updateAccount(account, -amount, MovementKind.WITHDRAWAL);
+                if (!status.isOk()) {
+                    throw new IllegalArgumentException(status.getMessage());
+                }
+            } finally {
+                unlock.run();
+            }
+            outcome = AccountOperationEvent.OK;
+        } finally {
+            event.finish("WITHDRAW", account, amount, outcome);
+            recordTransaction(Metrics.WITHDRAW_LATENCY, started, AccountOperationEvent.OK.equals(outcome));
+        }
+    }
+
+    /**
+     * Transfers money between two accounts as one transaction, so a failure part-way
+     * can never debit one account without crediting the other.
+     * The source account's withdrawal rules apply: Savings accounts cannot be debited.
+     * Both accounts are locked in a fixed order for the duration. The funds check is the
+     * repository's guarded debit of the stored balance, not the account object, and the
+     * account objects are only updated once the transfer is stored.
+     * 
+     * @param from The account to debit
+     * @param to The account to credit
+     * @param amount The amount to transfer in thebe
+     * @throws UnsupportedOperationException if withdrawals are not allowed from the source account
+     * @throws IllegalArgumentException if the amount is not positive, the accounts are the same
+     *                                  or the source has insufficient funds
+     */
+    public void transfer(Account from, Account to, long amount) {
+        long started = System.nanoTime();
+        AccountOperationEvent event = AccountOperationEvent.start();
+        String outcome = AccountOperationEvent.FAILED;
+        try {
+            if (amount <= 0) {
+                throw new IllegalArgumentException("Amount must be positive.");
+            }
+            if (from.getAccountNumber().equals(to.getAccountNumber())) {
+                throw new IllegalArgumentException("Cannot transfer to the same account.");
+            }
+            if (!from.allowsWithdrawals()) {
+                throw new UnsupportedOperationException(OperationStatus.NOT_PERMITTED.getMessage());
+            }
+
+            Runnable unlock = LOCKS.lockBoth(from.getAccountNumber(), to.getAccountNumber());
+            try {
+                accountDAO.transfer(from, to, amount);
+            } finally {
+                unlock.run();
+            }
+            outcome = AccountOperationEvent.OK;
+        } finally {
+            event.finish("TRANSFER", from, amount, outcome);
+            recordTransaction(null, started, AccountOperationEvent.OK.equals(outcome));
+        }
+    }
+
+    /**
+     * Deposits money into an account without throwing on rejection.
+     * Nothing changes when the deposit is rejected.
+     * 
+     * @param account The account to deposit into
+     * @param amount The amount to deposit in thebe
+     * @return The outcome of the deposit
+     */
+    public OperationStatus tryDeposit(Account account, long amount) {
+        long started = System.nanoTime();
+        AccountOperationEvent event = AccountOperationEvent.start();
+        OperationStatus status = null;
+        Runnable unlock = LOCKS.lock(account.getAccountNumber());
+        try {
+            if (amount <= 0) {
+                status = OperationStatus.INVALID_AMOUNT;
+            } else {
+                status = accountDAO.updateAccount(account, amount, MovementKind.DEPOSIT);
+            }
+            return status;
+        } finally {
+            unlock.run();
+            event.finish("DEPOSIT", account, amount, outcome(status));
+            recordTransaction(Metrics.DEPOSIT_LATENCY, started, status != null && status.isOk());
+        }
+    }
+
+    /**
+     * Withdraws money from an account without throwing on rejection.
+     * Nothing changes when the withdrawal is rejected.
+     * 
+     * @param account The account to withdraw from
+     * @param amount The amount to withdraw in thebe
+     * @return The outcome of the withdrawal
+     */
+    public OperationStatus tryWithdraw(Account account, long amount) {
+        long started = System.nanoTime();
+        AccountOperationEvent event = AccountOperationEvent.start();
+        OperationStatus status = null;
+        Runnable unlock = LOCKS.lock(account.getAccountNumber());
+        try {
+            if (!account.allowsWithdrawals()) {
+                status = OperationStatus.NOT_PERMITTED;
+            } else if (amount <= 0) {
+                status = OperationStatus.INVALID_AMOUNT;
+            } else {
+                status = accountDAO.updateAccount(account, -amount, MovementKind.WITHDRAWAL);
+            }
+            return status;
+        } finally {
+            unlock.run();
+            event.finish("WITHDRAW", account, amount, outcome(status));
+            recordTransaction(Metrics.WITHDRAW_LATENCY, started, status != null && status.isOk());
+        }
+    }
+
+    /**
+     * Transfers money between two accounts without throwing on rejection.
+     * Nothing changes when the transfer is rejected, so a rejection inside a batch leaves the
+     * batch's other changes to commit.
+     *
+     * @param from The account to debit
+     * @param to The account to credit
+     * @param amount The amount to transfer in thebe
+     * @return The outcome of the transfer
+     * @throws IllegalArgumentException if an account does not exist
+     */
+    public OperationStatus tryTransfer(Account from, Account to, long amount) {
+        long started = System.nanoTime();
+        AccountOperationEvent event = AccountOperationEvent.start();
+        OperationStatus status = null;
+        Runnable unlock = LOCKS.lockBoth(from.getAccountNumber(), to.getAccountNumber());
+        try {
+            if (!from.allowsWithdrawals()) {
+                status = OperationStatus.NOT_PERMITTED;
+            } else if (amount <= 0 || from.getAccountNumber().equals(to.getAccountNumber())) {
+                status = OperationStatus.INVALID_AMOUNT;
+            } else {
+                status = accountDAO.tryTransfer(from, to, amount);
+            }
+            return status;
+        } finally {
+            unlock.run();
+            event.finish("TRANSFER", from, amount, outcome(status));
+            recordTransaction(null, started, status != null && status.isOk());
+        }
+    }
+
+    /**
+     * Checks whether a transfer between two accounts can be part of a batch.
+     *
+     * @param from The account to debit
+     * @param to The account to credit
+     * @return true if the transfer commits as one transaction, false if it must run on its own
+     * @see #inBatch(Collection, Supplier)
+     */
+    public boolean isLocalTransfer(Account from, Account to) {
+        return accountDAO.isLocalTransfer(from, to);
+    }
+
+    /**
+     * Runs a batch of balance changes on the given accounts as one unit of work, together with
+     * any bookkeeping the caller stores in it.
+     * The accounts' locks are all taken before the unit starts, never while it holds the database
+     * write lock, so the batch and a teller waiting on one of the same accounts cannot each hold
+     * what the other needs. The work should use the try operations, which change nothing when
+     * they reject, so one refused payment does not roll back the rest of the batch. Transfers for
+     * which isLocalTransfer is false cannot be part of a batch.
+     *
+     * @param accounts Every account the work changes; the work must not change others
+     * @param work The balance changes and bookkeeping
+     * @param <T> The result type
+     * @return The work's result
+     */
+    public <T> T inBatch(Collection<Account> accounts, Supplier<T> work) {
+        List<String> numbers = new ArrayList<>(accounts.size());
+        for (Account account : accounts) {
+            numbers.add(account.getAccountNumber());
+        }
+        Runnable unlock = LOCKS.lockAll(numbers);
+        try {
+            return transactions.inTransaction(work);
+        } finally {
+            unlock.run();
         }
-        account.withdraw(amount);
-        accountDAO.updateAccount(account);
     }
 
     /**
      * Applies monthly interest to an account.
+     * The interest is worked out from the stored balance, which may differ from the account
+     * object's, and added to it as a relative change. The balance is read in the same unit of
+     * work as the change, which holds the write lock from the read on, so no other writer can
+     * change the balance the interest was worked out from.
      * 
      * @param account The account to apply interest to
+     * @throws IllegalArgumentException if the account does not exist or the interest would
+     *                                  exceed the maximum balance
      */
     public void applyMonthlyInterest(Account account) {
-        account.applyMonthlyInterest();
-        accountDAO.updateAccount(account);
+        AccountOperationEvent event = AccountOperationEvent.start();
+        String outcome = AccountOperationEvent.FAILED;
+        long[] interest = new long[1];
+        Runnable unlock = LOCKS.lock(account.getAccountNumber());
+        try {
+            transactions.inTransaction(() -> {
+                Account stored = accountDAO.getAccountByNumber(account.getAccountNumber());
+                if (stored == null) {
+                    throw new IllegalArgumentException("Account not found: " + account.getAccountNumber());
+                }
+                long before = stored.getBalance();
+                stored.applyMonthlyInterest();
+                interest[0] = stored.getBalance() - before;
+                OperationStatus status = accountDAO.updateAccount(account, interest[0], MovementKind.INTEREST);
+                if (!status.isOk()) {
+                    throw new IllegalArgumentException(status.getMessage());
+                }
+                return null;
+            });
+            outcome = AccountOperationEvent.OK;
+        } finally {
+            unlock.run();
+            event.finish("INTEREST", account, interest[0], outcome);
+        }
+    }
+
+    /**
+     * Projects an account's balance under its monthly interest rate, assuming no further
+     * deposits or withdrawals. Nothing is persisted.
+     * 
+     * @param account The account to project
+     * @param months The horizon in months
+     * @return The projected balance in thebe
+     * @throws IllegalArgumentException if the horizon is negative or longer than BalanceProjector.MAX_MONTHS
+     */
+    public long projectBalance(Account account, int months) {
+        return BalanceProjector.project(account, months);
     }
 
     /**
@@ -86,17 +371,19 @@ public class AccountService {
      * 
      * @param customerId The customer ID
      * @param accountNumber The account number
-     * @param initialDeposit The initial deposit amount
+     * @param initialDeposit The initial deposit amount in thebe
      * @param branch The branch name
      * @return The created SavingsAccount
      * @throws IllegalArgumentException if initial deposit is not positive
      */
     public SavingsAccount createSavingsAccount(int customerId, String accountNumber, 
-                                               double initialDeposit, String branch) {
-        if (initialDeposit < 0) {
-            throw new IllegalArgumentException("Initial deposit cannot be negative.");
-        }
-        return accountDAO.createSavingsAccount(customerId, accountNumber, initialDeposit, branch);
+                                               long initialDeposit, String branch) {
+        return recordOpening(initialDeposit, () -> {
+            if (initialDeposit < 0) {
+                throw new IllegalArgumentException("Initial deposit cannot be negative.");
+            }
+            return accountDAO.createSavingsAccount(customerId, accountNumber, initialDeposit, branch);
+        });
     }
 
     /**
@@ -105,19 +392,21 @@ public class AccountService {
      * 
      * @param customerId The customer ID
      * @param accountNumber The account number
-     * @param initialDeposit The initial deposit amount (must be >= 500.00 BWP)
+     * @param initialDeposit The initial deposit amount in thebe (must be >= 500.00 BWP)
      * @param branch The branch name
      * @return The created InvestmentAccount
      * @throws IllegalArgumentException if initial deposit is less than 500.00 BWP
      */
     public InvestmentAccount createInvestmentAccount(int customerId, String accountNumber, 
-                                                     double initialDeposit, String branch) {
-        if (initialDeposit < InvestmentAccount.getMinimumDeposit()) {
-            throw new IllegalArgumentException(
-                String.format("Investment account requires minimum deposit of BWP %.2f", 
-                             InvestmentAccount.getMinimumDeposit()));
-        }
-        return accountDAO.createInvestmentAccount(customerId, accountNumber, initialDeposit, branch);
+                                                     long initialDeposit, String branch) {
+        return recordOpening(initialDeposit, () -> {
+            if (initialDeposit < InvestmentAccount.getMinimumDeposit()) {
+                throw new IllegalArgumentException(
+                    "Investment account requires minimum deposit of BWP " +
+                    Money.format(InvestmentAccount.getMinimumDeposit()));
+            }
+            return accountDAO.createInvestmentAccount(customerId, accountNumber, initialDeposit, branch);
+        });
     }
 
     /**
@@ -125,32 +414,37 @@ public class AccountService {
      * 
      * @param customerId The customer ID
      * @param accountNumber The account number
-     * @param initialDeposit The initial deposit amount
+     * @param initialDeposit The initial deposit amount in thebe
      * @param branch The branch name
      * @return The created ChequeAccount
      * @throws IllegalArgumentException if customer does not have employment information
      *                                  or if initial deposit is negative
      */
     public ChequeAccount createChequeAccount(int customerId, String accountNumber, 
-                                            double initialDeposit, String branch) {
-        if (initialDeposit < 0) {
-            throw new IllegalArgumentException("Initial deposit cannot be negative.");
-        }
+                                            long initialDeposit, String branch) {
+        return recordOpening(initialDeposit, () -> {
+            if (initialDeposit < 0) {
+                throw new IllegalArgumentException("Initial deposit cannot be negative.");
+            }
 
-        // Verify customer exists and has employment info
-        Customer customer = customerDAO.getCustomerById(customerId);
-        if (customer == null) {
-            throw new IllegalArgumentException("Customer not found.");
-        }
-        
-        if (!customer.hasEmploymentInfo()) {
-            throw new IllegalArgumentException(
-                "Customer must have employment information (company name and address) to open a Cheque account.");
-        }
+            // The customer check and the insert share one connection and one commit
+            return transactions.inTransaction(() -> {
+                // Verify customer exists and has employment info
+                Customer customer = customerDAO.getCustomerById(customerId);
+                if (customer == null) {
+                    throw new IllegalArgumentException("Customer not found.");
+                }
+            
+                if (!customer.hasEmploymentInfo()) {
+                    throw new IllegalArgumentException(
+                        "Customer must have employment information (company name and address) to open a Cheque account.");
+                }
 
-        // Use customer's employment information
-        return accountDAO.createChequeAccount(customerId, accountNumber, initialDeposit, branch,
-                                             customer.getEmployerName(), customer.getEmployerAddress());
+                // Use customer's employment information
+                return accountDAO.createChequeAccount(customerId, accountNumber, initialDeposit, branch,
+                                                     customer.getEmployerName(), customer.getEmployerAddress());
+            });
+        });
     }
 
     /**
@@ -159,7 +453,7 @@ public class AccountService {
      * 
      * @param customerId The customer ID
      * @param accountNumber The account number
-     * @param initialDeposit The initial deposit amount
+     * @param initialDeposit The initial deposit amount in thebe
      * @param branch The branch name
      * @param employerName The employer's name (required for cheque accounts)
      * @param employerAddress The employer's address (required for cheque accounts)
@@ -167,36 +461,222 @@ public class AccountService {
      * @throws IllegalArgumentException if employment information is missing or if initial deposit is negative
      */
     public ChequeAccount createChequeAccount(int customerId, String accountNumber, 
-                                            double initialDeposit, String branch,
+                                            long initialDeposit, String branch,
                                             String employerName, String employerAddress) {
-        if (initialDeposit < 0) {
-            throw new IllegalArgumentException("Initial deposit cannot be negative.");
+        return recordOpening(initialDeposit, () -> {
+            if (initialDeposit < 0) {
+                throw new IllegalArgumentException("Initial deposit cannot be negative.");
+            }
+
+            if (employerName == null || employerName.trim().isEmpty() ||
+                employerAddress == null || employerAddress.trim().isEmpty()) {
+                throw new IllegalArgumentException(
+                    "Employment information (company name and address) is required to open a Cheque account.");
+            }
+
+            // Either the employment update and the new account are both stored, or neither is
+            return transactions.inTransaction(() -> {
+                // Verify customer exists
+                Customer customer = customerDAO.getCustomerById(customerId);
+                if (customer == null) {
+                    throw new IllegalArgumentException("Customer not found.");
+                }
+            
+                // If customer doesn't have employment info, update it
+                if (!customer.hasEmploymentInfo()) {
+                    try {
+                        customerDAO.updateEmploymentInfo(customerId, employerName, employerAddress);
+                    } catch (Exception e) {
+                        throw new RuntimeException("Failed to update customer employment information", e);
+                    }
+                }
+
+                // Use provided employment information for the account
+                return accountDAO.createChequeAccount(customerId, accountNumber, initialDeposit, branch,
+                                                     employerName, employerAddress);
+            });
+        });
+    }
+
+    /**
+     * Opens several accounts at once, e.g. for a corporate client or a new customer segment.
+     * Every request is validated before anything is stored, applying the same rules as the
+     * single-account methods: deposits cannot be negative, investment accounts need the minimum
+     * deposit, and cheque accounts need employment information, taken from the customer when the
+     * request has none. A customer without employment information gets the request's.
+     * All problems are reported together, and the accounts are inserted in one transaction.
+     * 
+     * @param requests The accounts to open
+     * @return The created accounts, in request order
+     * @throws IllegalArgumentException if any request is invalid, listing every problem found;
+     *                                  nothing is created in that case
+     * @throws banking.repository.DuplicateKeyException if an account number is already in use
+     */
+    public List<Account> openAccounts(List<AccountRequest> requests) {
+        AccountOperationEvent event = AccountOperationEvent.start();
+        List<Account> opened = null;
+        try {
+            List<String> problems = new ArrayList<>();
+            for (int i = 0; i < requests.size(); i++) {
+                String problem = checkRequest(requests.get(i));
+                if (problem != null) {
+                    problems.add(describe(i, requests.get(i), problem));
+                }
+            }
+            rejectIfAny(problems);
+
+            opened = transactions.inTransaction(() -> {
+                // Each customer is read once, however many accounts they are opening
+                Map<Integer, Customer> customers = new HashMap<>();
+                List<AccountRequest> resolved = new ArrayList<>(requests.size());
+                for (int i = 0; i < requests.size(); i++) {
+                    AccountRequest request = requests.get(i);
+                    Customer customer = customers.computeIfAbsent(request.customerId(), customerDAO::getCustomerById);
+                    if (customer == null) {
+                        problems.add(describe(i, request, "Customer not found."));
+                        continue;
+                    }
+                    if (!"CHEQUE".equals(request.type())) {
+                        resolved.add(request);
+                    } else if (request.hasEmploymentInfo()) {
+                        if (!customer.hasEmploymentInfo()) {
+                            try {
+                                customerDAO.updateEmploymentInfo(customer.getId(),
+                                                                 request.employerName(), request.employerAddress());
+                            } catch (Exception e) {
+                                throw new RuntimeException("Failed to update customer employment information", e);
+                            }
+                            // Later cheque requests of this customer use the information just stored
+                            customers.put(customer.getId(), new Customer(customer.getId(), customer.getFirstName(),
+                                    customer.getLastName(), customer.getAddress(),
+                                    request.employerName(), request.employerAddress()));
+                        }
+                        resolved.add(request);
+                    } else if (customer.hasEmploymentInfo()) {
+                        resolved.add(request.withEmployer(customer.getEmployerName(), customer.getEmployerAddress()));
+                    } else {
+                        problems.add(describe(i, request,
+                            "Customer must have employment information (company name and address) to open a Cheque account."));
+                    }
+                }
+                // Throwing rolls back any employment updates made above
+                rejectIfAny(problems);
+                return accountDAO.createAccounts(resolved);
+            });
+            return opened;
+        } finally {
+            long deposits = 0;
+            if (event.isEnabled()) {
+                for (AccountRequest request : requests) {
+                    deposits += request.initialDeposit();
+                }
+            }
+            event.finish("OPEN_BATCH", requests.size(), deposits,
+                         opened != null ? AccountOperationEvent.OK : AccountOperationEvent.FAILED);
+        }
+    }
+
+    /**
+     * Opens one account, recording the opening as a Flight Recorder event.
+     * 
+     * @param initialDeposit The initial deposit in thebe
+     * @param open Validates and creates the account
+     * @param <T> The account type
+     * @return The created account
+     */
+    private <T extends Account> T recordOpening(long initialDeposit, Supplier<T> open) {
+        AccountOperationEvent event = AccountOperationEvent.start();
+        T account = null;
+        try {
+            account = open.get();
+            return account;
+        } finally {
+            event.finish("OPEN", account, initialDeposit,
+                         account != null ? AccountOperationEvent.OK : AccountOperationEvent.FAILED);
         }
+    }
 
-        if (employerName == null || employerName.trim().isEmpty() ||
-            employerAddress == null || employerAddress.trim().isEmpty()) {
-            throw new IllegalArgumentException(
-                "Employment information (company name and address) is required to open a Cheque account.");
+    /**
+     * Records a deposit, withdrawal or transfer in the operational metrics.
+     * 
+     * @param latency The latency histogram to record to, or null for none
+     * @param started When the operation started, from System.nanoTime()
+     * @param completed Whether the operation went through
+     */
+    private static void recordTransaction(String latency, long started, boolean completed) {
+        if (latency != null) {
+            Metrics.recordLatency(latency, System.nanoTime() - started);
+        }
+        if (completed) {
+            Metrics.increment(Metrics.TRANSACTIONS);
         }
+    }
 
-        // Verify customer exists
-        Customer customer = customerDAO.getCustomerById(customerId);
-        if (customer == null) {
-            throw new IllegalArgumentException("Customer not found.");
+    /**
+     * Gets the event outcome of a status-returning operation.
+     * 
+     * @param status The status, or null if the operation threw
+     * @return OK, the rejection reason, or FAILED
+     */
+    private static String outcome(OperationStatus status) {
+        if (status == null) {
+            return AccountOperationEvent.FAILED;
         }
-        
-        // If customer doesn't have employment info, update it
-        if (!customer.hasEmploymentInfo()) {
-            try {
-                customerDAO.updateEmploymentInfo(customerId, employerName, employerAddress);
-            } catch (Exception e) {
-                throw new RuntimeException("Failed to update customer employment information", e);
-            }
+        return status.isOk() ? AccountOperationEvent.OK : status.name();
+    }
+
+    /**
+     * Applies the rules that do not need the customer to one account request.
+     * 
+     * @param request The request
+     * @return The problem found, or null if the request is valid so far
+     */
+    private static String checkRequest(AccountRequest request) {
+        if (request.accountNumber() == null || request.accountNumber().trim().isEmpty()) {
+            return "Account number is required.";
+        }
+        if (request.initialDeposit() < 0) {
+            return "Initial deposit cannot be negative.";
+        }
+        if (request.type() == null) {
+            return "Account type is required.";
         }
+        switch (request.type()) {
+            case "SAVINGS":
+            case "CHEQUE":
+                return null;
+            case "INVESTMENT":
+                return request.initialDeposit() < InvestmentAccount.getMinimumDeposit()
+                        ? "Investment account requires minimum deposit of BWP " +
+                          Money.format(InvestmentAccount.getMinimumDeposit())
+                        : null;
+            default:
+                return "Unknown account type: " + request.type();
+        }
+    }
 
-        // Use provided employment information for the account
-        return accountDAO.createChequeAccount(customerId, accountNumber, initialDeposit, branch,
-                                             employerName, employerAddress);
+    /**
+     * Formats a problem with the request it belongs to.
+     * 
+     * @param index The position of the request in the batch
+     * @param request The request
+     * @param problem The problem
+     * @return The message line
+     */
+    private static String describe(int index, AccountRequest request, String problem) {
+        return "Request " + (index + 1) + " (" + request.accountNumber() + "): " + problem;
+    }
+
+    /**
+     * Throws if any problems were found.
+     * 
+     * @param problems The problems, one line each
+     * @throws IllegalArgumentException listing the problems
+     */
+    private static void rejectIfAny(List<String> problems) {
+        if (!problems.isEmpty()) {
+            throw new IllegalArgumentException(String.join("\n", problems));
+        }
     }
 
     /**
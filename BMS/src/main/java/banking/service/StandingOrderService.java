@@ -0,0 +1,377 @@
+package banking.service;
+
+import banking.dao.StandingOrderDAO;
+import banking.model.Account;
+import banking.model.OperationStatus;
+import banking.model.StandingOrder;
+import banking.repository.Repositories;
+import banking.repository.TransactionManager;
+
+import java.sql.SQLException;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Service layer for standing orders: recurring transfers and deposits.
+ * A run is recorded, advancing the order to its next run, in the same unit of work as its payment
+ * through AccountService, and a scheduler tick's due runs share one unit. When the orders and the
+ * accounts are in one database file a crash can neither lose nor repeat a payment; across shards
+ * the run is stored before the payment, so a crash can skip a payment but never repeat it.
+ * A payment that is refused, e.g. for insufficient funds, skips that run and records why.
+ *
+ * @author Banking System
+ */
+public class StandingOrderService {
+    public static final String STATUS_OK = "OK";
+    /** The status of a run whose payment commits on its own, until it has gone through or been refused. */
+    public static final String STATUS_PENDING = "PENDING";
+
+    private final StandingOrderDAO standingOrderDAO;
+    private final AccountService accountService;
+    private final TransactionManager transactions;
+    private final ZoneId zone;
+
+    /**
+     * Constructs a StandingOrderService with the active repositories and the system time zone.
+     */
+    public StandingOrderService() {
+        this(new StandingOrderDAO(), new AccountService(), Repositories.transactions(), ZoneId.systemDefault());
+    }
+
+    /**
+     * Constructs a StandingOrderService.
+     *
+     * @param standingOrderDAO The DAO holding the orders
+     * @param accountService The service that moves the money
+     * @param transactions The transaction manager that groups a payment with its bookkeeping
+     * @param zone The time zone monthly and weekly runs are calculated in
+     */
+    public StandingOrderService(StandingOrderDAO standingOrderDAO, AccountService accountService,
+                                TransactionManager transactions, ZoneId zone) {
+        this.standingOrderDAO = standingOrderDAO;
+        this.accountService = accountService;
+        this.transactions = transactions;
+        this.zone = zone;
+    }
+
+    /**
+     * Sets up a standing order.
+     *
+     * @param customerId The customer setting up the order
+     * @param fromAccount The account to debit, or null for a recurring deposit
+     * @param toAccount The account to credit
+     * @param amount The amount in thebe
+     * @param frequency How often the order runs
+     * @param firstRunAt The first execution time in epoch milliseconds
+     * @param endAt The time after which the order stops, or null to run until cancelled
+     * @return The created order
+     * @throws IllegalArgumentException if the amount is not positive, an account does not exist,
+     *                                  the source account belongs to another customer or the end
+     *                                  is before the first run
+     * @throws UnsupportedOperationException if withdrawals are not allowed from the source account
+     */
+    public StandingOrder createOrder(int customerId, String fromAccount, String toAccount, long amount,
+                                     StandingOrder.Frequency frequency, long firstRunAt, Long endAt) {
+        if (amount <= 0) {
+            throw new IllegalArgumentException("Amount must be positive.");
+        }
+        if (endAt != null && endAt < firstRunAt) {
+            throw new IllegalArgumentException("The end date must not be before the first payment.");
+        }
+        if (accountService.getAccountByNumber(toAccount) == null) {
+            throw new IllegalArgumentException("Account not found: " + toAccount);
+        }
+        if (fromAccount != null) {
+            Account from = accountService.getAccountByNumber(fromAccount);
+            if (from == null) {
+                throw new IllegalArgumentException("Account not found: " + fromAccount);
+            }
+            if (from.getCustomerId() != customerId) {
+                throw new IllegalArgumentException("Standing orders can only debit the customer's own accounts.");
+            }
+            if (fromAccount.equals(toAccount)) {
+                throw new IllegalArgumentException("Cannot transfer to the same account.");
+            }
+            if (!from.allowsWithdrawals()) {
+                throw new UnsupportedOperationException(OperationStatus.NOT_PERMITTED.getMessage());
+            }
+        }
+        try {
+            return standingOrderDAO.create(customerId, fromAccount, toAccount, amount, frequency, firstRunAt, endAt);
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to create standing order", e);
+        }
+    }
+
+    /**
+     * Cancels a standing order.
+     *
+     * @param id The order ID
+     * @return true if the order was active and is now cancelled
+     */
+    public boolean cancelOrder(long id) {
+        try {
+            return standingOrderDAO.cancel(id);
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to cancel standing order", e);
+        }
+    }
+
+    /**
+     * Gets the standing orders of a customer.
+     *
+     * @param customerId The customer ID
+     * @return The orders
+     */
+    public List<StandingOrder> getOrders(int customerId) {
+        try {
+            return standingOrderDAO.getByCustomer(customerId);
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to load standing orders", e);
+        }
+    }
+
+    /**
+     * Executes the due run of a standing order.
+     *
+     * @param order The order as last read; its next run must be due
+     * @return The order after the run, or null if the run was not recorded
+     * @see #executeBatch(List)
+     */
+    public StandingOrder execute(StandingOrder order) {
+        return executeBatch(List.of(order)).get(0);
+    }
+
+    /**
+     * Executes the due runs of a batch of standing orders, such as one scheduler tick's.
+     * Every account the batch pays from or into is looked up once, before any unit of work starts.
+     * The runs whose payments commit as one transaction then go through AccountService as a single
+     * batch, which takes all their account locks before it opens the unit: each run is recorded and
+     * paid, and a refused payment replaces the run's status with the reason.
+     * A transfer between shards cannot join the unit, so its run is recorded as pending first, the
+     * transfer commits on its own, and the outcome replaces the pending status. A crash in between
+     * leaves the run pending and unpaid rather than paid twice.
+     * If the batch's unit fails, its runs are retried one unit each, so one run that cannot be
+     * stored does not hold back the others.
+     *
+     * @param orders The orders as last read; their next runs must be due
+     * @return The orders after their runs, in the same order, with null for each run that was not
+     *         recorded, because another execution recorded it first or storing it failed
+     */
+    public List<StandingOrder> executeBatch(List<StandingOrder> orders) {
+        Map<String, Account> accounts = resolveAccounts(orders);
+        List<StandingOrder> results = new ArrayList<>(Collections.nCopies(orders.size(), null));
+        List<Integer> batched = new ArrayList<>();
+        for (int i = 0; i < orders.size(); i++) {
+            StandingOrder order = orders.get(i);
+            Account from = order.isTransfer() ? accounts.get(order.fromAccount()) : null;
+            Account to = accounts.get(order.toAccount());
+            if (from != null && to != null && !accountService.isLocalTransfer(from, to)) {
+                results.set(i, executeAlone(order, from, to));
+            } else {
+                batched.add(i);
+            }
+        }
+        try {
+            payBatch(orders, batched, accounts, results);
+        } catch (RuntimeException e) {
+            // Nothing of the batch was stored
+            e.printStackTrace();
+            if (batched.size() > 1) {
+                for (int i : batched) {
+                    try {
+                        payBatch(orders, List.of(i), accounts, results);
+                    } catch (RuntimeException ex) {
+                        ex.printStackTrace();
+                    }
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Looks up every account a batch of orders pays from or into, once each.
+     *
+     * @param orders The orders
+     * @return The accounts found, by account number
+     */
+    private Map<String, Account> resolveAccounts(List<StandingOrder> orders) {
+        Map<String, Account> accounts = new HashMap<>();
+        for (StandingOrder order : orders) {
+            for (String number : new String[] {order.fromAccount(), order.toAccount()}) {
+                if (number != null && !accounts.containsKey(number)) {
+                    accounts.put(number, accountService.getAccountByNumber(number));
+                }
+            }
+        }
+        return accounts;
+    }
+
+    /**
+     * Records and pays some runs of a batch in one unit of work.
+     *
+     * @param orders The orders of the batch
+     * @param indexes The positions of the runs to execute
+     * @param accounts The batch's accounts, by account number
+     * @param results Receives the orders after their runs, once the unit has committed
+     */
+    private void payBatch(List<StandingOrder> orders, List<Integer> indexes, Map<String, Account> accounts,
+                          List<StandingOrder> results) {
+        if (indexes.isEmpty()) {
+            return;
+        }
+        Set<Account> locked = new LinkedHashSet<>();
+        for (int i : indexes) {
+            StandingOrder order = orders.get(i);
+            if (order.isTransfer() && accounts.get(order.fromAccount()) != null) {
+                locked.add(accounts.get(order.fromAccount()));
+            }
+            if (accounts.get(order.toAccount()) != null) {
+                locked.add(accounts.get(order.toAccount()));
+            }
+        }
+        List<StandingOrder> executed = accountService.inBatch(locked, () -> {
+            List<StandingOrder> after = new ArrayList<>(indexes.size());
+            for (int i : indexes) {
+                StandingOrder order = orders.get(i);
+                long nextRunAt = nextRunAt(order);
+                boolean active = isActiveAfter(order, nextRunAt);
+                if (!record(order, nextRunAt, active, STATUS_OK)) {
+                    after.add(null);
+                    continue;
+                }
+                String status = pay(order, accounts.get(order.fromAccount()), accounts.get(order.toAccount()));
+                if (!STATUS_OK.equals(status)) {
+                    recordStatus(order, status);
+                }
+                after.add(advance(order, nextRunAt, active, status));
+            }
+            return after;
+        });
+        for (int k = 0; k < indexes.size(); k++) {
+            results.set(indexes.get(k), executed.get(k));
+        }
+    }
+
+    /**
+     * Executes a run whose transfer commits on its own, between shards.
+     *
+     * @param order The order
+     * @param from The account to debit
+     * @param to The account to credit
+     * @return The order after the run, or null if another execution recorded it first
+     */
+    private StandingOrder executeAlone(StandingOrder order, Account from, Account to) {
+        long nextRunAt = nextRunAt(order);
+        boolean active = isActiveAfter(order, nextRunAt);
+        if (!transactions.inTransaction(() -> record(order, nextRunAt, active, STATUS_PENDING))) {
+            return null;
+        }
+        String status;
+        try {
+            status = pay(order, from, to);
+        } catch (RuntimeException e) {
+            // The run stays pending: either nothing was debited, or the credit completes on restart
+            e.printStackTrace();
+            return advance(order, nextRunAt, active, STATUS_PENDING);
+        }
+        transactions.inTransaction(() -> {
+            recordStatus(order, status);
+            return null;
+        });
+        return advance(order, nextRunAt, active, status);
+    }
+
+    /**
+     * Moves the money of one run.
+     *
+     * @param order The order
+     * @param from The account to debit, or null if it was not found or the order is a deposit
+     * @param to The account to credit, or null if it was not found
+     * @return STATUS_OK, or why the payment was refused; nothing is changed when it is refused
+     */
+    private String pay(StandingOrder order, Account from, Account to) {
+        if (to == null) {
+            return "FAILED: Account not found: " + order.toAccount();
+        }
+        OperationStatus status;
+        if (!order.isTransfer()) {
+            status = accountService.tryDeposit(to, order.amount());
+        } else if (from == null) {
+            return "FAILED: Account not found: " + order.fromAccount();
+        } else {
+            status = accountService.tryTransfer(from, to, order.amount());
+        }
+        return status.isOk() ? STATUS_OK : "FAILED: " + status.getMessage();
+    }
+
+    /**
+     * Works out when an order runs after its due run.
+     *
+     * @param order The order
+     * @return The next execution time in epoch milliseconds
+     */
+    private long nextRunAt(StandingOrder order) {
+        return order.frequency().runAt(order.firstRunAt(), order.runs() + 1, zone);
+    }
+
+    /**
+     * Checks whether an order runs again after its due run.
+     *
+     * @param order The order
+     * @param nextRunAt The next execution time
+     * @return true if the next run is before the order ends
+     */
+    private static boolean isActiveAfter(StandingOrder order, long nextRunAt) {
+        return order.endAt() == null || nextRunAt <= order.endAt();
+    }
+
+    /**
+     * Builds an order as it is after its due run.
+     *
+     * @param order The order before the run
+     * @param nextRunAt The next execution time
+     * @param active Whether the order runs again
+     * @param status The outcome of the run
+     * @return The order after the run
+     */
+    private static StandingOrder advance(StandingOrder order, long nextRunAt, boolean active, String status) {
+        return new StandingOrder(order.id(), order.customerId(), order.fromAccount(), order.toAccount(),
+                                 order.amount(), order.frequency(), order.firstRunAt(), order.runs() + 1,
+                                 nextRunAt, order.endAt(), active, status);
+    }
+
+    /**
+     * Replaces the recorded outcome of an order's last run.
+     *
+     * @param order The order
+     * @param status The outcome
+     */
+    private void recordStatus(StandingOrder order, String status) {
+        try {
+            standingOrderDAO.recordStatus(order.id(), status);
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to record standing order status", e);
+        }
+    }
+
+    /**
+     * Records a run of an order.
+     *
+     * @return true if this run was recorded, false if it had been recorded already
+     */
+    private boolean record(StandingOrder order, long nextRunAt, boolean active, String status) {
+        try {
+            return standingOrderDAO.recordExecution(order, nextRunAt, active, status);
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to record standing order execution", e);
+        }
+    }
+}
@@ -0,0 +1,415 @@
+package banking.tools;
+
+import banking.dao.DBUtil;
+import banking.dao.LatencyHistogram;
+import banking.dao.TemporaryDatabase;
+import banking.model.Account;
+import banking.model.AccountRequest;
+import banking.model.Customer;
+import banking.model.Money;
+import banking.model.OperationStatus;
+import banking.repository.AccountRepository;
+import banking.repository.CustomerRepository;
+import banking.repository.Repositories;
+import banking.service.AccountService;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Headless load generator that replays a branch day against AccountService and the DAOs.
+ * A number of simulated tellers each serve their own customers, so no two tellers ever
+ * hold the same account, and issue a weighted mix of logins, account lookups, deposits,
+ * withdrawals, account openings and customer listings.
+ *
+ * In a closed loop every teller waits for an operation to finish, thinks for an exponentially
+ * distributed time, and starts the next one, the way a real counter works. In an open loop
+ * operations arrive at a fixed average rate whatever the response times, and each is queued
+ * to its teller; latency then includes the time spent waiting in the queue, so an overloaded
+ * system shows up as growing latency instead of quietly reducing the offered load.
+ *
+ * Every random choice comes from the seed: the same options give each teller the same
+ * sequence of operations, accounts and amounts on every run. By default the run uses a
+ * temporary database that is deleted afterwards. Running the same options once per
+ * --profile compares the PerformanceProfiles on this workload.
+ *
+ * @author Banking System
+ */
+public class LoadGenerator {
+    /** The operations a teller can issue. */
+    public enum Operation {
+        LOGIN, LOOKUP, DEPOSIT, WITHDRAW, OPEN, LIST
+    }
+
+    private enum Outcome {
+        OK, REJECTED, ERROR
+    }
+
+    private static final String[] BRANCHES = {"Main", "North", "East"};
+    /** Largest deposit or withdrawal issued, in thebe. */
+    private static final int MAX_AMOUNT = 50_000;
+
+    private final LoadOptions options;
+    private final AccountService accountService;
+    private final AccountRepository accounts;
+    private final CustomerRepository customers;
+    private final Operation[] operations;
+    private final int[] cumulativeWeights;
+    private final Map<Operation, Stats> stats = new EnumMap<>(Operation.class);
+    /** Distinguishes the names created by this run from those of earlier runs on the same database. */
+    private final String runId = Long.toString(System.currentTimeMillis(), 36);
+
+    /**
+     * Constructs a LoadGenerator working on the active database.
+     *
+     * @param options The run settings
+     */
+    public LoadGenerator(LoadOptions options) {
+        this.options = options;
+        this.accountService = new AccountService();
+        this.accounts = Repositories.accounts();
+        this.customers = Repositories.customers();
+        List<Operation> weighted = new ArrayList<>();
+        List<Integer> cumulative = new ArrayList<>();
+        int total = 0;
+        for (Map.Entry<Operation, Integer> entry : options.mix().entrySet()) {
+            if (entry.getValue() > 0) {
+                total += entry.getValue();
+                weighted.add(entry.getKey());
+                cumulative.add(total);
+            }
+        }
+        this.operations = weighted.toArray(new Operation[0]);
+        this.cumulativeWeights = cumulative.stream().mapToInt(Integer::intValue).toArray();
+        for (Operation operation : Operation.values()) {
+            stats.put(operation, new Stats());
+        }
+    }
+
+    /**
+     * Creates the customers and accounts, then runs the load.
+     *
+     * @return The report of the measured part of the run
+     * @throws SQLException if the customers cannot be created
+     * @throws InterruptedException if the run is interrupted
+     */
+    public LoadReport run() throws SQLException, InterruptedException {
+        List<Teller> tellers = setUp();
+        long start = System.nanoTime();
+        long measureFrom = start + TimeUnit.SECONDS.toNanos(options.warmupSeconds());
+        long end = measureFrom + TimeUnit.SECONDS.toNanos(options.durationSeconds());
+        if (options.openLoop()) {
+            runOpenLoop(tellers, start, measureFrom, end);
+        } else {
+            runClosedLoop(tellers, measureFrom, end);
+        }
+
+        List<LoadReport.OperationStats> results = new ArrayList<>();
+        for (Map.Entry<Operation, Stats> entry : stats.entrySet()) {
+            Stats s = entry.getValue();
+            LatencyHistogram.Snapshot latencies = s.latencies.snapshot();
+            if (latencies.count() > 0) {
+                results.add(new LoadReport.OperationStats(entry.getKey(), s.ok.sum(), s.rejected.sum(),
+                                                          s.errors.sum(), latencies));
+            }
+        }
+        return new LoadReport(options.openLoop(), tellers.size(), options.durationSeconds(), results);
+    }
+
+    /**
+     * Creates every customer with a savings and a cheque account, and deals them out to the tellers.
+     *
+     * @return The tellers
+     * @throws SQLException if a customer cannot be created
+     */
+    private List<Teller> setUp() throws SQLException {
+        Random random = new Random(options.seed());
+        List<Teller> tellers = new ArrayList<>();
+        for (int t = 0; t < options.tellers(); t++) {
+            // Each teller's own stream, so its choices do not depend on how the threads interleave
+            tellers.add(new Teller(t, new Random(options.seed() * 31 + t + 1)));
+        }
+        List<AccountRequest> requests = new ArrayList<>();
+        for (int i = 0; i < options.customers(); i++) {
+            String username = "load-" + runId + "-" + i;
+            String password = "pw-" + i;
+            String branch = BRANCHES[random.nextInt(BRANCHES.length)];
+            Customer customer = customers.createCustomer("Load", "Customer " + i, "Plot " + i,
+                                                         "Load Employer", "Gaborone", branch, username, password);
+            tellers.get(i % tellers.size()).customers.add(new LoadCustomer(customer.getId(), username, password));
+            requests.add(AccountRequest.savings(customer.getId(), "LS-" + runId + "-" + i,
+                                                Money.MINOR_UNITS * (1_000 + random.nextInt(9_000)), branch));
+            requests.add(AccountRequest.cheque(customer.getId(), "LC-" + runId + "-" + i,
+                                               Money.MINOR_UNITS * (1_000 + random.nextInt(9_000)), branch, null, null));
+        }
+        List<Account> opened = accountService.openAccounts(requests);
+        for (int i = 0; i < opened.size(); i++) {
+            tellers.get((i / 2) % tellers.size()).accounts.add(opened.get(i));
+        }
+        return tellers;
+    }
+
+    /**
+     * Runs every teller on its own thread until the end of the run.
+     *
+     * @param tellers The tellers
+     * @param measureFrom When measuring starts, in System.nanoTime() terms
+     * @param end When the run ends
+     * @throws InterruptedException if the run is interrupted
+     */
+    private void runClosedLoop(List<Teller> tellers, long measureFrom, long end) throws InterruptedException {
+        List<Thread> threads = new ArrayList<>();
+        for (Teller teller : tellers) {
+            Thread thread = new Thread(() -> {
+                while (true) {
+                    if (options.thinkMillis() > 0) {
+                        long think = exponential(teller.random, TimeUnit.MILLISECONDS.toNanos(options.thinkMillis()));
+                        if (System.nanoTime() + think >= end) {
+                            break;
+                        }
+                        LockSupport.parkNanos(think);
+                    }
+                    long started = System.nanoTime();
+                    if (started >= end) {
+                        break;
+                    }
+                    Operation operation = pick(teller.random);
+                    Outcome outcome = execute(teller, operation);
+                    if (started >= measureFrom) {
+                        record(operation, outcome, System.nanoTime() - started);
+                    }
+                }
+            }, "teller-" + teller.index);
+            thread.setDaemon(true);
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+
+    /**
+     * Issues operations at the configured rate, with exponentially distributed gaps, each to
+     * a teller's queue. Waits for the queues to drain after the last arrival.
+     *
+     * @param tellers The tellers
+     * @param start When the run starts
+     * @param measureFrom When measuring starts
+     * @param end When arrivals stop
+     * @throws InterruptedException if the run is interrupted
+     */
+    private void runOpenLoop(List<Teller> tellers, long start, long measureFrom, long end)
+            throws InterruptedException {
+        Random arrivals = new Random(options.seed());
+        long meanGap = (long) (1e9 / options.rate());
+        List<ExecutorService> queues = new ArrayList<>();
+        for (Teller teller : tellers) {
+            queues.add(Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, "teller-" + teller.index);
+                thread.setDaemon(true);
+                return thread;
+            }));
+        }
+        for (long due = start; due < end; due += exponential(arrivals, meanGap)) {
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            Operation operation = pick(arrivals);
+            int t = arrivals.nextInt(tellers.size());
+            Teller teller = tellers.get(t);
+            long scheduled = due;
+            queues.get(t).execute(() -> {
+                Outcome outcome = execute(teller, operation);
+                if (scheduled >= measureFrom) {
+                    record(operation, outcome, System.nanoTime() - scheduled);
+                }
+            });
+        }
+        for (ExecutorService queue : queues) {
+            queue.shutdown();
+        }
+        for (ExecutorService queue : queues) {
+            if (!queue.awaitTermination(1, TimeUnit.MINUTES)) {
+                int dropped = queue.shutdownNow().size();
+                System.err.println("Abandoned " + dropped + " queued operation(s) still waiting a minute after the run");
+            }
+        }
+    }
+
+    /**
+     * Runs one operation for a teller.
+     *
+     * @param teller The teller
+     * @param operation The operation
+     * @return How it went
+     */
+    private Outcome execute(Teller teller, Operation operation) {
+        Random random = teller.random;
+        try {
+            return switch (operation) {
+                case LOGIN -> {
+                    LoadCustomer customer = teller.customers.get(random.nextInt(teller.customers.size()));
+                    yield customers.getCustomerByCredentials(customer.username(), customer.password()) != null
+                            ? Outcome.OK : Outcome.REJECTED;
+                }
+                case LOOKUP -> {
+                    Account account = teller.accounts.get(random.nextInt(teller.accounts.size()));
+                    yield accounts.getAccountByNumber(account.getAccountNumber()) != null
+                            ? Outcome.OK : Outcome.REJECTED;
+                }
+                case DEPOSIT -> {
+                    Account account = teller.accounts.get(random.nextInt(teller.accounts.size()));
+                    yield outcome(accountService.tryDeposit(account, 1 + random.nextInt(MAX_AMOUNT)));
+                }
+                case WITHDRAW -> {
+                    Account account = teller.accounts.get(random.nextInt(teller.accounts.size()));
+                    yield outcome(accountService.tryWithdraw(account, 1 + random.nextInt(MAX_AMOUNT)));
+                }
+                case OPEN -> {
+                    LoadCustomer customer = teller.customers.get(random.nextInt(teller.customers.size()));
+                    String number = "LN-" + runId + "-" + teller.index + "-" + (++teller.opened);
+                    teller.accounts.add(accountService.createSavingsAccount(customer.id(), number,
+                            1 + random.nextInt(MAX_AMOUNT), BRANCHES[random.nextInt(BRANCHES.length)]));
+                    yield Outcome.OK;
+                }
+                case LIST -> {
+                    customers.getAllCustomers();
+                    yield Outcome.OK;
+                }
+            };
+        } catch (IllegalArgumentException | UnsupportedOperationException e) {
+            return Outcome.REJECTED;
+        } catch (RuntimeException e) {
+            teller.errors++;
+            if (teller.errors <= 3) {
+                System.err.println("Teller " + teller.index + " " + operation + " failed: " + e.getMessage());
+            }
+            return Outcome.ERROR;
+        }
+    }
+
+    private static Outcome outcome(OperationStatus status) {
+        return status.isOk() ? Outcome.OK : Outcome.REJECTED;
+    }
+
+    /**
+     * Picks an operation according to the mix.
+     *
+     * @param random The random source
+     * @return The operation
+     */
+    Operation pick(Random random) {
+        int ticket = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (ticket < cumulativeWeights[i]) {
+                return operations[i];
+            }
+        }
+        return operations[operations.length - 1];
+    }
+
+    private void record(Operation operation, Outcome outcome, long nanos) {
+        Stats s = stats.get(operation);
+        s.latencies.record(nanos);
+        switch (outcome) {
+            case OK -> s.ok.increment();
+            case REJECTED -> s.rejected.increment();
+            default -> s.errors.increment();
+        }
+    }
+
+    /**
+     * Draws an exponentially distributed duration.
+     *
+     * @param random The random source
+     * @param meanNanos The mean in nanoseconds
+     * @return The duration in nanoseconds
+     */
+    private static long exponential(Random random, long meanNanos) {
+        return (long) (-meanNanos * Math.log(1.0 - random.nextDouble()));
+    }
+
+    /**
+     * A customer a teller can log in as.
+     */
+    private record LoadCustomer(int id, String username, String password) {
+    }
+
+    /**
+     * A simulated teller: its random stream and the customers and accounts it serves.
+     * Only the teller's own thread touches it once the run starts.
+     */
+    private static final class Teller {
+        final int index;
+        final Random random;
+        final List<LoadCustomer> customers = new ArrayList<>();
+        final List<Account> accounts = new ArrayList<>();
+        int opened;
+        int errors;
+
+        Teller(int index, Random random) {
+            this.index = index;
+            this.random = random;
+        }
+    }
+
+    /**
+     * Measured results of one operation.
+     */
+    private static final class Stats {
+        final LatencyHistogram latencies = new LatencyHistogram();
+        final LongAdder ok = new LongAdder();
+        final LongAdder rejected = new LongAdder();
+        final LongAdder errors = new LongAdder();
+    }
+
+    /**
+     * Command-line entry point: runs the load and prints the report.
+     *
+     * @param args Options of the form --name=value; see LoadOptions.usage()
+     */
+    public static void main(String[] args) {
+        LoadOptions options;
+        try {
+            options = LoadOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage());
+            System.err.println(LoadOptions.usage());
+            return;
+        }
+        TemporaryDatabase temporary = null;
+        try {
+            if (options.useConfiguredDatabase()) {
+                DBUtil.initDatabase();
+            } else {
+                temporary = TemporaryDatabase.onDisk();
+            }
+            if (options.profile() != null) {
+                DBUtil.configure(DBUtil.getConfig().withProfile(options.profile()));
+            }
+            System.out.println("Profile: " + DBUtil.getConfig().getProfile().configName());
+            System.out.println(new LoadGenerator(options).run());
+        } catch (SQLException | RuntimeException e) {
+            System.err.println("Error: " + e.getMessage());
+            e.printStackTrace();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (temporary != null) {
+                temporary.close();
+            }
+            DBUtil.closeDataSource();
+        }
+    }
+}
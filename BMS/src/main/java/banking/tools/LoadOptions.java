@@ -0,0 +1,166 @@
+package banking.tools;
+
+import banking.dao.PerformanceProfile;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Settings of a load generator run, parsed from --name=value arguments.
+ *
+ * @param tellers The number of simulated tellers, each a thread with its own customers
+ * @param customers The number of customers created before the run, each with a savings and a cheque account
+ * @param durationSeconds How long the measured part of the run lasts
+ * @param warmupSeconds How long the run goes on before measuring starts
+ * @param thinkMillis The mean pause between a teller's operations in a closed loop; 0 for none
+ * @param openLoop true to issue operations at a fixed rate whatever the response times,
+ *                 false for tellers that wait for each operation before thinking and starting the next
+ * @param rate The operations per second issued in an open loop, over all tellers
+ * @param seed The seed every random choice derives from
+ * @param mix The relative weight of each operation
+ * @param useConfiguredDatabase true to run against the configured database instead of a temporary one
+ * @param profile The performance profile the database is switched to, or null to keep the configured one
+ *
+ * @author Banking System
+ */
+public record LoadOptions(int tellers, int customers, int durationSeconds, int warmupSeconds, long thinkMillis,
+                          boolean openLoop, double rate, long seed, Map<LoadGenerator.Operation, Integer> mix,
+                          boolean useConfiguredDatabase, PerformanceProfile profile) {
+
+    /** The operation mix used when none is given. */
+    public static final String DEFAULT_MIX = "login=5,lookup=30,deposit=30,withdraw=25,open=8,list=2";
+
+    public LoadOptions {
+        if (tellers < 1 || customers < tellers) {
+            throw new IllegalArgumentException("Need at least one teller and at least one customer per teller.");
+        }
+        if (durationSeconds < 1 || warmupSeconds < 0 || thinkMillis < 0) {
+            throw new IllegalArgumentException("Duration must be positive; warm-up and think time cannot be negative.");
+        }
+        if (openLoop && rate <= 0) {
+            throw new IllegalArgumentException("An open loop needs a positive rate.");
+        }
+        mix = Collections.unmodifiableMap(new EnumMap<>(mix));
+        if (mix.values().stream().mapToInt(Integer::intValue).sum() <= 0) {
+            throw new IllegalArgumentException("The operation mix needs at least one positive weight.");
+        }
+    }
+
+    /**
+     * Parses command-line arguments; anything not given keeps its default.
+     *
+     * @param args Arguments of the form --name=value
+     * @return The options
+     * @throws IllegalArgumentException if an argument is unknown or invalid
+     */
+    public static LoadOptions parse(String[] args) {
+        int tellers = 8;
+        int customers = 200;
+        int duration = 30;
+        int warmup = 5;
+        long think = 100;
+        boolean openLoop = false;
+        double rate = 200;
+        long seed = 42;
+        String mix = DEFAULT_MIX;
+        boolean configured = false;
+        PerformanceProfile profile = null;
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (!arg.startsWith("--") || eq < 0) {
+                throw new IllegalArgumentException("Expected --name=value but got " + arg);
+            }
+            String name = arg.substring(2, eq);
+            String value = arg.substring(eq + 1);
+            try {
+                switch (name) {
+                    case "tellers" -> tellers = Integer.parseInt(value);
+                    case "customers" -> customers = Integer.parseInt(value);
+                    case "duration" -> duration = Integer.parseInt(value);
+                    case "warmup" -> warmup = Integer.parseInt(value);
+                    case "think" -> think = Long.parseLong(value);
+                    case "mode" -> openLoop = switch (value) {
+                        case "open" -> true;
+                        case "closed" -> false;
+                        default -> throw new IllegalArgumentException("Mode must be open or closed: " + value);
+                    };
+                    case "rate" -> rate = Double.parseDouble(value);
+                    case "seed" -> seed = Long.parseLong(value);
+                    case "mix" -> mix = value;
+                    case "database" -> configured = switch (value) {
+                        case "configured" -> true;
+                        case "temporary" -> false;
+                        default -> throw new IllegalArgumentException(
+                                "Database must be temporary or configured: " + value);
+                    };
+                    case "profile" -> profile = PerformanceProfile.parse(value);
+                    default -> throw new IllegalArgumentException("Unknown option --" + name);
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid number for --" + name + ": " + value);
+            }
+        }
+        return new LoadOptions(tellers, customers, duration, warmup, think, openLoop, rate, seed,
+                               parseMix(mix), configured, profile);
+    }
+
+    /**
+     * Parses an operation mix such as "deposit=3,withdraw=1". Operations not named get weight 0.
+     *
+     * @param text The mix
+     * @return The weight of each operation
+     * @throws IllegalArgumentException if an operation is unknown or a weight is invalid
+     */
+    public static Map<LoadGenerator.Operation, Integer> parseMix(String text) {
+        Map<LoadGenerator.Operation, Integer> weights = new EnumMap<>(LoadGenerator.Operation.class);
+        for (LoadGenerator.Operation operation : LoadGenerator.Operation.values()) {
+            weights.put(operation, 0);
+        }
+        for (String part : text.split(",")) {
+            String[] pair = part.trim().split("=");
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("Expected operation=weight in the mix but got " + part);
+            }
+            LoadGenerator.Operation operation;
+            try {
+                operation = LoadGenerator.Operation.valueOf(pair[0].trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown operation in the mix: " + pair[0]);
+            }
+            int weight;
+            try {
+                weight = Integer.parseInt(pair[1].trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid weight in the mix: " + part);
+            }
+            if (weight < 0) {
+                throw new IllegalArgumentException("Weights cannot be negative: " + part);
+            }
+            weights.put(operation, weight);
+        }
+        return weights;
+    }
+
+    /**
+     * Describes the command-line options.
+     *
+     * @return The usage text
+     */
+    public static String usage() {
+        return String.join(System.lineSeparator(),
+                "Usage: LoadGenerator [--name=value]...",
+                "  --tellers=8          simulated tellers",
+                "  --customers=200      customers created before the run",
+                "  --duration=30        measured seconds",
+                "  --warmup=5           seconds run before measuring",
+                "  --think=100          mean think time in ms between a teller's operations (closed loop)",
+                "  --mode=closed        closed, or open for a fixed arrival rate",
+                "  --rate=200           operations per second in an open loop",
+                "  --seed=42            seed of every random choice",
+                "  --mix=" + DEFAULT_MIX,
+                "  --database=temporary temporary, or configured to load the configured database",
+                "  --profile=<name>     durable, balanced or bulk-load; default the configured profile");
+    }
+}
@@ -0,0 +1,86 @@
+package banking.tools;
+
+import banking.dao.LatencyHistogram;
+
+import java.util.List;
+
+/**
+ * The outcome of a load generator run: throughput and latency percentiles per operation.
+ * Open-loop latencies are measured from when each operation was due, not from when a
+ * teller got round to it, so queueing behind a slow operation counts against the response time.
+ *
+ * @param openLoop Whether operations were issued at a fixed rate
+ * @param tellers The number of simulated tellers
+ * @param seconds The measured time
+ * @param operations The statistics of each operation that ran
+ *
+ * @author Banking System
+ */
+public record LoadReport(boolean openLoop, int tellers, double seconds, List<OperationStats> operations) {
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    /**
+     * Statistics of one operation.
+     *
+     * @param operation The operation
+     * @param ok Operations that succeeded
+     * @param rejected Operations refused by a business rule, such as insufficient funds
+     * @param errors Operations that threw
+     * @param latencies The latency of every measured operation, whatever its outcome
+     */
+    public record OperationStats(LoadGenerator.Operation operation, long ok, long rejected, long errors,
+                                 LatencyHistogram.Snapshot latencies) {
+    }
+
+    /**
+     * Gets the number of measured operations.
+     *
+     * @return The total
+     */
+    public long total() {
+        return operations.stream().mapToLong(stats -> stats.latencies().count()).sum();
+    }
+
+    /**
+     * Gets the overall throughput.
+     *
+     * @return Operations per second
+     */
+    public double throughput() {
+        return seconds > 0 ? total() / seconds : 0.0;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%s loop, %d teller(s): %d operation(s) in %.1f s, %.1f ops/s%n",
+                                openLoop ? "Open" : "Closed", tellers, total(), seconds, throughput()));
+        sb.append(String.format("%-9s %9s %9s %9s %7s %9s %9s %9s %9s %9s %9s%n", "operation", "count", "ok",
+                                "rejected", "errors", "ops/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms"));
+        LatencyHistogram.Snapshot all = null;
+        long ok = 0;
+        long rejected = 0;
+        long errors = 0;
+        for (OperationStats stats : operations) {
+            row(sb, stats.operation().name(), stats.ok(), stats.rejected(), stats.errors(), stats.latencies());
+            all = all == null ? stats.latencies() : all.plus(stats.latencies());
+            ok += stats.ok();
+            rejected += stats.rejected();
+            errors += stats.errors();
+        }
+        if (all != null) {
+            row(sb, "ALL", ok, rejected, errors, all);
+        }
+        return sb.toString().stripTrailing();
+    }
+
+    private void row(StringBuilder sb, String name, long ok, long rejected, long errors,
+                     LatencyHistogram.Snapshot latencies) {
+        sb.append(String.format("%-9s %9d %9d %9d %7d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n", name,
+                                latencies.count(), ok, rejected, errors,
+                                seconds > 0 ? latencies.count() / seconds : 0.0,
+                                latencies.percentile(50) / NANOS_PER_MILLI, latencies.percentile(90) / NANOS_PER_MILLI,
+                                latencies.percentile(99) / NANOS_PER_MILLI, latencies.percentile(99.9) / NANOS_PER_MILLI,
+                                latencies.max() / NANOS_PER_MILLI));
+    }
+}
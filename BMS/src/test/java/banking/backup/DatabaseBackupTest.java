@@ -0,0 +1,115 @@
+package banking.backup;
+
+import banking.bulk.LedgerReconciler;
+import banking.dao.CustomerDAO;
+import banking.dao.DBUtil;
+import banking.dao.ShardRouter;
+import banking.dao.TemporaryDatabase;
+import banking.model.AccountRequest;
+import banking.service.AccountService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Backups of a sharded database: one point in time across shards, and all-or-nothing restores
+ * that leave no moved-aside files behind.
+ *
+ * @author Banking System
+ */
+class DatabaseBackupTest {
+    private TemporaryDatabase db;
+    private AccountService service;
+    private Path primary;
+    private Path north;
+    private DatabaseBackup backups;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        db = TemporaryDatabase.onDisk();
+        primary = Path.of(DBUtil.shards().primary().file());
+        north = primary.resolveSibling("north.db");
+        ShardRouter.Shard shard = DBUtil.createShard(north.toString());
+        DBUtil.assignBranch("North", shard);
+        service = new AccountService();
+        int customer = new CustomerDAO().createCustomer("Neo", "Sebego", "Maun", "Okavango", "Maun",
+                                                        "nsebego", "secret").getId();
+        service.openAccounts(List.of(
+                AccountRequest.cheque(customer, "MAIN-1", 100_000, "Main", "Okavango", "Maun"),
+                AccountRequest.cheque(customer, "NORTH-1", 100_000, "North", "Okavango", "Maun")));
+        backups = new DatabaseBackup(primary.resolveSibling("backups"), 2, 1, 5);
+    }
+
+    @AfterEach
+    void tearDown() {
+        db.close();
+    }
+
+    @Test
+    void transfersBetweenShardsDuringABackupAreRestoredOnBothSidesOrNeither() throws Exception {
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<Throwable> tellerFailure = new AtomicReference<>();
+        Thread teller = new Thread(() -> {
+            try {
+                while (!done.get()) {
+                    service.transfer(service.getAccountByNumber("MAIN-1"), service.getAccountByNumber("NORTH-1"), 1);
+                }
+            } catch (Throwable t) {
+                tellerFailure.set(t);
+            }
+        });
+        teller.start();
+        try {
+            backups.backup();
+        } finally {
+            done.set(true);
+            teller.join();
+        }
+        assertNull(tellerFailure.get());
+
+        DBUtil.closeDataSource();
+        backups.restore(null);
+        for (Path file : List.of(primary, north)) {
+            for (String suffix : List.of(".pre-restore", ".pre-restore-wal", ".pre-restore-shm", ".restoring")) {
+                assertFalse(Files.exists(file.resolveSibling(file.getFileName() + suffix)), file + suffix);
+            }
+        }
+        DBUtil.configure(db.getConfig());
+        DBUtil.initDatabase();
+
+        assertEquals(200_000, service.getAccountByNumber("MAIN-1").getBalance()
+                              + service.getAccountByNumber("NORTH-1").getBalance());
+        assertTrue(new LedgerReconciler().reconcile(d -> { }).isClean());
+    }
+
+    @Test
+    void restoreThatFailsPartWayPutsBackTheFilesItReplaced() throws Exception {
+        backups.backup();
+        service.deposit(service.getAccountByNumber("MAIN-1"), 500);
+        // The north shard cannot be moved aside, after the primary has already been replaced
+        Files.createDirectories(north.resolveSibling("north.db.pre-restore").resolve("blocker"));
+
+        DBUtil.closeDataSource();
+        assertThrows(IOException.class, () -> backups.restore(null));
+        DBUtil.configure(db.getConfig());
+
+        assertFalse(Files.exists(primary.resolveSibling(primary.getFileName() + ".pre-restore")));
+        assertFalse(Files.exists(primary.resolveSibling(primary.getFileName() + ".restoring")));
+        assertEquals(100_500, service.getAccountByNumber("MAIN-1").getBalance());
+        assertEquals(100_000, service.getAccountByNumber("NORTH-1").getBalance());
+    }
+}
@@ -0,0 +1,98 @@
+package banking.bulk;
+
+import banking.model.Account;
+import banking.model.ChequeAccount;
+import banking.model.InvestmentAccount;
+import banking.model.SavingsAccount;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Balance projections: equal to posting and rounding interest month by month, for single
+ * accounts and for the whole book.
+ *
+ * @author Banking System
+ */
+class BalanceProjectorTest {
+    private static final long[] BALANCES = {0, 1, 9, 10, 11, 99, 12_345, 1_000_000_007L, 987_654_321_987L};
+
+    @Test
+    void projectionMatchesMonthlyPostingAtEveryHorizon() {
+        for (long opening : BALANCES) {
+            for (Account account : List.of(new SavingsAccount(1, "BP-S", opening, "Main", 1),
+                                           new InvestmentAccount(2, "BP-I", opening, "Main", 1),
+                                           new ChequeAccount(3, "BP-C", opening, "Main", 1, "BTC", "Gaborone"))) {
+                Account start = copy(account, opening);
+                for (int months = 0; months <= BalanceProjector.MAX_MONTHS; months++) {
+                    assertEquals(account.getBalance(), BalanceProjector.project(start, months),
+                                 account.getAccountType() + " from " + opening + " over " + months + " months");
+                    account.applyMonthlyInterest();
+                }
+            }
+        }
+    }
+
+    @Test
+    void interestIsRoundedEveryMonth() {
+        // 5% of 1 thebe rounds to nothing, so the balance never grows; one rounding at the end would give 350
+        assertEquals(1, BalanceProjector.project(1, 500, BalanceProjector.MAX_MONTHS));
+        // 5% of 10 thebe is half a thebe, which rounds up to 11, then 12 (0.55), 13 (0.6), ...
+        assertEquals(11, BalanceProjector.project(10, 500, 1));
+        assertEquals(12, BalanceProjector.project(10, 500, 2));
+        assertEquals(13, BalanceProjector.project(10, 500, 3));
+    }
+
+    @Test
+    void bookTotalsMatchTheAccountProjections() {
+        AccountTable table = new AccountTable();
+        SplittableRandom random = new SplittableRandom(7);
+        String[] types = {"SAVINGS", "INVESTMENT", "CHEQUE"};
+        String[] branches = {"Main", "North", "West"};
+        int[] rates = AccountTable.monthlyRates();
+        long expected = 0;
+        // Enough rows for the fork-join tasks to split
+        for (int i = 0; i < 50_000; i++) {
+            long balance = random.nextLong(10_000_000);
+            byte type = (byte) random.nextInt(types.length);
+            table.add(i, balance, types[type], branches[random.nextInt(branches.length)]);
+            expected += BalanceProjector.project(balance, rates[type], BalanceProjector.MAX_MONTHS);
+        }
+
+        BookProjection projection = new BalanceProjector(null, ForkJoinPool.commonPool())
+                .projectBook(table, BalanceProjector.MAX_MONTHS);
+
+        assertEquals(50_000, projection.accounts());
+        assertEquals(expected, projection.projected());
+    }
+
+    @Test
+    void horizonsOutsideTheRangeAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> BalanceProjector.project(100, 5, -1));
+        assertThrows(IllegalArgumentException.class,
+                     () -> BalanceProjector.project(100, 5, BalanceProjector.MAX_MONTHS + 1));
+        assertThrows(IllegalArgumentException.class,
+                     () -> new BalanceProjector(null, ForkJoinPool.commonPool())
+                             .projectBook(new AccountTable(), BalanceProjector.MAX_MONTHS + 1));
+    }
+
+    /**
+     * Copies an account with a given balance.
+     *
+     * @param account The account
+     * @param balance The balance of the copy
+     * @return The copy
+     */
+    private static Account copy(Account account, long balance) {
+        return switch (account.getAccountType()) {
+            case "SAVINGS" -> new SavingsAccount(1, "BP-S", balance, "Main", 1);
+            case "INVESTMENT" -> new InvestmentAccount(2, "BP-I", balance, "Main", 1);
+            default -> new ChequeAccount(3, "BP-C", balance, "Main", 1, "BTC", "Gaborone");
+        };
+    }
+}
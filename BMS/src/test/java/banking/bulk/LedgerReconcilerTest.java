@@ -0,0 +1,108 @@
+package banking.bulk;
+
+import banking.dao.CustomerDAO;
+import banking.dao.DBUtil;
+import banking.dao.LedgerDAO;
+import banking.dao.ShardRouter;
+import banking.dao.TemporaryDatabase;
+import banking.model.AccountRequest;
+import banking.service.AccountService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Reconciling stored balances against the movement ledger on two shards: a book changed only
+ * through the application is clean, and balances changed behind its back are reported.
+ *
+ * @author Banking System
+ */
+class LedgerReconcilerTest {
+    private TemporaryDatabase db;
+    private ShardRouter.Shard north;
+    private AccountService service;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        db = TemporaryDatabase.onDisk();
+        Path primary = Path.of(DBUtil.shards().primary().file());
+        north = DBUtil.createShard(primary.resolveSibling("north.db").toString());
+        DBUtil.assignBranch("North", north);
+        service = new AccountService();
+        int customer = new CustomerDAO().createCustomer("Neo", "Tau", "Francistown", "BTC", "Gaborone",
+                                                        "ntau", "secret").getId();
+        service.openAccounts(List.of(
+                AccountRequest.cheque(customer, "MAIN-1", 1_000, "Main", "BTC", "Gaborone"),
+                AccountRequest.cheque(customer, "MAIN-2", 500, "Main", "BTC", "Gaborone"),
+                AccountRequest.cheque(customer, "NORTH-1", 2_000, "North", "BTC", "Gaborone")));
+        service.deposit(service.getAccountByNumber("MAIN-1"), 250);
+        service.withdraw(service.getAccountByNumber("NORTH-1"), 300);
+        service.transfer(service.getAccountByNumber("MAIN-1"), service.getAccountByNumber("NORTH-1"), 400);
+        service.transfer(service.getAccountByNumber("MAIN-1"), service.getAccountByNumber("MAIN-2"), 100);
+    }
+
+    @AfterEach
+    void tearDown() {
+        db.close();
+    }
+
+    @Test
+    void bookChangedThroughTheApplicationIsClean() {
+        List<ReconciliationReport.Discrepancy> found = Collections.synchronizedList(new ArrayList<>());
+
+        ReconciliationReport report;
+        try (ForkJoinPool pool = new ForkJoinPool(2)) {
+            report = new LedgerReconciler(new LedgerDAO(), pool).reconcile(found::add);
+        }
+
+        assertTrue(report.isClean(), report.toString());
+        assertTrue(found.isEmpty());
+        assertTrue(report.accounts() >= 3);
+        assertTrue(report.movements() >= 7);
+        assertEquals(0, report.netDifference());
+    }
+
+    @Test
+    void balancesChangedOutsideTheApplicationAreReported() throws SQLException {
+        long vanishedId = service.getAccountByNumber("MAIN-2").getId();
+        // A fix made by hand on the north shard, and an account deleted without its movements
+        try (Connection conn = DBUtil.getConnection(north); Statement st = conn.createStatement()) {
+            st.executeUpdate("UPDATE accounts SET balance = balance + 7 WHERE accountNumber = 'NORTH-1'");
+        }
+        try (Connection conn = DBUtil.getConnection(); Statement st = conn.createStatement()) {
+            st.executeUpdate("DELETE FROM accounts WHERE accountNumber = 'MAIN-2'");
+        }
+        List<ReconciliationReport.Discrepancy> found = Collections.synchronizedList(new ArrayList<>());
+
+        ReconciliationReport report = new LedgerReconciler().reconcile(found::add);
+
+        assertEquals(2, report.discrepancies());
+        assertEquals(2, found.size());
+        found.sort(Comparator.comparingInt(ReconciliationReport.Discrepancy::shardId).reversed());
+        ReconciliationReport.Discrepancy edited = found.get(0);
+        assertEquals(north.id(), edited.shardId());
+        assertEquals("NORTH-1", edited.accountNumber());
+        assertEquals(2_107, edited.balance());
+        assertEquals(2_100, edited.expected());
+        ReconciliationReport.Discrepancy vanished = found.get(1);
+        assertEquals(vanishedId, vanished.accountId());
+        assertNull(vanished.accountNumber());
+        assertEquals(600, vanished.expected());
+        assertEquals(7 - 600, report.netDifference());
+        assertEquals(2, report.examples().size());
+    }
+}
@@ -0,0 +1,80 @@
+package banking.controller;
+
+import banking.dao.Metrics;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The operations monitor's sampling, on a clock the test moves by hand: counters and
+ * histograms are reported for the interval since the previous sample, gauges as read.
+ *
+ * @author Banking System
+ */
+class OpsSamplerTest {
+    private static final long MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final AtomicLong clock = new AtomicLong(1_000);
+
+    @Test
+    void figuresCoverTheIntervalSinceThePreviousSample() {
+        OpsSampler sampler = new OpsSampler(clock::get);
+        Metrics.add(Metrics.TRANSACTIONS, 10);
+        for (int i = 0; i < 99; i++) {
+            Metrics.recordLatency(Metrics.DEPOSIT_LATENCY, MILLI);
+        }
+        Metrics.recordLatency(Metrics.DEPOSIT_LATENCY, 50 * MILLI);
+        Metrics.add(Metrics.DICTIONARY_HITS, 3);
+        Metrics.increment(Metrics.DICTIONARY_MISSES);
+        Metrics.increment(Metrics.SESSIONS_ACTIVE);
+        long sessions = Metrics.get(Metrics.SESSIONS_ACTIVE);
+        try {
+            clock.addAndGet(TimeUnit.SECONDS.toNanos(2));
+
+            OpsSampler.Figures first = sampler.sample();
+
+            assertEquals(2.0, first.seconds(), 1e-9);
+            assertEquals(5.0, first.transactionsPerSecond(), 1e-9);
+            assertEquals(100, first.deposits().count());
+            assertTrue(first.deposits().percentile(99) < 50 * MILLI);
+            assertTrue(first.deposits().max() >= 50 * MILLI);
+            assertEquals(0, first.withdrawals().count());
+            assertEquals(4, first.cacheLookups());
+            assertEquals(75.0, first.cacheHitPercent(), 1e-9);
+            assertEquals(sessions, first.sessions());
+
+            // The next interval starts where the first ended
+            Metrics.increment(Metrics.TRANSACTIONS);
+            clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+
+            OpsSampler.Figures second = sampler.sample();
+
+            assertEquals(1.0, second.transactionsPerSecond(), 1e-9);
+            assertEquals(0, second.deposits().count());
+            assertEquals(0, second.cacheLookups());
+            assertTrue(Double.isNaN(second.cacheHitPercent()));
+            assertEquals(sessions, second.sessions());
+        } finally {
+            Metrics.add(Metrics.SESSIONS_ACTIVE, -1);
+        }
+    }
+
+    @Test
+    void noFiguresUntilTimeHasPassed() {
+        OpsSampler sampler = new OpsSampler(clock::get);
+        Metrics.increment(Metrics.TRANSACTIONS);
+
+        assertNull(sampler.sample());
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        sampler.reset();
+        Metrics.increment(Metrics.TRANSACTIONS);
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertEquals(1.0, sampler.sample().transactionsPerSecond(), 1e-9);
+    }
+}
@@ -0,0 +1,81 @@
+package banking.dao;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * The branch and employer dictionaries: entries added by concurrent callers and by units of
+ * work that roll back.
+ *
+ * @author Banking System
+ */
+class DictionaryTest {
+    private TemporaryDatabase db;
+    private Dictionary dictionary;
+
+    @BeforeEach
+    void setUp() {
+        db = TemporaryDatabase.onDisk();
+        dictionary = DBUtil.dictionary();
+    }
+
+    @AfterEach
+    void tearDown() {
+        db.close();
+    }
+
+    @Test
+    void entriesOfARolledBackUnitAreNeitherStoredNorCached() throws SQLException {
+        assertThrows(IllegalStateException.class, () -> DBUtil.inTransaction(() -> {
+            int branch = dictionary.branchId("Ghanzi");
+            Integer employer = dictionary.employerId("Ghanzi Beef", "Ghanzi");
+            // The unit reads its own entries before they are committed
+            assertEquals("Ghanzi", dictionary.branchName(branch));
+            assertEquals("Ghanzi Beef", dictionary.employer(employer).name());
+            throw new IllegalStateException("Abandon the unit");
+        }));
+
+        assertNull(dictionary.findBranchId("Ghanzi"));
+        assertNull(dictionary.findEmployerId("Ghanzi Beef", "Ghanzi"));
+
+        int branch = dictionary.branchId("Ghanzi");
+        assertEquals("Ghanzi", dictionary.branchName(branch));
+        assertEquals(branch, dictionary.findBranchId("Ghanzi"));
+        assertNotEquals(dictionary.branchId("Main"), branch);
+    }
+
+    @Test
+    void concurrentCallersAddingTheSameEntryGetTheSameId() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                futures.add(pool.submit(() -> dictionary.branchId("Serowe")));
+            }
+            Set<Integer> ids = new HashSet<>();
+            for (Future<Integer> future : futures) {
+                ids.add(future.get(1, TimeUnit.MINUTES));
+            }
+            assertEquals(1, ids.size());
+            assertEquals("Serowe", dictionary.branchName(ids.iterator().next()));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package banking.dao;
+
+import banking.model.Account;
+import banking.model.AccountRequest;
+import banking.model.Money;
+import banking.service.AccountService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Mixed read/write load on the read-only connection lane: teller deposit latency alone and while
+ * other threads run full-table customer listings. Readers take no lock a writer needs, so the
+ * deposits only compete with them for CPU.
+ * Run with: mvn test -Pbenchmark -Dtest=ReadLaneBenchmarkTest
+ *
+ * @author Banking System
+ */
+@Tag("benchmark")
+class ReadLaneBenchmarkTest {
+    private static final int CUSTOMERS = 2_000;
+    private static final int READERS = 4;
+    private static final int DEPOSITS = 300;
+
+    private TemporaryDatabase db;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        db = TemporaryDatabase.onDisk();
+        List<AccountRequest> requests = new ArrayList<>();
+        try (Connection conn = DBUtil.getConnection()) {
+            conn.setAutoCommit(false);
+            String sql = "INSERT INTO customers(firstName, lastName, address) "
+                         + "VALUES ('Read', ?, 'Gaborone') RETURNING id";
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                for (int i = 0; i < CUSTOMERS; i++) {
+                    ps.setString(1, "Customer " + i);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        rs.next();
+                        requests.add(AccountRequest.savings(rs.getInt(1), "RL-" + i, 100 * Money.MINOR_UNITS, "Main"));
+                    }
+                }
+            }
+            conn.commit();
+        }
+        new AccountService().openAccounts(requests);
+    }
+
+    @AfterEach
+    void tearDown() {
+        db.close();
+    }
+
+    @Test
+    void depositLatencyWithConcurrentFullTableReads() throws Exception {
+        AccountService service = new AccountService();
+        Account account = service.getAccountByNumber("RL-0");
+
+        int customerCount = new CustomerDAO().getAllCustomers().size();
+        LatencyHistogram.Snapshot alone = deposits(service, account);
+
+        AtomicBoolean stop = new AtomicBoolean();
+        AtomicLong reads = new AtomicLong();
+        AtomicLong shortReads = new AtomicLong();
+        List<Thread> readers = new ArrayList<>();
+        for (int r = 0; r < READERS; r++) {
+            Thread reader = new Thread(() -> {
+                CustomerDAO customers = new CustomerDAO();
+                while (!stop.get()) {
+                    if (customers.getAllCustomers().size() != customerCount) {
+                        shortReads.incrementAndGet();
+                    }
+                    reads.incrementAndGet();
+                }
+            });
+            reader.start();
+            readers.add(reader);
+        }
+        LatencyHistogram.Snapshot mixed;
+        try {
+            // Let every reader get a full scan going before measuring
+            while (reads.get() < READERS) {
+                Thread.sleep(10);
+            }
+            mixed = deposits(service, account);
+        } finally {
+            stop.set(true);
+            for (Thread reader : readers) {
+                reader.join();
+            }
+        }
+
+        System.out.printf("Deposit p50/p99 alone %.2f/%.2f ms, with %d readers %.2f/%.2f ms (%d full reads)%n",
+                          alone.percentile(50) / 1e6, alone.percentile(99) / 1e6, READERS,
+                          mixed.percentile(50) / 1e6, mixed.percentile(99) / 1e6, reads.get());
+        assertEquals(0, shortReads.get());
+        assertEquals(100 * Money.MINOR_UNITS + 2L * DEPOSITS, service.getAccountByNumber("RL-0").getBalance());
+    }
+
+    /**
+     * Runs a series of one-thebe deposits and records their latencies.
+     *
+     * @param service The account service
+     * @param account The account to deposit into
+     * @return The latencies
+     */
+    private static LatencyHistogram.Snapshot deposits(AccountService service, Account account) {
+        LatencyHistogram latencies = new LatencyHistogram();
+        for (int i = 0; i < DEPOSITS; i++) {
+            long started = System.nanoTime();
+            service.deposit(account, 1);
+            latencies.record(System.nanoTime() - started);
+        }
+        return latencies.snapshot();
+    }
+}
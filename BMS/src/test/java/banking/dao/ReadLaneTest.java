@@ -0,0 +1,106 @@
+package banking.dao;
+
+import banking.model.AccountRequest;
+import banking.service.AccountService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * The read-only connection lane: reader connections cannot write, and readers and writers never
+ * wait for each other. Lock waits are switched off, so any wait would fail the test at once
+ * instead of only making it slower. ReadLaneBenchmarkTest measures the latencies.
+ *
+ * @author Banking System
+ */
+class ReadLaneTest {
+    private TemporaryDatabase db;
+    private AccountService service;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        db = TemporaryDatabase.onDisk();
+        service = new AccountService();
+        int customer = new CustomerDAO().createCustomer("Kagiso", "Ramotswe", "Gaborone", null, null,
+                                                        "kramotswe", "secret").getId();
+        service.openAccounts(List.of(AccountRequest.savings(customer, "RL-1", 10_000, "Main")));
+        DBUtil.configure(db.getConfig().withBusyHandling(0, 0));
+    }
+
+    @AfterEach
+    void tearDown() {
+        db.close();
+    }
+
+    @Test
+    void readerConnectionsAreQueryOnlyAndRejectWrites() throws SQLException {
+        try (Connection conn = DBUtil.getReadConnection(); Statement st = conn.createStatement()) {
+            try (ResultSet rs = st.executeQuery("PRAGMA query_only")) {
+                assertEquals(1, rs.getInt(1));
+            }
+            try (ResultSet rs = st.executeQuery("PRAGMA journal_mode")) {
+                assertEquals("wal", rs.getString(1));
+            }
+            assertThrows(SQLException.class, () -> st.executeUpdate("DELETE FROM customers"));
+        }
+    }
+
+    @Test
+    void writesCommitWhileAReaderHoldsAnOpenSnapshot() throws SQLException {
+        try (Connection reader = DBUtil.getReadConnection()) {
+            reader.setAutoCommit(false);
+            try {
+                assertEquals(10_000, balance(reader));
+
+                service.deposit(service.getAccountByNumber("RL-1"), 1);
+
+                // The reader keeps its snapshot until its transaction ends
+                assertEquals(10_000, balance(reader));
+                reader.rollback();
+                assertEquals(10_001, balance(reader));
+            } finally {
+                reader.rollback();
+                reader.setAutoCommit(true);
+            }
+        }
+    }
+
+    @Test
+    void readsCompleteWhileAWriterHoldsTheLock() throws SQLException {
+        try (Connection writer = DBUtil.getConnection(); Statement st = writer.createStatement()) {
+            writer.setAutoCommit(false);
+            st.executeUpdate("UPDATE accounts SET balance = balance + 1 WHERE accountNumber = 'RL-1'");
+
+            // The writer holds the write lock until it commits; the read lane is not blocked by it
+            assertEquals(10_000, new AccountDAO().getAccountByNumber("RL-1").getBalance());
+            writer.commit();
+        }
+        assertEquals(10_001, new AccountDAO().getAccountByNumber("RL-1").getBalance());
+    }
+
+    /**
+     * Reads the balance of RL-1.
+     *
+     * @param conn The connection to read on
+     * @return The balance in thebe
+     * @throws SQLException if a database error occurs
+     */
+    private static long balance(Connection conn) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT balance FROM accounts WHERE accountNumber = ?")) {
+            ps.setString(1, "RL-1");
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.getLong(1);
+            }
+        }
+    }
+}
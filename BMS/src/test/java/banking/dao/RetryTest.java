@@ -0,0 +1,84 @@
+package banking.dao;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.sqlite.SQLiteErrorCode;
+
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Retrying busy work: busy errors are retried until the deadline, other errors and inner
+ * retries that gave up are not.
+ *
+ * @author Banking System
+ */
+class RetryTest {
+    private TemporaryDatabase db;
+
+    @BeforeEach
+    void setUp() {
+        db = TemporaryDatabase.onDisk();
+        DBUtil.configure(db.getConfig().withBusyHandling(0, 50));
+    }
+
+    @AfterEach
+    void tearDown() {
+        db.close();
+    }
+
+    @Test
+    void busyWorkIsRetriedUntilTheDeadline() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        DatabaseBusyException ex = assertThrows(DatabaseBusyException.class, () -> Retry.always("wait", () -> {
+            attempts.incrementAndGet();
+            throw busy();
+        }));
+
+        assertTrue(attempts.get() > 1);
+        assertTrue(DBUtil.isBusy(ex));
+    }
+
+    @Test
+    void anInnerRetryThatGaveUpIsNotRetriedAgain() {
+        AtomicInteger outer = new AtomicInteger();
+
+        SQLException ex = assertThrows(SQLException.class, () -> Retry.always("outer", () -> {
+            outer.incrementAndGet();
+            return Retry.always("inner", () -> {
+                throw busy();
+            });
+        }));
+
+        assertEquals(1, outer.get());
+        assertInstanceOf(DatabaseBusyException.class, ex);
+    }
+
+    @Test
+    void otherErrorsAreNotRetried() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThrows(SQLException.class, () -> Retry.always("fail", () -> {
+            attempts.incrementAndGet();
+            throw new SQLException("constraint failed", null, SQLiteErrorCode.SQLITE_CONSTRAINT.code);
+        }));
+
+        assertEquals(1, attempts.get());
+    }
+
+    /**
+     * Creates the error SQLite reports when another connection holds the lock.
+     *
+     * @return The error
+     */
+    private static SQLException busy() {
+        return new SQLException("database is locked", null, SQLiteErrorCode.SQLITE_BUSY.code);
+    }
+}
@@ -0,0 +1,140 @@
+package banking.dao;
+
+import banking.bulk.AccountTable;
+import banking.model.Account;
+import banking.model.AccountRequest;
+import banking.model.ChequeAccount;
+import banking.model.InvestmentAccount;
+import banking.model.SavingsAccount;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares AccountRowMapper, which resolves column indexes once per ResultSet and switches on
+ * the type code, with mapping every row by column name and switching on the type name, as the
+ * DAOs did before. Both read the same full-table scan, so the difference is the mapping alone.
+ * Run with: mvn test -Pbenchmark
+ *
+ * @author Banking System
+ */
+@Tag("benchmark")
+class RowMapperBenchmarkTest {
+    private static final int CUSTOMERS = 1_000;
+    private static final int ACCOUNTS_PER_CUSTOMER = 100;
+    private static final int ROUNDS = 10;
+
+    private TemporaryDatabase db;
+
+    @BeforeEach
+    void setUp() {
+        db = TemporaryDatabase.onDisk();
+    }
+
+    @AfterEach
+    void tearDown() {
+        db.close();
+    }
+
+    @Test
+    void indexedAgainstByName() throws SQLException {
+        CustomerDAO customers = new CustomerDAO();
+        List<AccountRequest> requests = new ArrayList<>();
+        for (int c = 0; c < CUSTOMERS; c++) {
+            int customer = customers.createCustomer("Bench", "Customer " + c, "Gaborone", "Debswana", "Jwaneng",
+                                                    "rm-" + c, "pw").getId();
+            for (int a = 0; a < ACCOUNTS_PER_CUSTOMER; a++) {
+                String number = "RM-" + c + "-" + a;
+                requests.add(switch (a % 3) {
+                    case 0 -> AccountRequest.savings(customer, number, 1_000, "Main");
+                    case 1 -> AccountRequest.investment(customer, number, 100_000, "Main");
+                    default -> AccountRequest.cheque(customer, number, 1_000, "Main", "Debswana", "Jwaneng");
+                });
+            }
+        }
+        new AccountDAO().createAccounts(requests);
+        int rows;
+        try (Connection conn = DBUtil.getReadConnection();
+             Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM accounts")) {
+            // Includes the sample accounts
+            rows = rs.getInt(1);
+        }
+
+        // The first rounds warm up the JIT and the page cache
+        long indexed = Long.MAX_VALUE;
+        long byName = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            indexed = Math.min(indexed, scan(rows, true));
+            byName = Math.min(byName, scan(rows, false));
+        }
+        System.out.printf("Mapping %,d accounts: by name %,.0f rows/s, indexed %,.0f rows/s (%.2fx)%n",
+                          rows, rows / (byName / 1e9), rows / (indexed / 1e9), (double) byName / indexed);
+    }
+
+    /**
+     * Maps every account row once.
+     *
+     * @param expected The number of rows
+     * @param indexed Whether to use AccountRowMapper or look up columns by name
+     * @return The elapsed time in nanoseconds
+     * @throws SQLException if a database error occurs
+     */
+    private static long scan(int expected, boolean indexed) throws SQLException {
+        long started = System.nanoTime();
+        int mapped = 0;
+        try (Connection conn = DBUtil.getReadConnection();
+             Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT " + AccountRowMapper.COLUMNS + " FROM accounts")) {
+            st.setFetchSize(10_000);
+            AccountRowMapper mapper = indexed ? new AccountRowMapper(rs) : null;
+            while (rs.next()) {
+                Account account = indexed ? mapper.map() : mapByName(rs, DBUtil.dictionary());
+                if (account != null) {
+                    mapped++;
+                }
+            }
+        }
+        long elapsed = System.nanoTime() - started;
+        assertEquals(expected, mapped);
+        return elapsed;
+    }
+
+    /**
+     * Maps the current row the way the DAOs did before AccountRowMapper.
+     *
+     * @param rs The ResultSet
+     * @param dictionary The dictionary decoding branch and employer ids
+     * @return The account
+     * @throws SQLException if a database error occurs
+     */
+    private static Account mapByName(ResultSet rs, Dictionary dictionary) throws SQLException {
+        int id = rs.getInt("id");
+        String accountNumber = rs.getString("accountNumber");
+        long balance = rs.getLong("balance");
+        int branchId = rs.getInt("branch_id");
+        String branch = rs.wasNull() ? null : dictionary.branchName(branchId);
+        String type = AccountTable.typeName((byte) rs.getInt("type_code"));
+        int customerId = rs.getInt("customer_id");
+        int employerId = rs.getInt("employer_id");
+        Dictionary.Employer employer = rs.wasNull() ? null : dictionary.employer(employerId);
+        return switch (type) {
+            case "SAVINGS" -> new SavingsAccount(id, accountNumber, balance, branch, customerId);
+            case "INVESTMENT" -> new InvestmentAccount(id, accountNumber, balance, branch, customerId);
+            case "CHEQUE" -> new ChequeAccount(id, accountNumber, balance, branch, customerId,
+                                               employer == null ? null : employer.name(),
+                                               employer == null ? null : employer.address());
+            default -> null;
+        };
+    }
+}
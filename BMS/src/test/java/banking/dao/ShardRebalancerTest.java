@@ -0,0 +1,141 @@
+package banking.dao;
+
+import banking.bulk.LedgerReconciler;
+import banking.model.Account;
+import banking.model.AccountRequest;
+import banking.model.Customer;
+import banking.service.AccountService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Moving branches between shards: IDs in the target's range, movements and customers kept, repeatable steps.
+ *
+ * @author Banking System
+ */
+class ShardRebalancerTest {
+    private TemporaryDatabase db;
+    private AccountService service;
+    private ShardRouter.Shard north;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        db = TemporaryDatabase.onDisk();
+        service = new AccountService();
+        Path primary = Path.of(DBUtil.shards().primary().file());
+        north = DBUtil.createShard(primary.resolveSibling("north.db").toString());
+        int customer = new CustomerDAO().createCustomer("Kabo", "Dintwe", "Serowe", "Botash", "Sua",
+                                                        "kdintwe", "secret").getId();
+        service.openAccounts(List.of(
+                AccountRequest.cheque(customer, "EAST-1", 1_000, "East", "Botash", "Sua"),
+                AccountRequest.cheque(customer, "EAST-2", 2_000, "East", "Botash", "Sua"),
+                AccountRequest.cheque(customer, "MAIN-1", 500, "Main", "Botash", "Sua")));
+        service.transfer(service.getAccountByNumber("EAST-1"), service.getAccountByNumber("EAST-2"), 300);
+    }
+
+    @AfterEach
+    void tearDown() {
+        db.close();
+    }
+
+    @Test
+    void movedAccountsGetIdsInTheTargetRangeAndKeepTheirMovements() throws SQLException {
+        assertEquals(2, new ShardRebalancer().moveBranch("East", north));
+
+        Account moved = service.getAccountByNumber("EAST-2");
+        assertEquals(2_300, moved.getBalance());
+        assertTrue(moved.getId() > north.id() * ShardRouter.ID_SPAN);
+        assertEquals(0, count(DBUtil.shards().primary(), "EAST-%"));
+        assertEquals(2, count(north, "EAST-%"));
+        assertTrue(new LedgerReconciler().reconcile(d -> { }).isClean());
+
+        // New accounts of the branch continue in the target's range too
+        service.deposit(moved, 1);
+        assertEquals(2_301, service.getAccountByNumber("EAST-2").getBalance());
+    }
+
+    @Test
+    void repeatingAMoveChangesNothing() throws SQLException {
+        ShardRebalancer rebalancer = new ShardRebalancer();
+        rebalancer.moveBranch("East", north);
+        // As if the mapping update had been lost after the copy and delete committed
+        DBUtil.assignBranch("East", DBUtil.shards().primary());
+
+        assertEquals(0, rebalancer.moveBranch("East", north));
+        assertEquals(2, count(north, "EAST-%"));
+        assertEquals(700, service.getAccountByNumber("EAST-1").getBalance());
+        assertTrue(new LedgerReconciler().reconcile(d -> { }).isClean());
+    }
+
+    @Test
+    void customersMoveWithTheirHomeBranchAndKeepTheirIds() throws SQLException {
+        CustomerDAO customers = new CustomerDAO();
+        int local = customers.createCustomer("Onalenna", "Kgosi", "Mahalapye", null, null, "East",
+                                             "okgosi", "secret").getId();
+        DBUtil.assignBranch("West", north);
+        int remote = customers.createCustomer("Boipelo", "Moeti", "Ghanzi", null, null, "West",
+                                              "bmoeti", "secret").getId();
+        assertEquals(1, countCustomers(north, remote));
+        assertEquals(0, countCustomers(DBUtil.shards().primary(), remote));
+
+        new ShardRebalancer().moveBranch("East", north);
+
+        assertEquals(1, countCustomers(north, local));
+        assertEquals(0, countCustomers(DBUtil.shards().primary(), local));
+        assertEquals(local, customers.getCustomerByCredentials("okgosi", "secret").getId());
+        customers.updateEmploymentInfo(local, "Botash", "Sua");
+        assertEquals("Botash", customers.getCustomerById(local).getEmployerName());
+        // Customers without a home branch stay on the primary
+        assertEquals(3, customers.getCustomerByCredentials("kdintwe", "secret").getAccounts().size());
+        List<Integer> ids = customers.getAllCustomers().stream().map(Customer::getId).toList();
+        assertEquals(ids.stream().sorted().toList(), ids);
+        assertTrue(ids.containsAll(List.of(local, remote)));
+    }
+
+    /**
+     * Counts the customers with an ID on a shard.
+     *
+     * @param shard The shard
+     * @param customerId The customer ID
+     * @return 1 if the shard holds the customer, otherwise 0
+     * @throws SQLException if a database error occurs
+     */
+    private static int countCustomers(ShardRouter.Shard shard, int customerId) throws SQLException {
+        try (Connection conn = DBUtil.getReadConnection(shard);
+             PreparedStatement ps = conn.prepareStatement("SELECT COUNT(*) FROM customers WHERE id = ?")) {
+            ps.setInt(1, customerId);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.getInt(1);
+            }
+        }
+    }
+
+    /**
+     * Counts the accounts on a shard whose numbers match a pattern.
+     *
+     * @param shard The shard
+     * @param pattern The LIKE pattern
+     * @return The number of accounts
+     * @throws SQLException if a database error occurs
+     */
+    private static int count(ShardRouter.Shard shard, String pattern) throws SQLException {
+        try (Connection conn = DBUtil.getReadConnection(shard);
+             PreparedStatement ps = conn.prepareStatement("SELECT COUNT(*) FROM accounts WHERE accountNumber LIKE ?")) {
+            ps.setString(1, pattern);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.getInt(1);
+            }
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package banking.dao;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The shard topology: id ranges that fit in an int, and fan-outs on a router replaced by a reload.
+ *
+ * @author Banking System
+ */
+class ShardRouterTest {
+    private TemporaryDatabase db;
+    private Path primary;
+
+    @BeforeEach
+    void setUp() {
+        db = TemporaryDatabase.onDisk();
+        primary = Path.of(DBUtil.shards().primary().file());
+    }
+
+    @AfterEach
+    void tearDown() {
+        db.close();
+    }
+
+    @Test
+    void shardsWhoseIdRangeWouldOverflowAreRejected() throws SQLException {
+        assertTrue((ShardRouter.MAX_SHARD_ID + 1) * ShardRouter.ID_SPAN - 1 <= Integer.MAX_VALUE);
+        assertTrue((ShardRouter.MAX_SHARD_ID + 2) * ShardRouter.ID_SPAN - 1 > Integer.MAX_VALUE);
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement ps = conn.prepareStatement("INSERT INTO shards(id, file) VALUES (?, ?)")) {
+            ps.setInt(1, ShardRouter.MAX_SHARD_ID);
+            ps.setString(2, primary.resolveSibling("last.db").toString());
+            ps.executeUpdate();
+        }
+
+        assertThrows(IllegalStateException.class,
+                     () -> DBUtil.createShard(primary.resolveSibling("overflow.db").toString()));
+        assertEquals(0, count("SELECT COUNT(*) FROM shards WHERE file LIKE '%overflow.db'"));
+    }
+
+    @Test
+    void fanOutOnAReplacedRouterStillAnswers() throws SQLException {
+        DBUtil.createShard(primary.resolveSibling("north.db").toString());
+        ShardRouter previous = DBUtil.shards();
+        previous.fanOut(conn -> List.of(1));
+
+        DBUtil.reloadShards();
+
+        assertEquals(List.of(1, 1), previous.fanOut(conn -> List.of(1)));
+        assertEquals(List.of(1, 1), DBUtil.shards().fanOut(conn -> List.of(1)));
+    }
+
+    /**
+     * Runs a count query on the primary database.
+     *
+     * @param sql The query
+     * @return The count
+     * @throws SQLException if a database error occurs
+     */
+    private static int count(String sql) throws SQLException {
+        try (Connection conn = DBUtil.getReadConnection();
+             PreparedStatement ps = conn.prepareStatement(sql);
+             ResultSet rs = ps.executeQuery()) {
+            return rs.getInt(1);
+        }
+    }
+}
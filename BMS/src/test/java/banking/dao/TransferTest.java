@@ -0,0 +1,152 @@
+package banking.dao;
+
+import banking.bulk.LedgerReconciler;
+import banking.model.Account;
+import banking.model.AccountRequest;
+import banking.model.MovementKind;
+import banking.service.AccountService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Relative balance updates and transfers, on one shard and between shards.
+ *
+ * @author Banking System
+ */
+class TransferTest {
+    private TemporaryDatabase db;
+    private AccountService service;
+    private ShardRouter.Shard north;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        db = TemporaryDatabase.onDisk();
+        service = new AccountService();
+        Path primary = Path.of(DBUtil.shards().primary().file());
+        north = DBUtil.createShard(primary.resolveSibling("north.db").toString());
+        DBUtil.assignBranch("North", north);
+        int customer = new CustomerDAO().createCustomer("Neo", "Sebego", "Maun", "Debswana", "Jwaneng",
+                                                        "nsebego", "secret").getId();
+        service.openAccounts(List.of(
+                AccountRequest.cheque(customer, "MAIN-1", 1_000, "Main", "Debswana", "Jwaneng"),
+                AccountRequest.cheque(customer, "MAIN-2", 1_000, "Main", "Debswana", "Jwaneng"),
+                AccountRequest.cheque(customer, "NORTH-1", 1_000, "North", "Debswana", "Jwaneng")));
+    }
+
+    @AfterEach
+    void tearDown() {
+        db.close();
+    }
+
+    @Test
+    void staleAccountObjectDoesNotOverwriteStoredBalance() {
+        Account first = service.getAccountByNumber("MAIN-1");
+        Account stale = service.getAccountByNumber("MAIN-1");
+
+        service.deposit(first, 100);
+        service.deposit(stale, 5);
+
+        assertEquals(1_105, stale.getBalance());
+        assertEquals(1_105, service.getAccountByNumber("MAIN-1").getBalance());
+        // The guard is on the stored balance, not on the stale object
+        assertThrows(IllegalArgumentException.class, () -> service.withdraw(first, 1_106));
+        assertEquals(1_100, first.getBalance());
+        assertEquals(1_105, service.getAccountByNumber("MAIN-1").getBalance());
+    }
+
+    @Test
+    void transferUpdatesBothAccountObjectsFromStoredBalances() {
+        Account from = service.getAccountByNumber("MAIN-1");
+        Account to = service.getAccountByNumber("MAIN-2");
+        service.deposit(service.getAccountByNumber("MAIN-2"), 50);
+
+        service.transfer(from, to, 300);
+
+        assertEquals(700, from.getBalance());
+        assertEquals(1_350, to.getBalance());
+        assertThrows(IllegalArgumentException.class, () -> service.transfer(from, to, 701));
+        assertEquals(700, service.getAccountByNumber("MAIN-1").getBalance());
+    }
+
+    @Test
+    void transferBetweenShardsCreditsThroughTheOutbox() throws SQLException {
+        Account from = service.getAccountByNumber("MAIN-1");
+        Account to = service.getAccountByNumber("NORTH-1");
+
+        service.transfer(from, to, 400);
+
+        assertEquals(600, from.getBalance());
+        assertEquals(1_400, to.getBalance());
+        assertEquals(1_400, service.getAccountByNumber("NORTH-1").getBalance());
+        assertEquals(0, outboxSize(DBUtil.shards().primary()));
+        assertTrue(new LedgerReconciler().reconcile(d -> { }).isClean());
+        assertThrows(IllegalStateException.class,
+                     () -> DBUtil.inTransaction(() -> {
+                         new AccountDAO().transfer(from, to, 1);
+                         return null;
+                     }));
+        assertEquals(600, service.getAccountByNumber("MAIN-1").getBalance());
+    }
+
+    @Test
+    void pendingCreditsAreCompletedExactlyOnce() throws SQLException {
+        ShardRouter.Shard main = DBUtil.shards().primary();
+        // A crash straight after the debit committed
+        TransferOutbox.Pending pending = DBUtil.inTransaction(() -> {
+            try (Connection conn = DBUtil.getConnection(main)) {
+                assertEquals(750L, AccountDAO.tryDebit(conn, "MAIN-1", 250, MovementKind.TRANSFER));
+                return TransferOutbox.add(conn, main, "NORTH-1", "North", 250);
+            }
+        });
+        assertEquals(1, outboxSize(main));
+
+        assertEquals(1, TransferOutbox.completePending());
+        assertEquals(0, TransferOutbox.completePending());
+        assertEquals(1_250, service.getAccountByNumber("NORTH-1").getBalance());
+
+        // A crash after the credit committed but before the outbox row was deleted
+        try (Connection conn = DBUtil.getConnection(main);
+             PreparedStatement ps = conn.prepareStatement(
+                     "INSERT INTO transfer_outbox(id, to_account, to_branch, amount, created_at) "
+                     + "VALUES (?, ?, ?, ?, 0)")) {
+            ps.setLong(1, pending.id());
+            ps.setString(2, "NORTH-1");
+            ps.setString(3, "North");
+            ps.setLong(4, 250);
+            ps.executeUpdate();
+        }
+        TransferOutbox.completePending();
+
+        assertEquals(0, outboxSize(main));
+        assertEquals(750, service.getAccountByNumber("MAIN-1").getBalance());
+        assertEquals(1_250, service.getAccountByNumber("NORTH-1").getBalance());
+        assertTrue(new LedgerReconciler().reconcile(d -> { }).isClean());
+    }
+
+    /**
+     * Counts the credits still pending on a shard.
+     *
+     * @param shard The shard
+     * @return The number of outbox rows
+     */
+    private static int outboxSize(ShardRouter.Shard shard) throws SQLException {
+        try (Connection conn = DBUtil.getReadConnection(shard);
+             PreparedStatement ps = conn.prepareStatement("SELECT COUNT(*) FROM transfer_outbox");
+             ResultSet rs = ps.executeQuery()) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package banking.dao;
+
+import banking.model.AccountRequest;
+import banking.repository.DuplicateKeyException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The account number registry: unique across shards and processes, whatever the filters know.
+ *
+ * @author Banking System
+ */
+class UniqueKeysTest {
+    private TemporaryDatabase db;
+    private AccountDAO accounts;
+    private int customer;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        db = TemporaryDatabase.onDisk();
+        Path primary = Path.of(DBUtil.shards().primary().file());
+        ShardRouter.Shard north = DBUtil.createShard(primary.resolveSibling("north.db").toString());
+        DBUtil.assignBranch("North", north);
+        accounts = new AccountDAO();
+        customer = new CustomerDAO().createCustomer("Lesego", "Molefe", "Palapye", null, null,
+                                                    "lmolefe", "secret").getId();
+        // Another process opens NORTH-9 on the north shard; this process's filter never sees it
+        DBUtil.inTransaction(() -> {
+            UniqueKeys.register(List.of("NORTH-9"));
+            try (Connection conn = DBUtil.getConnection(north);
+                 PreparedStatement ps = conn.prepareStatement(
+                         "INSERT INTO accounts(accountNumber, balance, type_code, customer_id) VALUES (?, 0, 0, ?)")) {
+                ps.setString(1, "NORTH-9");
+                ps.setInt(2, customer);
+                ps.executeUpdate();
+            }
+            return null;
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        db.close();
+    }
+
+    @Test
+    void numberTakenOnAnotherShardByAnotherProcessIsRejected() {
+        assertThrows(DuplicateKeyException.class,
+                     () -> accounts.createSavingsAccount(customer, "NORTH-9", 100, "Main"));
+        assertThrows(DuplicateKeyException.class, () -> accounts.createAccounts(List.of(
+                AccountRequest.savings(customer, "MAIN-7", 100, "Main"),
+                AccountRequest.savings(customer, "NORTH-9", 100, "Main"))));
+        assertNull(accounts.getAccountByNumber("MAIN-7"));
+    }
+
+    @Test
+    void backfillRegistersExistingAccounts() throws SQLException {
+        accounts.createSavingsAccount(customer, "MAIN-8", 100, "North");
+        try (Connection conn = DBUtil.getConnection(); Statement st = conn.createStatement()) {
+            st.executeUpdate("DELETE FROM account_numbers");
+        }
+        assertFalse(UniqueKeys.isRegistered("MAIN-8"));
+
+        UniqueKeys.backfill();
+
+        assertTrue(UniqueKeys.isRegistered("MAIN-8"));
+        assertTrue(UniqueKeys.isRegistered("NORTH-9"));
+    }
+}
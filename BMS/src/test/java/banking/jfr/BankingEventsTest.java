@@ -0,0 +1,112 @@
+package banking.jfr;
+
+import banking.dao.CustomerDAO;
+import banking.dao.DBUtil;
+import banking.dao.TemporaryDatabase;
+import banking.model.Account;
+import banking.model.AccountRequest;
+import banking.model.OperationStatus;
+import banking.service.AccountService;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The banking Flight Recorder events, recorded with the shipped jfr/banking.jfc settings:
+ * each operation commits one event carrying its fields and outcome.
+ *
+ * @author Banking System
+ */
+class BankingEventsTest {
+    private TemporaryDatabase db;
+    private AccountService service;
+    private int customer;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        db = TemporaryDatabase.onDisk();
+        service = new AccountService();
+        customer = new CustomerDAO().createCustomer("Onalenna", "Sebina", "Lobatse", "BTC", "Gaborone",
+                                                    "osebina", "secret").getId();
+        service.openAccounts(List.of(AccountRequest.cheque(customer, "JFR-1", 1_000, "Main", "BTC", "Gaborone")));
+    }
+
+    @AfterEach
+    void tearDown() {
+        db.close();
+    }
+
+    @Test
+    void operationsCommitEventsWithTheirFields() throws Exception {
+        Path file = Path.of(DBUtil.shards().primary().file()).resolveSibling("events.jfr");
+        try (Recording recording = new Recording(Configuration.create(Path.of("jfr", "banking.jfc")))) {
+            recording.start();
+            Account account = service.getAccountByNumber("JFR-1");
+            service.deposit(account, 250);
+            assertThrows(IllegalArgumentException.class, () -> service.withdraw(account, 5_000));
+            assertEquals(OperationStatus.INSUFFICIENT_FUNDS, service.tryWithdraw(account, 5_000));
+            service.openAccounts(List.of(AccountRequest.savings(customer, "JFR-2", 300, "Main"),
+                                         AccountRequest.savings(customer, "JFR-3", 200, "Main")));
+            LoginEvent.start().finish("osebina", "CUSTOMER", false);
+            recording.stop();
+            recording.dump(file);
+        }
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+
+        List<RecordedEvent> operations = named(events, "banking.AccountOperation");
+        assertEquals(4, operations.size());
+        RecordedEvent deposit = operations.get(0);
+        assertEquals("DEPOSIT", deposit.getString("operation"));
+        assertEquals("JFR-1", deposit.getString("accountNumber"));
+        assertEquals("CHEQUE", deposit.getString("accountType"));
+        assertEquals(250, deposit.getLong("amount"));
+        assertEquals(1, deposit.getInt("accounts"));
+        assertEquals(AccountOperationEvent.OK, deposit.getString("outcome"));
+        assertFalse(deposit.getDuration().isNegative());
+        assertEquals(AccountOperationEvent.FAILED, operations.get(1).getString("outcome"));
+        assertEquals(OperationStatus.INSUFFICIENT_FUNDS.name(), operations.get(2).getString("outcome"));
+        RecordedEvent batch = operations.get(3);
+        assertEquals("OPEN_BATCH", batch.getString("operation"));
+        assertEquals(2, batch.getInt("accounts"));
+        assertEquals(500, batch.getLong("amount"));
+        assertEquals(AccountOperationEvent.OK, batch.getString("outcome"));
+
+        List<RecordedEvent> queries = named(events, "banking.Query");
+        assertTrue(queries.stream().anyMatch(q -> "account.update".equals(q.getString("sqlId"))
+                                                   && q.getLong("rows") == 1));
+
+        List<RecordedEvent> logins = named(events, "banking.Login");
+        assertEquals(1, logins.size());
+        assertEquals("osebina", logins.get(0).getString("username"));
+        assertEquals("CUSTOMER", logins.get(0).getString("userType"));
+        assertFalse(logins.get(0).getBoolean("succeeded"));
+    }
+
+    /**
+     * Selects the events of one type, in the order they were committed.
+     *
+     * @param events The recorded events
+     * @param name The event name
+     * @return The matching events
+     */
+    private static List<RecordedEvent> named(List<RecordedEvent> events, String name) {
+        return events.stream()
+                .filter(e -> e.getEventType().getName().equals(name))
+                .sorted(Comparator.comparing(RecordedEvent::getEndTime))
+                .toList();
+    }
+}
@@ -0,0 +1,40 @@
+package banking.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Balance arithmetic on the account model.
+ *
+ * @author Banking System
+ */
+class AccountTest {
+
+    @Test
+    void depositThatWouldOverflowIsRejected() {
+        Account account = new ChequeAccount(1, "C-1", Long.MAX_VALUE - 10, "Main", 1, "Debswana", "Jwaneng");
+
+        assertEquals(OperationStatus.BALANCE_LIMIT_EXCEEDED, account.tryDeposit(11));
+        assertThrows(IllegalArgumentException.class, () -> account.deposit(11));
+        assertEquals(Long.MAX_VALUE - 10, account.getBalance());
+
+        assertEquals(OperationStatus.OK, account.tryDeposit(10));
+        assertEquals(Long.MAX_VALUE, account.getBalance());
+    }
+
+    @Test
+    void rejectionsAreReportedAsStatuses() {
+        Account cheque = new ChequeAccount(1, "C-1", 100, "Main", 1, "Debswana", "Jwaneng");
+        Account savings = new SavingsAccount(2, "S-1", 100, "Main", 1);
+
+        assertEquals(OperationStatus.INVALID_AMOUNT, cheque.tryDeposit(0));
+        assertEquals(OperationStatus.INVALID_AMOUNT, cheque.tryWithdraw(-1));
+        assertEquals(OperationStatus.INSUFFICIENT_FUNDS, cheque.tryWithdraw(101));
+        assertEquals(OperationStatus.NOT_PERMITTED, savings.tryWithdraw(1));
+        assertEquals(OperationStatus.OK, cheque.tryWithdraw(100));
+        assertEquals(0, cheque.getBalance());
+        assertEquals(100, savings.getBalance());
+    }
+}
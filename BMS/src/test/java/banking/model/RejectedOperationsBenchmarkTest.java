@@ -0,0 +1,77 @@
+package banking.model;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Reject-heavy workload: withdrawals that almost all fail for lack of funds, through the
+ * exception-throwing API and through the status-returning one.
+ * Run with: mvn test -Pbenchmark
+ *
+ * @author Banking System
+ */
+@Tag("benchmark")
+class RejectedOperationsBenchmarkTest {
+    private static final int ROUNDS = 5;
+    private static final int ATTEMPTS = 1_000_000;
+
+    @Test
+    void statusesAreCheaperThanExceptions() {
+        long thrown = 0;
+        long returned = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            // The first round only warms up the JIT
+            long t = withExceptions();
+            long r = withStatuses();
+            if (round > 0) {
+                thrown += t;
+                returned += r;
+            }
+        }
+        System.out.printf("Rejected withdrawal: exception %.1f ns/op, status %.1f ns/op%n",
+                          (double) thrown / ((ROUNDS - 1) * (long) ATTEMPTS),
+                          (double) returned / ((ROUNDS - 1) * (long) ATTEMPTS));
+    }
+
+    /**
+     * Attempts withdrawals through {@link Account#withdraw(long)}, catching each rejection.
+     *
+     * @return The elapsed time in nanoseconds
+     */
+    private static long withExceptions() {
+        Account account = new ChequeAccount(1, "C-1", 1, "Main", 1, "Debswana", "Jwaneng");
+        int rejected = 0;
+        long started = System.nanoTime();
+        for (int i = 0; i < ATTEMPTS; i++) {
+            try {
+                account.withdraw(2);
+            } catch (IllegalArgumentException e) {
+                rejected++;
+            }
+        }
+        long elapsed = System.nanoTime() - started;
+        assertEquals(ATTEMPTS, rejected);
+        return elapsed;
+    }
+
+    /**
+     * Attempts withdrawals through {@link Account#tryWithdraw(long)}.
+     *
+     * @return The elapsed time in nanoseconds
+     */
+    private static long withStatuses() {
+        Account account = new ChequeAccount(1, "C-1", 1, "Main", 1, "Debswana", "Jwaneng");
+        int rejected = 0;
+        long started = System.nanoTime();
+        for (int i = 0; i < ATTEMPTS; i++) {
+            if (account.tryWithdraw(2) == OperationStatus.INSUFFICIENT_FUNDS) {
+                rejected++;
+            }
+        }
+        long elapsed = System.nanoTime() - started;
+        assertEquals(ATTEMPTS, rejected);
+        return elapsed;
+    }
+}
@@ -0,0 +1,115 @@
+package banking.payroll;
+
+import banking.bulk.LedgerReconciler;
+import banking.dao.DBUtil;
+import banking.dao.PayrollDAO;
+import banking.dao.ShardRouter;
+import banking.dao.TemporaryDatabase;
+import banking.model.Money;
+import banking.service.AccountService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Payroll posting over a generated dataset on two shards: the generator is repeatable, and each
+ * salary line is credited exactly once or reported.
+ *
+ * @author Banking System
+ */
+class PayrollPosterTest {
+    private static final int ACCOUNTS = 45;
+
+    private TemporaryDatabase db;
+    private Path directory;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        db = open();
+    }
+
+    @AfterEach
+    void tearDown() {
+        db.close();
+    }
+
+    @Test
+    void generatorWritesTheSameDatasetEveryTime() throws Exception {
+        Path first = directory.resolve("first.csv");
+        PayrollDataset.generate(ACCOUNTS, first);
+        byte[] firstBytes = Files.readAllBytes(first);
+        db.close();
+        db = open();
+        Path second = directory.resolve("second.csv");
+        PayrollDataset.generate(ACCOUNTS, second);
+
+        assertArrayEquals(firstBytes, Files.readAllBytes(second));
+        SalaryFile file = SalaryFile.read(second);
+        assertEquals(PayrollDataset.EMPLOYER_NAME, file.getEmployerName());
+        assertEquals(ACCOUNTS, file.size());
+        for (int i = 0; i < ACCOUNTS; i++) {
+            assertEquals(PayrollDataset.accountNumber(i), file.accountNumber(i));
+            assertEquals(PayrollDataset.salary(i), file.amount(i));
+            assertTrue(file.amount(i) >= Money.ofPula(3_000) && file.amount(i) < Money.ofPula(13_000));
+        }
+        AccountService accounts = new AccountService();
+        assertEquals("Main", accounts.getAccountByNumber(PayrollDataset.accountNumber(0)).getBranch());
+        assertEquals("North", accounts.getAccountByNumber(PayrollDataset.accountNumber(1)).getBranch());
+    }
+
+    @Test
+    void postingCreditsEachLineOnceAndReportsTheRest() throws Exception {
+        Path salaries = directory.resolve("salaries.csv");
+        PayrollDataset.generate(ACCOUNTS, salaries);
+        Files.writeString(salaries, "PD-999,100.00" + System.lineSeparator() + "PD-3,abc" + System.lineSeparator(),
+                          StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        SalaryFile file = SalaryFile.read(salaries);
+
+        // Groups of four, so each shard commits several groups
+        PostingReport report = new PayrollPoster(new PayrollDAO(), 4).post(file);
+
+        long total = 0;
+        AccountService accounts = new AccountService();
+        for (int i = 0; i < ACCOUNTS; i++) {
+            assertEquals(PayrollDataset.salary(i),
+                         accounts.getAccountByNumber(PayrollDataset.accountNumber(i)).getBalance());
+            total += PayrollDataset.salary(i);
+        }
+        assertEquals(ACCOUNTS + 2, report.lines());
+        assertEquals(ACCOUNTS, report.credited());
+        assertEquals(total, report.totalCredited());
+        assertEquals(2, report.rejected());
+        assertEquals("PD-999", report.rejections().get(0).accountNumber());
+        assertEquals("PD-3", report.rejections().get(1).accountNumber());
+        assertTrue(new LedgerReconciler().reconcile(d -> { }).isClean());
+
+        assertThrows(IllegalStateException.class, () -> new PayrollPoster().post(file));
+        assertEquals(PayrollDataset.salary(0),
+                     accounts.getAccountByNumber(PayrollDataset.accountNumber(0)).getBalance());
+    }
+
+    /**
+     * Opens a fresh database with the North branch on its own shard.
+     *
+     * @return The temporary database
+     * @throws SQLException if the shard cannot be created
+     */
+    private TemporaryDatabase open() throws SQLException {
+        TemporaryDatabase opened = TemporaryDatabase.onDisk();
+        directory = Path.of(DBUtil.shards().primary().file()).getParent();
+        ShardRouter.Shard north = DBUtil.createShard(directory.resolve("north.db").toString());
+        DBUtil.assignBranch("North", north);
+        return opened;
+    }
+}
@@ -0,0 +1,42 @@
+package banking.repository;
+
+import banking.dao.AccountDAO;
+import banking.dao.CustomerDAO;
+import banking.dao.TemporaryDatabase;
+import banking.dao.TransactionDAO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+
+/**
+ * Runs the repository contract against the SQLite DAOs.
+ *
+ * @author Banking System
+ */
+class DatabaseRepositoryTest extends RepositoryContract {
+    private TemporaryDatabase db;
+
+    @BeforeEach
+    void setUp() {
+        db = TemporaryDatabase.inMemory();
+    }
+
+    @AfterEach
+    void tearDown() {
+        db.close();
+    }
+
+    @Override
+    protected AccountRepository accounts() {
+        return new AccountDAO();
+    }
+
+    @Override
+    protected CustomerRepository customers() {
+        return new CustomerDAO();
+    }
+
+    @Override
+    protected TransactionManager transactions() {
+        return new TransactionDAO();
+    }
+}
@@ -0,0 +1,32 @@
+package banking.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+
+/**
+ * Runs the repository contract against the in-memory repositories.
+ *
+ * @author Banking System
+ */
+class InMemoryRepositoryTest extends RepositoryContract {
+    private InMemoryStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new InMemoryStore();
+    }
+
+    @Override
+    protected AccountRepository accounts() {
+        return new InMemoryAccountRepository(store);
+    }
+
+    @Override
+    protected CustomerRepository customers() {
+        return new InMemoryCustomerRepository(store);
+    }
+
+    @Override
+    protected TransactionManager transactions() {
+        return new InMemoryTransactionManager(store);
+    }
+}
@@ -0,0 +1,112 @@
+package banking.repository;
+
+import banking.dao.AccountDAO;
+import banking.dao.CustomerDAO;
+import banking.dao.TemporaryDatabase;
+import banking.model.Account;
+import banking.model.AccountRequest;
+import banking.model.MovementKind;
+import banking.model.OperationStatus;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares the in-memory repositories with the SQLite DAOs on an on-disk database, over the
+ * same seeded book: account lookups by number, customer lookups with their accounts, and
+ * guarded balance updates.
+ * Run with: mvn test -Pbenchmark
+ *
+ * @author Banking System
+ */
+@Tag("benchmark")
+class RepositoryBenchmarkTest {
+    private static final int CUSTOMERS = 2_000;
+    private static final int ACCOUNTS_PER_CUSTOMER = 5;
+    private static final int LOOKUPS = 100_000;
+    private static final int CUSTOMER_READS = 20_000;
+    private static final int UPDATES = 2_000;
+
+    @Test
+    void inMemoryAgainstSqlite() throws SQLException {
+        InMemoryStore store = new InMemoryStore();
+        run("in-memory", new InMemoryAccountRepository(store), new InMemoryCustomerRepository(store));
+        TemporaryDatabase db = TemporaryDatabase.onDisk();
+        try {
+            run("SQLite", new AccountDAO(), new CustomerDAO());
+        } finally {
+            db.close();
+        }
+    }
+
+    /**
+     * Seeds one implementation and times each operation on it.
+     *
+     * @param label The name printed with the results
+     * @param accounts The account repository
+     * @param customers The customer repository
+     */
+    private static void run(String label, AccountRepository accounts, CustomerRepository customers)
+            throws SQLException {
+        int[] customerIds = new int[CUSTOMERS];
+        List<AccountRequest> requests = new ArrayList<>();
+        for (int c = 0; c < CUSTOMERS; c++) {
+            customerIds[c] = customers.createCustomer("Bench", "Customer " + c, "Gaborone", null, null,
+                                                      "bench-" + c, "pw").getId();
+            for (int a = 0; a < ACCOUNTS_PER_CUSTOMER; a++) {
+                requests.add(AccountRequest.savings(customerIds[c], "RB-" + c + "-" + a, 1_000, "Main"));
+            }
+        }
+        accounts.createAccounts(requests);
+
+        Random random = new Random(42);
+        // One untimed pass warms up the JIT and the page cache
+        lookups(accounts, random, LOOKUPS / 10);
+        long started = System.nanoTime();
+        lookups(accounts, random, LOOKUPS);
+        double lookupRate = LOOKUPS / ((System.nanoTime() - started) / 1e9);
+
+        started = System.nanoTime();
+        for (int i = 0; i < CUSTOMER_READS; i++) {
+            assertTrue(customers.getCustomerById(customerIds[random.nextInt(CUSTOMERS)]).getAccounts().size()
+                       == ACCOUNTS_PER_CUSTOMER);
+        }
+        double customerRate = CUSTOMER_READS / ((System.nanoTime() - started) / 1e9);
+
+        List<Account> targets = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            targets.add(accounts.getAccountByNumber("RB-" + i + "-0"));
+        }
+        started = System.nanoTime();
+        for (int i = 0; i < UPDATES; i++) {
+            assertEquals(OperationStatus.OK,
+                         accounts.updateAccount(targets.get(i % targets.size()), 1, MovementKind.DEPOSIT));
+        }
+        double updateRate = UPDATES / ((System.nanoTime() - started) / 1e9);
+
+        System.out.printf("%-9s account lookups %,12.0f/s, customer reads %,10.0f/s, balance updates %,10.0f/s%n",
+                          label, lookupRate, customerRate, updateRate);
+    }
+
+    /**
+     * Looks up random accounts by number.
+     *
+     * @param accounts The account repository
+     * @param random The source of account numbers
+     * @param count The number of lookups
+     */
+    private static void lookups(AccountRepository accounts, Random random, int count) {
+        for (int i = 0; i < count; i++) {
+            String number = "RB-" + random.nextInt(CUSTOMERS) + "-" + random.nextInt(ACCOUNTS_PER_CUSTOMER);
+            assertNotNull(accounts.getAccountByNumber(number));
+        }
+    }
+}
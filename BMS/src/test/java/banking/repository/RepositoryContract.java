@@ -0,0 +1,193 @@
+package banking.repository;
+
+import banking.model.Account;
+import banking.model.AccountRequest;
+import banking.model.ChequeAccount;
+import banking.model.Customer;
+import banking.model.InvestmentAccount;
+import banking.model.MovementKind;
+import banking.model.OperationStatus;
+import banking.model.SavingsAccount;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The behaviour every AccountRepository and CustomerRepository pair must share.
+ * Each implementation runs it through a subclass that supplies fresh, empty-enough repositories.
+ *
+ * @author Banking System
+ */
+abstract class RepositoryContract {
+
+    /**
+     * Gets the account repository under test, over a fresh store.
+     *
+     * @return The account repository
+     */
+    protected abstract AccountRepository accounts();
+
+    /**
+     * Gets the customer repository under test, over the same store as accounts().
+     *
+     * @return The customer repository
+     */
+    protected abstract CustomerRepository customers();
+
+    /**
+     * Gets the transaction manager of the same store as accounts().
+     *
+     * @return The transaction manager
+     */
+    protected abstract TransactionManager transactions();
+
+    private int newCustomer(String username) throws SQLException {
+        return customers().createCustomer("Lesego", "Tau", "Gaborone", "Debswana", "Jwaneng",
+                                          username, "secret").getId();
+    }
+
+    @Test
+    void createdAccountsCanBeReadBack() throws SQLException {
+        int customer = newCustomer("contract-read");
+        SavingsAccount savings = accounts().createSavingsAccount(customer, "CT-S", 100, "Main");
+        InvestmentAccount investment = accounts().createInvestmentAccount(customer, "CT-I", 60_000, "Main");
+        ChequeAccount cheque = accounts().createChequeAccount(customer, "CT-C", 0, "Main", "Debswana", "Jwaneng");
+
+        assertInstanceOf(SavingsAccount.class, accounts().getAccountByNumber("CT-S"));
+        assertInstanceOf(InvestmentAccount.class, accounts().getAccountByNumber("CT-I"));
+        Account stored = accounts().getAccountByNumber("CT-C");
+        assertInstanceOf(ChequeAccount.class, stored);
+        assertEquals(cheque.getId(), stored.getId());
+        assertEquals("Debswana", ((ChequeAccount) stored).getEmployerName());
+        assertEquals(customer, stored.getCustomerId());
+        assertEquals(60_000, accounts().getAccountByNumber(investment.getAccountNumber()).getBalance());
+        assertEquals(100, accounts().getAccountByNumber(savings.getAccountNumber()).getBalance());
+        assertNull(accounts().getAccountByNumber("CT-NONE"));
+    }
+
+    @Test
+    void accountNumbersAreUnique() throws SQLException {
+        int customer = newCustomer("contract-unique");
+        accounts().createSavingsAccount(customer, "CT-DUP", 100, "Main");
+
+        assertThrows(DuplicateKeyException.class,
+                     () -> accounts().createSavingsAccount(customer, "CT-DUP", 100, "Main"));
+        assertThrows(DuplicateKeyException.class, () -> accounts().createAccounts(List.of(
+                AccountRequest.savings(customer, "CT-NEW", 1, "Main"),
+                AccountRequest.savings(customer, "CT-DUP", 1, "Main"))));
+        assertNull(accounts().getAccountByNumber("CT-NEW"));
+    }
+
+    @Test
+    void batchesAreCreatedInRequestOrder() throws SQLException {
+        int customer = newCustomer("contract-batch");
+        List<Account> created = accounts().createAccounts(List.of(
+                AccountRequest.savings(customer, "CT-B1", 1, "Main"),
+                AccountRequest.cheque(customer, "CT-B2", 2, "Main", "Debswana", "Jwaneng"),
+                AccountRequest.investment(customer, "CT-B3", 50_000, "Main")));
+
+        assertEquals(List.of("CT-B1", "CT-B2", "CT-B3"),
+                     created.stream().map(Account::getAccountNumber).toList());
+        assertEquals(3, customers().getCustomerById(customer).getAccounts().size());
+    }
+
+    @Test
+    void balanceChangesAreRelativeAndGuarded() throws SQLException {
+        int customer = newCustomer("contract-update");
+        Account account = accounts().createChequeAccount(customer, "CT-U", 100, "Main", "Debswana", "Jwaneng");
+        Account stale = accounts().getAccountByNumber("CT-U");
+
+        assertEquals(OperationStatus.OK, accounts().updateAccount(account, 50, MovementKind.DEPOSIT));
+        assertEquals(150, account.getBalance());
+        assertEquals(OperationStatus.OK, accounts().updateAccount(stale, -120, MovementKind.WITHDRAWAL));
+        assertEquals(30, stale.getBalance());
+        assertEquals(OperationStatus.INSUFFICIENT_FUNDS,
+                     accounts().updateAccount(account, -31, MovementKind.WITHDRAWAL));
+        assertEquals(150, account.getBalance());
+        assertEquals(OperationStatus.BALANCE_LIMIT_EXCEEDED,
+                     accounts().updateAccount(account, Long.MAX_VALUE, MovementKind.DEPOSIT));
+        assertEquals(30, accounts().getAccountByNumber("CT-U").getBalance());
+
+        Account missing = new SavingsAccount(0, "CT-MISSING", 0, "Main", customer);
+        assertThrows(IllegalArgumentException.class,
+                     () -> accounts().updateAccount(missing, 1, MovementKind.DEPOSIT));
+    }
+
+    @Test
+    void transfersMoveMoneyOrNothing() throws SQLException {
+        int customer = newCustomer("contract-transfer");
+        Account from = accounts().createChequeAccount(customer, "CT-T1", 100, "Main", "Debswana", "Jwaneng");
+        Account to = accounts().createSavingsAccount(customer, "CT-T2", 10, "Main");
+
+        accounts().transfer(from, to, 40);
+        assertEquals(60, from.getBalance());
+        assertEquals(50, to.getBalance());
+
+        assertThrows(IllegalArgumentException.class, () -> accounts().transfer(from, to, 61));
+        assertEquals(OperationStatus.INSUFFICIENT_FUNDS, accounts().tryTransfer(from, to, 61));
+        Account full = accounts().createSavingsAccount(customer, "CT-T3", Long.MAX_VALUE - 10, "Main");
+        assertEquals(OperationStatus.BALANCE_LIMIT_EXCEEDED, accounts().tryTransfer(from, full, 11));
+        assertEquals(60, accounts().getAccountByNumber("CT-T1").getBalance());
+        assertEquals(50, accounts().getAccountByNumber("CT-T2").getBalance());
+    }
+
+    @Test
+    void failedUnitOfWorkUndoesEveryChange() throws SQLException {
+        Customer customer = customers().createCustomer("Kabo", "Seretse", "Palapye", null, null,
+                                                       "contract-rollback", "pw");
+        Account from = accounts().createChequeAccount(customer.getId(), "CT-R1", 100, "Main", "BTC", "Gaborone");
+        Account to = accounts().createSavingsAccount(customer.getId(), "CT-R2", 10, "Main");
+
+        assertThrows(IllegalStateException.class, () -> transactions().inTransaction(() -> {
+            try {
+                customers().updateEmploymentInfo(customer.getId(), "BTC", "Gaborone");
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+            accounts().createSavingsAccount(customer.getId(), "CT-R3", 5, "Main");
+            accounts().updateAccount(from, 50, MovementKind.DEPOSIT);
+            accounts().transfer(from, to, 30);
+            throw new IllegalStateException("Abandon the unit");
+        }));
+
+        assertFalse(customers().getCustomerById(customer.getId()).hasEmploymentInfo());
+        assertNull(accounts().getAccountByNumber("CT-R3"));
+        assertEquals(2, customers().getCustomerById(customer.getId()).getAccounts().size());
+        assertEquals(100, accounts().getAccountByNumber("CT-R1").getBalance());
+        assertEquals(10, accounts().getAccountByNumber("CT-R2").getBalance());
+        assertEquals(100, from.getBalance());
+        assertEquals(10, to.getBalance());
+    }
+
+    @Test
+    void customersCanLogInAndChangeEmployer() throws SQLException {
+        int id = newCustomer("contract-login");
+        Customer unemployed = customers().createCustomer("Tumelo", "Ditshwanelo", "Serowe", null, null,
+                                                         "contract-plain", "pw");
+
+        assertEquals(id, customers().getCustomerByCredentials("contract-login", "secret").getId());
+        assertNull(customers().getCustomerByCredentials("contract-login", "wrong"));
+        assertThrows(DuplicateKeyException.class, () -> customers().createCustomer(
+                "Other", "Person", "Kanye", null, null, "contract-login", "pw"));
+        assertFalse(unemployed.hasEmploymentInfo());
+
+        customers().updateEmploymentInfo(unemployed.getId(), "BTC", "Gaborone");
+        Customer employed = customers().getCustomerById(unemployed.getId());
+        assertTrue(employed.hasEmploymentInfo());
+        assertEquals("BTC", employed.getEmployerName());
+
+        List<Customer> all = customers().getAllCustomers();
+        assertNotNull(all);
+        assertTrue(all.stream().anyMatch(c -> c.getId() == id));
+        assertTrue(all.stream().anyMatch(c -> c.getId() == unemployed.getId()));
+    }
+}
@@ -0,0 +1,144 @@
+package banking.service;
+
+import banking.bulk.LedgerReconciler;
+import banking.dao.CustomerDAO;
+import banking.dao.TemporaryDatabase;
+import banking.model.Account;
+import banking.model.AccountRequest;
+import banking.model.ChequeAccount;
+import banking.model.Money;
+import banking.model.OperationStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Many threads hammering one account, through the model alone and through AccountService
+ * against a temporary database.
+ *
+ * @author Banking System
+ */
+class AccountConcurrencyTest {
+    private static final int THREADS = 8;
+
+    private TemporaryDatabase db;
+    private AccountService service;
+    private int customerId;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        db = TemporaryDatabase.onDisk();
+        service = new AccountService();
+        customerId = new CustomerDAO().createCustomer("Kagiso", "Molefe", "Gaborone", "Debswana", "Jwaneng",
+                                                      "kmolefe", "secret").getId();
+    }
+
+    @AfterEach
+    void tearDown() {
+        db.close();
+    }
+
+    @Test
+    void modelBalanceCountsEveryUpdate() throws Exception {
+        Account account = new ChequeAccount(1, "C-1", 0, "Main", 1, "Debswana", "Jwaneng");
+        int rounds = 100_000;
+
+        runAll(() -> {
+            for (int i = 0; i < rounds; i++) {
+                account.deposit(3);
+                account.withdraw(2);
+            }
+            return rounds;
+        });
+
+        assertEquals((long) THREADS * rounds, account.getBalance());
+    }
+
+    @Test
+    void concurrentWithdrawalsNeverOverdraw() throws Exception {
+        Account account = new ChequeAccount(1, "C-1", 1_000, "Main", 1, "Debswana", "Jwaneng");
+
+        List<Integer> granted = runAll(() -> {
+            int ok = 0;
+            for (int i = 0; i < 1_000; i++) {
+                if (account.tryWithdraw(1) == OperationStatus.OK) {
+                    ok++;
+                }
+            }
+            return ok;
+        });
+
+        assertEquals(1_000, granted.stream().mapToInt(Integer::intValue).sum());
+        assertEquals(0, account.getBalance());
+    }
+
+    @Test
+    void serviceKeepsAccountDatabaseAndLedgerInStep() throws Exception {
+        long opening = 10 * Money.MINOR_UNITS;
+        Account account = service.openAccounts(List.of(
+                AccountRequest.cheque(customerId, "HAMMER-1", opening, "Main", "Debswana", "Jwaneng"))).get(0);
+        int rounds = 100;
+
+        List<Integer> rejected = runAll(() -> {
+            int rejections = 0;
+            for (int i = 0; i < rounds; i++) {
+                service.deposit(account, 5);
+                // Asks for more than one thread's share, so some withdrawals must be refused
+                if (!service.tryWithdraw(account, 2 * opening / THREADS).isOk()) {
+                    rejections++;
+                }
+            }
+            return rejections;
+        });
+
+        int refusals = rejected.stream().mapToInt(Integer::intValue).sum();
+        long withdrawn = (long) (THREADS * rounds - refusals) * (2 * opening / THREADS);
+        long expected = opening + 5L * THREADS * rounds - withdrawn;
+        assertTrue(refusals > 0, "No withdrawal was refused");
+        assertTrue(expected >= 0);
+        assertEquals(expected, account.getBalance());
+        assertEquals(expected, service.getAccountByNumber("HAMMER-1").getBalance());
+        assertTrue(new LedgerReconciler().reconcile(d -> { }).isClean(), "Ledger does not match the balance");
+    }
+
+    /**
+     * Runs the same task on every thread at once.
+     *
+     * @param task The task
+     * @return The results, one per thread
+     */
+    private static <T> List<T> runAll(Callable<T> task) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<T>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    return task.call();
+                }));
+            }
+            start.countDown();
+            List<T> results = new ArrayList<>();
+            for (Future<T> future : futures) {
+                results.add(future.get(2, TimeUnit.MINUTES));
+            }
+            return results;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package banking.service;
+
+import banking.dao.CustomerDAO;
+import banking.dao.DBUtil;
+import banking.dao.ShardRouter;
+import banking.dao.TemporaryDatabase;
+import banking.model.Account;
+import banking.model.AccountRequest;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Write throughput as branches are spread over more shards.
+ * Each teller thread deposits into the accounts of its own branch; with one shard every deposit
+ * waits for the same write lock, with more shards the branches commit side by side.
+ * Run with: mvn test -Pbenchmark -Dtest=ShardScalingBenchmarkTest
+ *
+ * @author Banking System
+ */
+@Tag("benchmark")
+class ShardScalingBenchmarkTest {
+    private static final int BRANCHES = 4;
+    private static final int DEPOSITS_PER_BRANCH = 500;
+    private static final long OPENING = 10_000;
+
+    @Test
+    void depositThroughputScalesWithShards() throws Exception {
+        System.out.printf("%-7s %10s %8s%n", "shards", "deposits/s", "speedup");
+        double single = 0;
+        for (int shards = 1; shards <= BRANCHES; shards *= 2) {
+            double throughput = run(shards);
+            if (shards == 1) {
+                single = throughput;
+            }
+            System.out.printf("%-7d %10.0f %7.2fx%n", shards, throughput, throughput / single);
+        }
+    }
+
+    /**
+     * Spreads the branches over a number of shards, on a fresh database, and runs one teller
+     * thread per branch.
+     *
+     * @param shards The number of shards, primary included
+     * @return The deposits per second
+     * @throws Exception if a deposit fails
+     */
+    private static double run(int shards) throws Exception {
+        TemporaryDatabase db = TemporaryDatabase.onDisk();
+        try {
+            Path primary = Path.of(DBUtil.shards().primary().file());
+            List<ShardRouter.Shard> all = new ArrayList<>(List.of(DBUtil.shards().primary()));
+            for (int s = 1; s < shards; s++) {
+                all.add(DBUtil.createShard(primary.resolveSibling("shard-" + s + ".db").toString()));
+            }
+            for (int b = 0; b < BRANCHES; b++) {
+                DBUtil.assignBranch("Branch " + b, all.get(b % shards));
+            }
+            AccountService service = new AccountService();
+            int customer = new CustomerDAO().createCustomer("Tebogo", "Mosweu", "Kanye", null, null,
+                                                            "tmosweu", "secret").getId();
+            List<AccountRequest> requests = new ArrayList<>();
+            for (int b = 0; b < BRANCHES; b++) {
+                requests.add(AccountRequest.savings(customer, "SC-" + b, OPENING, "Branch " + b));
+            }
+            List<Account> accounts = service.openAccounts(requests);
+
+            ExecutorService pool = Executors.newFixedThreadPool(BRANCHES);
+            long started = System.nanoTime();
+            try {
+                List<Future<?>> futures = new ArrayList<>();
+                for (Account account : accounts) {
+                    futures.add(pool.submit(() -> {
+                        for (int n = 0; n < DEPOSITS_PER_BRANCH; n++) {
+                            service.deposit(account, 1);
+                        }
+                        return null;
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    future.get(10, TimeUnit.MINUTES);
+                }
+            } finally {
+                pool.shutdownNow();
+            }
+            double seconds = (System.nanoTime() - started) / 1e9;
+
+            for (int b = 0; b < BRANCHES; b++) {
+                assertEquals(OPENING + DEPOSITS_PER_BRANCH, service.getAccountByNumber("SC-" + b).getBalance());
+            }
+            return BRANCHES * DEPOSITS_PER_BRANCH / seconds;
+        } finally {
+            db.close();
+        }
+    }
+}
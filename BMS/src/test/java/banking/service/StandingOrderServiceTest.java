@@ -0,0 +1,154 @@
+package banking.service;
+
+import banking.bulk.LedgerReconciler;
+import banking.dao.CustomerDAO;
+import banking.dao.DBUtil;
+import banking.dao.ShardRouter;
+import banking.dao.StandingOrderDAO;
+import banking.dao.TemporaryDatabase;
+import banking.model.AccountRequest;
+import banking.model.OperationStatus;
+import banking.model.StandingOrder;
+import banking.repository.Repositories;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Batched execution of standing orders: refusals, transfers between shards and concurrent tellers.
+ *
+ * @author Banking System
+ */
+class StandingOrderServiceTest {
+    private static final long FIRST_RUN = 1_700_000_000_000L;
+
+    private TemporaryDatabase db;
+    private AccountService accounts;
+    private StandingOrderDAO orders;
+    private StandingOrderService service;
+    private int customer;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        db = TemporaryDatabase.onDisk();
+        Path primary = Path.of(DBUtil.shards().primary().file());
+        ShardRouter.Shard north = DBUtil.createShard(primary.resolveSibling("north.db").toString());
+        DBUtil.assignBranch("North", north);
+        orders = new StandingOrderDAO();
+        orders.createTable();
+        accounts = new AccountService();
+        service = new StandingOrderService(orders, accounts, Repositories.transactions(),
+                                          ZoneId.of("Africa/Gaborone"));
+        customer = new CustomerDAO().createCustomer("Mpho", "Kgosi", "Gaborone", "BTC", "Gaborone",
+                                                    "mkgosi", "secret").getId();
+        accounts.openAccounts(List.of(
+                AccountRequest.cheque(customer, "MAIN-1", 1_000, "Main", "BTC", "Gaborone"),
+                AccountRequest.cheque(customer, "MAIN-2", 1_000, "Main", "BTC", "Gaborone"),
+                AccountRequest.savings(customer, "SAVE-1", 1_000, "Main"),
+                AccountRequest.cheque(customer, "NORTH-1", 1_000, "North", "BTC", "Gaborone")));
+    }
+
+    @AfterEach
+    void tearDown() {
+        db.close();
+    }
+
+    @Test
+    void batchPaysEachRunAndRecordsRefusals() throws SQLException {
+        accounts.openAccounts(List.of(AccountRequest.savings(customer, "FULL-1", Long.MAX_VALUE - 10, "Main")));
+        List<StandingOrder> due = List.of(
+                order("MAIN-1", "MAIN-2", 100),
+                order("MAIN-1", "MAIN-2", 5_000),
+                order(null, "MAIN-2", 50),
+                order("SAVE-1", "MAIN-2", 10),
+                order("MAIN-1", "NORTH-1", 200),
+                order("MAIN-2", "FULL-1", 20),
+                order(null, "FULL-1", 20));
+
+        List<StandingOrder> after = service.executeBatch(due);
+
+        assertEquals(StandingOrderService.STATUS_OK, after.get(0).lastStatus());
+        assertEquals("FAILED: " + OperationStatus.INSUFFICIENT_FUNDS.getMessage(), after.get(1).lastStatus());
+        assertEquals(StandingOrderService.STATUS_OK, after.get(2).lastStatus());
+        assertEquals("FAILED: " + OperationStatus.NOT_PERMITTED.getMessage(), after.get(3).lastStatus());
+        assertEquals(StandingOrderService.STATUS_OK, after.get(4).lastStatus());
+        assertEquals("FAILED: " + OperationStatus.BALANCE_LIMIT_EXCEEDED.getMessage(), after.get(5).lastStatus());
+        assertEquals("FAILED: " + OperationStatus.BALANCE_LIMIT_EXCEEDED.getMessage(), after.get(6).lastStatus());
+        for (int i = 0; i < due.size(); i++) {
+            StandingOrder stored = orders.getByIds(List.of(due.get(i).id())).get(0);
+            assertEquals(1, stored.runs());
+            assertEquals(after.get(i).lastStatus(), stored.lastStatus());
+        }
+        assertEquals(700, accounts.getAccountByNumber("MAIN-1").getBalance());
+        assertEquals(1_150, accounts.getAccountByNumber("MAIN-2").getBalance());
+        assertEquals(1_000, accounts.getAccountByNumber("SAVE-1").getBalance());
+        assertEquals(1_200, accounts.getAccountByNumber("NORTH-1").getBalance());
+        assertEquals(Long.MAX_VALUE - 10, accounts.getAccountByNumber("FULL-1").getBalance());
+
+        // The same runs again, as another scheduler holding the old orders would try: nothing happens
+        for (StandingOrder repeated : service.executeBatch(due)) {
+            assertNull(repeated);
+        }
+        assertEquals(700, accounts.getAccountByNumber("MAIN-1").getBalance());
+        assertTrue(new LedgerReconciler().reconcile(d -> { }).isClean());
+    }
+
+    @Test
+    void batchesAndTellersOnTheSameAccountsBothComplete() throws Exception {
+        int runs = 50;
+        StandingOrder order = order("MAIN-1", "MAIN-2", 1);
+        AtomicReference<Throwable> tellerFailure = new AtomicReference<>();
+        Thread teller = new Thread(() -> {
+            try {
+                for (int i = 0; i < runs; i++) {
+                    accounts.deposit(accounts.getAccountByNumber("MAIN-2"), 1);
+                    accounts.withdraw(accounts.getAccountByNumber("MAIN-1"), 1);
+                }
+            } catch (Throwable t) {
+                tellerFailure.set(t);
+            }
+        });
+        teller.start();
+        List<StandingOrder> executed = new ArrayList<>();
+        for (int i = 0; i < runs; i++) {
+            StandingOrder after = service.execute(order);
+            assertNotNull(after);
+            executed.add(after);
+            order = orders.getByIds(List.of(order.id())).get(0);
+        }
+        teller.join();
+
+        assertNull(tellerFailure.get());
+        assertEquals(runs, order.runs());
+        for (StandingOrder after : executed) {
+            assertEquals(StandingOrderService.STATUS_OK, after.lastStatus());
+        }
+        assertEquals(1_000 - 2 * runs, accounts.getAccountByNumber("MAIN-1").getBalance());
+        assertEquals(1_000 + 2 * runs, accounts.getAccountByNumber("MAIN-2").getBalance());
+    }
+
+    /**
+     * Creates a daily order that is due.
+     *
+     * @param from The account to debit, or null for a deposit
+     * @param to The account to credit
+     * @param amount The amount in thebe
+     * @return The order
+     * @throws SQLException if a database error occurs
+     */
+    private StandingOrder order(String from, String to, long amount) throws SQLException {
+        return orders.create(customer, from, to, amount, StandingOrder.Frequency.DAILY, FIRST_RUN, null);
+    }
+}
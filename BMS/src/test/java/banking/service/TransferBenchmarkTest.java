@@ -0,0 +1,132 @@
+package banking.service;
+
+import banking.bulk.LedgerReconciler;
+import banking.dao.CustomerDAO;
+import banking.dao.DBUtil;
+import banking.dao.ShardRouter;
+import banking.dao.TemporaryDatabase;
+import banking.model.Account;
+import banking.model.AccountRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Parallel transfers over a handful of hot accounts, on one shard and between two shards.
+ * Every thread works on its own account objects, as separate tellers would, so only the
+ * guarded relative updates keep the books straight.
+ * Run with: mvn test -Pbenchmark
+ *
+ * @author Banking System
+ */
+@Tag("benchmark")
+class TransferBenchmarkTest {
+    private static final int THREADS = 8;
+    private static final int TRANSFERS_PER_THREAD = 250;
+    private static final int HOT_ACCOUNTS = 4;
+    private static final long OPENING = 10_000;
+
+    private TemporaryDatabase db;
+    private AccountService service;
+    private int customerId;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        db = TemporaryDatabase.onDisk();
+        service = new AccountService();
+        customerId = new CustomerDAO().createCustomer("Mpho", "Kgosi", "Francistown", "BCL", "Selebi-Phikwe",
+                                                      "mkgosi", "secret").getId();
+    }
+
+    @AfterEach
+    void tearDown() {
+        db.close();
+    }
+
+    @Test
+    void hotAccountsOnOneShard() throws Exception {
+        run("one shard", List.of("Main"));
+    }
+
+    @Test
+    void hotAccountsAcrossShards() throws Exception {
+        Path primary = Path.of(DBUtil.shards().primary().file());
+        ShardRouter.Shard north = DBUtil.createShard(primary.resolveSibling("north.db").toString());
+        DBUtil.assignBranch("North", north);
+        run("two shards", List.of("Main", "North"));
+    }
+
+    /**
+     * Opens the hot accounts, runs the transfers and checks that no money was made or lost.
+     *
+     * @param label The name printed with the results
+     * @param branches The branches the hot accounts are spread over
+     */
+    private void run(String label, List<String> branches) throws Exception {
+        List<AccountRequest> requests = new ArrayList<>();
+        for (int i = 0; i < HOT_ACCOUNTS; i++) {
+            requests.add(AccountRequest.cheque(customerId, "HOT-" + i, OPENING, branches.get(i % branches.size()),
+                                               "BCL", "Selebi-Phikwe"));
+        }
+        service.openAccounts(requests);
+
+        AtomicLong refused = new AtomicLong();
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        long started = System.nanoTime();
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(pool.submit(() -> {
+                    List<Account> accounts = new ArrayList<>();
+                    for (int i = 0; i < HOT_ACCOUNTS; i++) {
+                        accounts.add(service.getAccountByNumber("HOT-" + i));
+                    }
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int n = 0; n < TRANSFERS_PER_THREAD; n++) {
+                        int from = random.nextInt(HOT_ACCOUNTS);
+                        int to = (from + 1 + random.nextInt(HOT_ACCOUNTS - 1)) % HOT_ACCOUNTS;
+                        try {
+                            service.transfer(accounts.get(from), accounts.get(to), 1 + random.nextInt(2_000));
+                        } catch (IllegalArgumentException e) {
+                            refused.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.MINUTES);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        double seconds = (System.nanoTime() - started) / 1e9;
+
+        long total = 0;
+        for (int i = 0; i < HOT_ACCOUNTS; i++) {
+            long balance = service.getAccountByNumber("HOT-" + i).getBalance();
+            assertTrue(balance >= 0);
+            total += balance;
+        }
+        int attempted = THREADS * TRANSFERS_PER_THREAD;
+        System.out.printf("Transfers over %d hot accounts on %s: %d attempted, %d refused, %.0f/s%n",
+                          HOT_ACCOUNTS, label, attempted, refused.get(), attempted / seconds);
+        assertEquals(HOT_ACCOUNTS * OPENING, total);
+        assertTrue(new LedgerReconciler().reconcile(d -> { }).isClean(), "Ledger does not match the balances");
+    }
+}
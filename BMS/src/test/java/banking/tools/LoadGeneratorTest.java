@@ -0,0 +1,91 @@
+package banking.tools;
+
+import banking.dao.TemporaryDatabase;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The load generator's operation mix: parsed from its text form, and drawn in proportion to
+ * the weights by both the picker and a short closed-loop run.
+ *
+ * @author Banking System
+ */
+class LoadGeneratorTest {
+    private TemporaryDatabase db;
+
+    @BeforeEach
+    void setUp() {
+        db = TemporaryDatabase.onDisk();
+    }
+
+    @AfterEach
+    void tearDown() {
+        db.close();
+    }
+
+    @Test
+    void mixIsParsedWithUnnamedOperationsAtZero() {
+        Map<LoadGenerator.Operation, Integer> mix = LoadOptions.parseMix(" Deposit = 3, withdraw=1 ");
+
+        assertEquals(3, mix.get(LoadGenerator.Operation.DEPOSIT));
+        assertEquals(1, mix.get(LoadGenerator.Operation.WITHDRAW));
+        assertEquals(0, mix.get(LoadGenerator.Operation.LOGIN));
+        assertEquals(LoadGenerator.Operation.values().length, mix.size());
+        assertEquals(100, LoadOptions.parseMix(LoadOptions.DEFAULT_MIX).values().stream()
+                .mapToInt(Integer::intValue).sum());
+        assertThrows(IllegalArgumentException.class, () -> LoadOptions.parseMix("deposit=3,refund=1"));
+        assertThrows(IllegalArgumentException.class, () -> LoadOptions.parseMix("deposit=-1"));
+        assertThrows(IllegalArgumentException.class, () -> LoadOptions.parseMix("deposit"));
+        assertThrows(IllegalArgumentException.class, () -> LoadOptions.parse(new String[] {"--mix=open=0"}));
+    }
+
+    @Test
+    void operationsArePickedInProportionToTheirWeights() {
+        LoadOptions options = LoadOptions.parse(new String[] {"--mix=" + LoadOptions.DEFAULT_MIX});
+        LoadGenerator generator = new LoadGenerator(options);
+        Random random = new Random(7);
+        Map<LoadGenerator.Operation, Integer> drawn = new EnumMap<>(LoadGenerator.Operation.class);
+        int draws = 100_000;
+        for (int i = 0; i < draws; i++) {
+            drawn.merge(generator.pick(random), 1, Integer::sum);
+        }
+
+        for (LoadGenerator.Operation operation : LoadGenerator.Operation.values()) {
+            double expected = options.mix().get(operation) / 100.0;
+            double share = drawn.getOrDefault(operation, 0) / (double) draws;
+            // Well over four standard deviations of a binomial share at 100,000 draws
+            assertEquals(expected, share, 0.007, operation.name());
+        }
+    }
+
+    @Test
+    void closedLoopRunIssuesOnlyTheMixedOperations() throws Exception {
+        LoadOptions options = LoadOptions.parse(new String[] {
+                "--tellers=2", "--customers=10", "--duration=1", "--warmup=0", "--think=0",
+                "--mix=lookup=3,deposit=1"});
+
+        LoadReport report = new LoadGenerator(options).run();
+
+        assertTrue(report.total() > 0);
+        long lookups = 0;
+        for (LoadReport.OperationStats stats : report.operations()) {
+            assertTrue(stats.operation() == LoadGenerator.Operation.LOOKUP
+                       || stats.operation() == LoadGenerator.Operation.DEPOSIT, stats.operation().name());
+            assertEquals(0, stats.errors(), stats.operation().name());
+            assertEquals(stats.latencies().count(), stats.ok() + stats.rejected() + stats.errors());
+            if (stats.operation() == LoadGenerator.Operation.LOOKUP) {
+                lookups = stats.latencies().count();
+            }
+        }
+        assertTrue(lookups >= report.total() / 2, report.toString());
+    }
+}
@@ -0,0 +1,50 @@
+package banking.tools;
+
+import banking.dao.DBUtil;
+import banking.dao.LatencyHistogram;
+import banking.dao.PerformanceProfile;
+import banking.dao.TemporaryDatabase;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the same closed-loop LoadGenerator workload once per PerformanceProfile, each on a fresh
+ * temporary database, and prints throughput and tail latency side by side.
+ * Tellers do not think between operations, so the run measures how fast each profile commits.
+ * Run with: mvn test -Pbenchmark -Dtest=ProfileBenchmarkTest
+ *
+ * @author Banking System
+ */
+@Tag("benchmark")
+class ProfileBenchmarkTest {
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    @Test
+    void compareProfiles() throws SQLException, InterruptedException {
+        LoadOptions options = new LoadOptions(4, 40, 5, 1, 0, false, 0, 42,
+                                              LoadOptions.parseMix(LoadOptions.DEFAULT_MIX), false, null);
+        System.out.printf("%-10s %9s %10s %10s %10s%n", "profile", "ops/s", "p99 ms", "p99.9 ms", "max ms");
+        for (PerformanceProfile profile : PerformanceProfile.values()) {
+            try (TemporaryDatabase db = TemporaryDatabase.onDisk()) {
+                DBUtil.configure(db.getConfig().withProfile(profile));
+                LoadReport report = new LoadGenerator(options).run();
+                LatencyHistogram.Snapshot all = null;
+                long errors = 0;
+                for (LoadReport.OperationStats stats : report.operations()) {
+                    all = all == null ? stats.latencies() : all.plus(stats.latencies());
+                    errors += stats.errors();
+                }
+                assertTrue(report.total() > 0);
+                assertEquals(0, errors);
+                System.out.printf("%-10s %9.0f %10.2f %10.2f %10.2f%n", profile.configName(), report.throughput(),
+                                  all.percentile(99) / NANOS_PER_MILLI, all.percentile(99.9) / NANOS_PER_MILLI,
+                                  all.max() / NANOS_PER_MILLI);
+            }
+        }
+    }
+}